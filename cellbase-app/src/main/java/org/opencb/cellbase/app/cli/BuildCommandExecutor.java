@@ -24,9 +24,11 @@ import org.opencb.cellbase.app.transform.clinical.variant.CosmicParser;
 import org.opencb.cellbase.app.transform.clinical.variant.GwasParser;
 import org.opencb.cellbase.app.transform.variation.VariationParser;
 import org.opencb.cellbase.core.config.Species;
+import org.opencb.cellbase.core.serializer.CaddScoreFileSerializer;
 import org.opencb.cellbase.core.serializer.CellBaseFileSerializer;
 import org.opencb.cellbase.core.serializer.CellBaseJsonFileSerializer;
 import org.opencb.cellbase.core.serializer.CellBaseSerializer;
+import org.opencb.cellbase.core.serializer.ConservationScoreFileSerializer;
 import org.opencb.cellbase.lib.MongoDBCollectionConfiguration;
 import org.opencb.commons.utils.FileUtils;
 
@@ -60,6 +62,7 @@ public class BuildCommandExecutor extends CommandExecutor {
     private File proteinScriptsFolder;
 
     private boolean flexibleGTFParsing;
+    private CellBaseJsonFileSerializer.Compression compression;
     private Species species;
 
     public BuildCommandExecutor(CliOptionsParser.BuildCommandOptions buildCommandOptions) {
@@ -83,6 +86,12 @@ public class BuildCommandExecutor extends CommandExecutor {
         this.ensemblScriptsFolder = new File(System.getProperty("basedir") + "/bin/ensembl-scripts/");
         this.proteinScriptsFolder = new File(System.getProperty("basedir") + "/bin/protein/");
         this.flexibleGTFParsing = buildCommandOptions.flexibleGTFParsing;
+        try {
+            this.compression = CellBaseJsonFileSerializer.Compression.valueOf(buildCommandOptions.compression.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new ParameterException("Compression '" + buildCommandOptions.compression + "' is not valid. Possible "
+                    + "values: gzip, zstd, lz4");
+        }
     }
 
 
@@ -204,7 +213,7 @@ public class BuildCommandExecutor extends CommandExecutor {
         Path structuralVariantsFile = structuralVariantsFolder.resolve(EtlCommons.DGV_FILE);
 
         CellBaseSerializer serializer = new CellBaseJsonFileSerializer(output, EtlCommons.STRUCTURAL_VARIANTS_JSON,
-                true);
+                true).setCompression(compression);
         return new DgvParser(structuralVariantsFile, serializer);
     }
 
@@ -214,7 +223,7 @@ public class BuildCommandExecutor extends CommandExecutor {
         copyVersionFiles(Arrays.asList(repeatsFilesDir.resolve(EtlCommons.GSD_VERSION_FILE)));
         copyVersionFiles(Arrays.asList(repeatsFilesDir.resolve(EtlCommons.WM_VERSION_FILE)));
         // TODO: chunk size is not really used in ConvervedRegionParser, remove?
-        CellBaseFileSerializer serializer = new CellBaseJsonFileSerializer(output, EtlCommons.REPEATS_JSON);
+        CellBaseFileSerializer serializer = new CellBaseJsonFileSerializer(output, EtlCommons.REPEATS_JSON).setCompression(compression);
         return new RepeatsParser(repeatsFilesDir, serializer);
     }
 
@@ -275,8 +284,9 @@ public class BuildCommandExecutor extends CommandExecutor {
     private CellBaseParser buildGenomeSequence() {
         copyVersionFiles(Collections.singletonList(input.resolve("genome/genomeVersion.json")));
         Path fastaFile = getFastaReferenceGenome();
-        CellBaseSerializer serializer = new CellBaseJsonFileSerializer(output, "genome_sequence");
-        return new GenomeSequenceFastaParser(fastaFile, serializer);
+        CellBaseSerializer serializer = new CellBaseJsonFileSerializer(output, "genome_sequence").setCompression(compression);
+        Path twoBitOutdir = buildCommandOptions.binary ? output.resolve("genome") : null;
+        return new GenomeSequenceFastaParser(fastaFile, serializer, twoBitOutdir);
     }
 
     private CellBaseParser buildGene() {
@@ -286,15 +296,17 @@ public class BuildCommandExecutor extends CommandExecutor {
                 geneFolderPath.resolve(common.resolve("expression/geneExpressionAtlasVersion.json")),
                 geneFolderPath.resolve("hpoVersion.json"), geneFolderPath.resolve("disgenetVersion.json")));
         Path genomeFastaFilePath = getFastaReferenceGenome();
-        CellBaseSerializer serializer = new CellBaseJsonFileSerializer(output, "gene");
-        return new GeneParser(geneFolderPath, genomeFastaFilePath, species, flexibleGTFParsing, serializer);
+        CellBaseSerializer serializer = new CellBaseJsonFileSerializer(output, "gene").setCompression(compression);
+        return new GeneParser(geneFolderPath, genomeFastaFilePath, species, flexibleGTFParsing, serializer)
+                .setNumThreads(buildCommandOptions.numThreads);
     }
 
 
     private CellBaseParser buildVariation() {
         Path variationFolderPath = input.resolve("variation");
         copyVersionFiles(Arrays.asList(variationFolderPath.resolve("ensemblVariationVersion.json")));
-        CellBaseFileSerializer serializer = new CellBaseJsonFileSerializer(output, null, true, true, true);
+        CellBaseFileSerializer serializer = new CellBaseJsonFileSerializer(output, null, true, true, true)
+                .setCompression(compression);
         return new VariationParser(variationFolderPath, serializer);
     }
 
@@ -302,7 +314,10 @@ public class BuildCommandExecutor extends CommandExecutor {
         Path variationFunctionalScorePath = input.resolve("variation_functional_score");
         copyVersionFiles(Arrays.asList(variationFunctionalScorePath.resolve("caddVersion.json")));
         Path caddFilePath = variationFunctionalScorePath.resolve(CADD_INPUT_FILE_NAME);
-        CellBaseFileSerializer serializer = new CellBaseJsonFileSerializer(output, "cadd");
+        CellBaseSerializer serializer = new CellBaseJsonFileSerializer(output, "cadd").setCompression(compression);
+        if (buildCommandOptions.binary) {
+            serializer = new CaddScoreFileSerializer(output.resolve("cadd"), serializer);
+        }
         return new CaddScoreParser(caddFilePath, serializer);
     }
 
@@ -312,7 +327,7 @@ public class BuildCommandExecutor extends CommandExecutor {
                 common.resolve("mirbase/mirbaseVersion.json"),
                 regulatoryRegionFilesDir.resolve("targetScanVersion.json"),
                 regulatoryRegionFilesDir.resolve("miRTarBaseVersion.json")));
-        CellBaseSerializer serializer = new CellBaseJsonFileSerializer(output, "regulatory_region");
+        CellBaseSerializer serializer = new CellBaseJsonFileSerializer(output, "regulatory_region").setCompression(compression);
         return new RegulatoryRegionParser(regulatoryRegionFilesDir, serializer);
 
     }
@@ -321,7 +336,7 @@ public class BuildCommandExecutor extends CommandExecutor {
         Path proteinFolder = common.resolve("protein");
         copyVersionFiles(Arrays.asList(proteinFolder.resolve("uniprotVersion.json"),
                 proteinFolder.resolve("interproVersion.json")));
-        CellBaseSerializer serializer = new CellBaseJsonFileSerializer(output, "protein");
+        CellBaseSerializer serializer = new CellBaseJsonFileSerializer(output, "protein").setCompression(compression);
         return new ProteinParser(proteinFolder.resolve("uniprot_chunks"),
                 common.resolve("protein").resolve("protein2ipr.dat.gz"), species.getScientificName(), serializer);
     }
@@ -352,7 +367,8 @@ public class BuildCommandExecutor extends CommandExecutor {
         Path proteinFolder = common.resolve("protein");
         Path psimiTabFile = proteinFolder.resolve("intact.txt");
         copyVersionFiles(Arrays.asList(proteinFolder.resolve("intactVersion.json")));
-        CellBaseSerializer serializer = new CellBaseJsonFileSerializer(output, "protein_protein_interaction");
+        CellBaseSerializer serializer = new CellBaseJsonFileSerializer(output, "protein_protein_interaction")
+                .setCompression(compression);
         return new InteractionParser(psimiTabFile, species.getScientificName(), serializer);
     }
 
@@ -371,7 +387,10 @@ public class BuildCommandExecutor extends CommandExecutor {
                 conservationFilesDir.resolve("phyloPVersion.json")));
         // TODO: chunk size is not really used in ConvervedRegionParser, remove?
         int conservationChunkSize = MongoDBCollectionConfiguration.CONSERVATION_CHUNK_SIZE;
-        CellBaseFileSerializer serializer = new CellBaseJsonFileSerializer(output);
+        CellBaseFileSerializer serializer = new CellBaseJsonFileSerializer(output).setCompression(compression);
+        if (buildCommandOptions.binary) {
+            serializer = new ConservationScoreFileSerializer(output.resolve("conservation"), serializer);
+        }
         return new ConservationParser(conservationFilesDir, conservationChunkSize, serializer);
     }
 
@@ -177,6 +177,21 @@ public class CliOptionsParser {
                 + "requires more memory and is less efficient.", required = false, arity = 0)
         public boolean flexibleGTFParsing = false;
 
+        @Parameter(names = {"--binary"}, description = "Also write the memory-mapped binary files that can be used by the "
+                + "annotation instead of the database. Supported data: variation_functional_score (CADD), written to "
+                + "<OUTPUT>/cadd, conservation, written to <OUTPUT>/conservation, and genome, written as 2-bit files to "
+                + "<OUTPUT>/genome", required = false, arity = 0)
+        public boolean binary = false;
+
+        @Parameter(names = {"--compression"}, description = "Compression of the JSON data models: gzip, zstd or lz4. "
+                + "zstd and lz4 files are faster to write and load but can only be read back by the 'load' command",
+                required = false, arity = 1)
+        public String compression = "gzip";
+
+        @Parameter(names = {"--num-threads"}, description = "Number of threads used to build the gene data model, "
+                + "one chromosome per thread. Not used with --flexible-gtf-parsing", required = false, arity = 1)
+        public int numThreads = 1;
+
     }
 
 
@@ -18,6 +18,7 @@ package org.opencb.cellbase.app.cli;
 
 import org.opencb.cellbase.core.loader.LoadRunner;
 import org.opencb.cellbase.core.loader.LoaderException;
+import org.opencb.cellbase.core.serializer.CellBaseJsonFileSerializer;
 
 import java.io.File;
 import java.io.FileNotFoundException;
@@ -27,6 +28,8 @@ import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.LinkedHashSet;
+import java.util.Set;
 import java.util.concurrent.ExecutionException;
 
 /**
@@ -45,6 +48,8 @@ public class LoadCommandExecutor extends CommandExecutor {
     private String[] innerFields;
     private String loader;
     private int numThreads;
+    // Data whose feature densities are computed once all the data has been loaded
+    private Set<String> featureDensityData = new LinkedHashSet<>();
 
     public LoadCommandExecutor(CliOptionsParser.LoadCommandOptions loadCommandOptions) {
         super(loadCommandOptions.commonOptions.logLevel, loadCommandOptions.commonOptions.verbose,
@@ -122,6 +127,7 @@ public class LoadCommandExecutor extends CommandExecutor {
                             loadIfExists(input.resolve("hpoVersion.json"), METADATA);
                             loadIfExists(input.resolve("disgenetVersion.json"), METADATA);
                             loadRunner.index("gene");
+                            featureDensityData.add("gene");
                             break;
                         case EtlCommons.VARIATION_DATA:
                             loadVariationData();
@@ -174,17 +180,29 @@ public class LoadCommandExecutor extends CommandExecutor {
                     e.printStackTrace();
                 }
             }
+
+            // Histograms of unfiltered region queries are read from these counts
+            for (String data : featureDensityData) {
+                try {
+                    loadRunner.createFeatureDensities(data);
+                } catch (IllegalAccessException | InstantiationException | InvocationTargetException | NoSuchMethodException
+                        | ClassNotFoundException | LoaderException e) {
+                    logger.error("Feature densities of '{}' could not be computed: {}", data, e.getMessage());
+                }
+            }
         }
     }
 
     private void loadStructuralVariants() throws NoSuchMethodException, IllegalAccessException, InstantiationException,
             LoaderException, InvocationTargetException, ClassNotFoundException {
-        Path path = input.resolve(EtlCommons.STRUCTURAL_VARIANTS_JSON + ".json.gz");
+        Path path = getJsonFile(input.resolve(EtlCommons.STRUCTURAL_VARIANTS_JSON + ".json.gz"));
         if (Files.exists(path)) {
             try {
                 logger.debug("Loading '{}' ...", path.toString());
                 loadRunner.load(path, EtlCommons.STRUCTURAL_VARIANTS_DATA);
                 loadIfExists(input.resolve(EtlCommons.DGV_VERSION_FILE), "metadata");
+                // Structural variants are loaded into the variation collection
+                featureDensityData.add("variation");
             } catch (ClassNotFoundException | NoSuchMethodException | InstantiationException | InvocationTargetException
                     | IllegalAccessException | ExecutionException | IOException | InterruptedException e) {
                 logger.error(e.toString());
@@ -197,6 +215,7 @@ public class LoadCommandExecutor extends CommandExecutor {
     private void loadIfExists(Path path, String collection) throws NoSuchMethodException, InterruptedException,
             ExecutionException, InstantiationException, IOException, IllegalAccessException, InvocationTargetException,
             ClassNotFoundException {
+        path = getJsonFile(path);
         File file = new File(path.toString());
         if (file.exists()) {
             if (file.isFile()) {
@@ -209,6 +228,28 @@ public class LoadCommandExecutor extends CommandExecutor {
         }
     }
 
+    /**
+     * JSON data models may have been built with zstd or lz4 compression instead of gzip.
+     *
+     * @param path expected path of the gzipped JSON file
+     * @return path of an existing zstd or lz4 version of the file when the gzipped one does not exist, the given path
+     * otherwise
+     */
+    private Path getJsonFile(Path path) {
+        String fileName = path.getFileName().toString();
+        if (!Files.exists(path) && fileName.endsWith(CellBaseJsonFileSerializer.Compression.GZIP.getExtension())) {
+            String baseName = fileName.substring(0, fileName.length()
+                    - CellBaseJsonFileSerializer.Compression.GZIP.getExtension().length());
+            for (CellBaseJsonFileSerializer.Compression compression : CellBaseJsonFileSerializer.Compression.values()) {
+                Path compressedPath = path.resolveSibling(baseName + compression.getExtension());
+                if (Files.exists(compressedPath)) {
+                    return compressedPath;
+                }
+            }
+        }
+        return path;
+    }
+
     private void checkParameters() {
         if (loadCommandOptions.numThreads > 1) {
             numThreads = loadCommandOptions.numThreads;
@@ -252,6 +293,7 @@ public class LoadCommandExecutor extends CommandExecutor {
             }
             loadIfExists(input.resolve("ensemblVariationVersion.json"), METADATA);
             loadRunner.index("variation");
+            featureDensityData.add("variation");
             // Custom update required e.g. population freqs loading
         } else {
             logger.info("Loading file '{}'", input.toString());
@@ -326,7 +368,7 @@ public class LoadCommandExecutor extends CommandExecutor {
     private void loadRepeats() throws NoSuchMethodException, IllegalAccessException, InstantiationException,
             LoaderException, InvocationTargetException, ClassNotFoundException {
 
-        Path path = input.resolve(EtlCommons.REPEATS_JSON + ".json.gz");
+        Path path = getJsonFile(input.resolve(EtlCommons.REPEATS_JSON + ".json.gz"));
         if (Files.exists(path)) {
             try {
                 logger.debug("Loading '{}' ...", path.toString());
@@ -38,7 +38,6 @@ import org.opencb.biodata.formats.variant.vcf4.FullVcfCodec;
 import org.opencb.biodata.models.variant.Variant;
 import org.opencb.biodata.tools.variant.VariantNormalizer;
 import org.opencb.biodata.models.variant.avro.VariantAnnotation;
-import org.opencb.biodata.models.variant.avro.VariantAvro;
 import org.opencb.biodata.models.variant.exceptions.NonStandardCompliantSampleField;
 import org.opencb.biodata.tools.sequence.FastaIndexManager;
 import org.opencb.biodata.tools.variant.converters.avro.VariantContextToVariantConverter;
@@ -47,6 +46,7 @@ import org.opencb.cellbase.client.config.ClientConfiguration;
 import org.opencb.cellbase.client.rest.CellBaseClient;
 import org.opencb.cellbase.core.api.DBAdaptorFactory;
 import org.opencb.cellbase.core.api.GenomeDBAdaptor;
+import org.opencb.cellbase.core.variant.annotation.AnnotatorMetrics;
 import org.opencb.cellbase.core.variant.annotation.VariantAnnotationCalculator;
 import org.opencb.cellbase.core.variant.annotation.VariantAnnotationUtils;
 import org.opencb.cellbase.core.variant.annotation.VariantAnnotator;
@@ -102,6 +102,7 @@ public class VariantAnnotationCommandExecutor extends CommandExecutor {
     private Path populationFrequenciesFile = null;
     private Boolean completeInputPopulation;
     private List<RocksDB> dbIndexes;
+    private BitSet visitedPopulationFrequencies;
     private List<Options> dbOptions;
     private List<String> dbLocations;
     private List<String> customFileIds;
@@ -282,9 +283,27 @@ public class VariantAnnotationCommandExecutor extends CommandExecutor {
         }
 
         logger.info("Variant annotation finished.");
+        logAnnotatorMetrics();
         return false;
     }
 
+    private void logAnnotatorMetrics() {
+        // Only filled when annotating against a local database, remote annotation is timed by the server
+        Map<String, AnnotatorMetrics> annotatorMetricsMap = AnnotatorMetrics.getAll();
+        if (annotatorMetricsMap.isEmpty()) {
+            return;
+        }
+        logger.info(String.format("%-16s %10s %10s %10s %12s %10s %10s %10s", "Annotator", "Variants", "DB calls",
+                "Results", "Variants/s", "Mean(ms)", "p99(ms)", "Max(ms)"));
+        for (Map.Entry<String, AnnotatorMetrics> entry : annotatorMetricsMap.entrySet()) {
+            AnnotatorMetrics metrics = entry.getValue();
+            logger.info(String.format("%-16s %10d %10d %10d %12.1f %10.2f %10d %10.2f", entry.getKey(),
+                    metrics.getNumVariants(), metrics.getNumDbCalls(), metrics.getNumResults(),
+                    metrics.getVariantsPerSecond(), metrics.getMeanTimeMs(), metrics.getPercentileTimeMs(99),
+                    metrics.getMaxTimeMs()));
+        }
+    }
+
     private void writeRemainingPopFrequencies() throws IOException {
         // For internal use only - will only be run when -Dpopulation-frequencies is activated
         if (populationFrequenciesFile != null && completeInputPopulation) {
@@ -296,16 +315,14 @@ public class VariantAnnotationCommandExecutor extends CommandExecutor {
             // rocksIterator variable - for some unexplainable reason Java VM crashes if it's named "iterator"
             RocksIterator rocksIterator = dbIndexes.get(dbIndexes.size() - 1).newIterator();
 
-            ObjectMapper mapper = new ObjectMapper();
             logger.info("Writing variants with frequencies that were not found within the input file to {}",
                     populationFrequenciesFile.toString(), output.toString());
             int counter = 0;
             for (rocksIterator.seekToFirst(); rocksIterator.isValid(); rocksIterator.next()) {
-                VariantAvro variantAvro = mapper.readValue(rocksIterator.value(), VariantAvro.class);
-                // The additional attributes field initialized with an empty map is used as the flag to indicate that
-                // this variant was not visited during the annotation process
-                if (variantAvro.getAnnotation().getAdditionalAttributes() == null) {
-                    dataWriter.write(new Variant(variantAvro));
+                byte[] value = rocksIterator.value();
+                // Only variants not visited during the annotation process are parsed and written
+                if (!visitedPopulationFrequencies.get(PopulationFrequenciesAnnotator.getOrdinal(value))) {
+                    dataWriter.write(new Variant(PopulationFrequenciesAnnotator.decodeValue(value)));
                 }
 
                 counter++;
@@ -438,7 +455,7 @@ public class VariantAnnotationCommandExecutor extends CommandExecutor {
             // Rocks db connection is always the last in the list
             int i = dbIndexes.size() - 1;
             variantAnnotatorList.add(new PopulationFrequenciesAnnotator(populationFrequenciesFile.toString(),
-                    dbIndexes.get(i)));
+                    dbIndexes.get(i), visitedPopulationFrequencies));
 
         }
 
@@ -519,7 +536,8 @@ public class VariantAnnotationCommandExecutor extends CommandExecutor {
             String dbLocation = (String) dbConnection[2];
 
             logger.info("Creating index DB at {} ", dbLocation);
-            indexPopulationFrequencies(rocksDB);
+            int numVariants = indexPopulationFrequencies(rocksDB);
+            visitedPopulationFrequencies = new BitSet(numVariants);
 
             dbIndexes.add(rocksDB);
             dbOptions.add(dbOption);
@@ -527,21 +545,23 @@ public class VariantAnnotationCommandExecutor extends CommandExecutor {
         }
     }
 
-    private void indexPopulationFrequencies(RocksDB db) {
+    private int indexPopulationFrequencies(RocksDB db) {
         ObjectMapper jsonObjectMapper = new ObjectMapper();
         jsonObjectMapper.configure(MapperFeature.REQUIRE_SETTERS_FOR_GETTERS, true);
         ObjectWriter jsonObjectWriter = jsonObjectMapper.writer();
 
+        int lineCounter = 0;
         try {
             DataReader<Variant> dataReader = new JsonVariantReader(populationFrequenciesFile.toString());
             dataReader.open();
             dataReader.pre();
-            int lineCounter = 0;
             List<Variant> variant = dataReader.read();
             while (variant != null) {
+                // Line number is stored with the variant to flag it in the visited variants bitmap
                 db.put(VariantAnnotationUtils.buildVariantId(variant.get(0).getChromosome(), variant.get(0).getStart(),
                         variant.get(0).getReference(), variant.get(0).getAlternate()).getBytes(),
-                        jsonObjectWriter.writeValueAsBytes(variant.get(0).getImpl()));
+                        PopulationFrequenciesAnnotator.encodeValue(lineCounter,
+                                jsonObjectWriter.writeValueAsBytes(variant.get(0).getImpl())));
                 lineCounter++;
                 if (lineCounter % 100000 == 0) {
                     logger.info("{} lines indexed", lineCounter);
@@ -553,6 +573,7 @@ public class VariantAnnotationCommandExecutor extends CommandExecutor {
         } catch (IOException | RocksDBException e) {
             e.printStackTrace();
         }
+        return lineCounter;
     }
 
     private Object[] getDBConnection(String dbLocation) {
@@ -561,6 +582,17 @@ public class VariantAnnotationCommandExecutor extends CommandExecutor {
 
     private Object[] getDBConnection(String dbLocation, boolean forceCreate) {
         boolean indexingNeeded = forceCreate || !Files.exists(Paths.get(dbLocation));
+        if (forceCreate && Files.exists(Paths.get(dbLocation))) {
+            // An index left by an interrupted run may hold values in an older encoding or variants that are no longer
+            // in the file, it must be rebuilt from scratch
+            logger.info("Removing previous index DB at {}", dbLocation);
+            try {
+                org.apache.commons.io.FileUtils.deleteDirectory(new File(dbLocation));
+            } catch (IOException e) {
+                logger.error("Previous index DB at {} could not be removed: {}", dbLocation, e.getMessage());
+                System.exit(1);
+            }
+        }
         // a static method that loads the RocksDB C++ library.
         RocksDB.loadLibrary();
         // the Options class contains a set of configurable DB options
@@ -607,8 +639,7 @@ public class VariantAnnotationCommandExecutor extends CommandExecutor {
                 if (variantContext.getAlternateAlleles().size() > 0) {
                     List<Variant> variantList = normalizer.normalize(converter.apply(Collections.singletonList(variantContext)), true);
                     for (Variant variant : variantList) {
-                        db.put((variant.getChromosome() + "_" + variant.getStart() + "_" + variant.getReference() + "_"
-                                        + variant.getAlternate()).getBytes(),
+                        db.put(VcfVariantAnnotator.getIndexKey(variant).getBytes(),
                                 jsonObjectWriter.writeValueAsBytes(parseInfoAttributes(variant, customFileNumber)));
                     }
                 }
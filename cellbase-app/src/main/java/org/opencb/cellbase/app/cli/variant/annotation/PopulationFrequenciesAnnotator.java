@@ -1,9 +1,8 @@
 package org.opencb.cellbase.app.cli.variant.annotation;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.MapperFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.ObjectReader;
 import org.opencb.biodata.models.variant.Variant;
 import org.opencb.biodata.models.variant.avro.PopulationFrequency;
 import org.opencb.biodata.models.variant.avro.VariantAnnotation;
@@ -16,30 +15,39 @@ import org.rocksdb.RocksDBException;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.RandomAccessFile;
-import java.util.Collections;
-import java.util.List;
+import java.nio.ByteBuffer;
+import java.util.*;
 
 /**
  * Created by fjlopez on 18/07/16.
  */
 public class PopulationFrequenciesAnnotator implements VariantAnnotator {
 
+    private static final int ORDINAL_BYTES = Integer.BYTES;
+
     private String fileName;
     private RocksDB dbIndex;
+    private BitSet visitedVariants;
     private RandomAccessFile reader;
-    private List<VariantAnnotation> variantAnnotationList;
 
     private static ObjectMapper mapper = new ObjectMapper();
-    private static ObjectWriter jsonObjectWriter;
+    private static ObjectReader variantAvroReader;
 
     static {
         mapper.configure(MapperFeature.REQUIRE_SETTERS_FOR_GETTERS, true);
-        jsonObjectWriter = mapper.writer();
+        variantAvroReader = mapper.readerFor(VariantAvro.class);
     }
 
-    public PopulationFrequenciesAnnotator(String fileName, RocksDB dbIndex) {
+    /**
+     * @param fileName population frequencies file
+     * @param dbIndex index of the population frequencies file, values written with encodeValue
+     * @param visitedVariants bitmap of visited variants indexed by the ordinal of the variant in the index, shared
+     *                        by all annotators of this index
+     */
+    public PopulationFrequenciesAnnotator(String fileName, RocksDB dbIndex, BitSet visitedVariants) {
         this.fileName = fileName;
         this.dbIndex = dbIndex;
+        this.visitedVariants = visitedVariants;
     }
 
     public boolean open() {
@@ -58,51 +66,83 @@ public class PopulationFrequenciesAnnotator implements VariantAnnotator {
      *                    SAME order: variantAnnotation at position i must correspond to variant i
      */
     public void run(List<Variant> variantList) {
+        // Keys are sorted so that the whole batch is read in a single multiGet following the index order. Repeated
+        // variants are read once
+        Map<String, List<Integer>> variantPositions = new TreeMap<>();
         for (int i = 0; i < variantList.size(); i++) {
-            List<PopulationFrequency> populationFrequencies = getPopulationFrequencies(variantList.get(i));
+            Variant variant = variantList.get(i);
+            variantPositions.computeIfAbsent(VariantAnnotationUtils.buildVariantId(variant.getChromosome(),
+                    variant.getStart(), variant.getReference(), variant.getAlternate()), key -> new ArrayList<>(1)).add(i);
+        }
+        List<byte[]> keys = new ArrayList<>(variantPositions.size());
+        for (String key : variantPositions.keySet()) {
+            keys.add(key.getBytes());
+        }
+
+        if (keys.isEmpty()) {
+            return;
+        }
+
+        Map<byte[], byte[]> dbContents;
+        try {
+            dbContents = dbIndex.multiGet(keys);
+        } catch (RocksDBException e) {
+            e.printStackTrace();
+            return;
+        }
+
+        int keyIndex = 0;
+        for (List<Integer> positions : variantPositions.values()) {
+            byte[] dbContent = dbContents.get(keys.get(keyIndex++));
+            if (dbContent == null) {
+                continue;
+            }
+            flagVisitedVariant(dbContent);
+            List<PopulationFrequency> populationFrequencies;
+            try {
+                populationFrequencies = decodeValue(dbContent).getAnnotation().getPopulationFrequencies();
+            } catch (IOException e) {
+                e.printStackTrace();
+                continue;
+            }
             // Update only if there are annotations for this variant. customAnnotation may be empty if the variant
             // exists in the vcf but the info field does not contain any of the required attributes
             if (populationFrequencies != null && populationFrequencies.size() > 0) {
-                VariantAnnotation variantAnnotation = variantList.get(i).getAnnotation();
-                if (variantAnnotation != null) {
-                    // variantList and variantAnnotationList must contain variants in the SAME order: variantAnnotation
-                    // at position i must correspond to variant i
-                    variantAnnotation.setPopulationFrequencies(populationFrequencies);
+                for (int position : positions) {
+                    VariantAnnotation variantAnnotation = variantList.get(position).getAnnotation();
+                    if (variantAnnotation != null) {
+                        // variantList and variantAnnotationList must contain variants in the SAME order: variantAnnotation
+                        // at position i must correspond to variant i
+                        variantAnnotation.setPopulationFrequencies(populationFrequencies);
+                    }
                 }
             }
         }
     }
 
-    private List<PopulationFrequency> getPopulationFrequencies(Variant variant) {
-        try {
-            byte[] variantKey = VariantAnnotationUtils.buildVariantId(variant.getChromosome(),
-                    variant.getStart(), variant.getReference(), variant.getAlternate()).getBytes();
-            byte[] dbContent = dbIndex.get(variantKey);
-            if (dbContent == null) {
-                return null;
-            } else {
-//                dbIndex.remove(variantKey);
-                VariantAvro variantAvro = mapper.readValue(dbContent, VariantAvro.class);
-                flagVisitedVariant(variantKey, variantAvro);
+    /**
+     * Builds the value stored in the population frequencies index for one variant.
+     *
+     * @param ordinal ordinal of the variant in the index, used as its position in the visited variants bitmap
+     * @param variantAvro JSON serialized VariantAvro
+     * @return index value
+     */
+    public static byte[] encodeValue(int ordinal, byte[] variantAvro) {
+        return ByteBuffer.allocate(ORDINAL_BYTES + variantAvro.length).putInt(ordinal).put(variantAvro).array();
+    }
 
-                return variantAvro.getAnnotation().getPopulationFrequencies();
-            }
-        } catch (RocksDBException | IOException e) {
-            e.printStackTrace();
-            return null;
-        }
+    public static int getOrdinal(byte[] value) {
+        return ByteBuffer.wrap(value).getInt();
     }
 
-    private void flagVisitedVariant(byte[] key, VariantAvro variantAvro) {
-        // The annotation.additionalAttributes field is initialized with an empty map to flag this variant as
-        // already visited
-        variantAvro.getAnnotation().setAdditionalAttributes(Collections.emptyMap());
-        try {
-            dbIndex.put(key, jsonObjectWriter.writeValueAsBytes(variantAvro));
-        } catch (RocksDBException e) {
-            e.printStackTrace();
-        } catch (JsonProcessingException e) {
-            e.printStackTrace();
+    public static VariantAvro decodeValue(byte[] value) throws IOException {
+        return variantAvroReader.readValue(value, ORDINAL_BYTES, value.length - ORDINAL_BYTES);
+    }
+
+    private void flagVisitedVariant(byte[] value) {
+        // The visited flag is kept out of the index, annotators of all threads share the same bitmap
+        synchronized (visitedVariants) {
+            visitedVariants.set(getOrdinal(value));
         }
     }
 
@@ -1,6 +1,7 @@
 package org.opencb.cellbase.app.cli.variant.annotation;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import org.opencb.biodata.models.variant.Variant;
 import org.opencb.biodata.models.variant.avro.AdditionalAttribute;
 import org.opencb.biodata.models.variant.avro.VariantAnnotation;
@@ -11,9 +12,7 @@ import org.rocksdb.RocksDBException;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.RandomAccessFile;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
 
 /**
  * Created by fjlopez on 28/04/15.
@@ -27,6 +26,8 @@ public class VcfVariantAnnotator implements VariantAnnotator {
     private RandomAccessFile reader;
     private List<VariantAnnotation> variantAnnotationList;
 
+    private static ObjectReader infoReader = new ObjectMapper().readerFor(Map.class);
+
     public VcfVariantAnnotator(String fileName, RocksDB dbIndex, String fileId, List<String> infoFields) {
         this.fileName = fileName;
         this.dbIndex = dbIndex;
@@ -87,45 +88,72 @@ public class VcfVariantAnnotator implements VariantAnnotator {
      *                    SAME order: variantAnnotation at position i must correspond to variant i
      */
     public void run(List<Variant> variantList) {
+        // Keys are sorted so that the whole batch is read in a single multiGet following the index order. Repeated
+        // variants are read once
+        Map<String, List<Integer>> variantPositions = new TreeMap<>();
         for (int i = 0; i < variantList.size(); i++) {
-            Map<String, AdditionalAttribute> customAnnotation = getCustomAnnotation(variantList.get(i));
+            variantPositions.computeIfAbsent(getIndexKey(variantList.get(i)), key -> new ArrayList<>(1)).add(i);
+        }
+        List<byte[]> keys = new ArrayList<>(variantPositions.size());
+        for (String key : variantPositions.keySet()) {
+            keys.add(key.getBytes());
+        }
+
+        if (keys.isEmpty()) {
+            return;
+        }
+
+        Map<byte[], byte[]> dbContents;
+        try {
+            dbContents = dbIndex.multiGet(keys);
+        } catch (RocksDBException e) {
+            return;
+        }
+
+        int keyIndex = 0;
+        for (List<Integer> positions : variantPositions.values()) {
+            Map<String, AdditionalAttribute> customAnnotation = getCustomAnnotation(dbContents.get(keys.get(keyIndex++)));
             // Update only if there are annotations for this variant. customAnnotation may be empty if the variant
             // exists in the vcf but the info field does not contain any of the required attributes
             if (customAnnotation != null && customAnnotation.get(fileId).getAttribute().size() > 0) {
-                VariantAnnotation variantAnnotation = variantList.get(i).getAnnotation();
-                if (variantAnnotation != null) {
-                    Map<String, AdditionalAttribute> additionalAttributes = variantAnnotation.getAdditionalAttributes();
-                    if (additionalAttributes == null) {
-                        // variantList and variantAnnotationList must contain variants in the SAME order: variantAnnotation
-                        // at position i must correspond to variant i
-                        variantAnnotation.setAdditionalAttributes(customAnnotation);
-                    } else {
-                        additionalAttributes.putAll(customAnnotation);
-                        // variantList and variantAnnotationList must contain variants in the SAME order: variantAnnotation
-                        // at position i must correspond to variant i
-//                        variantAnnotation.setAdditionalAttributes(additionalAttributes);
+                for (int position : positions) {
+                    VariantAnnotation variantAnnotation = variantList.get(position).getAnnotation();
+                    if (variantAnnotation != null) {
+                        Map<String, AdditionalAttribute> additionalAttributes = variantAnnotation.getAdditionalAttributes();
+                        if (additionalAttributes == null) {
+                            // variantList and variantAnnotationList must contain variants in the SAME order:
+                            // variantAnnotation at position i must correspond to variant i
+                            variantAnnotation.setAdditionalAttributes(new HashMap<>(customAnnotation));
+                        } else {
+                            additionalAttributes.putAll(customAnnotation);
+                        }
                     }
                 }
             }
         }
     }
 
-    private Map<String, AdditionalAttribute> getCustomAnnotation(Variant variant) {
+    /**
+     * @param variant variant
+     * @return key of the variant in the custom file index
+     */
+    public static String getIndexKey(Variant variant) {
+        return new StringBuilder(variant.getChromosome()).append('_').append(variant.getStart()).append('_')
+                .append(variant.getReference()).append('_').append(variant.getAlternate()).toString();
+    }
+
+    private Map<String, AdditionalAttribute> getCustomAnnotation(byte[] dbContent) {
+        if (dbContent == null) {
+            return null;
+        }
         try {
-            byte[] dbContent = dbIndex.get((variant.getChromosome() + "_" + variant.getStart() + "_"
-                    + variant.getReference() + "_" + variant.getAlternate()).getBytes());
-            if (dbContent == null) {
-                return null;
-            } else {
-                ObjectMapper mapper = new ObjectMapper();
-                AdditionalAttribute infoAttribute = new AdditionalAttribute();
-                infoAttribute.setAttribute(mapper.readValue(dbContent, Map.class));
-                Map<String, AdditionalAttribute> customAnnotation = new HashMap<>(1);
-                customAnnotation.put(fileId, infoAttribute);
-
-                return customAnnotation;
-            }
-        } catch (RocksDBException | IOException e) {
+            AdditionalAttribute infoAttribute = new AdditionalAttribute();
+            infoAttribute.setAttribute(infoReader.readValue(dbContent));
+            Map<String, AdditionalAttribute> customAnnotation = new HashMap<>(1);
+            customAnnotation.put(fileId, infoAttribute);
+
+            return customAnnotation;
+        } catch (IOException e) {
             return null;
         }
     }
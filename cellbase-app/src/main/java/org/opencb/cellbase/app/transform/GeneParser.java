@@ -34,20 +34,35 @@ import org.opencb.commons.utils.FileUtils;
 import org.rocksdb.RocksDBException;
 
 import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.IOException;
 import java.nio.charset.Charset;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
 import java.sql.*;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 public class GeneParser extends CellBaseParser {
 
     private static final String ENSEMBL_GTF_DBNAME = "ensembl_gtf";
     private static final java.lang.String ENSEMBL_GTF_DISPLAY = "Ensembl GTF";
-    private Map<String, Integer> transcriptDict;
-    private Map<String, Exon> exonDict;
+    private int numThreads = 1;
+
+    // Data shared, read-only, by all the genes being built
+    private Map<String, String> geneDescriptionMap;
+    private Map<String, ArrayList<Xref>> xrefMap;
+    private Map<String, Fasta> proteinSequencesMap;
+    private Map<String, Fasta> cDnaSequencesMap;
+    private Map<String, SortedSet<Gff2>> tfbsMap;
+    private Map<String, MiRNAGene> mirnaGeneMap;
+    private Map<String, List<Expression>> geneExpressionMap;
+    private Map<String, List<GeneDrugInteraction>> geneDrugMap;
+    private Map<String, List<GeneTraitAssociation>> diseaseAssociationMap;
+    private FastaIndexManager fastaIndexManager;
 
 
     private Path gtfFile;
@@ -130,36 +145,46 @@ public class GeneParser extends CellBaseParser {
         this.genomeSequenceFilePath = genomeSequenceFilePath;
         this.species = species;
         this.flexibleGTFParsing = flexibleGTFParsing;
+    }
 
-        transcriptDict = new HashMap<>(250000);
-        exonDict = new HashMap<>(8000000);
+    /**
+     * @param numThreads number of chromosomes built at the same time, 1 parses the GTF in a single pass
+     * @return this parser
+     */
+    public GeneParser setNumThreads(int numThreads) {
+        this.numThreads = Math.max(1, numThreads);
+        return this;
     }
 
     public void parse() throws Exception {
-        Gene gene = null;
-        Transcript transcript;
-        Exon exon = null;
-        int cdna = 1;
-        int cds = 1;
-        Map<String, String> geneDescriptionMap = getGeneDescriptionMap();
-        Map<String, ArrayList<Xref>> xrefMap = GeneParserUtils.getXrefMap(xrefsFile, uniprotIdMappingFile);
-        Map<String, Fasta> proteinSequencesMap = getProteinSequencesMap();
-        Map<String, Fasta> cDnaSequencesMap = getCDnaSequencesMap();
-        Map<String, SortedSet<Gff2>> tfbsMap = GeneParserUtils.getTfbsMap(tfbsFile);
-        Map<String, MiRNAGene> mirnaGeneMap = GeneParserUtils.getmiRNAGeneMap(mirnaFile);
+        geneDescriptionMap = getGeneDescriptionMap();
+        xrefMap = GeneParserUtils.getXrefMap(xrefsFile, uniprotIdMappingFile);
+        proteinSequencesMap = getProteinSequencesMap();
+        cDnaSequencesMap = getCDnaSequencesMap();
+        tfbsMap = GeneParserUtils.getTfbsMap(tfbsFile);
+        mirnaGeneMap = GeneParserUtils.getmiRNAGeneMap(mirnaFile);
 
         // Gene annotation data
-        Map<String, List<Expression>> geneExpressionMap = GeneParserUtils
-                .getGeneExpressionMap(species.getScientificName(), geneExpressionFile);
-        Map<String, List<GeneDrugInteraction>> geneDrugMap = GeneParserUtils.getGeneDrugMap(geneDrugFile);
-        Map<String, List<GeneTraitAssociation>> diseaseAssociationMap = GeneParserUtils.getGeneDiseaseAssociationMap(hpoFile, disgenetFile);
+        geneExpressionMap = GeneParserUtils.getGeneExpressionMap(species.getScientificName(), geneExpressionFile);
+        geneDrugMap = GeneParserUtils.getGeneDrugMap(geneDrugFile);
+        diseaseAssociationMap = GeneParserUtils.getGeneDiseaseAssociationMap(hpoFile, disgenetFile);
 
         // Preparing the fasta file for fast accessing
-        FastaIndexManager fastaIndexManager = getFastaIndexManager();
+        fastaIndexManager = getFastaIndexManager();
+
+        // Flexible parsing needs the whole GTF in memory anyway, it is not split by chromosome
+        if (numThreads > 1 && !flexibleGTFParsing) {
+            parseByChromosome();
+        } else {
+            parseGtf();
+        }
 
-        // Empty transcript and exon dictionaries
-        transcriptDict.clear();
-        exonDict.clear();
+        // cleaning
+        serializer.close();
+        fastaIndexManager.close();
+    }
+
+    private void parseGtf() throws Exception {
         logger.info("Parsing gtf...");
         GtfReader gtfReader = new GtfReader(gtfFile);
 
@@ -170,21 +195,167 @@ public class GeneParser extends CellBaseParser {
             initializePointers(gtfMap);
         }
 
+        GeneBuilder geneBuilder = new GeneBuilder(250000, 8000000);
         Gtf gtf;
         while ((gtf = getGTFEntry(gtfReader, gtfMap)) != null) {
+            Gene gene = geneBuilder.add(gtf);
+            if (gene != null) {
+                serializer.serialize(gene);
+            }
+        }
+
+        // last gene must be serialized
+        if (geneBuilder.getGene() != null) {
+            serializer.serialize(geneBuilder.getGene());
+        }
+        gtfReader.close();
+    }
+
+    /**
+     * Splits the GTF in one file per chromosome and builds the genes of each chromosome in a pool of numThreads
+     * threads, with dictionaries local to the chromosome. Genes are serialized in the order the chromosomes appear
+     * in the GTF, the same order a single-threaded parse writes them.
+     *
+     * @throws Exception if the GTF cannot be split or a chromosome cannot be parsed
+     */
+    private void parseByChromosome() throws Exception {
+        Path shardDirectory = Files.createTempDirectory(gtfFile.toAbsolutePath().getParent(), "gtf_shards_");
+        ExecutorService executorService = Executors.newFixedThreadPool(numThreads, runnable -> {
+            Thread thread = new Thread(runnable, "gene-parser");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            Map<String, Path> shardFiles = splitGtfByChromosome(shardDirectory);
+            logger.info("Parsing gtf, {} chromosomes in {} threads...", shardFiles.size(), numThreads);
+
+            Deque<Future<List<Gene>>> pendingShards = new ArrayDeque<>();
+            for (Path shardFile : shardFiles.values()) {
+                pendingShards.add(executorService.submit(() -> parseShard(shardFile)));
+                // Shards are serialized in order, keep at most numThreads finished shards in memory
+                while (!pendingShards.isEmpty() && (pendingShards.size() > numThreads || pendingShards.peek().isDone())) {
+                    serializeShard(pendingShards.poll());
+                }
+            }
+            while (!pendingShards.isEmpty()) {
+                serializeShard(pendingShards.poll());
+            }
+        } finally {
+            executorService.shutdownNow();
+            try (DirectoryStream<Path> directoryStream = Files.newDirectoryStream(shardDirectory)) {
+                for (Path shardFile : directoryStream) {
+                    Files.deleteIfExists(shardFile);
+                }
+            }
+            Files.deleteIfExists(shardDirectory);
+        }
+    }
+
+    private Map<String, Path> splitGtfByChromosome(Path shardDirectory) throws IOException {
+        Map<String, Path> shardFiles = new LinkedHashMap<>();
+        String currentChromosome = null;
+        BufferedWriter bufferedWriter = null;
+        try (BufferedReader bufferedReader = FileUtils.newBufferedReader(gtfFile)) {
+            String line;
+            while ((line = bufferedReader.readLine()) != null) {
+                int tabIndex = line.indexOf('\t');
+                if (line.startsWith("#") || tabIndex < 0) {
+                    continue;
+                }
+                String chromosome = line.substring(0, tabIndex);
+                if (!chromosome.equals(currentChromosome)) {
+                    // Ensembl GTFs are grouped by chromosome, a chromosome seen before is appended to its own file
+                    if (bufferedWriter != null) {
+                        bufferedWriter.close();
+                    }
+                    Path shardFile = shardFiles.get(chromosome);
+                    if (shardFile == null) {
+                        shardFile = shardDirectory.resolve("shard_" + shardFiles.size() + ".gtf");
+                        shardFiles.put(chromosome, shardFile);
+                    }
+                    bufferedWriter = Files.newBufferedWriter(shardFile, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+                            StandardOpenOption.APPEND);
+                    currentChromosome = chromosome;
+                }
+                bufferedWriter.write(line);
+                bufferedWriter.newLine();
+            }
+        } finally {
+            if (bufferedWriter != null) {
+                bufferedWriter.close();
+            }
+        }
+        return shardFiles;
+    }
+
+    private List<Gene> parseShard(Path shardFile) throws Exception {
+        List<Gene> geneList = new ArrayList<>();
+        GeneBuilder geneBuilder = new GeneBuilder(16, 16);
+        GtfReader gtfReader = new GtfReader(shardFile);
+        try {
+            Gtf gtf;
+            while ((gtf = gtfReader.read()) != null) {
+                Gene gene = geneBuilder.add(gtf);
+                if (gene != null) {
+                    geneList.add(gene);
+                }
+            }
+        } finally {
+            gtfReader.close();
+        }
+        if (geneBuilder.getGene() != null) {
+            geneList.add(geneBuilder.getGene());
+        }
+        return geneList;
+    }
+
+    private void serializeShard(Future<List<Gene>> future) throws Exception {
+        List<Gene> geneList;
+        try {
+            geneList = future.get();
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+        }
+        for (Gene gene : geneList) {
+            serializer.serialize(gene);
+        }
+    }
 
+    /**
+     * Builds genes from the GTF lines of consecutive genes: a gene is complete when a line of a different gene is
+     * added. Dictionaries are kept per builder so chromosomes can be built in parallel.
+     */
+    private class GeneBuilder {
+
+        private final Map<String, Integer> transcriptDict;
+        private final Map<String, Exon> exonDict;
+        private Gene gene;
+        private Exon exon;
+        private int cdna = 1;
+        private int cds = 1;
+
+        GeneBuilder(int transcriptCapacity, int exonCapacity) {
+            transcriptDict = new HashMap<>(transcriptCapacity);
+            exonDict = new HashMap<>(exonCapacity);
+        }
+
+        /**
+         * @param gtf next GTF line
+         * @return the previous gene when the line starts a new one, null otherwise
+         */
+        Gene add(Gtf gtf) {
             if (gtf.getFeature().equals("gene") || gtf.getFeature().equals("transcript")
                     || gtf.getFeature().equals("UTR") || gtf.getFeature().equals("Selenocysteine")) {
-                continue;
+                return null;
             }
 
+            Transcript transcript;
             String geneId = gtf.getAttributes().get("gene_id");
             String transcriptId = gtf.getAttributes().get("transcript_id");
+            Gene previousGene = null;
             if (newGene(gene, geneId)) {
-                // If new geneId is different from the current then we must serialize before data new gene
-                if (gene != null) {
-                    serializer.serialize(gene);
-                }
+                // If new geneId is different from the current then the current gene is complete and must be returned
+                previousGene = gene;
 
                 GeneAnnotation geneAnnotation = new GeneAnnotation(geneExpressionMap.get(geneId),
                         diseaseAssociationMap.get(gtf.getAttributes().get("gene_name")),
@@ -367,17 +538,16 @@ public class GeneParser extends CellBaseParser {
                     }
                 }
             }
-        }
 
-        // last gene must be serialized
-        serializer.serialize(gene);
+            return previousGene;
+        }
 
-        // cleaning
-        gtfReader.close();
-        serializer.close();
-        fastaIndexManager.close();
+        Gene getGene() {
+            return gene;
+        }
     }
 
+
     private FastaIndexManager getFastaIndexManager() throws Exception {
         FastaIndexManager fastaIndexManager;
         fastaIndexManager = new FastaIndexManager(genomeSequenceFilePath, true);
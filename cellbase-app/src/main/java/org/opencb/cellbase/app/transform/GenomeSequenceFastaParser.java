@@ -18,6 +18,7 @@ package org.opencb.cellbase.app.transform;
 
 import org.opencb.biodata.models.core.GenomeSequenceChunk;
 import org.opencb.cellbase.core.serializer.CellBaseSerializer;
+import org.opencb.cellbase.core.variant.annotation.TwoBitGenomeStore;
 import org.opencb.commons.utils.FileUtils;
 
 import java.io.BufferedReader;
@@ -27,12 +28,23 @@ import java.nio.file.Path;
 public class GenomeSequenceFastaParser extends CellBaseParser {
 
     private Path genomeReferenceFastaFile;
+    private Path twoBitOutdir;
 
     private static final int CHUNK_SIZE = 2000;
 
     public GenomeSequenceFastaParser(Path genomeReferenceFastaFile, CellBaseSerializer serializer) {
+        this(genomeReferenceFastaFile, serializer, null);
+    }
+
+    /**
+     * @param genomeReferenceFastaFile reference genome FASTA file
+     * @param serializer serializer for the genome_sequence chunks
+     * @param twoBitOutdir directory where the 2-bit file of each chromosome is also written, null to skip them
+     */
+    public GenomeSequenceFastaParser(Path genomeReferenceFastaFile, CellBaseSerializer serializer, Path twoBitOutdir) {
         super(serializer);
         this.genomeReferenceFastaFile = genomeReferenceFastaFile;
+        this.twoBitOutdir = twoBitOutdir;
     }
 
     @Override
@@ -87,6 +99,10 @@ public class GenomeSequenceFastaParser extends CellBaseParser {
 
     private void serializeGenomeSequence(String chromosome, String sequenceType, String sequenceAssembly, String sequence)
             throws IOException {
+        if (twoBitOutdir != null) {
+            TwoBitGenomeStore.write(twoBitOutdir, chromosome, sequenceType, sequenceAssembly, sequence);
+        }
+
         int chunk = 0;
         int start = 1;
         int end = CHUNK_SIZE - 1;
@@ -0,0 +1,386 @@
+/*
+ * Copyright 2015 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.cellbase.app.transform.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Sorts tab-separated lines by an integer column, like 'sort -t $'\t' -k N -n --stable', without leaving the JVM.
+ * Lines are collected in runs that are sorted on a thread pool and spilled to deflated temporary files, which are
+ * merged while the sorted lines are read. Keys are parsed once per line and sorted as primitives; lines with equal
+ * keys keep their input order. Non-numeric keys sort as 0.
+ * Like GNU sort, memory is bounded: runs are cut by their estimated heap size, and the run being filled plus the
+ * runs being sorted and spilled never take more than the memory budget.
+ */
+public class ExternalLineSorter {
+
+    public static final long DEFAULT_RUN_BYTES = 64L * 1024 * 1024;
+    public static final long MAX_DEFAULT_MEMORY_BUDGET = 1024L * 1024 * 1024;
+
+    private final int keyColumnIndex;
+    private final Path tmpDirectory;
+    private final int maxRunsInFlight;
+    private final long runBytes;
+    private final ExecutorService executorService;
+
+    private List<String> lineList;
+    private long lineListBytes;
+    private final List<Path> runFiles;
+    private final Deque<Future<?>> pendingRuns;
+
+    private static Logger logger = LoggerFactory.getLogger(ExternalLineSorter.class);
+
+    public ExternalLineSorter(int keyColumnIndex, Path tmpDirectory) {
+        this(keyColumnIndex, tmpDirectory, Runtime.getRuntime().availableProcessors(), getDefaultMemoryBudget());
+    }
+
+    /**
+     * @param keyColumnIndex 0-based index of the integer column lines are sorted by
+     * @param tmpDirectory directory where the sorted runs are spilled
+     * @param numThreads maximum number of runs sorted and spilled at the same time
+     * @param memoryBudget estimated heap bytes taken by all the runs in memory, the one being filled included
+     */
+    public ExternalLineSorter(int keyColumnIndex, Path tmpDirectory, int numThreads, long memoryBudget) {
+        this.keyColumnIndex = keyColumnIndex;
+        this.tmpDirectory = tmpDirectory;
+        // At least two runs fit in the budget: one being filled and one being spilled
+        this.runBytes = Math.max(1, Math.min(DEFAULT_RUN_BYTES, memoryBudget / 2));
+        this.maxRunsInFlight = (int) Math.max(1, Math.min(Math.max(1, numThreads), memoryBudget / runBytes - 1));
+        this.executorService = Executors.newFixedThreadPool(this.maxRunsInFlight, runnable -> {
+            Thread thread = new Thread(runnable, "external-sort");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        this.lineList = new ArrayList<>();
+        this.runFiles = new ArrayList<>();
+        this.pendingRuns = new ArrayDeque<>();
+    }
+
+    /**
+     * Reads all the lines of a reader and returns them sorted. The input reader is closed.
+     *
+     * @param reader lines to sort
+     * @param keyColumnIndex 0-based index of the integer column lines are sorted by
+     * @param tmpDirectory directory where the sorted runs are spilled
+     * @return reader over the sorted lines, temporary files are removed when it is closed
+     * @throws IOException if the input cannot be read or the runs cannot be written
+     */
+    public static BufferedReader sort(BufferedReader reader, int keyColumnIndex, Path tmpDirectory) throws IOException {
+        ExternalLineSorter externalLineSorter = new ExternalLineSorter(keyColumnIndex, tmpDirectory);
+        try (BufferedReader input = reader) {
+            String line;
+            while ((line = input.readLine()) != null) {
+                externalLineSorter.add(line);
+            }
+        } catch (IOException | RuntimeException e) {
+            externalLineSorter.executorService.shutdownNow();
+            throw e;
+        }
+        return externalLineSorter.sort();
+    }
+
+    /**
+     * @return a quarter of the maximum heap, at most MAX_DEFAULT_MEMORY_BUDGET
+     */
+    public static long getDefaultMemoryBudget() {
+        return Math.min(MAX_DEFAULT_MEMORY_BUDGET, Runtime.getRuntime().maxMemory() / 4);
+    }
+
+    public void add(String line) throws IOException {
+        lineList.add(line);
+        lineListBytes += estimateBytes(line);
+        if (lineListBytes >= runBytes) {
+            spillRun();
+        }
+    }
+
+    /**
+     * @return heap taken by a line while its run is sorted: the String and its chars, its slot in the run list and
+     * in the sorted array, and its sort key
+     */
+    static long estimateBytes(String line) {
+        return 64 + 2L * line.length();
+    }
+
+    /**
+     * @return reader over all the lines added so far, sorted, temporary files are removed when it is closed
+     * @throws IOException if a run cannot be written or read back
+     */
+    public BufferedReader sort() throws IOException {
+        try {
+            if (runFiles.isEmpty()) {
+                // Everything fits in one run, no need to go through disk
+                return new BufferedReader(new SortedRunReader(sortRun(lineList, keyColumnIndex)));
+            }
+            if (!lineList.isEmpty()) {
+                spillRun();
+            }
+            while (!pendingRuns.isEmpty()) {
+                waitFor(pendingRuns.poll());
+            }
+            logger.debug("Merging {} sorted runs", runFiles.size());
+            return new BufferedReader(new MergingReader(runFiles, keyColumnIndex));
+        } finally {
+            lineList = null;
+            executorService.shutdown();
+        }
+    }
+
+    private void spillRun() throws IOException {
+        final List<String> run = lineList;
+        lineList = new ArrayList<>();
+        lineListBytes = 0;
+        final Path runFile = Files.createTempFile(tmpDirectory, "sort_run_", ".deflate");
+        runFile.toFile().deleteOnExit();
+        runFiles.add(runFile);
+        pendingRuns.add(executorService.submit(() -> {
+            writeRun(sortRun(run, keyColumnIndex), runFile);
+            return null;
+        }));
+
+        // Keep at most maxRunsInFlight runs in memory besides the one being filled
+        while (pendingRuns.size() >= maxRunsInFlight) {
+            waitFor(pendingRuns.poll());
+        }
+    }
+
+    private void waitFor(Future<?> future) throws IOException {
+        try {
+            future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a sorted run to be written");
+        } catch (ExecutionException e) {
+            throw new IOException("Sorted run could not be written", e.getCause());
+        }
+    }
+
+    static String[] sortRun(List<String> lines, int keyColumnIndex) {
+        long[] keys = new long[lines.size()];
+        boolean intKeys = true;
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = parseKey(lines.get(i), keyColumnIndex);
+            intKeys &= keys[i] == (int) keys[i];
+        }
+
+        String[] sortedLines = new String[keys.length];
+        if (intKeys) {
+            // Key in the upper 32 bits, input position in the lower ones: a primitive sort is also stable
+            for (int i = 0; i < keys.length; i++) {
+                keys[i] = (keys[i] << 32) | i;
+            }
+            Arrays.sort(keys);
+            for (int i = 0; i < keys.length; i++) {
+                sortedLines[i] = lines.get((int) (keys[i] & 0xffffffffL));
+            }
+        } else {
+            // Keys do not fit in 32 bits, the object sort is stable too
+            Integer[] order = new Integer[keys.length];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (i1, i2) -> Long.compare(keys[i1], keys[i2]));
+            for (int i = 0; i < order.length; i++) {
+                sortedLines[i] = lines.get(order[i]);
+            }
+        }
+        return sortedLines;
+    }
+
+    static long parseKey(String line, int columnIndex) {
+        int position = 0;
+        for (int column = 0; column < columnIndex; column++) {
+            position = line.indexOf('\t', position) + 1;
+            if (position == 0) {
+                return 0;
+            }
+        }
+
+        boolean negative = position < line.length() && line.charAt(position) == '-';
+        if (negative) {
+            position++;
+        }
+        long key = 0;
+        while (position < line.length()) {
+            char c = line.charAt(position++);
+            if (c < '0' || c > '9') {
+                break;
+            }
+            key = key * 10 + (c - '0');
+        }
+        return negative ? -key : key;
+    }
+
+    private static void writeRun(String[] sortedLines, Path runFile) throws IOException {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try (BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(
+                new DeflaterOutputStream(Files.newOutputStream(runFile), deflater, 65536), StandardCharsets.UTF_8))) {
+            for (String line : sortedLines) {
+                writer.write(line);
+                writer.newLine();
+            }
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Serves lines, one at a time, as a character stream.
+     */
+    private abstract static class LineReader extends Reader {
+
+        private String currentLine = "";
+        // Past the end of the current line and its newline, the next read fetches a new line
+        private int currentPosition = 1;
+
+        protected abstract String nextLine() throws IOException;
+
+        @Override
+        public int read(char[] buffer, int offset, int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+            if (currentPosition > currentLine.length()) {
+                String line = nextLine();
+                if (line == null) {
+                    return -1;
+                }
+                currentLine = line;
+                currentPosition = 0;
+            }
+            int n = 0;
+            // The newline after each line is not stored, it is served after the last character
+            while (n < length && currentPosition <= currentLine.length()) {
+                buffer[offset + n++] = currentPosition < currentLine.length() ? currentLine.charAt(currentPosition) : '\n';
+                currentPosition++;
+            }
+            return n;
+        }
+    }
+
+    private static class SortedRunReader extends LineReader {
+
+        private String[] sortedLines;
+        private int index;
+
+        SortedRunReader(String[] sortedLines) {
+            this.sortedLines = sortedLines;
+        }
+
+        @Override
+        protected String nextLine() {
+            return sortedLines != null && index < sortedLines.length ? sortedLines[index++] : null;
+        }
+
+        @Override
+        public void close() {
+            sortedLines = null;
+        }
+    }
+
+    private static class MergingReader extends LineReader {
+
+        private final List<Path> runFiles;
+        private final int keyColumnIndex;
+        private final PriorityQueue<RunCursor> runCursors;
+        private final List<RunCursor> openCursors;
+
+        MergingReader(List<Path> runFiles, int keyColumnIndex) throws IOException {
+            this.runFiles = runFiles;
+            this.keyColumnIndex = keyColumnIndex;
+            // Ties are broken by run number, runs hold consecutive chunks of the input so the merge is stable
+            this.runCursors = new PriorityQueue<>(Math.max(1, runFiles.size()), (cursor1, cursor2) -> {
+                int comparison = Long.compare(cursor1.key, cursor2.key);
+                return comparison != 0 ? comparison : Integer.compare(cursor1.runNumber, cursor2.runNumber);
+            });
+            this.openCursors = new ArrayList<>(runFiles.size());
+            try {
+                for (int i = 0; i < runFiles.size(); i++) {
+                    BufferedReader reader = new BufferedReader(new InputStreamReader(
+                            new InflaterInputStream(new BufferedInputStream(Files.newInputStream(runFiles.get(i)), 65536)),
+                            StandardCharsets.UTF_8));
+                    RunCursor runCursor = new RunCursor(reader, i);
+                    openCursors.add(runCursor);
+                    if (runCursor.advance()) {
+                        runCursors.add(runCursor);
+                    }
+                }
+            } catch (IOException e) {
+                close();
+                throw e;
+            }
+        }
+
+        @Override
+        protected String nextLine() throws IOException {
+            RunCursor runCursor = runCursors.poll();
+            if (runCursor == null) {
+                return null;
+            }
+            String line = runCursor.line;
+            if (runCursor.advance()) {
+                runCursors.add(runCursor);
+            }
+            return line;
+        }
+
+        @Override
+        public void close() throws IOException {
+            runCursors.clear();
+            for (RunCursor runCursor : openCursors) {
+                runCursor.reader.close();
+            }
+            openCursors.clear();
+            for (Path runFile : runFiles) {
+                Files.deleteIfExists(runFile);
+            }
+        }
+
+        private final class RunCursor {
+            private final BufferedReader reader;
+            private final int runNumber;
+            private String line;
+            private long key;
+
+            private RunCursor(BufferedReader reader, int runNumber) {
+                this.reader = reader;
+                this.runNumber = runNumber;
+            }
+
+            private boolean advance() throws IOException {
+                line = reader.readLine();
+                if (line == null) {
+                    return false;
+                }
+                key = parseKey(line, keyColumnIndex);
+                return true;
+            }
+        }
+    }
+}
@@ -1,14 +1,12 @@
 package org.opencb.cellbase.app.transform.variation;
 
 import com.google.common.base.Stopwatch;
-import org.apache.commons.io.IOUtils;
-import org.apache.commons.lang3.StringUtils;
+import org.opencb.cellbase.app.transform.utils.ExternalLineSorter;
 import org.opencb.commons.utils.FileUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.BufferedReader;
-import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -50,7 +48,39 @@ public abstract class AbstractVariationFile {
     }
 
     public void createBufferedReader() throws IOException {
-        this.fileReader = getBufferedReader(preprocessedFileName);
+        if (fileReader == null) {
+            fileReader = getSortedBufferedReader();
+        }
+    }
+
+    /**
+     * Sorted file from a previous build is used if it exists, otherwise the unprocessed file is sorted in the JVM
+     * without writing a sorted copy.
+     *
+     * @return reader over the lines of the file sorted by variation id
+     * @throws IOException if the file cannot be read or sorted
+     */
+    protected BufferedReader getSortedBufferedReader() throws IOException {
+        if (existsZippedOrUnzippedFile(preprocessedFileName)) {
+            return getBufferedReader(preprocessedFileName);
+        }
+        return sortByVariationId(getUnprocessedFileBufferedReader());
+    }
+
+    protected BufferedReader sortByVariationId(BufferedReader bufferedReader) throws IOException {
+        logger.info("Sorting {} by variation id ...", unprocessedFileName);
+        Stopwatch stopwatch = Stopwatch.createStarted();
+        BufferedReader sortedReader = ExternalLineSorter.sort(bufferedReader, variationIdColumnIndex, variationDirectory);
+        logger.info("Sorted");
+        logger.debug("Elapsed time sorting file: {}", stopwatch);
+        return sortedReader;
+    }
+
+    public void close() throws IOException {
+        if (fileReader != null) {
+            fileReader.close();
+            fileReader = null;
+        }
     }
 
     protected BufferedReader getBufferedReader(String fileName) throws IOException {
@@ -111,80 +141,11 @@ public abstract class AbstractVariationFile {
         return lastReadVariationId > variationId;
     }
 
-    public void gunzip() throws IOException, InterruptedException {
-        if (!existsZippedOrUnzippedFile(preprocessedFileName)) {
-            // unzip variation file name for preprocess it later
-            gunzipFileIfNeeded(variationDirectory, unprocessedFileName);
-        }
-    }
-
     protected boolean existsZippedOrUnzippedFile(String baseFilename) {
         return Files.exists(variationDirectory.resolve(baseFilename))
                 || Files.exists(variationDirectory.resolve(baseFilename + ".gz"));
     }
 
-    private void gunzipFileIfNeeded(Path directory, String fileName) throws IOException, InterruptedException {
-        Path zippedFile = directory.resolve(fileName + ".gz");
-        if (Files.exists(zippedFile)) {
-            logger.info("Unzipping {} ...", zippedFile);
-            Process process = Runtime.getRuntime().exec("gunzip " + zippedFile.toAbsolutePath());
-            process.waitFor();
-        } else {
-            Path unzippedFile = directory.resolve(fileName);
-            if (Files.exists(unzippedFile)) {
-                logger.info("File {} was previously unzipped: skipping 'gunzip' for this file ...", unzippedFile);
-            } else {
-                throw new FileNotFoundException("File " + zippedFile + " doesn't exist");
-            }
-        }
-    }
-
-    public void sort() throws IOException, InterruptedException {
-        if (!existsZippedOrUnzippedFile(preprocessedFileName)) {
-            Path sortedFile = variationDirectory.resolve(preprocessedFileName);
-            Path unsortedFile = variationDirectory.resolve(unprocessedFileName);
-            sortFileByNumericColumn(unsortedFile, sortedFile, variationIdColumnIndex);
-        }
-    }
-
-    protected void sortFileByNumericColumn(Path inputFile, Path outputFile, int columnIndex) throws InterruptedException, IOException {
-        logger.info("Sorting file {} into {} ...", inputFile, outputFile);
-
-        // increment column index by 1, beacause Java indexes are 0-based and 'sort' command uses 1-based indexes
-        columnIndex++;
-        ProcessBuilder pb = new ProcessBuilder("sort", "-t", "\t", "-k", Integer.toString(columnIndex),
-                "-n", "--stable", inputFile.toAbsolutePath().toString(), "-T", variationDirectory.toString(),
-                "-o", outputFile.toAbsolutePath().toString());
-        logger.debug("Executing '{}' ...", StringUtils.join(pb.command(), " "));
-        Stopwatch stopwatch = Stopwatch.createStarted();
-        Process process = pb.start();
-        process.waitFor();
-
-        int returnedValue = process.exitValue();
-        if (returnedValue != 0) {
-            String errorMessage = IOUtils.toString(process.getErrorStream());
-            logger.error("Error sorting {}", inputFile);
-            logger.error(errorMessage);
-            throw new RuntimeException("Error sorting " + inputFile);
-        }
-        logger.info("Sorted");
-        logger.debug("Elapsed time sorting file: {}", stopwatch);
-    }
-
-    public void gzip() throws IOException, InterruptedException {
-        gzipFile(unprocessedFileName);
-        gzipFile(preprocessedFileName);
-    }
-
-    private void gzipFile(String fileName) throws IOException, InterruptedException {
-        Path unzippedFile = variationDirectory.resolve(fileName);
-        if (Files.exists(unzippedFile)) {
-            logger.info("Compressing {}", unzippedFile.toAbsolutePath());
-            Process process = Runtime.getRuntime().exec("gzip " + unzippedFile.toAbsolutePath());
-            process.waitFor();
-        }
-    }
-
     public boolean existsZippedOrUnzippedFile() {
         return Files.exists(variationDirectory.resolve(unprocessedFileName))
                 || Files.exists(variationDirectory.resolve(unprocessedFileName + ".gz"));
@@ -1,10 +1,7 @@
 package org.opencb.cellbase.app.transform.variation;
 
-import org.opencb.commons.utils.FileUtils;
-
 import java.io.BufferedReader;
 import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
 
 /**
@@ -23,12 +20,6 @@ public class VariationFile extends AbstractVariationFile {
     }
 
     public BufferedReader getBufferedReader() throws IOException {
-        Path inputFile;
-        if (Files.exists(variationDirectory.resolve(PREPROCESSED_VARIATION_FILENAME))) {
-            inputFile = variationDirectory.resolve(PREPROCESSED_VARIATION_FILENAME);
-        } else {
-            inputFile = variationDirectory.resolve(PREPROCESSED_VARIATION_FILENAME + ".gz");
-        }
-        return FileUtils.newBufferedReader(inputFile);
+        return getSortedBufferedReader();
     }
 }
@@ -94,7 +94,7 @@ public class VariationParser extends CellBaseParser {
         // add idVariation to transcript_variation file
         preprocessInputFiles();
 
-        // Open variation file, this file never gets uncompressed. It's read from gzip file
+        // Input files are read from gzip files and sorted by variation id in the JVM
         BufferedReader bufferedReaderVariation = variationFile.getBufferedReader();
 
         // create buffered readers for all other input files
@@ -105,7 +105,7 @@ public class VariationParser extends CellBaseParser {
 
         Stopwatch globalStartwatch = Stopwatch.createStarted();
         Stopwatch batchWatch = Stopwatch.createStarted();
-        logger.info("Parsing variation file {} ...", variationDirectoryPath.resolve(PREPROCESSED_VARIATION_FILENAME));
+        logger.info("Parsing variation files in {} ...", variationDirectoryPath);
         long countprocess = 0, incorrectEndVariants = 0, incorrectAllelesVariants = 0;
 
         String line;
@@ -203,20 +203,17 @@ public class VariationParser extends CellBaseParser {
         logger.info("Variants not parsed due to incorrect alleles: {}", incorrectAllelesVariants);
         logger.debug("Elapsed time parsing: {}", globalStartwatch);
 
-        gzipVariationFiles(variationDirectoryPath);
-
         try {
             bufferedReaderVariation.close();
+            variationFeatureFile.close();
+            variationSynonymFile.close();
+            variationTranscriptFile.close();
         } catch (Exception e) {
             e.printStackTrace();
         }
     }
 
-    private void preprocessInputFiles() throws IOException, InterruptedException {
-        gunzipVariationInputFiles();
-        variationFile.sort();
-        variationFeatureFile.sort();
-        variationSynonymFile.sort();
+    private void preprocessInputFiles() throws IOException {
         variationTranscriptFile.preprocess(variationFeatureFile);
     }
 
@@ -535,32 +532,6 @@ public class VariationParser extends CellBaseParser {
                 (transVarFields[21] != null && !transVarFields[21].equals("\\N")) ? Float.parseFloat(transVarFields[21]) : null);
     }
 
-    private void gunzipVariationInputFiles() throws IOException, InterruptedException {
-        logger.info("Unzipping variation files ...");
-        Stopwatch stopwatch = Stopwatch.createStarted();
-
-        variationFile.gunzip();
-        variationTranscriptFile.gunzip();
-        variationFeatureFile.gunzip();
-        variationSynonymFile.gunzip();
-
-        logger.info("Done");
-        logger.debug("Elapsed time unzipping files: {}", stopwatch);
-    }
-
-    private void gzipVariationFiles(Path variationDirectoryPath) throws IOException, InterruptedException {
-        logger.info("Compressing variation files ...");
-        Stopwatch stopwatch = Stopwatch.createStarted();
-
-        variationFile.gzip();
-        variationFeatureFile.gzip();
-        variationTranscriptFile.gzip();
-        variationSynonymFile.gzip();
-
-        logger.info("Files compressed");
-        logger.debug("Elapsed time compressing files: {}", stopwatch);
-    }
-
     private String getOutputFileName(String chromosome) {
         String outputFileName = outputFileNames.get(chromosome);
         if (outputFileName == null) {
@@ -1,14 +1,12 @@
 package org.opencb.cellbase.app.transform.variation;
 
 import com.google.common.base.Stopwatch;
+import org.opencb.cellbase.app.transform.utils.ExternalLineSorter;
 
 import java.io.BufferedReader;
-import java.io.BufferedWriter;
 import java.io.IOException;
-import java.nio.charset.Charset;
-import java.nio.file.Files;
+import java.io.StringReader;
 import java.nio.file.Path;
-import java.nio.file.StandardOpenOption;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -25,25 +23,17 @@ public class VariationTranscriptFile extends AbstractVariationFile {
     }
 
 
-    public void preprocess(VariationFeatureFile variationFeatureFile) throws IOException, InterruptedException {
+    public void preprocess(VariationFeatureFile variationFeatureFile) throws IOException {
         if (!existsZippedOrUnzippedFile(preprocessedFileName)) {
-            logger.info("Preprocessing {} file ...", preprocessedFileName);
+            logger.info("Preprocessing {} file ...", unprocessedFileName);
             Stopwatch stopwatch = Stopwatch.createStarted();
 
-            // add variationId to transcript_variation file
+            // add variationId to transcript_variation lines and sort them, no preprocessed file is written
             Map<Integer, Integer> variationFeatureToVariationId = createVariationFeatureIdToVariationIdMap(variationFeatureFile);
-            Path transcriptVariationTempFile = addVariationIdToTranscriptVariationFile(variationFeatureToVariationId);
-            // transcript_variation file columns number can vary, so we need to save the variationId column index because it is not constant
-            variationIdColumnIndex =
-                    getVariationIdColumnIndexInTranscriptVariationFile(transcriptVariationTempFile.getFileName().toString());
-            sortFileByNumericColumn(transcriptVariationTempFile, variationDirectory.resolve(preprocessedFileName), variationIdColumnIndex);
-
-            logger.info("Removing temp file {}", transcriptVariationTempFile);
-            transcriptVariationTempFile.toFile().delete();
-            logger.info("Removed");
+            fileReader = addVariationIdAndSort(variationFeatureToVariationId);
 
-            logger.info("{} preprocessed. New file {} including (and sorted by) variation Id has been created",
-                    TRANSCRIPT_VARIATION_FILENAME, VariationTranscriptFile.PREPROCESSED_TRANSCRIPT_VARIATION_FILENAME);
+            logger.info("{} preprocessed, transcript variations include (and are sorted by) variation Id",
+                    TRANSCRIPT_VARIATION_FILENAME);
             logger.debug("Elapsed time preprocessing transcript variation file: {}", stopwatch);
         } else {
             // transcript_variation file columns number can vary, so we need to save the variationId column index because it is not constant
@@ -76,31 +66,35 @@ public class VariationTranscriptFile extends AbstractVariationFile {
         return variationFeatureToVariationId;
     }
 
-    private Path addVariationIdToTranscriptVariationFile(Map<Integer, Integer> variationFeatureToVariationId) throws IOException {
-        Path transcriptVariationTempFile = variationDirectory.resolve(unprocessedFileName + ".tmp");
-        logger.info("Adding variation Id to transcript variations and saving them into {} ...", transcriptVariationTempFile);
+    private BufferedReader addVariationIdAndSort(Map<Integer, Integer> variationFeatureToVariationId) throws IOException {
+        logger.info("Adding variation Id to transcript variations and sorting them ...");
         Stopwatch stopwatch = Stopwatch.createStarted();
 
-        BufferedReader br = getUnprocessedFileBufferedReader();
-        BufferedWriter bw = Files.newBufferedWriter(transcriptVariationTempFile, Charset.defaultCharset(),
-                StandardOpenOption.CREATE, StandardOpenOption.WRITE);
-
-        String line;
-        while ((line = br.readLine()) != null) {
-            // TODO: add limit parameter would do that run faster?
-            // TODO: use a precompiled pattern would improve efficiency
-            Integer variationFeatureId = Integer.valueOf(line.split("\t")[1]);
-            Integer variationId = variationFeatureToVariationId.get(variationFeatureId);
-            bw.write(line + "\t" + variationId + "\n");
+        ExternalLineSorter externalLineSorter = null;
+        try (BufferedReader br = getUnprocessedFileBufferedReader()) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                // TODO: add limit parameter would do that run faster?
+                // TODO: use a precompiled pattern would improve efficiency
+                Integer variationFeatureId = Integer.valueOf(line.split("\t")[1]);
+                Integer variationId = variationFeatureToVariationId.get(variationFeatureId);
+                String lineWithVariationId = line + "\t" + variationId;
+                if (externalLineSorter == null) {
+                    // transcript_variation file columns number can vary, so we need to save the variationId column index
+                    // because it is not constant
+                    variationIdColumnIndex = lineWithVariationId.split("\t").length - 1;
+                    externalLineSorter = new ExternalLineSorter(variationIdColumnIndex, variationDirectory);
+                }
+                externalLineSorter.add(lineWithVariationId);
+            }
         }
 
-        br.close();
-        bw.close();
-
-        logger.info("Added");
-        logger.debug("Elapsed time adding variation Id to transcript variation file: {}", stopwatch);
-
-        return transcriptVariationTempFile;
+        BufferedReader sortedReader = externalLineSorter != null
+                ? externalLineSorter.sort()
+                : new BufferedReader(new StringReader(""));
+        logger.info("Sorted");
+        logger.debug("Elapsed time adding variation Id and sorting transcript variations: {}", stopwatch);
+        return sortedReader;
     }
 
     private int getVariationIdColumnIndexInTranscriptVariationFile(String inputFileName) throws IOException {
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2015 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.cellbase.app.transform.utils;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class ExternalLineSorterTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void parseKey() throws Exception {
+        assertEquals(12, ExternalLineSorter.parseKey("12\ta\tb", 0));
+        assertEquals(345, ExternalLineSorter.parseKey("12\ta\t345", 2));
+        assertEquals(-7, ExternalLineSorter.parseKey("x\t-7\ty", 1));
+        assertEquals(0, ExternalLineSorter.parseKey("12\t\\N\t3", 1));
+        assertEquals(0, ExternalLineSorter.parseKey("12\ta", 4));
+        assertEquals(5000000000L, ExternalLineSorter.parseKey("a\t5000000000", 1));
+    }
+
+    @Test
+    public void sortLongKeys() throws Exception {
+        BufferedReader sortedReader = ExternalLineSorter.sort(
+                new BufferedReader(new StringReader("a\t5000000000\nb\t1\nc\t-5000000000\nd\t1\n")), 1,
+                temporaryFolder.getRoot().toPath());
+        assertEquals(Arrays.asList("c\t-5000000000", "b\t1", "d\t1", "a\t5000000000"), readLines(sortedReader));
+    }
+
+    @Test
+    public void sortInMemory() throws Exception {
+        BufferedReader sortedReader = ExternalLineSorter.sort(new BufferedReader(new StringReader("a\t3\nb\t1\nc\t3\nd\t2\n")),
+                1, temporaryFolder.getRoot().toPath());
+        assertEquals(Arrays.asList("b\t1", "d\t2", "a\t3", "c\t3"), readLines(sortedReader));
+    }
+
+    @Test
+    public void sortWithSpilledRuns() throws Exception {
+        Path tmpDirectory = temporaryFolder.getRoot().toPath();
+        List<String> lines = new ArrayList<>();
+        Random random = new Random(3);
+        for (int i = 0; i < 10000; i++) {
+            lines.add(i + "\tline\t" + random.nextInt(500));
+        }
+
+        // Around 1000 lines per run
+        ExternalLineSorter externalLineSorter = new ExternalLineSorter(2, tmpDirectory, 3, 200000);
+        for (String line : lines) {
+            externalLineSorter.add(line);
+        }
+        BufferedReader sortedReader = externalLineSorter.sort();
+
+        // Stable sort by the third column, the first one keeps the input order within each key
+        List<String> expected = new ArrayList<>(lines);
+        expected.sort(Comparator.comparingInt(line -> Integer.parseInt(line.split("\t")[2])));
+        assertEquals(expected, readLines(sortedReader));
+        assertEquals(0, Files.list(tmpDirectory).count());
+    }
+
+    private List<String> readLines(BufferedReader reader) throws Exception {
+        List<String> lines = new ArrayList<>();
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lines.add(line);
+        }
+        reader.close();
+        return lines;
+    }
+}
@@ -0,0 +1,226 @@
+/*
+ * Copyright 2015 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.cellbase.benchmark;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.opencb.biodata.models.core.Exon;
+import org.opencb.biodata.models.core.Gene;
+import org.opencb.biodata.models.core.Transcript;
+import org.opencb.biodata.models.variant.Variant;
+import org.opencb.cellbase.core.common.DNASequenceUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Genes and variants shared by the benchmarks. Genes are the cellbase-core gene test fixture, BRCA2 on the forward
+ * strand, and its mirror image on the reverse strand. Variants are generated over them with a fixed seed, so every
+ * run measures the same work.
+ */
+public final class BenchmarkFixtures {
+
+    public static final String GENES_RESOURCE = "/fixtures/gene.json";
+    public static final int GENE_FLANK = 5000;
+    // Distance from the fixture gene to its reverse strand mirror, far enough for their flanks not to overlap
+    public static final int MIRROR_OFFSET = 200000;
+    public static final long SEED = 42;
+
+    private static final String[] NUCLEOTIDES = {"A", "C", "G", "T"};
+    // Share of the generated variants falling within exons, the rest fall in introns and flanks
+    private static final double EXONIC_FRACTION = 0.7;
+
+    private final List<Gene> geneList;
+    private final InMemoryGenomeDBAdaptor genomeDBAdaptor;
+
+    private BenchmarkFixtures(List<Gene> geneList) {
+        this.geneList = geneList;
+        this.genomeDBAdaptor = new InMemoryGenomeDBAdaptor(geneList, GENE_FLANK, SEED);
+    }
+
+    public static BenchmarkFixtures load() throws IOException {
+        ObjectMapper objectMapper = new ObjectMapper();
+        objectMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        try (InputStream inputStream = BenchmarkFixtures.class.getResourceAsStream(GENES_RESOURCE)) {
+            if (inputStream == null) {
+                throw new IOException("Benchmark fixture " + GENES_RESOURCE + " not found in the classpath");
+            }
+            Gene gene = objectMapper.readValue(inputStream, Gene.class);
+            return new BenchmarkFixtures(Arrays.asList(gene, getMirrorGene(gene, objectMapper)));
+        }
+    }
+
+    /**
+     * Mirror image of a gene placed MIRROR_OFFSET bases downstream on the same chromosome: same exon structure and
+     * transcript sequences, on the other strand. Transcript and exon coordinates are reflected and exon sequences,
+     * stored on the forward strand, are reverse complemented.
+     *
+     * @param gene gene to mirror
+     * @param objectMapper mapper used to deep copy the gene
+     * @return new gene on the opposite strand
+     */
+    private static Gene getMirrorGene(Gene gene, ObjectMapper objectMapper) {
+        Gene mirrorGene = objectMapper.convertValue(gene, Gene.class);
+        // Position p of the gene is mirrored to axis - p
+        int axis = gene.getStart() + gene.getEnd() + MIRROR_OFFSET;
+        String strand = "-".equals(gene.getStrand()) ? "+" : "-";
+        mirrorGene.setId(gene.getId() + "_mirror");
+        mirrorGene.setName(gene.getName() + "_mirror");
+        mirrorGene.setStart(axis - gene.getEnd());
+        mirrorGene.setEnd(axis - gene.getStart());
+        mirrorGene.setStrand(strand);
+        for (Transcript transcript : mirrorGene.getTranscripts()) {
+            int start = transcript.getStart();
+            transcript.setId(transcript.getId() + "_mirror");
+            transcript.setStart(axis - transcript.getEnd());
+            transcript.setEnd(axis - start);
+            transcript.setStrand(strand);
+            // Non-coding transcripts have no coding coordinates
+            if (transcript.getGenomicCodingStart() > 0) {
+                int codingStart = transcript.getGenomicCodingStart();
+                transcript.setGenomicCodingStart(axis - transcript.getGenomicCodingEnd());
+                transcript.setGenomicCodingEnd(axis - codingStart);
+            }
+            // No benchmark uses the TFBS, they are not mirrored
+            transcript.setTfbs(null);
+            for (Exon exon : transcript.getExons()) {
+                start = exon.getStart();
+                exon.setStart(axis - exon.getEnd());
+                exon.setEnd(axis - start);
+                exon.setStrand(strand);
+                if (exon.getGenomicCodingStart() > 0) {
+                    int codingStart = exon.getGenomicCodingStart();
+                    exon.setGenomicCodingStart(axis - exon.getGenomicCodingEnd());
+                    exon.setGenomicCodingEnd(axis - codingStart);
+                }
+                if (exon.getSequence() != null) {
+                    exon.setSequence(DNASequenceUtils.reverseComplement(exon.getSequence()));
+                }
+            }
+        }
+        return mirrorGene;
+    }
+
+    /**
+     * @param numVariants number of variants to generate
+     * @return SNVs over the fixture genes, reference alleles taken from the in-memory genome
+     */
+    public List<Variant> getSnvs(int numVariants) {
+        Random random = new Random(SEED);
+        List<Variant> variantList = new ArrayList<>(numVariants);
+        for (int i = 0; i < numVariants; i++) {
+            Gene gene = geneList.get(random.nextInt(geneList.size()));
+            int position = nextPosition(random, gene);
+            String reference = genomeDBAdaptor.getSequence(gene.getChromosome(), position, position);
+            String alternate = reference;
+            while (alternate.equals(reference)) {
+                alternate = NUCLEOTIDES[random.nextInt(NUCLEOTIDES.length)];
+            }
+            variantList.add(new Variant(gene.getChromosome(), position, reference, alternate));
+        }
+        return variantList;
+    }
+
+    /**
+     * @param numVariants number of variants to generate
+     * @param maxLength maximum number of deleted nucleotides
+     * @return deletions over the fixture genes, reference alleles taken from the in-memory genome
+     */
+    public List<Variant> getDeletions(int numVariants, int maxLength) {
+        Random random = new Random(SEED + 1);
+        List<Variant> variantList = new ArrayList<>(numVariants);
+        for (int i = 0; i < numVariants; i++) {
+            Gene gene = geneList.get(random.nextInt(geneList.size()));
+            int position = nextPosition(random, gene);
+            String reference = genomeDBAdaptor.getSequence(gene.getChromosome(), position,
+                    position + random.nextInt(maxLength));
+            variantList.add(new Variant(gene.getChromosome(), position, reference, ""));
+        }
+        return variantList;
+    }
+
+    /**
+     * @param numVariants number of variants to generate
+     * @param maxLength maximum number of inserted nucleotides
+     * @return insertions over the fixture genes
+     */
+    public List<Variant> getInsertions(int numVariants, int maxLength) {
+        Random random = new Random(SEED + 2);
+        List<Variant> variantList = new ArrayList<>(numVariants);
+        for (int i = 0; i < numVariants; i++) {
+            Gene gene = geneList.get(random.nextInt(geneList.size()));
+            int position = nextPosition(random, gene);
+            StringBuilder alternate = new StringBuilder();
+            for (int j = random.nextInt(maxLength) + 1; j > 0; j--) {
+                alternate.append(NUCLEOTIDES[random.nextInt(NUCLEOTIDES.length)]);
+            }
+            variantList.add(new Variant(gene.getChromosome(), position, "", alternate.toString()));
+        }
+        return variantList;
+    }
+
+    /**
+     * @param variantList variants to write
+     * @return one VCF data line per variant, using the VCF convention of anchoring indels on the previous base
+     */
+    public List<String> toVcfLines(List<Variant> variantList) {
+        List<String> lineList = new ArrayList<>(variantList.size());
+        for (Variant variant : variantList) {
+            int position = variant.getStart();
+            String reference = variant.getReference();
+            String alternate = variant.getAlternate();
+            if (reference.isEmpty() || alternate.isEmpty()) {
+                position--;
+                String anchor = genomeDBAdaptor.getSequence(variant.getChromosome(), position, position);
+                reference = anchor + reference;
+                alternate = anchor + alternate;
+            }
+            lineList.add(variant.getChromosome() + "\t" + position + "\t.\t" + reference + "\t" + alternate
+                    + "\t.\tPASS\t.");
+        }
+        return lineList;
+    }
+
+    public List<Gene> getGeneList() {
+        return Collections.unmodifiableList(geneList);
+    }
+
+    public InMemoryGenomeDBAdaptor getGenomeDBAdaptor() {
+        return genomeDBAdaptor;
+    }
+
+    /**
+     * Random position within the gene exons or, less often, anywhere within the gene and its flanks.
+     */
+    private int nextPosition(Random random, Gene gene) {
+        if (random.nextDouble() < EXONIC_FRACTION && gene.getTranscripts() != null && !gene.getTranscripts().isEmpty()) {
+            Transcript transcript = gene.getTranscripts().get(random.nextInt(gene.getTranscripts().size()));
+            if (transcript.getExons() != null && !transcript.getExons().isEmpty()) {
+                Exon exon = transcript.getExons().get(random.nextInt(transcript.getExons().size()));
+                return exon.getStart() + random.nextInt(exon.getEnd() - exon.getStart() + 1);
+            }
+        }
+        // Keep clear of the ends of the in-memory sequence so that neighbouring bases can always be fetched
+        int start = gene.getStart() - GENE_FLANK / 2;
+        return start + random.nextInt(gene.getEnd() - gene.getStart() + GENE_FLANK);
+    }
+}
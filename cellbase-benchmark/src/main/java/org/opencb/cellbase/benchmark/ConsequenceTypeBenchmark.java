@@ -0,0 +1,100 @@
+/*
+ * Copyright 2015 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.cellbase.benchmark;
+
+import org.opencb.biodata.models.core.Gene;
+import org.opencb.biodata.models.variant.Variant;
+import org.opencb.cellbase.core.variant.annotation.*;
+import org.opencb.commons.datastore.core.QueryOptions;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the SNV, deletion and insertion consequence type calculators over the fixture genes. Each
+ * invocation annotates the whole variant list, either sharing the spliced transcripts across the batch as the
+ * annotator does or building them for each variant.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConsequenceTypeBenchmark {
+
+    // CSOFF: VisibilityModifier
+    @Param({"1000"})
+    public int numVariants;
+
+    @Param({"true", "false"})
+    public boolean shareSplicedTranscripts;
+    // CSON: VisibilityModifier
+
+    private static final boolean[] NO_REGULATORY_OVERLAP = {false, false};
+
+    private List<Gene> geneList;
+    private List<Variant> snvList;
+    private List<Variant> deletionList;
+    private List<Variant> insertionList;
+    private ConsequenceTypeCalculator snvCalculator;
+    private ConsequenceTypeCalculator deletionCalculator;
+    private ConsequenceTypeCalculator insertionCalculator;
+
+    @Setup
+    public void setup() throws IOException {
+        BenchmarkFixtures fixtures = BenchmarkFixtures.load();
+        geneList = fixtures.getGeneList();
+        snvList = fixtures.getSnvs(numVariants);
+        deletionList = fixtures.getDeletions(numVariants, 10);
+        insertionList = fixtures.getInsertions(numVariants, 10);
+
+        snvCalculator = new ConsequenceTypeSNVCalculator();
+        deletionCalculator = new ConsequenceTypeDeletionCalculator(fixtures.getGenomeDBAdaptor());
+        insertionCalculator = new ConsequenceTypeInsertionCalculator(fixtures.getGenomeDBAdaptor());
+        if (shareSplicedTranscripts) {
+            GeneIntervalIndex geneIntervalIndex = new GeneIntervalIndex(geneList, BenchmarkFixtures.GENE_FLANK);
+            snvCalculator.setSplicedTranscriptResolver(geneIntervalIndex::getSplicedTranscript);
+            deletionCalculator.setSplicedTranscriptResolver(geneIntervalIndex::getSplicedTranscript);
+            insertionCalculator.setSplicedTranscriptResolver(geneIntervalIndex::getSplicedTranscript);
+        }
+    }
+
+    @Benchmark
+    public void snv(Blackhole blackhole) {
+        run(snvCalculator, snvList, blackhole);
+    }
+
+    @Benchmark
+    public void deletion(Blackhole blackhole) {
+        run(deletionCalculator, deletionList, blackhole);
+    }
+
+    @Benchmark
+    public void insertion(Blackhole blackhole) {
+        run(insertionCalculator, insertionList, blackhole);
+    }
+
+    private void run(ConsequenceTypeCalculator calculator, List<Variant> variantList, Blackhole blackhole) {
+        for (Variant variant : variantList) {
+            blackhole.consume(calculator.run(variant, geneList, NO_REGULATORY_OVERLAP, QueryOptions.empty()));
+        }
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2015 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.cellbase.benchmark;
+
+import org.opencb.biodata.models.core.Gene;
+import org.opencb.biodata.models.variant.Variant;
+import org.opencb.cellbase.core.variant.annotation.GeneIntervalIndex;
+import org.opencb.cellbase.core.variant.annotation.hgvs.HgvsCalculator;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of HGVS identifier calculation for SNVs, deletions and insertions over the fixture genes. Variants are
+ * not normalized, as in the annotator, and indels fetch their neighbouring sequence from the in-memory genome.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HgvsBenchmark {
+
+    // CSOFF: VisibilityModifier
+    @Param({"1000"})
+    public int numVariants;
+    // CSON: VisibilityModifier
+
+    private List<Gene> geneList;
+    private List<Variant> snvList;
+    private List<Variant> deletionList;
+    private List<Variant> insertionList;
+    private HgvsCalculator hgvsCalculator;
+    private GeneIntervalIndex geneIntervalIndex;
+
+    @Setup
+    public void setup() throws IOException {
+        BenchmarkFixtures fixtures = BenchmarkFixtures.load();
+        geneList = fixtures.getGeneList();
+        snvList = fixtures.getSnvs(numVariants);
+        deletionList = fixtures.getDeletions(numVariants, 10);
+        insertionList = fixtures.getInsertions(numVariants, 10);
+        hgvsCalculator = new HgvsCalculator(fixtures.getGenomeDBAdaptor());
+        geneIntervalIndex = new GeneIntervalIndex(geneList, BenchmarkFixtures.GENE_FLANK);
+    }
+
+    @Benchmark
+    public void snv(Blackhole blackhole) {
+        run(snvList, blackhole);
+    }
+
+    @Benchmark
+    public void deletion(Blackhole blackhole) {
+        run(deletionList, blackhole);
+    }
+
+    @Benchmark
+    public void insertion(Blackhole blackhole) {
+        run(insertionList, blackhole);
+    }
+
+    private void run(List<Variant> variantList, Blackhole blackhole) {
+        for (Variant variant : variantList) {
+            blackhole.consume(hgvsCalculator.run(variant, geneList, false, geneIntervalIndex::getSplicedTranscript));
+        }
+    }
+}
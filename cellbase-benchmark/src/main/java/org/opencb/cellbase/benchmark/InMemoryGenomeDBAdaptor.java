@@ -0,0 +1,199 @@
+/*
+ * Copyright 2015 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.cellbase.benchmark;
+
+import org.opencb.biodata.models.core.*;
+import org.opencb.biodata.models.variant.avro.Cytoband;
+import org.opencb.cellbase.core.api.GenomeDBAdaptor;
+import org.opencb.commons.datastore.core.Query;
+import org.opencb.commons.datastore.core.QueryOptions;
+import org.opencb.commons.datastore.core.QueryResult;
+
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * GenomeDBAdaptor serving the reference sequence from memory so that benchmarks run without MongoDB. The sequence of
+ * each chromosome covers the fixture genes plus a flank: exonic positions take the exon sequences of the fixtures and
+ * the rest are filled with pseudo-random bases, always the same for a given seed.
+ *
+ * Only the sequence queries made by the consequence type and HGVS calculators are served. The rest of the
+ * GenomeDBAdaptor methods are not reached by any benchmark and throw UnsupportedOperationException, so that a
+ * benchmark starting to use one fails instead of measuring an empty result.
+ */
+public class InMemoryGenomeDBAdaptor implements GenomeDBAdaptor {
+
+    private static final String SEQUENCE_TYPE = "chromosome";
+    private static final String ASSEMBLY = "GRCh37";
+    private static final char[] NUCLEOTIDES = {'A', 'C', 'G', 'T'};
+    private static final String NOT_SERVED = "Only genome sequence queries are served in memory";
+
+    private final Map<String, Integer> chromosomeStarts;
+    private final Map<String, String> chromosomeSequences;
+
+    public InMemoryGenomeDBAdaptor(List<Gene> geneList, int flank, long seed) {
+        chromosomeStarts = new HashMap<>();
+        chromosomeSequences = new HashMap<>();
+
+        Map<String, int[]> chromosomeSpans = new HashMap<>();
+        for (Gene gene : geneList) {
+            int[] span = chromosomeSpans.computeIfAbsent(gene.getChromosome(),
+                    key -> new int[]{Integer.MAX_VALUE, Integer.MIN_VALUE});
+            span[0] = Math.min(span[0], Math.max(1, gene.getStart() - flank));
+            span[1] = Math.max(span[1], gene.getEnd() + flank);
+        }
+
+        Random random = new Random(seed);
+        for (Map.Entry<String, int[]> entry : chromosomeSpans.entrySet()) {
+            int start = entry.getValue()[0];
+            char[] sequence = new char[entry.getValue()[1] - start + 1];
+            for (int i = 0; i < sequence.length; i++) {
+                sequence[i] = NUCLEOTIDES[random.nextInt(NUCLEOTIDES.length)];
+            }
+            for (Gene gene : geneList) {
+                if (gene.getChromosome().equals(entry.getKey()) && gene.getTranscripts() != null) {
+                    for (Transcript transcript : gene.getTranscripts()) {
+                        for (Exon exon : transcript.getExons()) {
+                            String exonSequence = exon.getSequence();
+                            if (exonSequence != null && exonSequence.length() == exon.getEnd() - exon.getStart() + 1) {
+                                exonSequence.getChars(0, exonSequence.length(), sequence, exon.getStart() - start);
+                            }
+                        }
+                    }
+                }
+            }
+            chromosomeStarts.put(entry.getKey(), start);
+            chromosomeSequences.put(entry.getKey(), new String(sequence));
+        }
+    }
+
+    /**
+     * @param chromosome chromosome name
+     * @param start first position, 1-based
+     * @param end last position, inclusive
+     * @return forward strand sequence, null if the region is not held in memory
+     */
+    public String getSequence(String chromosome, int start, int end) {
+        String sequence = chromosomeSequences.get(chromosome);
+        if (sequence == null) {
+            return null;
+        }
+        int offset = chromosomeStarts.get(chromosome);
+        if (start < offset || end - offset >= sequence.length() || end < start) {
+            return null;
+        }
+        return sequence.substring(start - offset, end - offset + 1);
+    }
+
+    @Override
+    public QueryResult<GenomeSequenceFeature> getGenomicSequence(Query query, QueryOptions queryOptions) {
+        return getSequence(Region.parseRegion(query.getString(QueryParams.REGION.key())), queryOptions);
+    }
+
+    @Override
+    public QueryResult<GenomeSequenceFeature> getSequence(Region region, QueryOptions queryOptions) {
+        QueryResult<GenomeSequenceFeature> result = new QueryResult<>(region.toString());
+        String sequence = getSequence(region.getChromosome(), region.getStart(), region.getEnd());
+        if (sequence != null) {
+            result.setResult(Collections.singletonList(new GenomeSequenceFeature(region.getChromosome(), region.getStart(),
+                    region.getEnd(), 1, SEQUENCE_TYPE, ASSEMBLY, sequence)));
+            result.setNumResults(1);
+            result.setNumTotalResults(1);
+        }
+        return result;
+    }
+
+    @Override
+    public QueryResult getGenomeInfo(QueryOptions queryOptions) {
+        throw new UnsupportedOperationException(NOT_SERVED);
+    }
+
+    @Override
+    public QueryResult getChromosomeInfo(String chromosomeId, QueryOptions queryOptions) {
+        throw new UnsupportedOperationException(NOT_SERVED);
+    }
+
+    @Override
+    public List<QueryResult<GenomicScoreRegion<Float>>> getConservation(List<Region> regions, QueryOptions queryOptions) {
+        throw new UnsupportedOperationException(NOT_SERVED);
+    }
+
+    @Override
+    public QueryResult<Cytoband> getCytobands(Region region, QueryOptions queryOptions) {
+        throw new UnsupportedOperationException(NOT_SERVED);
+    }
+
+    @Override
+    public QueryResult<Long> update(List objectList, String field, String[] innerFields) {
+        throw new UnsupportedOperationException(NOT_SERVED);
+    }
+
+    @Override
+    public QueryResult<Long> count(Query query) {
+        throw new UnsupportedOperationException(NOT_SERVED);
+    }
+
+    @Override
+    public QueryResult distinct(Query query, String field) {
+        throw new UnsupportedOperationException(NOT_SERVED);
+    }
+
+    @Override
+    public QueryResult stats(Query query) {
+        throw new UnsupportedOperationException(NOT_SERVED);
+    }
+
+    @Override
+    public QueryResult get(Query query, QueryOptions options) {
+        throw new UnsupportedOperationException(NOT_SERVED);
+    }
+
+    @Override
+    public QueryResult nativeGet(Query query, QueryOptions options) {
+        throw new UnsupportedOperationException(NOT_SERVED);
+    }
+
+    @Override
+    public Iterator iterator(Query query, QueryOptions options) {
+        throw new UnsupportedOperationException(NOT_SERVED);
+    }
+
+    @Override
+    public Iterator nativeIterator(Query query, QueryOptions options) {
+        throw new UnsupportedOperationException(NOT_SERVED);
+    }
+
+    @Override
+    public QueryResult rank(Query query, String field, int numResults, boolean asc) {
+        throw new UnsupportedOperationException(NOT_SERVED);
+    }
+
+    @Override
+    public QueryResult groupBy(Query query, String field, QueryOptions options) {
+        throw new UnsupportedOperationException(NOT_SERVED);
+    }
+
+    @Override
+    public QueryResult groupBy(Query query, List fields, QueryOptions options) {
+        throw new UnsupportedOperationException(NOT_SERVED);
+    }
+
+    @Override
+    public void forEach(Query query, Consumer action, QueryOptions options) {
+        throw new UnsupportedOperationException(NOT_SERVED);
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2015 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.cellbase.benchmark;
+
+import org.opencb.biodata.models.variant.Variant;
+import org.opencb.cellbase.core.variant.annotation.UnsupportedURLVariantFormat;
+import org.opencb.cellbase.core.variant.annotation.VariantAnnotationUtils;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the per-variant helpers called for every variant in a batch: variant type resolution and variant id
+ * building.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class VariantAnnotationUtilsBenchmark {
+
+    // CSOFF: VisibilityModifier
+    @Param({"1000"})
+    public int numVariants;
+    // CSON: VisibilityModifier
+
+    private List<Variant> variantList;
+
+    @Setup
+    public void setup() throws IOException {
+        BenchmarkFixtures fixtures = BenchmarkFixtures.load();
+        variantList = new ArrayList<>(3 * numVariants);
+        variantList.addAll(fixtures.getSnvs(numVariants));
+        variantList.addAll(fixtures.getDeletions(numVariants, 10));
+        variantList.addAll(fixtures.getInsertions(numVariants, 10));
+    }
+
+    @Benchmark
+    public void getVariantType(Blackhole blackhole) throws UnsupportedURLVariantFormat {
+        for (Variant variant : variantList) {
+            blackhole.consume(VariantAnnotationUtils.getVariantType(variant));
+        }
+    }
+
+    @Benchmark
+    public void buildVariantId(Blackhole blackhole) {
+        for (Variant variant : variantList) {
+            blackhole.consume(VariantAnnotationUtils.buildVariantId(variant.getChromosome(), variant.getStart(),
+                    variant.getReference(), variant.getAlternate()));
+        }
+    }
+}
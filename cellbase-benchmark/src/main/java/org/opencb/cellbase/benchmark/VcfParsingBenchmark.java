@@ -0,0 +1,76 @@
+/*
+ * Copyright 2015 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.cellbase.benchmark;
+
+import htsjdk.variant.vcf.VCFHeader;
+import htsjdk.variant.vcf.VCFHeaderLine;
+import htsjdk.variant.vcf.VCFHeaderVersion;
+import org.opencb.biodata.models.variant.Variant;
+import org.opencb.cellbase.app.cli.variant.annotation.VcfStringAnnotatorTask;
+import org.opencb.cellbase.core.variant.annotation.VariantAnnotator;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of VCF line parsing, conversion to Variant and normalization in VcfStringAnnotatorTask, with no
+ * annotators attached so that only the parsing side of the annotation pipeline is measured.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class VcfParsingBenchmark {
+
+    // CSOFF: VisibilityModifier
+    @Param({"1000"})
+    public int numVariants;
+
+    @Param({"true", "false"})
+    public boolean normalize;
+    // CSON: VisibilityModifier
+
+    private List<String> lineList;
+    private VcfStringAnnotatorTask vcfStringAnnotatorTask;
+
+    @Setup
+    public void setup() throws IOException {
+        BenchmarkFixtures fixtures = BenchmarkFixtures.load();
+        List<Variant> variantList = new ArrayList<>(3 * numVariants);
+        variantList.addAll(fixtures.getSnvs(numVariants));
+        variantList.addAll(fixtures.getDeletions(numVariants, 10));
+        variantList.addAll(fixtures.getInsertions(numVariants, 10));
+        lineList = fixtures.toVcfLines(variantList);
+
+        VCFHeader header = new VCFHeader(new HashSet<VCFHeaderLine>(), Collections.emptyList());
+        List<VariantAnnotator> variantAnnotatorList = Collections.emptyList();
+        vcfStringAnnotatorTask = new VcfStringAnnotatorTask(header, VCFHeaderVersion.VCF4_2, variantAnnotatorList,
+                new VcfStringAnnotatorTask.SharedContext(1), normalize);
+    }
+
+    @Benchmark
+    public List<Variant> parse() throws Exception {
+        return vcfStringAnnotatorTask.apply(lineList);
+    }
+}
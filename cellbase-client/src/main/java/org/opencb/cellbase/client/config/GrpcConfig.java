@@ -16,12 +16,20 @@
 
 package org.opencb.cellbase.client.config;
 
+import java.util.Collections;
+import java.util.List;
+
 /**
  * Created by imedina on 04/05/16.
  */
 public class GrpcConfig {
 
     private String host;
+    // Servers the calls are spread across, in 'host:port' format. If empty, 'host' is used
+    private List<String> hosts;
+    private int channelsPerHost;
+    // Deadline of each call in ms, 0 for no deadline
+    private long deadline;
 
     public GrpcConfig() {
     }
@@ -30,6 +38,17 @@ public class GrpcConfig {
         this.host = host;
     }
 
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("GrpcConfig{");
+        sb.append("host='").append(host).append('\'');
+        sb.append(", hosts=").append(hosts);
+        sb.append(", channelsPerHost=").append(channelsPerHost);
+        sb.append(", deadline=").append(deadline);
+        sb.append('}');
+        return sb.toString();
+    }
+
     public String getHost() {
         return host;
     }
@@ -38,4 +57,34 @@ public class GrpcConfig {
         this.host = host;
         return this;
     }
+
+    public List<String> getHosts() {
+        if (hosts != null && !hosts.isEmpty()) {
+            return hosts;
+        }
+        return host != null ? Collections.singletonList(host) : Collections.emptyList();
+    }
+
+    public GrpcConfig setHosts(List<String> hosts) {
+        this.hosts = hosts;
+        return this;
+    }
+
+    public int getChannelsPerHost() {
+        return channelsPerHost;
+    }
+
+    public GrpcConfig setChannelsPerHost(int channelsPerHost) {
+        this.channelsPerHost = channelsPerHost;
+        return this;
+    }
+
+    public long getDeadline() {
+        return deadline;
+    }
+
+    public GrpcConfig setDeadline(long deadline) {
+        this.deadline = deadline;
+        return this;
+    }
 }
@@ -25,6 +25,8 @@ public class RestConfig {
 
     private List<String> hosts;
     private int timeout;
+    // Latency percentile after which a request is also sent to another host, 0 disables hedged requests
+    private double hedgePercentile;
 
     public RestConfig() {
     }
@@ -39,6 +41,7 @@ public class RestConfig {
         final StringBuilder sb = new StringBuilder("RestConfig{");
         sb.append("hosts=").append(hosts);
         sb.append(", timeout=").append(timeout);
+        sb.append(", hedgePercentile=").append(hedgePercentile);
         sb.append('}');
         return sb.toString();
     }
@@ -60,4 +63,13 @@ public class RestConfig {
         this.timeout = timeout;
         return this;
     }
+
+    public double getHedgePercentile() {
+        return hedgePercentile;
+    }
+
+    public RestConfig setHedgePercentile(double hedgePercentile) {
+        this.hedgePercentile = hedgePercentile;
+        return this;
+    }
 }
@@ -1,10 +1,10 @@
 package org.opencb.cellbase.client.grpc;
 
-import io.grpc.ManagedChannel;
-import io.grpc.ManagedChannelBuilder;
+import org.opencb.cellbase.client.config.GrpcConfig;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Created by swaathi on 27/05/16.
@@ -13,44 +13,83 @@ public class CellbaseGrpcClient {
 
     private Map<String, ParentGrpcClient> clients;
 
-    private ManagedChannel channel;
+    private final GrpcChannelPool channelPool;
+    private final String species;
+    private final String assembly;
+    private final long deadline;
 
     public CellbaseGrpcClient(String host, int port) {
-        this.channel = ManagedChannelBuilder.forAddress(host, port)
-                .usePlaintext(true)
-                .build();
+        this("hsapiens", "GRCh37", new GrpcConfig(host + ":" + port));
+    }
+
+    /**
+     * @param species species of all the requests, e.g. hsapiens
+     * @param assembly assembly of all the requests, e.g. GRCh37
+     * @param grpcConfig servers, number of channels per server and deadline of each call
+     */
+    public CellbaseGrpcClient(String species, String assembly, GrpcConfig grpcConfig) {
+        this.channelPool = new GrpcChannelPool(grpcConfig.getHosts(), grpcConfig.getChannelsPerHost());
+        this.species = species;
+        this.assembly = assembly;
+        this.deadline = grpcConfig.getDeadline();
 
-        clients = new HashMap<>();
+        clients = new ConcurrentHashMap<>();
     }
 
     public GeneGrpcClient getGeneClient() {
-        clients.putIfAbsent("GENE", new GeneGrpcClient(channel));
-        return (GeneGrpcClient) clients.get("GENE");
+        return (GeneGrpcClient) clients.computeIfAbsent("GENE",
+                key -> new GeneGrpcClient(channelPool, species, assembly, deadline));
     }
 
     public TranscriptGrpcClient getTranscriptClient() {
-        clients.putIfAbsent("TRANSCRIPT", new TranscriptGrpcClient(channel));
-        return (TranscriptGrpcClient) clients.get("TRANSCRIPT");
+        return (TranscriptGrpcClient) clients.computeIfAbsent("TRANSCRIPT",
+                key -> new TranscriptGrpcClient(channelPool, species, assembly, deadline));
     }
 
     public VariationGrpcClient getVariationClient() {
-        clients.putIfAbsent("VARIATION", new VariationGrpcClient(channel));
-        return (VariationGrpcClient) clients.get("VARIATION");
+        return (VariationGrpcClient) clients.computeIfAbsent("VARIATION",
+                key -> new VariationGrpcClient(channelPool, species, assembly, deadline));
     }
 
     public RegulatoryGrpcClient getRegulatoryRegionClient() {
-        clients.putIfAbsent("REGULATORY_REGION", new RegulatoryGrpcClient(channel));
-        return (RegulatoryGrpcClient) clients.get("REGULATORY_REGION");
+        return (RegulatoryGrpcClient) clients.computeIfAbsent("REGULATORY_REGION",
+                key -> new RegulatoryGrpcClient(channelPool, species, assembly, deadline));
     }
 
     public VariantAnnotationGrpcClient getVariantAnnotationGrpcClient() {
-        clients.putIfAbsent("VARIANT_ANNOTATION", new VariantAnnotationGrpcClient(channel));
-        return (VariantAnnotationGrpcClient) clients.get("VARIANT_ANNOTATION");
+        return (VariantAnnotationGrpcClient) clients.computeIfAbsent("VARIANT_ANNOTATION",
+                key -> new VariantAnnotationGrpcClient(channelPool, species, assembly, deadline));
     }
 
     public GenomicRegionGrpcClient getGenomicRegionClient() {
-        clients.putIfAbsent("GENOMIC_REGION", new GenomicRegionGrpcClient(channel));
-        return (GenomicRegionGrpcClient) clients.get("GENOMIC_REGION");
+        return (GenomicRegionGrpcClient) clients.computeIfAbsent("GENOMIC_REGION",
+                key -> new GenomicRegionGrpcClient(channelPool, species, assembly, deadline));
+    }
+
+    /**
+     * Sends the variants still waiting to be annotated and closes all the channels, calls in progress are allowed to
+     * finish.
+     *
+     * @param timeout maximum time to wait for the calls in progress
+     * @param unit unit of the timeout
+     * @return true if all the channels were terminated within the timeout
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean shutdown(long timeout, TimeUnit unit) throws InterruptedException {
+        ParentGrpcClient variantAnnotationClient = clients.get("VARIANT_ANNOTATION");
+        if (variantAnnotationClient != null) {
+            ((VariantAnnotationGrpcClient) variantAnnotationClient).flush();
+        }
+        channelPool.shutdown();
+        return channelPool.awaitTermination(timeout, unit);
+    }
+
+    public String getSpecies() {
+        return species;
+    }
+
+    public String getAssembly() {
+        return assembly;
     }
 
 }
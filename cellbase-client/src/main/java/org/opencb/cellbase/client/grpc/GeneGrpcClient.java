@@ -1,5 +1,6 @@
 package org.opencb.cellbase.client.grpc;
 
+import io.grpc.Channel;
 import io.grpc.ManagedChannel;
 import org.opencb.biodata.models.common.protobuf.service.ServiceTypesModel;
 import org.opencb.biodata.models.core.protobuf.GeneModel;
@@ -10,7 +11,9 @@ import org.opencb.cellbase.core.grpc.service.GenericServiceModel;
 
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Created by swaathi on 27/05/16.
@@ -18,54 +21,77 @@ import java.util.Map;
 public class GeneGrpcClient extends ParentGrpcClient {
 
     private GeneServiceGrpc.GeneServiceBlockingStub geneServiceBlockingStub;
+    private GeneServiceGrpc.GeneServiceStub geneServiceStub;
 
+    @Deprecated
     public GeneGrpcClient(ManagedChannel channel) {
-        super(channel);
+        this(channel, "hsapiens", "GRCh37", 0);
+    }
+
+    public GeneGrpcClient(Channel channel, String species, String assembly, long deadline) {
+        super(channel, species, assembly, deadline);
         geneServiceBlockingStub = GeneServiceGrpc.newBlockingStub(channel);
+        geneServiceStub = GeneServiceGrpc.newStub(channel);
     }
 
     public Long count(Map<String, String> query) {
         GenericServiceModel.Request request = buildRequest(query, new HashMap<>());
-        return geneServiceBlockingStub.count(request).getValue();
+        return withDeadline(geneServiceBlockingStub).count(request).getValue();
     }
 
     public GeneModel.Gene first(Map<String, String> query, Map<String, String> queryOptions)  {
         GenericServiceModel.Request request = buildRequest(query, queryOptions);
-        return geneServiceBlockingStub.first(request);
+        return withDeadline(geneServiceBlockingStub).first(request);
     }
 
     public Iterator<GeneModel.Gene> get(Map<String, String> query, Map<String, String> queryOptions) {
         GenericServiceModel.Request request = buildRequest(query, queryOptions);
-        return geneServiceBlockingStub.get(request);
+        return withDeadline(geneServiceBlockingStub).get(request);
     }
 
     public ServiceTypesModel.StringArrayResponse distinct(Map<String, String> query, String field) {
         Map<String, String> queryOptions = new HashMap<>();
         queryOptions.put("distinct", field);
         GenericServiceModel.Request request = buildRequest(query, queryOptions);
-        return geneServiceBlockingStub.distinct(request);
+        return withDeadline(geneServiceBlockingStub).distinct(request);
     }
 
     public Iterator<TranscriptModel.Transcript> getTranscripts(String id, Map<String, String> queryOptions) {
         Map<String, String> query = new HashMap<>();
         query.put("id", id);
         GenericServiceModel.Request request = buildRequest(query, queryOptions);
-        return geneServiceBlockingStub.getTranscripts(request);
+        return withDeadline(geneServiceBlockingStub).getTranscripts(request);
     }
 
     public Iterator<RegulatoryRegionModel.RegulatoryRegion> getRegulatoryRegions(String id, Map<String, String> queryOptions) {
         Map<String, String> query = new HashMap<>();
         query.put("id", id);
         GenericServiceModel.Request request = buildRequest(query, queryOptions);
-        return geneServiceBlockingStub.getRegulatoryRegions(request);
+        return withDeadline(geneServiceBlockingStub).getRegulatoryRegions(request);
     }
 
     public Iterator<TranscriptModel.TranscriptTfbs> getTranscriptTfbs(String id, Map<String, String> queryOptions) {
         Map<String, String> query = new HashMap<>();
         query.put("id", id);
         GenericServiceModel.Request request = buildRequest(query, queryOptions);
-        return geneServiceBlockingStub.getTranscriptTfbs(request);
+        return withDeadline(geneServiceBlockingStub).getTranscriptTfbs(request);
+    }
+
+    public CompletableFuture<Long> countAsync(Map<String, String> query) {
+        CompletableFuture<ServiceTypesModel.LongResponse> future = new CompletableFuture<>();
+        withDeadline(geneServiceStub).count(buildRequest(query, new HashMap<>()), toFuture(future));
+        return future.thenApply(ServiceTypesModel.LongResponse::getValue);
     }
 
+    public CompletableFuture<GeneModel.Gene> firstAsync(Map<String, String> query, Map<String, String> queryOptions) {
+        CompletableFuture<GeneModel.Gene> future = new CompletableFuture<>();
+        withDeadline(geneServiceStub).first(buildRequest(query, queryOptions), toFuture(future));
+        return future;
+    }
 
+    public CompletableFuture<List<GeneModel.Gene>> getAsync(Map<String, String> query, Map<String, String> queryOptions) {
+        CompletableFuture<List<GeneModel.Gene>> future = new CompletableFuture<>();
+        withDeadline(geneServiceStub).get(buildRequest(query, queryOptions), toListFuture(future));
+        return future;
+    }
 }
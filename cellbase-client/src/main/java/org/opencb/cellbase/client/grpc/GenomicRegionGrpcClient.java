@@ -1,5 +1,6 @@
 package org.opencb.cellbase.client.grpc;
 
+import io.grpc.Channel;
 import io.grpc.ManagedChannel;
 import org.opencb.biodata.models.common.protobuf.service.ServiceTypesModel;
 import org.opencb.biodata.models.core.protobuf.GeneModel;
@@ -19,28 +20,34 @@ public class GenomicRegionGrpcClient extends ParentGrpcClient {
 
     private GenomicRegionServiceGrpc.GenomicRegionServiceBlockingStub genomicRegionServiceBlockingStub;
 
+    @Deprecated
     public GenomicRegionGrpcClient(ManagedChannel channel) {
-        super(channel);
+        this(channel, "hsapiens", "GRCh37", 0);
+    }
+
+    public GenomicRegionGrpcClient(Channel channel, String species, String assembly, long deadline) {
+        super(channel, species, assembly, deadline);
+        genomicRegionServiceBlockingStub = GenomicRegionServiceGrpc.newBlockingStub(channel);
     }
 
     public Iterator<GeneModel.Gene> getGene(Map<String, String> query, Map<String, String> queryOptions) {
         GenericServiceModel.Request request = buildRequest(query, queryOptions);
-        return genomicRegionServiceBlockingStub.getGene(request);
+        return withDeadline(genomicRegionServiceBlockingStub).getGene(request);
     }
 
     public Iterator<TranscriptModel.Transcript> getTranscript(Map<String, String> query, Map<String, String> queryOptions) {
         GenericServiceModel.Request request = buildRequest(query, queryOptions);
-        return genomicRegionServiceBlockingStub.getTranscript(request);
+        return withDeadline(genomicRegionServiceBlockingStub).getTranscript(request);
     }
 
     public ServiceTypesModel.StringResponse getSequence(Map<String, String> query, Map<String, String> queryOptions) {
         GenericServiceModel.Request request = buildRequest(query, queryOptions);
-        return genomicRegionServiceBlockingStub.getSequence(request);
+        return withDeadline(genomicRegionServiceBlockingStub).getSequence(request);
     }
 
     public Iterator<RegulatoryRegionModel.RegulatoryRegion> getRegulatoryRegion(Map<String, String> query,
                                                                                 Map<String, String> queryOptions) {
         GenericServiceModel.Request request = buildRequest(query, queryOptions);
-        return genomicRegionServiceBlockingStub.getRegulatoryRegion(request);
+        return withDeadline(genomicRegionServiceBlockingStub).getRegulatoryRegion(request);
     }
 }
@@ -0,0 +1,77 @@
+package org.opencb.cellbase.client.grpc;
+
+import io.grpc.CallOptions;
+import io.grpc.Channel;
+import io.grpc.ClientCall;
+import io.grpc.ManagedChannel;
+import io.grpc.ManagedChannelBuilder;
+import io.grpc.MethodDescriptor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Channel spreading the calls round-robin across several channels, one or more per server. A single channel sends all
+ * its calls over one HTTP/2 connection, several of them let one process use several servers and connections.
+ * Streaming calls stay on the channel they were started on.
+ */
+public class GrpcChannelPool extends Channel {
+
+    private final List<ManagedChannel> channels;
+    private final AtomicInteger nextChannel;
+
+    /**
+     * @param hosts servers in 'host:port' format
+     * @param channelsPerHost number of channels opened to each server
+     */
+    public GrpcChannelPool(List<String> hosts, int channelsPerHost) {
+        if (hosts == null || hosts.isEmpty()) {
+            throw new IllegalArgumentException("At least one gRPC host is needed");
+        }
+        List<ManagedChannel> channelList = new ArrayList<>();
+        for (int i = 0; i < Math.max(1, channelsPerHost); i++) {
+            for (String host : hosts) {
+                channelList.add(ManagedChannelBuilder.forTarget(host)
+                        .usePlaintext(true)
+                        .build());
+            }
+        }
+        this.channels = Collections.unmodifiableList(channelList);
+        this.nextChannel = new AtomicInteger();
+    }
+
+    @Override
+    public <RequestT, ResponseT> ClientCall<RequestT, ResponseT> newCall(MethodDescriptor<RequestT, ResponseT> methodDescriptor,
+                                                                         CallOptions callOptions) {
+        int index = Math.floorMod(nextChannel.getAndIncrement(), channels.size());
+        return channels.get(index).newCall(methodDescriptor, callOptions);
+    }
+
+    @Override
+    public String authority() {
+        return channels.get(0).authority();
+    }
+
+    public void shutdown() {
+        for (ManagedChannel channel : channels) {
+            channel.shutdown();
+        }
+    }
+
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        for (ManagedChannel channel : channels) {
+            if (!channel.awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public List<ManagedChannel> getChannels() {
+        return channels;
+    }
+}
@@ -1,30 +1,112 @@
 package org.opencb.cellbase.client.grpc;
 
+import io.grpc.Channel;
 import io.grpc.ManagedChannel;
+import io.grpc.stub.AbstractStub;
+import io.grpc.stub.StreamObserver;
 import org.opencb.cellbase.core.grpc.service.GenericServiceModel;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Created by swaathi on 27/05/16.
  */
 public class ParentGrpcClient {
 
-    protected ManagedChannel channel;
+    protected Channel channel;
 
+    protected final String species;
+    protected final String assembly;
+    // Deadline of each call in ms, 0 for no deadline
+    protected final long deadline;
+
+    @Deprecated
     public ParentGrpcClient(ManagedChannel channel) {
+        this(channel, "hsapiens", "GRCh37", 0);
+    }
+
+    public ParentGrpcClient(Channel channel, String species, String assembly, long deadline) {
         this.channel = channel;
+        this.species = species;
+        this.assembly = assembly;
+        this.deadline = deadline;
     }
 
     protected GenericServiceModel.Request buildRequest(Map<String, String> query, Map<String, String> queryOptions) {
         GenericServiceModel.Request request = GenericServiceModel.Request.newBuilder()
-                .setSpecies("hsapiens")
-                .setAssembly("GRCh37")
+                .setSpecies(species)
+                .setAssembly(assembly)
                 .putAllQuery(query)
                 .putAllOptions(queryOptions)
                 .build();
         return request;
     }
 
-}
+    /**
+     * Deadlines are absolute, so a new stub is needed for each call.
+     *
+     * @param stub stub the call is made with
+     * @param <S> type of the stub
+     * @return stub with the configured deadline counting from now, or the same stub if there is no deadline
+     */
+    protected <S extends AbstractStub<S>> S withDeadline(S stub) {
+        return deadline > 0 ? stub.withDeadlineAfter(deadline, TimeUnit.MILLISECONDS) : stub;
+    }
+
+    /**
+     * @param future future completed with the response of a unary call
+     * @param <V> type of the response
+     * @return observer to pass to the asynchronous stub
+     */
+    protected static <V> StreamObserver<V> toFuture(CompletableFuture<V> future) {
+        return new StreamObserver<V>() {
+            private V value;
+
+            @Override
+            public void onNext(V value) {
+                this.value = value;
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                future.completeExceptionally(throwable);
+            }
 
+            @Override
+            public void onCompleted() {
+                future.complete(value);
+            }
+        };
+    }
+
+    /**
+     * @param future future completed with all the responses of a server streaming call
+     * @param <V> type of the responses
+     * @return observer to pass to the asynchronous stub
+     */
+    protected static <V> StreamObserver<V> toListFuture(CompletableFuture<List<V>> future) {
+        return new StreamObserver<V>() {
+            private final List<V> values = new ArrayList<>();
+
+            @Override
+            public void onNext(V value) {
+                values.add(value);
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                future.completeExceptionally(throwable);
+            }
+
+            @Override
+            public void onCompleted() {
+                future.complete(values);
+            }
+        };
+    }
+
+}
@@ -1,5 +1,6 @@
 package org.opencb.cellbase.client.grpc;
 
+import io.grpc.Channel;
 import io.grpc.ManagedChannel;
 import org.opencb.biodata.models.common.protobuf.service.ServiceTypesModel;
 import org.opencb.biodata.models.core.protobuf.RegulatoryRegionModel;
@@ -8,7 +9,9 @@ import org.opencb.cellbase.core.grpc.service.RegulatoryRegionServiceGrpc;
 
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Created by swaathi on 17/08/16.
@@ -16,32 +19,58 @@ import java.util.Map;
 public class RegulatoryGrpcClient extends ParentGrpcClient {
 
     private RegulatoryRegionServiceGrpc.RegulatoryRegionServiceBlockingStub regulatoryRegionServiceBlockingStub;
+    private RegulatoryRegionServiceGrpc.RegulatoryRegionServiceStub regulatoryRegionServiceStub;
 
+    @Deprecated
     public RegulatoryGrpcClient(ManagedChannel channel) {
-        super(channel);
+        this(channel, "hsapiens", "GRCh37", 0);
+    }
+
+    public RegulatoryGrpcClient(Channel channel, String species, String assembly, long deadline) {
+        super(channel, species, assembly, deadline);
         regulatoryRegionServiceBlockingStub = RegulatoryRegionServiceGrpc.newBlockingStub(channel);
+        regulatoryRegionServiceStub = RegulatoryRegionServiceGrpc.newStub(channel);
     }
 
     public Long count(Map<String, String> query) {
         GenericServiceModel.Request request = buildRequest(query, new HashMap<>());
-        return regulatoryRegionServiceBlockingStub.count(request).getValue();
+        return withDeadline(regulatoryRegionServiceBlockingStub).count(request).getValue();
     }
 
     public RegulatoryRegionModel.RegulatoryRegion first(Map<String, String> query, Map<String, String> queryOptions)  {
         GenericServiceModel.Request request = buildRequest(query, queryOptions);
-        return regulatoryRegionServiceBlockingStub.first(request);
+        return withDeadline(regulatoryRegionServiceBlockingStub).first(request);
     }
 
     public Iterator<RegulatoryRegionModel.RegulatoryRegion> get(Map<String, String> query, Map<String, String> queryOptions) {
         GenericServiceModel.Request request = buildRequest(query, queryOptions);
-        return regulatoryRegionServiceBlockingStub.get(request);
+        return withDeadline(regulatoryRegionServiceBlockingStub).get(request);
     }
 
     public ServiceTypesModel.StringArrayResponse distinct(Map<String, String> query, String field) {
         Map<String, String> queryOptions = new HashMap<>();
         queryOptions.put("distinct", field);
         GenericServiceModel.Request request = buildRequest(query, queryOptions);
-        return regulatoryRegionServiceBlockingStub.distinct(request);
+        return withDeadline(regulatoryRegionServiceBlockingStub).distinct(request);
+    }
+
+    public CompletableFuture<Long> countAsync(Map<String, String> query) {
+        CompletableFuture<ServiceTypesModel.LongResponse> future = new CompletableFuture<>();
+        withDeadline(regulatoryRegionServiceStub).count(buildRequest(query, new HashMap<>()), toFuture(future));
+        return future.thenApply(ServiceTypesModel.LongResponse::getValue);
     }
 
+    public CompletableFuture<RegulatoryRegionModel.RegulatoryRegion> firstAsync(Map<String, String> query,
+                                                                               Map<String, String> queryOptions) {
+        CompletableFuture<RegulatoryRegionModel.RegulatoryRegion> future = new CompletableFuture<>();
+        withDeadline(regulatoryRegionServiceStub).first(buildRequest(query, queryOptions), toFuture(future));
+        return future;
+    }
+
+    public CompletableFuture<List<RegulatoryRegionModel.RegulatoryRegion>> getAsync(Map<String, String> query,
+                                                                                    Map<String, String> queryOptions) {
+        CompletableFuture<List<RegulatoryRegionModel.RegulatoryRegion>> future = new CompletableFuture<>();
+        withDeadline(regulatoryRegionServiceStub).get(buildRequest(query, queryOptions), toListFuture(future));
+        return future;
+    }
 }
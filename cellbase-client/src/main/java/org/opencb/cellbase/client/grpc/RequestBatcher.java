@@ -0,0 +1,120 @@
+package org.opencb.cellbase.client.grpc;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Groups many small requests into fewer calls. Items are collected until there are maxBatchSize of them or
+ * lingerMillis have passed since the first one, then they are sent together and each caller gets its own result.
+ *
+ * @param <T> type of the items, e.g. variant ids
+ * @param <R> type of the result of each item
+ */
+public class RequestBatcher<T, R> {
+
+    private static ScheduledExecutorService scheduler;
+
+    private final int maxBatchSize;
+    private final long lingerMillis;
+    // Sends a batch, result i of the returned list is the result of item i, null if there is none
+    private final Function<List<T>, CompletableFuture<List<R>>> sender;
+
+    private List<T> items;
+    private List<CompletableFuture<R>> futures;
+    private ScheduledFuture<?> scheduledFlush;
+
+    /**
+     * @param maxBatchSize maximum number of items sent together
+     * @param lingerMillis maximum time an item waits for more items before it is sent
+     * @param sender function sending a batch, the result of each item must be at the same position as the item and
+     *               be null if there is none, the futures of items with no result fail
+     */
+    public RequestBatcher(int maxBatchSize, long lingerMillis, Function<List<T>, CompletableFuture<List<R>>> sender) {
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.lingerMillis = lingerMillis;
+        this.sender = sender;
+
+        this.items = new ArrayList<>(this.maxBatchSize);
+        this.futures = new ArrayList<>(this.maxBatchSize);
+    }
+
+    private static synchronized ScheduledExecutorService getScheduler() {
+        if (scheduler == null) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "grpc-request-batcher");
+                // Scheduler is never shut down, it must not keep the JVM alive
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return scheduler;
+    }
+
+    /**
+     * @param item item to send in the next batch
+     * @return future completed with the result of the item once its batch is answered
+     */
+    public CompletableFuture<R> add(T item) {
+        CompletableFuture<R> future = new CompletableFuture<>();
+        boolean full;
+        synchronized (this) {
+            items.add(item);
+            futures.add(future);
+            full = items.size() >= maxBatchSize;
+            if (!full && scheduledFlush == null) {
+                scheduledFlush = getScheduler().schedule(this::flush, lingerMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+        // The batch is sent outside the lock, other threads keep filling the next one
+        if (full) {
+            flush();
+        }
+        return future;
+    }
+
+    /**
+     * Sends the items collected so far without waiting for more.
+     */
+    public void flush() {
+        List<T> batch;
+        List<CompletableFuture<R>> batchFutures;
+        synchronized (this) {
+            if (scheduledFlush != null) {
+                scheduledFlush.cancel(false);
+                scheduledFlush = null;
+            }
+            if (items.isEmpty()) {
+                return;
+            }
+            batch = items;
+            batchFutures = futures;
+            items = new ArrayList<>(maxBatchSize);
+            futures = new ArrayList<>(maxBatchSize);
+        }
+
+        CompletableFuture<List<R>> response;
+        try {
+            response = sender.apply(batch);
+        } catch (RuntimeException e) {
+            response = new CompletableFuture<>();
+            response.completeExceptionally(e);
+        }
+        response.whenComplete((results, throwable) -> {
+            for (int i = 0; i < batchFutures.size(); i++) {
+                if (throwable != null) {
+                    batchFutures.get(i).completeExceptionally(throwable);
+                } else if (i < results.size() && results.get(i) != null) {
+                    batchFutures.get(i).complete(results.get(i));
+                } else {
+                    batchFutures.get(i).completeExceptionally(new IllegalStateException("No result returned for " + batch.get(i)));
+                }
+            }
+        });
+    }
+}
@@ -1,5 +1,6 @@
 package org.opencb.cellbase.client.grpc;
 
+import io.grpc.Channel;
 import io.grpc.ManagedChannel;
 import org.opencb.biodata.models.common.protobuf.service.ServiceTypesModel;
 import org.opencb.biodata.models.core.protobuf.TranscriptModel;
@@ -8,7 +9,9 @@ import org.opencb.cellbase.core.grpc.service.TranscriptServiceGrpc;
 
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Created by swaathi on 17/08/16.
@@ -16,36 +19,61 @@ import java.util.Map;
 public class TranscriptGrpcClient extends ParentGrpcClient {
 
     private TranscriptServiceGrpc.TranscriptServiceBlockingStub transcriptServiceBlockingStub;
+    private TranscriptServiceGrpc.TranscriptServiceStub transcriptServiceStub;
 
+    @Deprecated
     public TranscriptGrpcClient(ManagedChannel channel) {
-        super(channel);
+        this(channel, "hsapiens", "GRCh37", 0);
+    }
+
+    public TranscriptGrpcClient(Channel channel, String species, String assembly, long deadline) {
+        super(channel, species, assembly, deadline);
         transcriptServiceBlockingStub = TranscriptServiceGrpc.newBlockingStub(channel);
+        transcriptServiceStub = TranscriptServiceGrpc.newStub(channel);
     }
 
     public Long count(Map<String, String> query) {
         GenericServiceModel.Request request = buildRequest(query, new HashMap<>());
-        return transcriptServiceBlockingStub.count(request).getValue();
+        return withDeadline(transcriptServiceBlockingStub).count(request).getValue();
     }
 
     public TranscriptModel.Transcript first(Map<String, String> query, Map<String, String> queryOptions)  {
         GenericServiceModel.Request request = buildRequest(query, queryOptions);
-        return transcriptServiceBlockingStub.first(request);
+        return withDeadline(transcriptServiceBlockingStub).first(request);
     }
 
     public Iterator<TranscriptModel.Transcript> get(Map<String, String> query, Map<String, String> queryOptions) {
         GenericServiceModel.Request request = buildRequest(query, queryOptions);
-        return transcriptServiceBlockingStub.get(request);
+        return withDeadline(transcriptServiceBlockingStub).get(request);
     }
 
     public ServiceTypesModel.StringArrayResponse distinct(Map<String, String> query, String field) {
         Map<String, String> queryOptions = new HashMap<>();
         queryOptions.put("distinct", field);
         GenericServiceModel.Request request = buildRequest(query, queryOptions);
-        return transcriptServiceBlockingStub.distinct(request);
+        return withDeadline(transcriptServiceBlockingStub).distinct(request);
     }
 
     public ServiceTypesModel.StringResponse getSequence(Map<String, String> query) {
         GenericServiceModel.Request request = buildRequest(query, new HashMap<>());
-        return transcriptServiceBlockingStub.getCdna(request);
+        return withDeadline(transcriptServiceBlockingStub).getCdna(request);
+    }
+
+    public CompletableFuture<Long> countAsync(Map<String, String> query) {
+        CompletableFuture<ServiceTypesModel.LongResponse> future = new CompletableFuture<>();
+        withDeadline(transcriptServiceStub).count(buildRequest(query, new HashMap<>()), toFuture(future));
+        return future.thenApply(ServiceTypesModel.LongResponse::getValue);
+    }
+
+    public CompletableFuture<TranscriptModel.Transcript> firstAsync(Map<String, String> query, Map<String, String> queryOptions) {
+        CompletableFuture<TranscriptModel.Transcript> future = new CompletableFuture<>();
+        withDeadline(transcriptServiceStub).first(buildRequest(query, queryOptions), toFuture(future));
+        return future;
+    }
+
+    public CompletableFuture<List<TranscriptModel.Transcript>> getAsync(Map<String, String> query, Map<String, String> queryOptions) {
+        CompletableFuture<List<TranscriptModel.Transcript>> future = new CompletableFuture<>();
+        withDeadline(transcriptServiceStub).get(buildRequest(query, queryOptions), toListFuture(future));
+        return future;
     }
 }
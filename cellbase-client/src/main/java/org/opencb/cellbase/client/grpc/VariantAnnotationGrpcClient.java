@@ -1,33 +1,200 @@
 package org.opencb.cellbase.client.grpc;
 
+import io.grpc.Channel;
 import io.grpc.ManagedChannel;
+import io.grpc.stub.ClientCallStreamObserver;
+import io.grpc.stub.ClientResponseObserver;
+import io.grpc.stub.StreamObserver;
+import org.opencb.biodata.models.variant.Variant;
 import org.opencb.biodata.models.variant.protobuf.VariantAnnotationProto;
+import org.opencb.biodata.tools.variant.VariantNormalizer;
 import org.opencb.cellbase.core.grpc.service.GenericServiceModel;
 import org.opencb.cellbase.core.grpc.service.VariantAnnotationServiceGrpc;
 
-import java.util.HashMap;
-import java.util.Iterator;
-import java.util.Map;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Created by swaathi on 17/08/16.
  */
 public class VariantAnnotationGrpcClient extends ParentGrpcClient {
 
+    private static final int VARIANTS_PER_REQUEST = 100;
+    private static final long BATCH_LINGER_MILLIS = 5;
+
     private VariantAnnotationServiceGrpc.VariantAnnotationServiceBlockingStub stub;
+    private VariantAnnotationServiceGrpc.VariantAnnotationServiceStub asyncStub;
+    // One batcher for each set of query options, variants are only batched with others annotated the same way
+    private final Map<Map<String, String>, RequestBatcher<String, List<VariantAnnotationProto.VariantAnnotation>>> batchers;
 
+    @Deprecated
     public VariantAnnotationGrpcClient(ManagedChannel channel) {
-        super(channel);
+        this(channel, "hsapiens", "GRCh37", 0);
+    }
+
+    public VariantAnnotationGrpcClient(Channel channel, String species, String assembly, long deadline) {
+        super(channel, species, assembly, deadline);
         stub = VariantAnnotationServiceGrpc.newBlockingStub(channel);
+        asyncStub = VariantAnnotationServiceGrpc.newStub(channel);
+        batchers = new ConcurrentHashMap<>();
     }
 
     public Iterator<VariantAnnotationProto.VariantAnnotation> get(Map<String, String> query, Map<String, String> queryOptions) {
         GenericServiceModel.Request request = buildRequest(query, new HashMap<>());
-        return stub.get(request);
+        return withDeadline(stub).get(request);
+    }
+
+    public CompletableFuture<List<VariantAnnotationProto.VariantAnnotation>> getAsync(Map<String, String> query,
+                                                                                      Map<String, String> queryOptions) {
+        CompletableFuture<List<VariantAnnotationProto.VariantAnnotation>> future = new CompletableFuture<>();
+        withDeadline(asyncStub).get(buildRequest(query, queryOptions), toListFuture(future));
+        return future;
+    }
+
+    /**
+     * Annotates one variant. Variants annotated with the same options by any thread are sent together, in calls of up
+     * to VARIANTS_PER_REQUEST variants that wait at most BATCH_LINGER_MILLIS for more variants, so many small
+     * requests take few calls.
+     *
+     * @param variant variant id, e.g. 19:45411941:T:C
+     * @param queryOptions annotation options, e.g. include, exclude or normalize
+     * @return future completed with the annotations of the variant, it fails if the server returns no annotation for it
+     */
+    public CompletableFuture<List<VariantAnnotationProto.VariantAnnotation>> annotateAsync(String variant,
+                                                                                           Map<String, String> queryOptions) {
+        return batchers.computeIfAbsent(new HashMap<>(queryOptions), options -> new RequestBatcher<>(VARIANTS_PER_REQUEST,
+                BATCH_LINGER_MILLIS, variants -> annotateBatch(variants, options))).add(variant);
+    }
+
+    /**
+     * Sends the variants waiting to be annotated by annotateAsync without waiting for more.
+     */
+    public void flush() {
+        for (RequestBatcher<String, List<VariantAnnotationProto.VariantAnnotation>> batcher : batchers.values()) {
+            batcher.flush();
+        }
+    }
+
+    /**
+     * Annotations are matched to the variants by chromosome, start and alleles, never by position in the response.
+     * When the server normalizes the variants each requested variant is normalized here the same way, so that it is
+     * matched with the annotations of its normalized variants.
+     *
+     * @param variants variant ids
+     * @param queryOptions annotation options
+     * @return future with the annotations of each variant, null for the variants with no annotation returned
+     */
+    private CompletableFuture<List<List<VariantAnnotationProto.VariantAnnotation>>> annotateBatch(List<String> variants,
+                                                                                               Map<String, String> queryOptions) {
+        Map<String, String> query = Collections.singletonMap("id", String.join(",", variants));
+        boolean normalize = Boolean.parseBoolean(queryOptions.get("normalize"));
+        return getAsync(query, queryOptions).thenApply(annotations -> {
+            // Repeated variants are annotated once for each time they are requested
+            Map<String, Deque<VariantAnnotationProto.VariantAnnotation>> annotationMap = new HashMap<>();
+            for (VariantAnnotationProto.VariantAnnotation annotation : annotations) {
+                annotationMap.computeIfAbsent(getKey(annotation.getChromosome(), annotation.getStart(),
+                        annotation.getReference(), annotation.getAlternate()), key -> new ArrayDeque<>()).add(annotation);
+            }
+
+            List<List<VariantAnnotationProto.VariantAnnotation>> results = new ArrayList<>(variants.size());
+            for (String variant : variants) {
+                List<VariantAnnotationProto.VariantAnnotation> variantAnnotations = new ArrayList<>(1);
+                for (Variant normalizedVariant : getAnnotatedVariants(variant, normalize)) {
+                    Deque<VariantAnnotationProto.VariantAnnotation> keyAnnotations = annotationMap.get(getKey(
+                            normalizedVariant.getChromosome(), normalizedVariant.getStart(),
+                            normalizedVariant.getReference(), normalizedVariant.getAlternate()));
+                    if (keyAnnotations != null && !keyAnnotations.isEmpty()) {
+                        variantAnnotations.add(keyAnnotations.poll());
+                    }
+                }
+                results.add(variantAnnotations.isEmpty() ? null : variantAnnotations);
+            }
+            return results;
+        });
+    }
+
+    /**
+     * @param variant variant id
+     * @param normalize whether the server normalizes the variants
+     * @return variants the server annotates for this id, several if a MNV is decomposed
+     */
+    private List<Variant> getAnnotatedVariants(String variant, boolean normalize) {
+        List<Variant> variants = Variant.parseVariants(variant);
+        if (normalize) {
+            try {
+                // Same normalization as VariantAnnotationCalculator
+                return new VariantNormalizer(false, false, true).apply(variants);
+            } catch (RuntimeException e) {
+                // The server cannot normalize it either, it is matched as it is
+                return variants;
+            }
+        }
+        return variants;
+    }
+
+    private static String getKey(String chromosome, int start, String reference, String alternate) {
+        return chromosome + ":" + start + ":" + getAllele(reference) + ":" + getAllele(alternate);
+    }
+
+    private static String getAllele(String allele) {
+        return allele == null || allele.equals("-") ? "" : allele.toUpperCase();
     }
 
     public Iterator<VariantAnnotationProto.Score> getCadd(Map<String, String> query, Map<String, String> queryOptions) {
         GenericServiceModel.Request request = buildRequest(query, new HashMap<>());
-        return stub.getCadd(request);
+        return withDeadline(stub).getCadd(request);
+    }
+
+    /**
+     * Annotates a stream of variants over a single call. Variants are sent only while the server is ready to take
+     * them and annotations are passed to the response observer as the server annotates each batch. The stream can
+     * be arbitrarily long, so no deadline is set.
+     *
+     * @param variants variant ids, e.g. 19:45411941:T:C
+     * @param queryOptions annotation options, e.g. include, exclude or normalize
+     * @param responseObserver observer receiving the annotations
+     */
+    public void annotate(Iterator<String> variants, Map<String, String> queryOptions,
+                         StreamObserver<VariantAnnotationProto.VariantAnnotation> responseObserver) {
+        asyncStub.annotate(new ClientResponseObserver<GenericServiceModel.Request, VariantAnnotationProto.VariantAnnotation>() {
+            private boolean completed;
+
+            @Override
+            public void beforeStart(ClientCallStreamObserver<GenericServiceModel.Request> requestStream) {
+                requestStream.setOnReadyHandler(() -> {
+                    while (requestStream.isReady() && !completed) {
+                        if (!variants.hasNext()) {
+                            completed = true;
+                            requestStream.onCompleted();
+                            return;
+                        }
+                        StringBuilder ids = new StringBuilder();
+                        for (int i = 0; i < VARIANTS_PER_REQUEST && variants.hasNext(); i++) {
+                            if (i > 0) {
+                                ids.append(",");
+                            }
+                            ids.append(variants.next());
+                        }
+                        requestStream.onNext(buildRequest(Collections.singletonMap("id", ids.toString()), queryOptions));
+                    }
+                });
+            }
+
+            @Override
+            public void onNext(VariantAnnotationProto.VariantAnnotation variantAnnotation) {
+                responseObserver.onNext(variantAnnotation);
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                responseObserver.onError(throwable);
+            }
+
+            @Override
+            public void onCompleted() {
+                responseObserver.onCompleted();
+            }
+        });
     }
 }
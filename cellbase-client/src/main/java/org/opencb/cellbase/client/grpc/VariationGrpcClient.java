@@ -1,5 +1,6 @@
 package org.opencb.cellbase.client.grpc;
 
+import io.grpc.Channel;
 import io.grpc.ManagedChannel;
 import org.opencb.biodata.models.common.protobuf.service.ServiceTypesModel;
 import org.opencb.biodata.models.variant.protobuf.VariantProto;
@@ -8,7 +9,9 @@ import org.opencb.cellbase.core.grpc.service.VariantServiceGrpc;
 
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Created by swaathi on 17/08/16.
@@ -16,31 +19,56 @@ import java.util.Map;
 public class VariationGrpcClient extends ParentGrpcClient {
 
     private VariantServiceGrpc.VariantServiceBlockingStub variantServiceBlockingStub;
+    private VariantServiceGrpc.VariantServiceStub variantServiceStub;
 
+    @Deprecated
     public VariationGrpcClient(ManagedChannel channel) {
-        super(channel);
+        this(channel, "hsapiens", "GRCh37", 0);
+    }
+
+    public VariationGrpcClient(Channel channel, String species, String assembly, long deadline) {
+        super(channel, species, assembly, deadline);
         variantServiceBlockingStub = VariantServiceGrpc.newBlockingStub(channel);
+        variantServiceStub = VariantServiceGrpc.newStub(channel);
     }
 
     public Long count(Map<String, String> query) {
         GenericServiceModel.Request request = buildRequest(query, new HashMap<>());
-        return variantServiceBlockingStub.count(request).getValue();
+        return withDeadline(variantServiceBlockingStub).count(request).getValue();
     }
 
     public VariantProto.Variant first(Map<String, String> query, Map<String, String> queryOptions)  {
         GenericServiceModel.Request request = buildRequest(query, queryOptions);
-        return variantServiceBlockingStub.first(request);
+        return withDeadline(variantServiceBlockingStub).first(request);
     }
 
     public Iterator<VariantProto.Variant> get(Map<String, String> query, Map<String, String> queryOptions) {
         GenericServiceModel.Request request = buildRequest(query, queryOptions);
-        return variantServiceBlockingStub.get(request);
+        return withDeadline(variantServiceBlockingStub).get(request);
     }
 
     public ServiceTypesModel.StringArrayResponse distinct(Map<String, String> query, String field) {
         Map<String, String> queryOptions = new HashMap<>();
         queryOptions.put("distinct", field);
         GenericServiceModel.Request request = buildRequest(query, queryOptions);
-        return variantServiceBlockingStub.distinct(request);
+        return withDeadline(variantServiceBlockingStub).distinct(request);
+    }
+
+    public CompletableFuture<Long> countAsync(Map<String, String> query) {
+        CompletableFuture<ServiceTypesModel.LongResponse> future = new CompletableFuture<>();
+        withDeadline(variantServiceStub).count(buildRequest(query, new HashMap<>()), toFuture(future));
+        return future.thenApply(ServiceTypesModel.LongResponse::getValue);
+    }
+
+    public CompletableFuture<VariantProto.Variant> firstAsync(Map<String, String> query, Map<String, String> queryOptions) {
+        CompletableFuture<VariantProto.Variant> future = new CompletableFuture<>();
+        withDeadline(variantServiceStub).first(buildRequest(query, queryOptions), toFuture(future));
+        return future;
+    }
+
+    public CompletableFuture<List<VariantProto.Variant>> getAsync(Map<String, String> query, Map<String, String> queryOptions) {
+        CompletableFuture<List<VariantProto.Variant>> future = new CompletableFuture<>();
+        withDeadline(variantServiceStub).get(buildRequest(query, queryOptions), toListFuture(future));
+        return future;
     }
 }
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2015 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.cellbase.client.rest;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+
+/**
+ * Client-side load balancing across the CellBase REST hosts. Each request goes to the healthy host with the lowest
+ * (requests in flight + 1) * EWMA latency, ties are broken round-robin. A host failing MAX_CONSECUTIVE_FAILURES times
+ * in a row is ejected for EJECTION_TIME_MILLIS and only used again when no other host is left; after that, one more
+ * failure ejects it again. Latencies of the successful calls are also kept to compute the delay of hedged requests.
+ */
+public class HostSelector {
+
+    static final int MAX_CONSECUTIVE_FAILURES = 3;
+    static final long EJECTION_TIME_MILLIS = 30000;
+    static final int MIN_LATENCY_SAMPLES = 20;
+    private static final int NUM_LATENCY_SAMPLES = 256;
+    private static final double EWMA_WEIGHT = 0.3;
+
+    private final List<String> hosts;
+    private final Map<String, HostState> hostStates;
+    // Ring buffer with the latencies of the last NUM_LATENCY_SAMPLES successful calls, in nanoseconds
+    private final long[] latencySamples;
+    private long numLatencySamples;
+    private int nextOffset;
+
+    private static Logger logger = LoggerFactory.getLogger(HostSelector.class);
+
+    public HostSelector(List<String> hosts) {
+        this.hostStates = new LinkedHashMap<>();
+        for (String host : hosts) {
+            hostStates.put(host, new HostState());
+        }
+        this.hosts = new ArrayList<>(hostStates.keySet());
+        this.latencySamples = new long[NUM_LATENCY_SAMPLES];
+    }
+
+    /**
+     * Picks a host and counts one more request in flight on it, each call must be followed by a call to release.
+     *
+     * @param excludedHosts hosts that must not be picked, e.g. those already tried for the same request
+     * @return selected host, null if all of them are excluded
+     */
+    public synchronized String acquire(Collection<String> excludedHosts) {
+        long now = System.currentTimeMillis();
+        String selectedHost = null;
+        boolean selectedEjected = false;
+        double selectedScore = 0;
+        for (int n = 0; n < hosts.size(); n++) {
+            String host = hosts.get((nextOffset + n) % hosts.size());
+            if (excludedHosts != null && excludedHosts.contains(host)) {
+                continue;
+            }
+            HostState hostState = hostStates.get(host);
+            boolean ejected = hostState.ejectedUntil > now;
+            // Hosts not called yet have no latency, they are given 1ms so that they are still balanced by requests in flight
+            double score = (hostState.outstanding + 1) * Math.max(hostState.ewmaMillis, 1);
+            if (selectedHost == null || (selectedEjected && !ejected) || (selectedEjected == ejected && score < selectedScore)) {
+                selectedHost = host;
+                selectedEjected = ejected;
+                selectedScore = score;
+            }
+        }
+        nextOffset = (nextOffset + 1) % hosts.size();
+
+        if (selectedHost != null) {
+            hostStates.get(selectedHost).outstanding++;
+        }
+        return selectedHost;
+    }
+
+    /**
+     * @param host host returned by acquire
+     * @param nanos time the request took
+     * @param healthy false if the host failed to answer, i.e. connection errors or server errors
+     */
+    public synchronized void release(String host, long nanos, boolean healthy) {
+        HostState hostState = hostStates.get(host);
+        hostState.outstanding--;
+        if (healthy) {
+            hostState.consecutiveFailures = 0;
+            hostState.ejectedUntil = 0;
+            double millis = nanos / 1e6;
+            hostState.ewmaMillis = hostState.ewmaMillis == 0
+                    ? millis
+                    : EWMA_WEIGHT * millis + (1 - EWMA_WEIGHT) * hostState.ewmaMillis;
+            latencySamples[(int) (numLatencySamples++ % NUM_LATENCY_SAMPLES)] = nanos;
+        } else if (++hostState.consecutiveFailures >= MAX_CONSECUTIVE_FAILURES) {
+            hostState.ejectedUntil = System.currentTimeMillis() + EJECTION_TIME_MILLIS;
+            logger.warn("CellBase REST host {} failed {} times in a row, ejected for {}ms", host,
+                    hostState.consecutiveFailures, EJECTION_TIME_MILLIS);
+        }
+    }
+
+    /**
+     * @param percentile latency percentile between 0 and 100, 0 disables hedged requests
+     * @return time in ms after which a second request is sent to another host, -1 if requests must not be hedged:
+     * percentile is 0, there is only one host or not enough calls have been made yet
+     */
+    public synchronized long getHedgeDelayMillis(double percentile) {
+        if (percentile <= 0 || hosts.size() < 2 || numLatencySamples < MIN_LATENCY_SAMPLES) {
+            return -1;
+        }
+        long[] samples = Arrays.copyOf(latencySamples, (int) Math.min(numLatencySamples, NUM_LATENCY_SAMPLES));
+        Arrays.sort(samples);
+        int index = (int) Math.ceil(samples.length * Math.min(percentile, 100) / 100) - 1;
+        long nanos = samples[Math.max(index, 0)];
+        return Math.max(1, (nanos + 999999) / 1000000);
+    }
+
+    public synchronized boolean isEjected(String host) {
+        return hostStates.get(host).ejectedUntil > System.currentTimeMillis();
+    }
+
+    public synchronized int getOutstanding(String host) {
+        return hostStates.get(host).outstanding;
+    }
+
+    public List<String> getHosts() {
+        return hosts;
+    }
+
+    private static class HostState {
+        private int outstanding;
+        private double ewmaMillis;
+        private int consecutiveFailures;
+        private long ejectedUntil;
+    }
+}
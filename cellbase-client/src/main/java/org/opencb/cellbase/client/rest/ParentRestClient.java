@@ -21,6 +21,10 @@ import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.ObjectReader;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.glassfish.jersey.apache.connector.ApacheClientProperties;
+import org.glassfish.jersey.apache.connector.ApacheConnectorProvider;
+import org.glassfish.jersey.client.ClientConfig;
 import org.opencb.cellbase.client.config.ClientConfiguration;
 import org.opencb.commons.datastore.core.Query;
 import org.opencb.commons.datastore.core.QueryOptions;
@@ -36,12 +40,14 @@ import javax.ws.rs.client.Entity;
 import javax.ws.rs.client.WebTarget;
 import javax.ws.rs.core.Response;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.net.URI;
 import java.util.*;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
 
 /**
  * Created by imedina on 12/05/16.
@@ -66,12 +72,20 @@ public class ParentRestClient<T> {
     public static final int LIMIT = 1000;
     public static final int REST_CALL_BATCH_SIZE = 200;
     public static final int DEFAULT_NUM_THREADS = 4;
+    public static final int MAX_CONCURRENT_REQUESTS = 32;
 
     protected static final String EMPTY_STRING = "";
     protected static final String META = "meta";
     protected static final String WEBSERVICES = "webservices";
     protected static final String REST = "rest";
 
+    // HTTP client and threads shared by all the REST clients, so connections are pooled and kept alive across calls
+    private static Client sharedClient;
+    private static ExecutorService sharedExecutorService;
+    private static ExecutorService hedgeExecutorService;
+    // Health and latency of the hosts are shared by all the clients configured with the same host list
+    private static final Map<List<String>, HostSelector> HOST_SELECTORS = new ConcurrentHashMap<>();
+    private static final Map<Class<?>, ObjectReader> READERS = new ConcurrentHashMap<>();
 
     @Deprecated
     public ParentRestClient(ClientConfiguration configuration) {
@@ -83,7 +97,7 @@ public class ParentRestClient<T> {
         this.assembly = assembly;
         this.configuration = configuration;
 
-        this.client = ClientBuilder.newClient();
+        this.client = getSharedClient();
         jsonObjectMapper = new ObjectMapper();
         jsonObjectMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
 
@@ -103,6 +117,62 @@ public class ParentRestClient<T> {
         return execute(id, "info", queryOptions, clazz);
     }
 
+    public CompletableFuture<QueryResponse<T>> getAsync(List<String> id, QueryOptions queryOptions) {
+        return executeAsync(id, "info", queryOptions, clazz, false);
+    }
+
+    /**
+     * @return HTTP client shared by all the REST clients, backed by a pool of up to MAX_CONCURRENT_REQUESTS connections
+     */
+    protected static synchronized Client getSharedClient() {
+        if (sharedClient == null) {
+            PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+            connectionManager.setMaxTotal(MAX_CONCURRENT_REQUESTS);
+            connectionManager.setDefaultMaxPerRoute(MAX_CONCURRENT_REQUESTS);
+            ClientConfig clientConfig = new ClientConfig()
+                    .property(ApacheClientProperties.CONNECTION_MANAGER, connectionManager)
+                    .connectorProvider(new ApacheConnectorProvider());
+            sharedClient = ClientBuilder.newClient(clientConfig);
+        }
+        return sharedClient;
+    }
+
+    /**
+     * @return pool of MAX_CONCURRENT_REQUESTS daemon threads where the asynchronous REST calls are run
+     */
+    protected static synchronized ExecutorService getSharedExecutorService() {
+        if (sharedExecutorService == null) {
+            AtomicInteger threadNumber = new AtomicInteger(1);
+            sharedExecutorService = Executors.newFixedThreadPool(MAX_CONCURRENT_REQUESTS, runnable -> {
+                Thread thread = new Thread(runnable, "cellbase-client-" + threadNumber.getAndIncrement());
+                // Pool is never shut down, it must not keep the JVM alive
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return sharedExecutorService;
+    }
+
+    /**
+     * @return pool of daemon threads where hedged REST calls are run, separate from the shared pool so that batches
+     * waiting for their calls never starve them
+     */
+    private static synchronized ExecutorService getHedgeExecutorService() {
+        if (hedgeExecutorService == null) {
+            AtomicInteger threadNumber = new AtomicInteger(1);
+            hedgeExecutorService = Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable, "cellbase-client-hedge-" + threadNumber.getAndIncrement());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return hedgeExecutorService;
+    }
+
+    protected static HostSelector getHostSelector(List<String> hosts) {
+        return HOST_SELECTORS.computeIfAbsent(new ArrayList<>(hosts), HostSelector::new);
+    }
+
 
     protected <U> QueryResponse<U> execute(String action, Query query, QueryOptions queryOptions, Class<U> clazz) throws IOException {
         return  execute(action, query, queryOptions, clazz, false);
@@ -142,40 +212,90 @@ public class ParentRestClient<T> {
             return fetchData(idList, resource, options, clazz, post);
         }
 
-        // But if there are more than REST_CALL_BATCH_SIZE variants then we launch several threads to increase performance.
+        // But if there are more than REST_CALL_BATCH_SIZE variants then we launch several batches to increase performance.
+        return waitFor(executeAsync(idList, resource, options, clazz, post), -1);
+    }
+
+    /**
+     * @param future future to wait for
+     * @param timeoutMillis maximum time to wait, -1 to wait until it is completed
+     * @param <U> type of the result
+     * @return result of the future, null if it is not completed after timeoutMillis
+     * @throws IOException if the future failed with an IOException or the thread was interrupted
+     */
+    private static <U> U waitFor(Future<U> future, long timeoutMillis) throws IOException {
+        try {
+            return timeoutMillis < 0 ? future.get() : future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for CellBase REST responses");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause() instanceof CompletionException ? e.getCause().getCause() : e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * Splits the ids in batches of REST_CALL_BATCH_SIZE that are fetched in the shared thread pool. At most 'numThreads'
+     * batches of the same call, 4 by default, are in flight at the same time. Responses are parsed as they are read.
+     *
+     * @param idList ids to query
+     * @param resource last part of the URL, e.g. 'info' or 'annotation'
+     * @param options query options, 'numThreads' limits the number of batches in flight
+     * @param clazz class of the results
+     * @param post true to send the ids in the body of a POST request
+     * @param <U> type of the results
+     * @return future completed with the responses of all the ids, in the order of idList
+     */
+    protected <U> CompletableFuture<QueryResponse<U>> executeAsync(List<String> idList, String resource, QueryOptions options,
+                                                                   Class<U> clazz, boolean post) {
+        if (idList == null || idList.isEmpty()) {
+            return CompletableFuture.completedFuture(new QueryResponse<>());
+        }
+
         int numThreads = (options != null)
-                ? options.getInt("numThreads", DEFAULT_NUM_THREADS)
+                ? Math.max(1, options.getInt("numThreads", DEFAULT_NUM_THREADS))
                 : DEFAULT_NUM_THREADS;
 
-        ExecutorService executorService = Executors.newFixedThreadPool(numThreads);
-        List<Future<QueryResponse<U>>> futureList = new ArrayList<>((idList.size() / REST_CALL_BATCH_SIZE) + 1);
+        List<CompletableFuture<QueryResponse<U>>> futureList = new ArrayList<>((idList.size() / REST_CALL_BATCH_SIZE) + 1);
         for (int i = 0; i < idList.size(); i += REST_CALL_BATCH_SIZE) {
-            final int from = i;
-            final int to = (from + REST_CALL_BATCH_SIZE > idList.size())
-                    ? idList.size()
-                    : from + REST_CALL_BATCH_SIZE;
-            futureList.add(executorService.submit(() ->
-                    fetchData(idList.subList(from, to), resource, options, clazz, post)
-            ));
-        }
-
-        List<QueryResult<U>> queryResults = new ArrayList<>(idList.size());
-        for (Future<QueryResponse<U>> responseFuture : futureList) {
-            try {
-                while (!responseFuture.isDone()) {
-                    Thread.sleep(5);
-                }
-                queryResults.addAll(responseFuture.get().getResponse());
-            } catch (InterruptedException | ExecutionException e) {
-                e.printStackTrace();
+            final List<String> batch = idList.subList(i, Math.min(i + REST_CALL_BATCH_SIZE, idList.size()));
+            // fetchData pages through the results updating 'skip', each batch needs its own options
+            final QueryOptions batchOptions = (options != null) ? new QueryOptions(options) : new QueryOptions();
+
+            // Batch n waits for batch n - numThreads, so at most numThreads batches of this call are in flight
+            int batchNumber = futureList.size();
+            CompletableFuture<?> previousFuture;
+            if (batchNumber >= numThreads) {
+                previousFuture = futureList.get(batchNumber - numThreads);
+            } else {
+                previousFuture = CompletableFuture.completedFuture(null);
             }
+            futureList.add(previousFuture.thenApplyAsync(previous -> {
+                try {
+                    return fetchData(batch, resource, batchOptions, clazz, post);
+                } catch (IOException e) {
+                    throw new CompletionException(e);
+                }
+            }, getSharedExecutorService()));
         }
 
-        QueryResponse<U> finalResponse = new QueryResponse<>();
-        finalResponse.setResponse(queryResults);
-        executorService.shutdown();
-
-        return finalResponse;
+        return CompletableFuture.allOf(futureList.toArray(new CompletableFuture[futureList.size()])).thenApply(done -> {
+            List<QueryResult<U>> queryResults = new ArrayList<>(idList.size());
+            for (CompletableFuture<QueryResponse<U>> responseFuture : futureList) {
+                queryResults.addAll(responseFuture.join().getResponse());
+            }
+            QueryResponse<U> finalResponse = new QueryResponse<>();
+            finalResponse.setResponse(queryResults);
+            return finalResponse;
+        });
     }
 
     private <U> QueryResponse<U> fetchData(List<String> idList, String resource, QueryOptions options, Class<U> clazz,
@@ -314,8 +434,103 @@ public class ParentRestClient<T> {
 
     private <U> QueryResponse<U> restCall(List<String> hosts, String version, String ids, String resource, QueryOptions queryOptions,
                                           Class<U> clazz, boolean post) throws IOException {
+        HostSelector hostSelector = getHostSelector(hosts);
+        long hedgeDelay = hostSelector.getHedgeDelayMillis(configuration.getRest().getHedgePercentile());
+        if (hedgeDelay < 0) {
+            return balancedRestCall(hostSelector, Collections.emptySet(), null, version, ids, resource, queryOptions, clazz, post);
+        }
+
+        // Hedged request: if the call takes longer than the latency percentile the same call is sent again to any host
+        // but the one the first call is waiting for, and the first response is taken
+        AtomicReference<String> firstHost = new AtomicReference<>();
+        CompletableFuture<QueryResponse<U>> firstCall = supplyAsync(() -> balancedRestCall(hostSelector, Collections.emptySet(),
+                firstHost, version, ids, resource, queryOptions, clazz, post), getHedgeExecutorService());
+        QueryResponse<U> queryResponse = waitFor(firstCall, hedgeDelay);
+        if (firstCall.isDone()) {
+            return queryResponse;
+        }
+
+        String slowHost = firstHost.get();
+        logger.debug("No response from {} after {}ms, hedging the request to another host", slowHost, hedgeDelay);
+        Set<String> excludedHosts = slowHost != null ? Collections.singleton(slowHost) : Collections.emptySet();
+        CompletableFuture<QueryResponse<U>> secondCall = supplyAsync(() -> balancedRestCall(hostSelector, excludedHosts, null,
+                version, ids, resource, queryOptions, clazz, post), getHedgeExecutorService());
+        CompletableFuture<QueryResponse<U>> firstResponse = new CompletableFuture<>();
+        AtomicInteger pendingCalls = new AtomicInteger(2);
+        BiConsumer<QueryResponse<U>, Throwable> responseConsumer = (response, throwable) -> {
+            if (throwable == null) {
+                firstResponse.complete(response);
+            } else if (pendingCalls.decrementAndGet() == 0) {
+                // Both calls failed
+                firstResponse.completeExceptionally(throwable);
+            }
+        };
+        firstCall.whenComplete(responseConsumer);
+        secondCall.whenComplete(responseConsumer);
+        return waitFor(firstResponse, -1);
+    }
+
+    private static <U> CompletableFuture<U> supplyAsync(Callable<U> callable, ExecutorService executorService) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return callable.call();
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        }, executorService);
+    }
+
+    /**
+     * Sends the call to the host picked by the HostSelector. Connection failures and server errors are accounted to
+     * the host and the call is sent to the next best host, each host is tried at most once. Excluded hosts are never
+     * tried, currentHost, if not null, is set to the host being called.
+     */
+    private <U> QueryResponse<U> balancedRestCall(HostSelector hostSelector, Set<String> excludedHosts,
+                                                  AtomicReference<String> currentHost, String version, String ids,
+                                                  String resource, QueryOptions queryOptions, Class<U> clazz, boolean post)
+            throws IOException {
+        Set<String> triedHosts = new HashSet<>(excludedHosts);
+        while (true) {
+            String host = hostSelector.acquire(triedHosts);
+            if (currentHost != null) {
+                currentHost.set(host);
+            }
+            triedHosts.add(host);
+            boolean lastHost = triedHosts.size() == hostSelector.getHosts().size();
+            boolean healthy = false;
+            long start = System.nanoTime();
+            try {
+                QueryResponse<U> queryResponse = restCall(host, version, ids, resource, queryOptions, clazz, post);
+                healthy = true;
+                return queryResponse;
+            } catch (WebApplicationException e) {
+                // Client errors would be the same on any host
+                healthy = e.getResponse().getStatus() < 500;
+                if (healthy || lastHost) {
+                    throw e;
+                }
+                logger.warn("CellBase REST fail. Host {} returned status {}, trying another host", host, e.getResponse().getStatus());
+            } catch (JsonProcessingException e) {
+                // The host answered, the response does not match the class
+                healthy = true;
+                throw e;
+            } catch (javax.ws.rs.ProcessingException | IOException e) {
+                if (lastHost) {
+                    throw e;
+                }
+                logger.warn("CellBase REST fail. Host {} failed: {}, trying another host", host, e.getMessage());
+            } finally {
+                hostSelector.release(host, System.nanoTime() - start, healthy);
+            }
+        }
+    }
+
+    private <U> QueryResponse<U> restCall(String host, String version, String ids, String resource, QueryOptions queryOptions,
+                                          Class<U> clazz, boolean post) throws IOException {
 
-        WebTarget path = getBaseUrl(hosts, version);
+        WebTarget path = getBaseUrl(Collections.singletonList(host), version);
 
         WebTarget callUrl = path;
         if (ids != null && !ids.isEmpty() && !post) {
@@ -338,16 +553,19 @@ public class ParentRestClient<T> {
             }
         }
 
-        String jsonString;
+        // The body is parsed while it is read, it is never held as a String. Closing the stream releases the connection
+        InputStream inputStream;
         if (post) {
             logger.debug("Making POST call to REST URL: {}", callUrl.getUri().toURL());
-            jsonString = callUrl.request().post(Entity.text(ids), String.class);
+            inputStream = callUrl.request().post(Entity.text(ids), InputStream.class);
         } else {
             logger.debug("Making GET call to REST URL: {}", callUrl.getUri().toURL());
-            jsonString = callUrl.request().get(String.class);
+            inputStream = callUrl.request().get(InputStream.class);
         }
 
-        return parseResult(jsonString, clazz);
+        try (InputStream jsonInputStream = inputStream) {
+            return parseResult(jsonInputStream, clazz);
+        }
     }
 
     protected WebTarget getBaseUrl(List<String> hosts, String version) {
@@ -361,10 +579,10 @@ public class ParentRestClient<T> {
                     .path(subcategory);
     }
 
-    private static <U> QueryResponse<U> parseResult(String json, Class<U> clazz) throws IOException {
-        ObjectReader reader = jsonObjectMapper
-                .readerFor(jsonObjectMapper.getTypeFactory().constructParametrizedType(QueryResponse.class, QueryResult.class, clazz));
-        return reader.readValue(json);
+    private static <U> QueryResponse<U> parseResult(InputStream jsonInputStream, Class<U> clazz) throws IOException {
+        ObjectReader reader = READERS.computeIfAbsent(clazz, key -> jsonObjectMapper
+                .readerFor(jsonObjectMapper.getTypeFactory().constructParametrizedType(QueryResponse.class, QueryResult.class, key)));
+        return reader.readValue(jsonInputStream);
     }
 
 }
@@ -12,6 +12,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 
 public final class VariantClient extends FeatureClient<Variant> {
@@ -44,6 +45,20 @@ public final class VariantClient extends FeatureClient<Variant> {
         return initRequiredAnnotation(result);
     }
 
+    /**
+     * Fetches the annotation of the ids without blocking the calling thread, batches are fetched in the shared pool of
+     * the REST clients.
+     *
+     * @param ids variant ids, chromosome:start:reference:alternate
+     * @param options query options, 'numThreads' limits the number of batches of this call in flight
+     * @param post true to send the ids in the body of a POST request
+     * @return future completed with the annotations, in the order of ids
+     */
+    public CompletableFuture<QueryResponse<VariantAnnotation>> getAnnotationByVariantIdsAsync(List<String> ids, QueryOptions options,
+                                                                                             boolean post) {
+        return executeAsync(ids, "annotation", options, VariantAnnotation.class, post).thenApply(this::initRequiredAnnotation);
+    }
+
 
     public QueryResponse<Variant> annotate(List<Variant> variants, QueryOptions options) throws IOException {
         return annotate(variants, options, false);
@@ -74,6 +89,11 @@ public final class VariantClient extends FeatureClient<Variant> {
         return initRequiredAnnotation(result);
     }
 
+    public CompletableFuture<QueryResponse<VariantAnnotation>> getAnnotationAsync(List<Variant> variants, QueryOptions options,
+                                                                                  boolean post) {
+        return getAnnotationByVariantIdsAsync(getVariantAnnotationIds(variants), options, post);
+    }
+
 
     // FIXME Next two methods should be moved near the Variant Annotation tool
     public String getVariantAnnotationId(Variant variant) {
@@ -0,0 +1,82 @@
+package org.opencb.cellbase.client.grpc;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class RequestBatcherTest {
+
+    @Test
+    public void add() throws Exception {
+        List<List<String>> batches = new ArrayList<>();
+        RequestBatcher<String, String> requestBatcher = new RequestBatcher<>(3, 100000, batch -> {
+            batches.add(batch);
+            List<String> results = new ArrayList<>();
+            for (String item : batch) {
+                results.add(item.toUpperCase());
+            }
+            return CompletableFuture.completedFuture(results);
+        });
+
+        List<CompletableFuture<String>> futures = new ArrayList<>();
+        for (String item : new String[]{"a", "b", "c", "d"}) {
+            futures.add(requestBatcher.add(item));
+        }
+        // Full batches are sent right away, the rest waits for more items or a flush
+        assertEquals(1, batches.size());
+        assertEquals("C", futures.get(2).get());
+        assertFalse(futures.get(3).isDone());
+
+        requestBatcher.flush();
+        assertEquals(2, batches.size());
+        assertEquals("D", futures.get(3).get());
+    }
+
+    @Test
+    public void linger() throws Exception {
+        RequestBatcher<Integer, Integer> requestBatcher = new RequestBatcher<>(100, 10,
+                batch -> CompletableFuture.completedFuture(batch));
+        assertEquals(Integer.valueOf(1), requestBatcher.add(1).get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void failure() throws Exception {
+        RequestBatcher<Integer, Integer> requestBatcher = new RequestBatcher<>(2, 100000, batch -> {
+            CompletableFuture<List<Integer>> future = new CompletableFuture<>();
+            future.completeExceptionally(new IllegalStateException("Server down"));
+            return future;
+        });
+        CompletableFuture<Integer> future1 = requestBatcher.add(1);
+        CompletableFuture<Integer> future2 = requestBatcher.add(2);
+        for (CompletableFuture<Integer> future : new CompletableFuture[]{future1, future2}) {
+            try {
+                future.get();
+                fail("All the items of a failed batch must fail");
+            } catch (ExecutionException e) {
+                assertEquals("Server down", e.getCause().getMessage());
+            }
+        }
+    }
+
+    @Test
+    public void noResult() throws Exception {
+        RequestBatcher<Integer, Integer> requestBatcher = new RequestBatcher<>(2, 100000,
+                batch -> CompletableFuture.completedFuture(Arrays.asList(batch.get(0), null)));
+        CompletableFuture<Integer> future1 = requestBatcher.add(1);
+        CompletableFuture<Integer> future2 = requestBatcher.add(2);
+        assertEquals(Integer.valueOf(1), future1.get());
+        try {
+            future2.get();
+            fail("Items with no result must fail");
+        } catch (ExecutionException e) {
+            assertEquals("No result returned for 2", e.getCause().getMessage());
+        }
+    }
+}
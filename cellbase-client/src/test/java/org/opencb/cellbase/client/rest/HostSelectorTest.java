@@ -0,0 +1,91 @@
+/*
+ * Copyright 2015 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.cellbase.client.rest;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class HostSelectorTest {
+
+    @Test
+    public void acquire() {
+        HostSelector hostSelector = new HostSelector(Arrays.asList("host1", "host2"));
+
+        // Requests in flight are spread across the hosts
+        String firstHost = hostSelector.acquire(null);
+        String secondHost = hostSelector.acquire(null);
+        assertNotEquals(firstHost, secondHost);
+        assertEquals(1, hostSelector.getOutstanding("host1"));
+        assertEquals(1, hostSelector.getOutstanding("host2"));
+        assertNull(hostSelector.acquire(Arrays.asList("host1", "host2")));
+
+        // The faster host is preferred once latencies are known
+        hostSelector.release("host1", 50000000, true);
+        hostSelector.release("host2", 5000000, true);
+        assertEquals(0, hostSelector.getOutstanding("host1"));
+        for (int i = 0; i < 4; i++) {
+            assertEquals("host2", hostSelector.acquire(null));
+            hostSelector.release("host2", 5000000, true);
+        }
+        assertEquals("host1", hostSelector.acquire(Collections.singletonList("host2")));
+    }
+
+    @Test
+    public void eject() {
+        HostSelector hostSelector = new HostSelector(Arrays.asList("host1", "host2"));
+        for (int i = 0; i < HostSelector.MAX_CONSECUTIVE_FAILURES; i++) {
+            assertFalse(hostSelector.isEjected("host1"));
+            hostSelector.acquire(Collections.singletonList("host2"));
+            hostSelector.release("host1", 1000000, false);
+        }
+        assertTrue(hostSelector.isEjected("host1"));
+
+        // Ejected hosts are only picked when no other host is left
+        for (int i = 0; i < 10; i++) {
+            assertEquals("host2", hostSelector.acquire(null));
+        }
+        assertEquals("host1", hostSelector.acquire(Collections.singletonList("host2")));
+        hostSelector.release("host1", 1000000, true);
+        assertFalse(hostSelector.isEjected("host1"));
+    }
+
+    @Test
+    public void getHedgeDelayMillis() {
+        HostSelector hostSelector = new HostSelector(Arrays.asList("host1", "host2"));
+        for (int i = 1; i <= 100; i++) {
+            if (i <= HostSelector.MIN_LATENCY_SAMPLES) {
+                assertEquals(-1, hostSelector.getHedgeDelayMillis(90));
+            }
+            String host = hostSelector.acquire(null);
+            hostSelector.release(host, i * 1000000L, true);
+        }
+        assertEquals(90, hostSelector.getHedgeDelayMillis(90));
+        assertEquals(100, hostSelector.getHedgeDelayMillis(100));
+        assertEquals(-1, hostSelector.getHedgeDelayMillis(0));
+
+        // Nothing to hedge to with one host
+        HostSelector singleHostSelector = new HostSelector(Collections.singletonList("host1"));
+        for (int i = 0; i < 100; i++) {
+            singleHostSelector.release(singleHostSelector.acquire(null), 1000000, true);
+        }
+        assertEquals(-1, singleHostSelector.getHedgeDelayMillis(90));
+    }
+}
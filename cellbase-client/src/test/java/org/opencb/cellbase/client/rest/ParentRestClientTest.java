@@ -0,0 +1,135 @@
+/*
+ * Copyright 2015 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.cellbase.client.rest;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Test;
+import org.opencb.cellbase.client.config.ClientConfiguration;
+import org.opencb.cellbase.client.config.RestConfig;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+/**
+ * Load balancing, ejection and hedged requests against stand-in CellBase servers running in the test JVM.
+ */
+public class ParentRestClientTest {
+
+    private static final byte[] ABOUT_RESPONSE = ("{\"response\":[{\"id\":\"about\",\"numResults\":1,"
+            + "\"result\":[{\"Program\":\"CellBase\"}]}]}").getBytes(StandardCharsets.UTF_8);
+
+    private List<HttpServer> servers = new ArrayList<>();
+
+    @After
+    public void tearDown() {
+        for (HttpServer server : servers) {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void testLoadBalancing() throws Exception {
+        AtomicInteger numCalls1 = new AtomicInteger();
+        AtomicInteger numCalls2 = new AtomicInteger();
+        MetaClient metaClient = createMetaClient(0, startServer(numCalls1, 200, new AtomicLong()),
+                startServer(numCalls2, 200, new AtomicLong()));
+
+        for (int i = 0; i < 20; i++) {
+            assertEquals("CellBase", metaClient.about().firstResult().getString("Program"));
+        }
+        assertEquals(20, numCalls1.get() + numCalls2.get());
+        assertTrue(numCalls1.get() > 0);
+        assertTrue(numCalls2.get() > 0);
+    }
+
+    @Test
+    public void testEjection() throws Exception {
+        AtomicInteger numCalls1 = new AtomicInteger();
+        AtomicInteger numCalls2 = new AtomicInteger();
+        String failingHost = startServer(numCalls1, 500, new AtomicLong());
+        MetaClient metaClient = createMetaClient(0, failingHost, startServer(numCalls2, 200, new AtomicLong()));
+
+        // Server errors are retried on the other host, after a few of them the failing host is no longer called
+        for (int i = 0; i < 20; i++) {
+            assertEquals("CellBase", metaClient.about().firstResult().getString("Program"));
+        }
+        assertEquals(HostSelector.MAX_CONSECUTIVE_FAILURES, numCalls1.get());
+        assertEquals(20, numCalls2.get());
+        assertTrue(ParentRestClient.getHostSelector(metaClient.configuration.getRest().getHosts()).isEjected(failingHost));
+    }
+
+    @Test
+    public void testHedgedRequests() throws Exception {
+        AtomicInteger numCalls1 = new AtomicInteger();
+        AtomicInteger numCalls2 = new AtomicInteger();
+        AtomicLong delayMillis = new AtomicLong();
+        MetaClient metaClient = createMetaClient(90, startServer(numCalls1, 200, delayMillis),
+                startServer(numCalls2, 200, new AtomicLong()));
+        for (int i = 0; i < HostSelector.MIN_LATENCY_SAMPLES; i++) {
+            metaClient.about();
+        }
+
+        // One of the hosts stalls, calls still return as fast as the other one answers
+        delayMillis.set(5000);
+        for (int i = 0; i < 5; i++) {
+            long start = System.currentTimeMillis();
+            assertEquals("CellBase", metaClient.about().firstResult().getString("Program"));
+            assertTrue(System.currentTimeMillis() - start < 2000);
+        }
+    }
+
+    private MetaClient createMetaClient(double hedgePercentile, String... hosts) {
+        ClientConfiguration clientConfiguration = new ClientConfiguration()
+                .setVersion("v4")
+                .setDefaultSpecies("hsapiens")
+                .setRest(new RestConfig(Arrays.asList(hosts), 2000).setHedgePercentile(hedgePercentile));
+        return new MetaClient("hsapiens", "GRCh37", clientConfiguration);
+    }
+
+    private String startServer(AtomicInteger numCalls, int status, AtomicLong delayMillis) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", exchange -> {
+            numCalls.incrementAndGet();
+            try {
+                Thread.sleep(delayMillis.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            byte[] body = status == 200 ? ABOUT_RESPONSE : new byte[0];
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(status, body.length > 0 ? body.length : -1);
+            try (OutputStream outputStream = exchange.getResponseBody()) {
+                outputStream.write(body);
+            }
+        });
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+        servers.add(server);
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+}
@@ -7,7 +7,9 @@ import org.opencb.commons.datastore.core.QueryOptions;
 import org.opencb.commons.datastore.core.QueryResponse;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -67,4 +69,22 @@ public class VariantClientTest {
         assertEquals(getAnnotationSet, postAnnotationSet);
 
     }
+
+    @Test
+    public void getAnnotationsAsync() throws Exception {
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 450; i++) {
+            ids.add("1:" + (26644214 + i) + ":T:C");
+        }
+        QueryResponse<VariantAnnotation> annotationsSync = cellBaseClient37.getVariantClient()
+                .getAnnotationByVariantIds(ids, new QueryOptions("numThreads", 2));
+        QueryResponse<VariantAnnotation> annotationsAsync = cellBaseClient37.getVariantClient()
+                .getAnnotationByVariantIdsAsync(ids, new QueryOptions("numThreads", 2), false).get();
+
+        // Batches are merged in the order of the ids
+        assertEquals(ids.size(), annotationsAsync.getResponse().size());
+        for (int i = 0; i < ids.size(); i++) {
+            assertEquals(annotationsSync.getResponse().get(i).getId(), annotationsAsync.getResponse().get(i).getId());
+        }
+    }
 }
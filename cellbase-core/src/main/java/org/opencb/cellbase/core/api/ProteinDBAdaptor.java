@@ -16,6 +16,7 @@
 
 package org.opencb.cellbase.core.api;
 
+import org.opencb.biodata.models.variant.avro.ConsequenceType;
 import org.opencb.biodata.models.variant.avro.ProteinVariantAnnotation;
 import org.opencb.biodata.models.variant.avro.Score;
 import org.opencb.commons.datastore.core.Query;
@@ -23,6 +24,9 @@ import org.opencb.commons.datastore.core.QueryOptions;
 import org.opencb.commons.datastore.core.QueryParam;
 import org.opencb.commons.datastore.core.QueryResult;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import static org.opencb.commons.datastore.core.QueryParam.Type.TEXT_ARRAY;
 
 /**
@@ -71,4 +75,25 @@ public interface ProteinDBAdaptor<T> extends CellBaseDBAdaptor<T> {
     QueryResult<ProteinVariantAnnotation> getVariantAnnotation(String enstranscriptId, int position, String aaReference,
                                                                String aaAlternate, QueryOptions options);
 
+    /**
+     * Protein annotation for a batch of consequence types. Transcript id, aa position, reference and alternate are
+     * taken from each consequence type; one QueryResult is returned per consequence type, in the same order.
+     * Implementations are expected to resolve the whole batch with a few queries.
+     *
+     * @param consequenceTypeList consequence types with a non-null ProteinVariantAnnotation
+     * @param options query options
+     * @return one QueryResult per consequence type
+     */
+    default List<QueryResult<ProteinVariantAnnotation>> getVariantAnnotation(List<ConsequenceType> consequenceTypeList,
+                                                                             QueryOptions options) {
+        List<QueryResult<ProteinVariantAnnotation>> queryResultList = new ArrayList<>(consequenceTypeList.size());
+        for (ConsequenceType consequenceType : consequenceTypeList) {
+            queryResultList.add(getVariantAnnotation(consequenceType.getEnsemblTranscriptId(),
+                    consequenceType.getProteinVariantAnnotation().getPosition(),
+                    consequenceType.getProteinVariantAnnotation().getReference(),
+                    consequenceType.getProteinVariantAnnotation().getAlternate(), options));
+        }
+        return queryResultList;
+    }
+
 }
@@ -0,0 +1,192 @@
+/*
+ * Copyright 2015 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.cellbase.core.config;
+
+/**
+ * Variant annotation settings shared by all the annotation calculators running in the same JVM.
+ */
+public class AnnotationProperties {
+
+    public static final int DEFAULT_NUM_THREADS = 16;
+    public static final int DEFAULT_QUEUE_SIZE = 1000;
+    public static final int DEFAULT_CACHE_DIR_SIZE = 10240;
+
+    /**
+     * Number of threads of the process-wide pool running the asynchronous annotators.
+     */
+    private int numThreads;
+    /**
+     * Maximum number of annotator tasks waiting for a thread, once reached submitters run tasks themselves.
+     */
+    private int queueSize;
+    /**
+     * Load the regulatory_region coordinates in memory to calculate regulatory overlaps without querying the database.
+     */
+    private boolean regulatoryRegionIndex;
+    /**
+     * Directory with the CADD binary files written by the build with --binary, one subdirectory per species and assembly,
+     * e.g. caddDir/hsapiens/grch37. CADD scores of a species and assembly with such a subdirectory are read from these
+     * memory-mapped files instead of the variation_functional_score collection.
+     */
+    private String caddDir;
+    /**
+     * Directory with the conservation binary files written by the build with --binary, one subdirectory per species and
+     * assembly, e.g. conservationDir/hsapiens/grch37. Conservation scores of a species and assembly with such a
+     * subdirectory are read from these memory-mapped files instead of the conservation collection.
+     */
+    private String conservationDir;
+    /**
+     * Directory with the 2-bit genome files written by the build with --binary, one subdirectory per species and assembly,
+     * e.g. genomeDir/hsapiens/grch37. The reference sequence of a species and assembly with such a subdirectory, and
+     * whose file headers hold that same assembly, is read from these memory-mapped files instead of the genome_sequence
+     * collection.
+     */
+    private String genomeDir;
+    /**
+     * Maximum size in MB of the in-memory cache of variant annotations, 0 disables the cache.
+     */
+    private int cacheSize;
+    /**
+     * Seconds an annotation is kept in the cache, in memory and in the persistent tier, 0 to keep it until evicted.
+     */
+    private int cacheTtl;
+    /**
+     * Directory of the persistent RocksDB tier of the annotation cache, when not set annotations are only cached in
+     * memory.
+     */
+    private String cacheDir;
+    /**
+     * Maximum size in MB of the persistent tier of the annotation cache, 0 for no limit.
+     */
+    private int cacheDirSize = DEFAULT_CACHE_DIR_SIZE;
+
+    public AnnotationProperties() {
+        this(DEFAULT_NUM_THREADS, DEFAULT_QUEUE_SIZE);
+    }
+
+    public AnnotationProperties(int numThreads, int queueSize) {
+        this.numThreads = numThreads;
+        this.queueSize = queueSize;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("AnnotationProperties{");
+        sb.append("numThreads=").append(numThreads);
+        sb.append(", queueSize=").append(queueSize);
+        sb.append(", regulatoryRegionIndex=").append(regulatoryRegionIndex);
+        sb.append(", caddDir='").append(caddDir).append('\'');
+        sb.append(", conservationDir='").append(conservationDir).append('\'');
+        sb.append(", genomeDir='").append(genomeDir).append('\'');
+        sb.append(", cacheSize=").append(cacheSize);
+        sb.append(", cacheTtl=").append(cacheTtl);
+        sb.append(", cacheDir='").append(cacheDir).append('\'');
+        sb.append(", cacheDirSize=").append(cacheDirSize);
+        sb.append('}');
+        return sb.toString();
+    }
+
+    public int getNumThreads() {
+        return numThreads;
+    }
+
+    public AnnotationProperties setNumThreads(int numThreads) {
+        this.numThreads = numThreads;
+        return this;
+    }
+
+    public int getQueueSize() {
+        return queueSize;
+    }
+
+    public AnnotationProperties setQueueSize(int queueSize) {
+        this.queueSize = queueSize;
+        return this;
+    }
+
+    public boolean isRegulatoryRegionIndex() {
+        return regulatoryRegionIndex;
+    }
+
+    public AnnotationProperties setRegulatoryRegionIndex(boolean regulatoryRegionIndex) {
+        this.regulatoryRegionIndex = regulatoryRegionIndex;
+        return this;
+    }
+
+    public String getCaddDir() {
+        return caddDir;
+    }
+
+    public AnnotationProperties setCaddDir(String caddDir) {
+        this.caddDir = caddDir;
+        return this;
+    }
+
+    public String getConservationDir() {
+        return conservationDir;
+    }
+
+    public AnnotationProperties setConservationDir(String conservationDir) {
+        this.conservationDir = conservationDir;
+        return this;
+    }
+
+    public String getGenomeDir() {
+        return genomeDir;
+    }
+
+    public AnnotationProperties setGenomeDir(String genomeDir) {
+        this.genomeDir = genomeDir;
+        return this;
+    }
+
+    public int getCacheSize() {
+        return cacheSize;
+    }
+
+    public AnnotationProperties setCacheSize(int cacheSize) {
+        this.cacheSize = cacheSize;
+        return this;
+    }
+
+    public int getCacheTtl() {
+        return cacheTtl;
+    }
+
+    public AnnotationProperties setCacheTtl(int cacheTtl) {
+        this.cacheTtl = cacheTtl;
+        return this;
+    }
+
+    public String getCacheDir() {
+        return cacheDir;
+    }
+
+    public AnnotationProperties setCacheDir(String cacheDir) {
+        this.cacheDir = cacheDir;
+        return this;
+    }
+
+    public int getCacheDirSize() {
+        return cacheDirSize;
+    }
+
+    public AnnotationProperties setCacheDirSize(int cacheDirSize) {
+        this.cacheDirSize = cacheDirSize;
+        return this;
+    }
+}
@@ -37,6 +37,7 @@ public class CellBaseConfiguration {
     private Databases databases;
     private DownloadProperties download;
     private SpeciesProperties species;
+    private AnnotationProperties annotation;
 
 
     public static CellBaseConfiguration load(InputStream configurationInputStream) throws IOException {
@@ -117,6 +118,15 @@ public class CellBaseConfiguration {
         this.species = species;
     }
 
+    public AnnotationProperties getAnnotation() {
+        return annotation;
+    }
+
+    public CellBaseConfiguration setAnnotation(AnnotationProperties annotation) {
+        this.annotation = annotation;
+        return this;
+    }
+
     public List<Species> getAllSpecies() {
         List<Species> allSpecies = new ArrayList<>();
         if (species.getVertebrates() != null && !species.getVertebrates().isEmpty()) {
@@ -71,6 +71,15 @@ public abstract class CellBaseLoader implements Callable<Integer> {
 
     public abstract void createIndex(String data) throws LoaderException;
 
+    /**
+     * Counts the features of the loaded collection in bins of several sizes, so that interval frequencies of
+     * unfiltered region queries do not need to aggregate the whole collection.
+     *
+     * @param data data whose collection is counted, the loader must be initialized
+     * @throws LoaderException if the counts cannot be computed or stored
+     */
+    public abstract void createFeatureDensities(String data) throws LoaderException;
+
     public abstract void close();
 
 }
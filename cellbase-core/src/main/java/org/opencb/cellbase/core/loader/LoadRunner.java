@@ -16,6 +16,8 @@
 
 package org.opencb.cellbase.core.loader;
 
+import com.github.luben.zstd.ZstdInputStream;
+import net.jpountz.lz4.LZ4FrameInputStream;
 import org.opencb.cellbase.core.config.CellBaseConfiguration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -23,6 +25,7 @@ import org.slf4j.LoggerFactory;
 import java.io.BufferedReader;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.lang.reflect.InvocationTargetException;
 import java.nio.file.Files;
@@ -145,12 +148,7 @@ public class LoadRunner {
     private int readInputJsonFile(Path inputFile) {
         int inputFileRecords = 0;
         try {
-            BufferedReader br;
-            if (inputFile.toString().endsWith(".gz")) {
-                br = new BufferedReader(new InputStreamReader(new GZIPInputStream(new FileInputStream(inputFile.toFile()))));
-            } else {
-                br = new BufferedReader(new InputStreamReader(new FileInputStream(inputFile.toFile())));
-            }
+            BufferedReader br = new BufferedReader(new InputStreamReader(newInputStream(inputFile)));
 
             List<String> batch = new ArrayList<>(batchSize);
             String jsonLine;
@@ -182,6 +180,19 @@ public class LoadRunner {
         return inputFileRecords;
     }
 
+    private InputStream newInputStream(Path inputFile) throws IOException {
+        InputStream inputStream = new FileInputStream(inputFile.toFile());
+        if (inputFile.toString().endsWith(".gz")) {
+            return new GZIPInputStream(inputStream, 65536);
+        } else if (inputFile.toString().endsWith(".zst")) {
+            return new ZstdInputStream(inputStream);
+        } else if (inputFile.toString().endsWith(".lz4")) {
+            return new LZ4FrameInputStream(inputStream);
+        } else {
+            return inputStream;
+        }
+    }
+
     public void index(String data) throws ClassNotFoundException, NoSuchMethodException,
             IllegalAccessException, InvocationTargetException, InstantiationException, LoaderException {
         CellBaseLoader cellBaseLoader = (CellBaseLoader) Class.forName(loader)
@@ -191,4 +202,18 @@ public class LoadRunner {
         cellBaseLoader.createIndex(data);
     }
 
+    public void createFeatureDensities(String data) throws ClassNotFoundException, NoSuchMethodException,
+            IllegalAccessException, InvocationTargetException, InstantiationException, LoaderException {
+        CellBaseLoader cellBaseLoader = (CellBaseLoader) Class.forName(loader)
+                .getConstructor(BlockingQueue.class, String.class, String.class, String.class,
+                        String[].class, CellBaseConfiguration.class)
+                .newInstance(blockingQueue, data, database, "", new String[]{""}, cellBaseConfiguration);
+        cellBaseLoader.init();
+        try {
+            cellBaseLoader.createFeatureDensities(data);
+        } finally {
+            cellBaseLoader.close();
+        }
+    }
+
 }
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2015 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.cellbase.core.serializer;
+
+import org.opencb.biodata.models.core.GenomicScoreRegion;
+import org.opencb.cellbase.core.variant.annotation.CaddScoreStore;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes the packed CADD values of the GenomicScoreRegion objects produced by CaddScoreParser into the position
+ * indexed binary files read by CaddScoreStore. Objects are then passed on to the next serializer, if any, so that the
+ * JSON files for the variation_functional_score collection can be written in the same run.
+ */
+public class CaddScoreFileSerializer implements CellBaseSerializer {
+
+    private final Path outdir;
+    private final CellBaseSerializer nextSerializer;
+    private final Map<String, FileChannel> fileChannels;
+
+    public CaddScoreFileSerializer(Path outdir) {
+        this(outdir, null);
+    }
+
+    public CaddScoreFileSerializer(Path outdir, CellBaseSerializer nextSerializer) {
+        this.outdir = outdir;
+        this.nextSerializer = nextSerializer;
+        this.fileChannels = new HashMap<>();
+    }
+
+    @Override
+    public void serialize(Object object) {
+        GenomicScoreRegion<Long> genomicScoreRegion = (GenomicScoreRegion<Long>) object;
+        List<Long> values = genomicScoreRegion.getValues();
+        if (values != null && !values.isEmpty()) {
+            ByteBuffer byteBuffer = ByteBuffer.allocate(values.size() * Long.BYTES);
+            for (Long value : values) {
+                byteBuffer.putLong(value);
+            }
+            byteBuffer.flip();
+
+            String fileName = CaddScoreStore.getFileName(genomicScoreRegion.getSource(), genomicScoreRegion.getChromosome());
+            long offset = (long) genomicScoreRegion.getStart() * Long.BYTES;
+            try {
+                FileChannel fileChannel = getFileChannel(fileName);
+                while (byteBuffer.hasRemaining()) {
+                    offset += fileChannel.write(byteBuffer, offset);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Error writing CADD binary file " + fileName, e);
+            }
+        }
+
+        if (nextSerializer != null) {
+            nextSerializer.serialize(object);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (FileChannel fileChannel : fileChannels.values()) {
+            fileChannel.close();
+        }
+        if (nextSerializer != null) {
+            nextSerializer.close();
+        }
+    }
+
+    @Override
+    public Path getOutdir() {
+        return outdir;
+    }
+
+    @Override
+    public String getFileName() {
+        return nextSerializer != null ? nextSerializer.getFileName() : null;
+    }
+
+    private FileChannel getFileChannel(String fileName) throws IOException {
+        FileChannel fileChannel = fileChannels.get(fileName);
+        if (fileChannel == null) {
+            Files.createDirectories(outdir);
+            // Positions not covered by CADD are left as file holes, read back as 0
+            fileChannel = FileChannel.open(outdir.resolve(fileName), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+            fileChannels.put(fileName, fileChannel);
+        }
+        return fileChannel;
+    }
+}
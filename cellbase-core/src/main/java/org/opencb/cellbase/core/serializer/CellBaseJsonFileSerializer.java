@@ -20,20 +20,42 @@ import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.databind.MapperFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.ObjectWriter;
+import com.github.luben.zstd.ZstdOutputStream;
+import net.jpountz.lz4.LZ4FrameOutputStream;
 
 import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.HashMap;
-import java.util.zip.GZIPOutputStream;
 
 /**
  * Created by parce on 2/6/15.
  */
 public class CellBaseJsonFileSerializer implements CellBaseFileSerializer {
 
+    /**
+     * Output file formats. GZIP files are written in parallel as BGZF, readable by any gzip reader. ZSTD and LZ4 are
+     * faster to write and read back, intended for files that are only consumed by the 'load' command.
+     */
+    public enum Compression {
+        GZIP(".json.gz"),
+        ZSTD(".json.zst"),
+        LZ4(".json.lz4");
+
+        private final String extension;
+
+        Compression(String extension) {
+            this.extension = extension;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+    }
+
     private final Path outdir;
     private final String fileName;
     private final HashMap<String, BufferedWriter> bufferedWriters;
@@ -42,6 +64,7 @@ public class CellBaseJsonFileSerializer implements CellBaseFileSerializer {
     private boolean excludeNullValues;
     private boolean requireGettersForSetters;
     private ObjectWriter jsonObjectWriter;
+    private Compression compression;
 
     public CellBaseJsonFileSerializer(Path outdir) {
         this(outdir, null);
@@ -63,6 +86,7 @@ public class CellBaseJsonFileSerializer implements CellBaseFileSerializer {
         this.excludeNullValues = excludeNullValues;
         this.requireGettersForSetters = requireGettersForSetters;
         this.bufferedWriters = new HashMap<>();
+        this.compression = Compression.GZIP;
         init();
     }
 
@@ -94,9 +118,8 @@ public class CellBaseJsonFileSerializer implements CellBaseFileSerializer {
     public void serialize(Object elem, String filename) {
         try {
             if (bufferedWriters.get(filename) == null) {
-                Path outputFilePath = outdir.resolve(filename + ".json.gz");
-                BufferedWriter bw = new BufferedWriter(
-                        new OutputStreamWriter(new GZIPOutputStream(Files.newOutputStream(outputFilePath))));
+                Path outputFilePath = outdir.resolve(filename + compression.getExtension());
+                BufferedWriter bw = new BufferedWriter(new OutputStreamWriter(newOutputStream(outputFilePath)));
                 bufferedWriters.put(filename, bw);
             }
             bufferedWriters.get(filename).write(jsonObjectWriter.writeValueAsString(elem));
@@ -106,6 +129,19 @@ public class CellBaseJsonFileSerializer implements CellBaseFileSerializer {
         }
     }
 
+    private OutputStream newOutputStream(Path outputFilePath) throws IOException {
+        OutputStream outputStream = Files.newOutputStream(outputFilePath);
+        switch (compression) {
+            case ZSTD:
+                return new ZstdOutputStream(outputStream);
+            case LZ4:
+                return new LZ4FrameOutputStream(outputStream);
+            case GZIP:
+            default:
+                return new ParallelBgzfOutputStream(outputStream);
+        }
+    }
+
     public Object deserialize(String line) {
         // TODO: implement
         // TODO: receive class object?
@@ -119,4 +155,17 @@ public class CellBaseJsonFileSerializer implements CellBaseFileSerializer {
     public String getFileName() {
         return fileName;
     }
+
+    public Compression getCompression() {
+        return compression;
+    }
+
+    /**
+     * @param compression format of the files created from now on, files already open keep their format
+     * @return this serializer
+     */
+    public CellBaseJsonFileSerializer setCompression(Compression compression) {
+        this.compression = compression;
+        return this;
+    }
 }
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2015 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.cellbase.core.serializer;
+
+import org.opencb.biodata.models.core.GenomicScoreRegion;
+import org.opencb.cellbase.core.variant.annotation.ConservationScoreStore;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes the scores of the GenomicScoreRegion objects produced by ConservationParser into the quantized, position
+ * indexed binary files read by ConservationScoreStore. Objects are then passed on to the next serializer, if any, so
+ * that the JSON files for the conservation collection can be written in the same run.
+ */
+public class ConservationScoreFileSerializer implements CellBaseFileSerializer {
+
+    private final Path outdir;
+    private final CellBaseFileSerializer nextSerializer;
+    private final Map<String, FileChannel> fileChannels;
+
+    public ConservationScoreFileSerializer(Path outdir) {
+        this(outdir, null);
+    }
+
+    public ConservationScoreFileSerializer(Path outdir, CellBaseFileSerializer nextSerializer) {
+        this.outdir = outdir;
+        this.nextSerializer = nextSerializer;
+        this.fileChannels = new HashMap<>();
+    }
+
+    @Override
+    public void serialize(Object object) {
+        write((GenomicScoreRegion<Float>) object);
+        if (nextSerializer != null) {
+            nextSerializer.serialize(object);
+        }
+    }
+
+    @Override
+    public void serialize(Object object, String fileName) {
+        write((GenomicScoreRegion<Float>) object);
+        if (nextSerializer != null) {
+            nextSerializer.serialize(object, fileName);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (FileChannel fileChannel : fileChannels.values()) {
+            fileChannel.close();
+        }
+        if (nextSerializer != null) {
+            nextSerializer.close();
+        }
+    }
+
+    @Override
+    public Path getOutdir() {
+        return outdir;
+    }
+
+    @Override
+    public String getFileName() {
+        return nextSerializer != null ? nextSerializer.getFileName() : null;
+    }
+
+    private void write(GenomicScoreRegion<Float> genomicScoreRegion) {
+        List<Float> values = genomicScoreRegion.getValues();
+        if (values == null || values.isEmpty()) {
+            return;
+        }
+
+        ByteBuffer byteBuffer = ByteBuffer.allocate(values.size() * Character.BYTES);
+        for (Float value : values) {
+            byteBuffer.putChar(value != null ? ConservationScoreStore.encode(value) : 0);
+        }
+        byteBuffer.flip();
+
+        String fileName = ConservationScoreStore.getFileName(genomicScoreRegion.getSource(), genomicScoreRegion.getChromosome());
+        long offset = (long) genomicScoreRegion.getStart() * Character.BYTES;
+        try {
+            FileChannel fileChannel = getFileChannel(fileName);
+            while (byteBuffer.hasRemaining()) {
+                offset += fileChannel.write(byteBuffer, offset);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error writing conservation binary file " + fileName, e);
+        }
+    }
+
+    private FileChannel getFileChannel(String fileName) throws IOException {
+        FileChannel fileChannel = fileChannels.get(fileName);
+        if (fileChannel == null) {
+            Files.createDirectories(outdir);
+            // Positions with no score are left as file holes, read back as missing values
+            fileChannel = FileChannel.open(outdir.resolve(fileName), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+            fileChannels.put(fileName, fileChannel);
+        }
+        return fileChannel;
+    }
+}
@@ -0,0 +1,225 @@
+/*
+ * Copyright 2015 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.cellbase.core.serializer;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Writes BGZF, the blocked gzip format used by samtools and htsjdk: data is cut in blocks of up to 64KB that are
+ * deflated independently, each one as a gzip member. Blocks are compressed in a shared thread pool and written in
+ * order, so deflate is no longer bound to the writing thread. Any gzip reader, e.g. GZIPInputStream, can read the
+ * output since concatenated gzip members are valid gzip.
+ */
+public class ParallelBgzfOutputStream extends OutputStream {
+
+    static final int MAX_BLOCK_SIZE = 0xff00;
+    private static final int MAX_COMPRESSED_BLOCK_SIZE = 0x10000;
+    private static final int HEADER_SIZE = 18;
+    private static final int FOOTER_SIZE = 8;
+    // Empty block that BGZF readers expect at the end of the file
+    private static final byte[] EOF_BLOCK = {0x1f, (byte) 0x8b, 0x08, 0x04, 0x00, 0x00, 0x00, 0x00, 0x00, (byte) 0xff,
+            0x06, 0x00, 0x42, 0x43, 0x02, 0x00, 0x1b, 0x00, 0x03, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00};
+
+    private static ExecutorService defaultExecutorService;
+    private static final ThreadLocal<Deflater> DEFLATER = ThreadLocal.withInitial(() -> new Deflater(Deflater.DEFAULT_COMPRESSION,
+            true));
+
+    private final OutputStream outputStream;
+    private final ExecutorService executorService;
+    private final int maxPendingBlocks;
+    private final Deque<Future<byte[]>> pendingBlocks;
+
+    private byte[] buffer;
+    private int bufferSize;
+    private boolean closed;
+
+    public ParallelBgzfOutputStream(OutputStream outputStream) {
+        this(outputStream, getDefaultExecutorService(), 2 * Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param outputStream stream the compressed blocks are written to, closed when this stream is closed
+     * @param executorService pool where blocks are compressed, not shut down by this stream
+     * @param maxPendingBlocks maximum number of blocks being compressed before the writing thread waits for them
+     */
+    public ParallelBgzfOutputStream(OutputStream outputStream, ExecutorService executorService, int maxPendingBlocks) {
+        this.outputStream = outputStream;
+        this.executorService = executorService;
+        this.maxPendingBlocks = Math.max(1, maxPendingBlocks);
+        this.pendingBlocks = new ArrayDeque<>();
+        this.buffer = new byte[MAX_BLOCK_SIZE];
+    }
+
+    /**
+     * @return process-wide pool of daemon threads, one per available processor, shared by all the streams created
+     * without an explicit executor
+     */
+    public static synchronized ExecutorService getDefaultExecutorService() {
+        if (defaultExecutorService == null) {
+            AtomicInteger threadNumber = new AtomicInteger(1);
+            defaultExecutorService = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), runnable -> {
+                Thread thread = new Thread(runnable, "bgzf-" + threadNumber.getAndIncrement());
+                // Pool is never shut down, it must not keep the JVM alive
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return defaultExecutorService;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        buffer[bufferSize++] = (byte) b;
+        if (bufferSize == MAX_BLOCK_SIZE) {
+            submitBlock();
+        }
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        while (length > 0) {
+            int n = Math.min(length, MAX_BLOCK_SIZE - bufferSize);
+            System.arraycopy(bytes, offset, buffer, bufferSize, n);
+            bufferSize += n;
+            offset += n;
+            length -= n;
+            if (bufferSize == MAX_BLOCK_SIZE) {
+                submitBlock();
+            }
+        }
+    }
+
+    /**
+     * Compresses the buffered data in a block of its own and waits for all pending blocks to be written.
+     *
+     * @throws IOException if a block cannot be compressed or written
+     */
+    @Override
+    public void flush() throws IOException {
+        if (bufferSize > 0) {
+            submitBlock();
+        }
+        while (!pendingBlocks.isEmpty()) {
+            writeBlock(pendingBlocks.poll());
+        }
+        outputStream.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            flush();
+            outputStream.write(EOF_BLOCK);
+        } finally {
+            outputStream.close();
+        }
+    }
+
+    private void submitBlock() throws IOException {
+        final byte[] block = buffer;
+        final int blockSize = bufferSize;
+        buffer = new byte[MAX_BLOCK_SIZE];
+        bufferSize = 0;
+        pendingBlocks.add(executorService.submit(() -> compressBlock(block, blockSize)));
+
+        // Write the blocks already compressed, keep the number of blocks in memory bounded
+        while (!pendingBlocks.isEmpty() && (pendingBlocks.size() > maxPendingBlocks || pendingBlocks.peek().isDone())) {
+            writeBlock(pendingBlocks.poll());
+        }
+    }
+
+    private void writeBlock(Future<byte[]> future) throws IOException {
+        try {
+            outputStream.write(future.get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a BGZF block to be compressed");
+        } catch (ExecutionException e) {
+            throw new IOException("BGZF block could not be compressed", e.getCause());
+        }
+    }
+
+    static byte[] compressBlock(byte[] data, int length) {
+        byte[] block = new byte[MAX_COMPRESSED_BLOCK_SIZE];
+        int compressedSize = deflate(DEFLATER.get(), data, length, block);
+        if (compressedSize < 0) {
+            // Incompressible data may not fit in a block once deflated, store it as it is
+            Deflater deflater = new Deflater(Deflater.NO_COMPRESSION, true);
+            try {
+                compressedSize = deflate(deflater, data, length, block);
+            } finally {
+                deflater.end();
+            }
+        }
+
+        CRC32 crc32 = new CRC32();
+        crc32.update(data, 0, length);
+        int blockSize = HEADER_SIZE + compressedSize + FOOTER_SIZE;
+
+        // gzip header with the BC extra subfield holding the total block size minus 1
+        block[0] = 0x1f;
+        block[1] = (byte) 0x8b;
+        block[2] = 0x08;
+        block[3] = 0x04;
+        block[9] = (byte) 0xff;
+        block[10] = 0x06;
+        block[12] = 0x42;
+        block[13] = 0x43;
+        block[14] = 0x02;
+        writeShort(block, 16, blockSize - 1);
+        writeInt(block, HEADER_SIZE + compressedSize, (int) crc32.getValue());
+        writeInt(block, HEADER_SIZE + compressedSize + 4, length);
+
+        byte[] result = new byte[blockSize];
+        System.arraycopy(block, 0, result, 0, blockSize);
+        return result;
+    }
+
+    /**
+     * @return number of compressed bytes written after the header, -1 if they do not fit in a block
+     */
+    private static int deflate(Deflater deflater, byte[] data, int length, byte[] block) {
+        deflater.reset();
+        deflater.setInput(data, 0, length);
+        deflater.finish();
+        int maxCompressedSize = MAX_COMPRESSED_BLOCK_SIZE - HEADER_SIZE - FOOTER_SIZE;
+        int compressedSize = deflater.deflate(block, HEADER_SIZE, maxCompressedSize);
+        return deflater.finished() ? compressedSize : -1;
+    }
+
+    private static void writeShort(byte[] bytes, int offset, int value) {
+        bytes[offset] = (byte) value;
+        bytes[offset + 1] = (byte) (value >>> 8);
+    }
+
+    private static void writeInt(byte[] bytes, int offset, int value) {
+        writeShort(bytes, offset, value);
+        writeShort(bytes, offset + 2, value >>> 16);
+    }
+}
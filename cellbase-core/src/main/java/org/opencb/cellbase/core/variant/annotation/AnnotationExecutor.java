@@ -0,0 +1,211 @@
+/*
+ * Copyright 2015 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.cellbase.core.variant.annotation;
+
+import org.opencb.cellbase.core.config.AnnotationProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Process-wide thread pool shared by all VariantAnnotationCalculator instances to run the asynchronous annotators
+ * (variation, conservation, functionalScore, clinical, repeats and cytoband). The work queue is bounded: once it is
+ * full the submitting thread runs the task itself, which slows callers down instead of piling up work.
+ */
+public final class AnnotationExecutor {
+
+    private static AnnotationExecutor instance;
+
+    private final ThreadPoolExecutor threadPoolExecutor;
+    private final ConcurrentMap<String, AnnotatorStats> annotatorStatsMap;
+
+    private static Logger logger = LoggerFactory.getLogger(AnnotationExecutor.class);
+
+    private AnnotationExecutor(AnnotationProperties annotationProperties) {
+        int numThreads = annotationProperties.getNumThreads() > 0
+                ? annotationProperties.getNumThreads()
+                : AnnotationProperties.DEFAULT_NUM_THREADS;
+        int queueSize = annotationProperties.getQueueSize() > 0
+                ? annotationProperties.getQueueSize()
+                : AnnotationProperties.DEFAULT_QUEUE_SIZE;
+
+        this.threadPoolExecutor = new ThreadPoolExecutor(numThreads, numThreads, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueSize), new AnnotatorThreadFactory(), new ThreadPoolExecutor.CallerRunsPolicy());
+        this.threadPoolExecutor.allowCoreThreadTimeOut(true);
+        this.annotatorStatsMap = new ConcurrentHashMap<>();
+
+        logger.info("Annotation executor started with {} threads and a queue of {} tasks", numThreads, queueSize);
+    }
+
+    /**
+     * Returns the shared executor, creating it the first time with the given properties. Properties passed in later
+     * calls are ignored since the pool is already running.
+     *
+     * @param annotationProperties annotation settings from the CellBase configuration, null for default values
+     * @return the process-wide annotation executor
+     */
+    public static synchronized AnnotationExecutor getInstance(AnnotationProperties annotationProperties) {
+        if (instance == null) {
+            instance = new AnnotationExecutor(annotationProperties != null ? annotationProperties : new AnnotationProperties());
+        }
+        return instance;
+    }
+
+    public static AnnotationExecutor getInstance() {
+        return getInstance(null);
+    }
+
+    /**
+     * Unlike getInstance, it never creates the executor, so that reading statistics does not start the pool with
+     * default settings before the configured ones are passed.
+     *
+     * @return the process-wide annotation executor, null if no annotation has been run yet
+     */
+    public static synchronized AnnotationExecutor getInstanceIfCreated() {
+        return instance;
+    }
+
+    public <T> Future<T> submit(String annotator, Callable<T> callable) {
+        AnnotatorStats annotatorStats = annotatorStatsMap.computeIfAbsent(annotator, key -> new AnnotatorStats());
+        long submitTime = System.nanoTime();
+        return threadPoolExecutor.submit(() -> {
+            long startTime = System.nanoTime();
+            boolean failed = true;
+            try {
+                T result = callable.call();
+                failed = false;
+                return result;
+            } finally {
+                annotatorStats.register(startTime - submitTime, System.nanoTime() - startTime, failed);
+            }
+        });
+    }
+
+    /**
+     * @return number of annotator tasks waiting for a free thread
+     */
+    public int getQueueDepth() {
+        return threadPoolExecutor.getQueue().size();
+    }
+
+    public int getActiveCount() {
+        return threadPoolExecutor.getActiveCount();
+    }
+
+    public int getPoolSize() {
+        return threadPoolExecutor.getPoolSize();
+    }
+
+    public long getCompletedTaskCount() {
+        return threadPoolExecutor.getCompletedTaskCount();
+    }
+
+    /**
+     * @return a snapshot of the statistics collected for each annotator, sorted by annotator name
+     */
+    public Map<String, AnnotatorStats> getAnnotatorStats() {
+        Map<String, AnnotatorStats> snapshot = new TreeMap<>();
+        for (Map.Entry<String, AnnotatorStats> entry : annotatorStatsMap.entrySet()) {
+            snapshot.put(entry.getKey(), new AnnotatorStats(entry.getValue()));
+        }
+        return Collections.unmodifiableMap(snapshot);
+    }
+
+    public static class AnnotatorStats {
+
+        private final LongAdder numTasks = new LongAdder();
+        private final LongAdder numFailures = new LongAdder();
+        private final LongAdder queueTimeNanos = new LongAdder();
+        private final LongAdder runTimeNanos = new LongAdder();
+        private final AtomicLong maxRunTimeNanos = new AtomicLong();
+
+        AnnotatorStats() {
+        }
+
+        private AnnotatorStats(AnnotatorStats annotatorStats) {
+            numTasks.add(annotatorStats.numTasks.sum());
+            numFailures.add(annotatorStats.numFailures.sum());
+            queueTimeNanos.add(annotatorStats.queueTimeNanos.sum());
+            runTimeNanos.add(annotatorStats.runTimeNanos.sum());
+            maxRunTimeNanos.set(annotatorStats.maxRunTimeNanos.get());
+        }
+
+        void register(long queueTime, long runTime, boolean failed) {
+            numTasks.increment();
+            if (failed) {
+                numFailures.increment();
+            }
+            queueTimeNanos.add(queueTime);
+            runTimeNanos.add(runTime);
+            maxRunTimeNanos.accumulateAndGet(runTime, Math::max);
+        }
+
+        @Override
+        public String toString() {
+            final StringBuilder sb = new StringBuilder("AnnotatorStats{");
+            sb.append("numTasks=").append(getNumTasks());
+            sb.append(", numFailures=").append(getNumFailures());
+            sb.append(", meanQueueTimeMs=").append(getMeanQueueTimeMs());
+            sb.append(", meanRunTimeMs=").append(getMeanRunTimeMs());
+            sb.append(", maxRunTimeMs=").append(getMaxRunTimeMs());
+            sb.append('}');
+            return sb.toString();
+        }
+
+        public long getNumTasks() {
+            return numTasks.sum();
+        }
+
+        public long getNumFailures() {
+            return numFailures.sum();
+        }
+
+        public double getMeanQueueTimeMs() {
+            long n = numTasks.sum();
+            return n > 0 ? queueTimeNanos.sum() / (n * 1e6) : 0;
+        }
+
+        public double getMeanRunTimeMs() {
+            long n = numTasks.sum();
+            return n > 0 ? runTimeNanos.sum() / (n * 1e6) : 0;
+        }
+
+        public double getMaxRunTimeMs() {
+            return maxRunTimeNanos.get() / 1e6;
+        }
+    }
+
+    private static class AnnotatorThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "annotator-" + threadNumber.getAndIncrement());
+            // Pool is never shut down, it must not keep the JVM alive
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,200 @@
+/*
+ * Copyright 2015 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.cellbase.core.variant.annotation;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Process-wide latency and throughput counters of one annotator (variation, conservation, functionalScore, clinical,
+ * repeats, cytoband, gene, consequenceType or hgvs). Each call to {@link #register} accounts for one annotated batch;
+ * batch latencies are kept in a histogram of power-of-two millisecond buckets, so percentiles are upper bounds.
+ */
+public final class AnnotatorMetrics {
+
+    static final int NUM_BUCKETS = 32;
+
+    private static final ConcurrentMap<String, AnnotatorMetrics> METRICS = new ConcurrentHashMap<>();
+
+    private final LongAdder numBatches = new LongAdder();
+    private final LongAdder numVariants = new LongAdder();
+    private final LongAdder numDbCalls = new LongAdder();
+    private final LongAdder numResults = new LongAdder();
+    private final LongAdder timeNanos = new LongAdder();
+    private final AtomicLong maxTimeNanos = new AtomicLong();
+    // Bucket 0 counts batches under 1ms, bucket i those in [2^(i-1), 2^i) ms
+    private final LongAdder[] latencyHistogram;
+
+    AnnotatorMetrics() {
+        latencyHistogram = new LongAdder[NUM_BUCKETS];
+        for (int i = 0; i < NUM_BUCKETS; i++) {
+            latencyHistogram[i] = new LongAdder();
+        }
+    }
+
+    private AnnotatorMetrics(AnnotatorMetrics annotatorMetrics) {
+        this();
+        numBatches.add(annotatorMetrics.getNumBatches());
+        numVariants.add(annotatorMetrics.getNumVariants());
+        numDbCalls.add(annotatorMetrics.getNumDbCalls());
+        numResults.add(annotatorMetrics.getNumResults());
+        timeNanos.add(annotatorMetrics.timeNanos.sum());
+        maxTimeNanos.set(annotatorMetrics.maxTimeNanos.get());
+        long[] counts = annotatorMetrics.getLatencyHistogram();
+        for (int i = 0; i < NUM_BUCKETS; i++) {
+            latencyHistogram[i].add(counts[i]);
+        }
+    }
+
+    /**
+     * @param annotator annotator name, as used in the annotator list of the VariantAnnotationCalculator
+     * @return metrics of the annotator, created the first time it is requested
+     */
+    public static AnnotatorMetrics get(String annotator) {
+        return METRICS.computeIfAbsent(annotator, key -> new AnnotatorMetrics());
+    }
+
+    /**
+     * @return a snapshot of the metrics collected for each annotator, sorted by annotator name
+     */
+    public static Map<String, AnnotatorMetrics> getAll() {
+        // Copies, so that the values do not change while they are reported
+        Map<String, AnnotatorMetrics> snapshot = new TreeMap<>();
+        for (Map.Entry<String, AnnotatorMetrics> entry : METRICS.entrySet()) {
+            snapshot.put(entry.getKey(), new AnnotatorMetrics(entry.getValue()));
+        }
+        return Collections.unmodifiableMap(snapshot);
+    }
+
+    /**
+     * Accounts for one annotated batch.
+     *
+     * @param nanos time spent annotating the batch
+     * @param numVariants number of variants in the batch
+     * @param numDbCalls number of database adaptor calls issued by the annotator
+     * @param numResults number of documents returned by those calls
+     */
+    public void register(long nanos, int numVariants, int numDbCalls, long numResults) {
+        numBatches.increment();
+        this.numVariants.add(numVariants);
+        this.numDbCalls.add(numDbCalls);
+        this.numResults.add(numResults);
+        timeNanos.add(nanos);
+        maxTimeNanos.accumulateAndGet(nanos, Math::max);
+        latencyHistogram[getBucket(nanos)].increment();
+    }
+
+    static int getBucket(long nanos) {
+        long millis = nanos / 1000000;
+        int bucket = 64 - Long.numberOfLeadingZeros(millis);
+        return Math.min(bucket, NUM_BUCKETS - 1);
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("AnnotatorMetrics{");
+        sb.append("numBatches=").append(getNumBatches());
+        sb.append(", numVariants=").append(getNumVariants());
+        sb.append(", numDbCalls=").append(getNumDbCalls());
+        sb.append(", numResults=").append(getNumResults());
+        sb.append(", variantsPerSecond=").append(String.format("%.1f", getVariantsPerSecond()));
+        sb.append(", meanTimeMs=").append(String.format("%.2f", getMeanTimeMs()));
+        sb.append(", p50TimeMs=").append(getPercentileTimeMs(50));
+        sb.append(", p99TimeMs=").append(getPercentileTimeMs(99));
+        sb.append(", maxTimeMs=").append(String.format("%.2f", getMaxTimeMs()));
+        sb.append('}');
+        return sb.toString();
+    }
+
+    public long getNumBatches() {
+        return numBatches.sum();
+    }
+
+    public long getNumVariants() {
+        return numVariants.sum();
+    }
+
+    public long getNumDbCalls() {
+        return numDbCalls.sum();
+    }
+
+    /**
+     * @return number of documents returned by the database calls
+     */
+    public long getNumResults() {
+        return numResults.sum();
+    }
+
+    /**
+     * @return variants annotated per second of annotator time, regardless of how many batches ran concurrently
+     */
+    public double getVariantsPerSecond() {
+        long nanos = timeNanos.sum();
+        return nanos > 0 ? numVariants.sum() * 1e9 / nanos : 0;
+    }
+
+    public double getMeanTimeMs() {
+        long n = numBatches.sum();
+        return n > 0 ? timeNanos.sum() / (n * 1e6) : 0;
+    }
+
+    public double getMaxTimeMs() {
+        return maxTimeNanos.get() / 1e6;
+    }
+
+    /**
+     * @param percentile percentile between 0 and 100
+     * @return upper bound, in ms, of the histogram bucket holding the batch latency percentile, 0 if nothing was
+     * registered yet
+     */
+    public long getPercentileTimeMs(double percentile) {
+        long[] counts = getLatencyHistogram();
+        long total = 0;
+        for (long count : counts) {
+            total += count;
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(total * percentile / 100);
+        long accumulated = 0;
+        for (int i = 0; i < counts.length; i++) {
+            accumulated += counts[i];
+            if (accumulated >= Math.max(rank, 1)) {
+                return 1L << i;
+            }
+        }
+        return 1L << (NUM_BUCKETS - 1);
+    }
+
+    /**
+     * @return number of batches in each latency bucket: bucket 0 holds batches under 1ms, bucket i batches between
+     * 2^(i-1) and 2^i ms
+     */
+    public long[] getLatencyHistogram() {
+        long[] counts = new long[NUM_BUCKETS];
+        for (int i = 0; i < NUM_BUCKETS; i++) {
+            counts[i] = latencyHistogram[i].sum();
+        }
+        return counts;
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright 2015 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.cellbase.core.variant.annotation;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Read-only CADD scores stored in local memory-mapped files, an alternative to the variation_functional_score
+ * collection.
+ *
+ * There is one file per source (cadd_raw, cadd_scaled) and chromosome, named source.chromosome.bin, holding one long
+ * per genomic position at offset position * 8. Each long packs the four scores for alternates A, C, G and T in 16-bit
+ * slots with the same encoding produced by CaddScoreParser. Positions with no CADD data are 0 in the raw file. Raw
+ * values are stored with a +10 offset and the reference allele, which has no score of its own, gets a raw score of 10,
+ * so its raw slot holds 2000 and present positions are never 0. Lookups are absolute reads on the mapped buffers and
+ * do not allocate.
+ */
+public class CaddScoreStore {
+
+    public static final String CADD_RAW = "cadd_raw";
+    public static final String CADD_SCALED = "cadd_scaled";
+    public static final String FILE_SUFFIX = ".bin";
+
+    private static final float DECIMAL_RESOLUTION = 100f;
+
+    private static Map<Path, CaddScoreStore> storeMap = new HashMap<>();
+
+    private final Path directory;
+    private final Map<String, MappedFile> rawFiles;
+    private final Map<String, MappedFile> scaledFiles;
+
+    private static Logger logger = LoggerFactory.getLogger(CaddScoreStore.class);
+
+    public CaddScoreStore(Path directory) throws IOException {
+        this.directory = directory;
+        this.rawFiles = new HashMap<>();
+        this.scaledFiles = new HashMap<>();
+
+        try (DirectoryStream<Path> paths = Files.newDirectoryStream(directory, "*" + FILE_SUFFIX)) {
+            for (Path path : paths) {
+                String fileName = path.getFileName().toString();
+                String name = fileName.substring(0, fileName.length() - FILE_SUFFIX.length());
+                if (name.startsWith(CADD_RAW + ".")) {
+                    rawFiles.put(name.substring(CADD_RAW.length() + 1), MappedFile.map(path));
+                } else if (name.startsWith(CADD_SCALED + ".")) {
+                    scaledFiles.put(name.substring(CADD_SCALED.length() + 1), MappedFile.map(path));
+                }
+            }
+        }
+        logger.info("CADD score store at {} mapped for chromosomes {}", directory, rawFiles.keySet());
+    }
+
+    /**
+     * Returns the store for the given directory, mapping its files the first time.
+     *
+     * @param directory directory with the CADD binary files
+     * @return shared store for this directory
+     * @throws IOException if files cannot be mapped
+     */
+    public static synchronized CaddScoreStore getInstance(Path directory) throws IOException {
+        Path key = directory.toAbsolutePath().normalize();
+        CaddScoreStore caddScoreStore = storeMap.get(key);
+        if (caddScoreStore == null) {
+            caddScoreStore = new CaddScoreStore(key);
+            storeMap.put(key, caddScoreStore);
+        }
+        return caddScoreStore;
+    }
+
+    public static String getFileName(String source, String chromosome) {
+        return source + "." + chromosome + FILE_SUFFIX;
+    }
+
+    public boolean contains(String chromosome) {
+        return rawFiles.containsKey(chromosome);
+    }
+
+    /**
+     * @param chromosome chromosome
+     * @param position position
+     * @return packed raw scores, 0 if there are no CADD scores for this position
+     */
+    public long getRawValue(String chromosome, int position) {
+        return getValue(rawFiles.get(chromosome), position);
+    }
+
+    /**
+     * @param chromosome chromosome
+     * @param position position
+     * @return packed scaled scores, 0 if there are no CADD scores for this position
+     */
+    public long getScaledValue(String chromosome, int position) {
+        return getValue(scaledFiles.get(chromosome), position);
+    }
+
+    /**
+     * @param alternate alternate allele
+     * @return true if the files hold scores for this alternate, only single A, C, G and T alternates are scored
+     */
+    public static boolean isScored(String alternate) {
+        return getShift(alternate) >= 0;
+    }
+
+    /**
+     * @param value packed raw scores of a position
+     * @param alternate alternate allele
+     * @return raw score of the alternate, NaN if the alternate is not scored
+     */
+    public static float decodeRawScore(long value, String alternate) {
+        int shift = getShift(alternate);
+        return shift < 0 ? Float.NaN : ((short) (value >> shift)) / DECIMAL_RESOLUTION - 10;
+    }
+
+    /**
+     * @param value packed scaled scores of a position
+     * @param alternate alternate allele
+     * @return scaled score of the alternate, NaN if the alternate is not scored
+     */
+    public static float decodeScaledScore(long value, String alternate) {
+        int shift = getShift(alternate);
+        return shift < 0 ? Float.NaN : ((short) (value >> shift)) / DECIMAL_RESOLUTION;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    private static int getShift(String alternate) {
+        if (alternate == null || alternate.length() != 1) {
+            return -1;
+        }
+        switch (alternate.charAt(0)) {
+            case 'A':
+            case 'a':
+                return 48;
+            case 'C':
+            case 'c':
+                return 32;
+            case 'G':
+            case 'g':
+                return 16;
+            case 'T':
+            case 't':
+                return 0;
+            default:
+                return -1;
+        }
+    }
+
+    private static long getValue(MappedFile mappedFile, int position) {
+        return mappedFile != null ? mappedFile.getLong((long) position << 3) : 0;
+    }
+}
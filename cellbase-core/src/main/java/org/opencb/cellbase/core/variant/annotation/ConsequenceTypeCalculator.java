@@ -4,7 +4,6 @@ import org.opencb.biodata.models.core.Gene;
 import org.opencb.biodata.models.core.MiRNAGene;
 import org.opencb.biodata.models.core.Transcript;
 import org.opencb.biodata.models.variant.Variant;
-import org.opencb.biodata.models.variant.annotation.ConsequenceTypeMappings;
 import org.opencb.biodata.models.variant.avro.ConsequenceType;
 import org.opencb.biodata.models.variant.avro.ProteinVariantAnnotation;
 import org.opencb.biodata.models.variant.avro.SequenceOntologyTerm;
@@ -15,6 +14,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
+import java.util.function.Function;
 
 /**
  * Created by fjlopez on 19/06/15.
@@ -31,6 +31,7 @@ public abstract class ConsequenceTypeCalculator {
     protected Boolean imprecise = true;
     protected int svExtraPadding = 0;
     protected int cnvExtraPadding = 0;
+    protected Function<Transcript, SplicedTranscript> splicedTranscriptResolver = SplicedTranscript::new;
 
     protected static final String IMPRECISE = "imprecise";
     protected static final String SV_EXTRA_PADDING = "svExtraPadding";
@@ -40,6 +41,56 @@ public abstract class ConsequenceTypeCalculator {
     public abstract List<ConsequenceType> run(Variant variant, List<Gene> geneList,
                                               boolean[] overlapsRegulatoryRegion, QueryOptions queryOptions);
 
+    /**
+     * Sets where spliced transcripts are taken from, e.g. those already built for the current annotation batch. By
+     * default they are built for each variant.
+     *
+     * @param splicedTranscriptResolver function returning the spliced transcript of a transcript
+     * @return this calculator
+     */
+    public ConsequenceTypeCalculator setSplicedTranscriptResolver(Function<Transcript, SplicedTranscript>
+                                                                          splicedTranscriptResolver) {
+        this.splicedTranscriptResolver = splicedTranscriptResolver;
+        return this;
+    }
+
+    /**
+     * Prepares a calculator reused across variants and requests for a new variant: sets the genome adaptor of the
+     * current request and the default query params, the rest of the state is set by run().
+     *
+     * @param genomeDBAdaptor genome adaptor of the current request
+     * @return this calculator
+     */
+    ConsequenceTypeCalculator acquire(GenomeDBAdaptor genomeDBAdaptor) {
+        this.genomeDBAdaptor = genomeDBAdaptor;
+        imprecise = true;
+        svExtraPadding = 0;
+        cnvExtraPadding = 0;
+        SoNames.clear();
+        return this;
+    }
+
+    /**
+     * Drops the references to the last variant, its genes and the request adaptor and spliced transcripts, so that an
+     * idle calculator kept by a pooled thread does not keep them alive.
+     */
+    void release() {
+        consequenceType = null;
+        gene = null;
+        transcript = null;
+        variant = null;
+        genomeDBAdaptor = null;
+        splicedTranscriptResolver = SplicedTranscript::new;
+        SoNames.clear();
+    }
+
+    /**
+     * @return forward strand sequence of all the exons of the current transcript, in genomic order
+     */
+    protected String getTranscriptSequence() {
+        return splicedTranscriptResolver.apply(transcript).getSequence();
+    }
+
     protected void parseQueryParam(QueryOptions queryOptions) {
         imprecise = queryOptions.get(IMPRECISE) != null ? (Boolean) queryOptions.get(IMPRECISE) : true;
         svExtraPadding = queryOptions.get(SV_EXTRA_PADDING) != null
@@ -289,7 +340,7 @@ public abstract class ConsequenceTypeCalculator {
     }
 
     private SequenceOntologyTerm newSequenceOntologyTerm(String name) {
-        return new SequenceOntologyTerm(ConsequenceTypeMappings.getSoAccessionString(name), name);
+        return VariantAnnotationUtils.getSequenceOntologyTerm(name);
     }
 
     protected int updateNegativeInsertionCodonArrays(String reverseTranscriptSequence,
@@ -211,7 +211,6 @@ public class ConsequenceTypeGenericRegionCalculator extends ConsequenceTypeCalcu
         Exon exon = transcript.getExons().get(0);
         int exonSize = exon.getEnd() - exon.getStart() + 1;
         String exonStringSuffix = "/" + transcript.getExons().size();
-        String transcriptSequence = exon.getSequence();
         boolean variantAhead = true; // we need a first iteration within the while to ensure junction is solved in case needed
         int cdnaExonEnd = (exon.getEnd() - exon.getStart() + 1);
         int cdnaVariantStart = -1;
@@ -258,7 +257,6 @@ public class ConsequenceTypeGenericRegionCalculator extends ConsequenceTypeCalcu
             int prevSpliceSite = exon.getStart() - 1;
             exon = transcript.getExons().get(exonCounter);          // next exon has been loaded
             exonSize = exon.getEnd() - exon.getStart() + 1;
-            transcriptSequence = exon.getSequence() + transcriptSequence;
             // Set firsCdsPhase only when the first coding exon is reached
             if (firstCdsPhase == -1 && transcript.getGenomicCodingEnd() >= exon.getStart()) {
                 firstCdsPhase = exon.getPhase();
@@ -304,7 +302,7 @@ public class ConsequenceTypeGenericRegionCalculator extends ConsequenceTypeCalcu
 //        consequenceType.setExonNumber(variantStartExonNumber != null ? variantStartExonNumber : variantEndExonNumber);
         // Is not intron variant (both ends fall within the same intron)
         if (!junctionSolution[1]) {
-            solveExonVariantInNegativeTranscript(splicing, transcriptSequence, cdnaVariantStart, cdnaVariantEnd,
+            solveExonVariantInNegativeTranscript(splicing, getTranscriptSequence(), cdnaVariantStart, cdnaVariantEnd,
                     firstCdsPhase);
         }
 
@@ -494,7 +492,6 @@ public class ConsequenceTypeGenericRegionCalculator extends ConsequenceTypeCalcu
         Exon exon = transcript.getExons().get(0);
         int exonSize = exon.getEnd() - exon.getStart() + 1;
         String exonStringSuffix = "/" + transcript.getExons().size();
-        String transcriptSequence = exon.getSequence();
         boolean variantAhead = true; // we need a first iteration within the while to ensure junction is solved in case needed
         int cdnaExonEnd = (exon.getEnd() - exon.getStart() + 1);
         int cdnaVariantStart = -1;
@@ -541,7 +538,6 @@ public class ConsequenceTypeGenericRegionCalculator extends ConsequenceTypeCalcu
             int prevSpliceSite = exon.getEnd() + 1;
             exon = transcript.getExons().get(exonCounter);          // next exon has been loaded
             exonSize = exon.getEnd() - exon.getStart() + 1;
-            transcriptSequence = transcriptSequence + exon.getSequence();
             // Set firsCdsPhase only when the first coding exon is reached
             if (firstCdsPhase == -1 && transcript.getGenomicCodingStart() <= exon.getEnd()) {
                 firstCdsPhase = exon.getPhase();
@@ -587,7 +583,7 @@ public class ConsequenceTypeGenericRegionCalculator extends ConsequenceTypeCalcu
 //        consequenceType.setExonNumber(variantStartExonNumber != null ? variantStartExonNumber : variantEndExonNumber);
         // Is not intron variant (both ends fall within the same intron)
         if (!junctionSolution[1]) {
-            solveExonVariantInPositiveTranscript(splicing, transcriptSequence, cdnaVariantStart, cdnaVariantEnd,
+            solveExonVariantInPositiveTranscript(splicing, getTranscriptSequence(), cdnaVariantStart, cdnaVariantEnd,
                     firstCdsPhase);
         }
 
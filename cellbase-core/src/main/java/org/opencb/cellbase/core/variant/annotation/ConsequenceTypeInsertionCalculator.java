@@ -168,7 +168,6 @@ public class ConsequenceTypeInsertionCalculator extends ConsequenceTypeCalculato
 
     protected void solveCodingNegativeTranscript() {
         Exon exon = transcript.getExons().get(0);
-        String transcriptSequence = exon.getSequence();
         boolean variantAhead = true; // we need a first iteration within the while to ensure junction is solved in case needed
         int cdnaExonEnd = (exon.getEnd() - exon.getStart() + 1);
         int cdnaVariantStart = -1;
@@ -205,7 +204,6 @@ public class ConsequenceTypeInsertionCalculator extends ConsequenceTypeCalculato
         while (exonCounter < transcript.getExons().size() && variantAhead) {
             int prevSpliceSite = exon.getStart() - 1;
             exon = transcript.getExons().get(exonCounter);          // next exon has been loaded
-            transcriptSequence = exon.getSequence() + transcriptSequence;
             // Set firsCdsPhase only when the first coding exon is reached
             if (firstCdsPhase == -1 && exon.getGenomicCodingEnd() >= exon.getStart()) {
                 firstCdsPhase = exon.getPhase();
@@ -248,7 +246,7 @@ public class ConsequenceTypeInsertionCalculator extends ConsequenceTypeCalculato
             } else if (cdnaVariantEnd == -1 && cdnaVariantStart != -1) {  // To account for those insertions in the 5' end of an intron
                 cdnaVariantEnd = cdnaVariantStart + 1;
             }
-            solveExonVariantInNegativeTranscript(splicing, transcriptSequence, cdnaVariantStart, cdnaVariantEnd,
+            solveExonVariantInNegativeTranscript(splicing, getTranscriptSequence(), cdnaVariantStart, cdnaVariantEnd,
                     firstCdsPhase);
         }
     }
@@ -498,7 +496,6 @@ public class ConsequenceTypeInsertionCalculator extends ConsequenceTypeCalculato
     protected void solveCodingPositiveTranscript() {
 
         Exon exon = transcript.getExons().get(0);
-        String transcriptSequence = exon.getSequence();
         boolean variantAhead = true; // we need a first iteration within the while to ensure junction is solved in case needed
         int cdnaExonEnd = (exon.getEnd() - exon.getStart() + 1);
         int cdnaVariantStart = -1;
@@ -537,7 +534,6 @@ public class ConsequenceTypeInsertionCalculator extends ConsequenceTypeCalculato
         while (exonCounter < transcript.getExons().size() && variantAhead) {
             int prevSpliceSite = exon.getEnd() + 1;
             exon = transcript.getExons().get(exonCounter);          // next exon has been loaded
-            transcriptSequence = transcriptSequence + exon.getSequence();
             // Set firsCdsPhase only when the first coding exon is reached
             if (firstCdsPhase == -1 && transcript.getGenomicCodingStart() <= exon.getEnd()) {
                 firstCdsPhase = exon.getPhase();
@@ -583,7 +579,7 @@ public class ConsequenceTypeInsertionCalculator extends ConsequenceTypeCalculato
             } else if (cdnaVariantEnd == -1 && cdnaVariantStart != -1) {  // To account for those insertions in the 5' end of an intron
                 cdnaVariantEnd = cdnaVariantStart + 1;
             }
-            solveExonVariantInPositiveTranscript(splicing, transcriptSequence, cdnaVariantStart, cdnaVariantEnd,
+            solveExonVariantInPositiveTranscript(splicing, getTranscriptSequence(), cdnaVariantStart, cdnaVariantEnd,
                     firstCdsPhase);
         }
     }
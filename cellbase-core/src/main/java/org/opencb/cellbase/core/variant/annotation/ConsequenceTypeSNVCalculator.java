@@ -86,7 +86,6 @@ public class ConsequenceTypeSNVCalculator extends ConsequenceTypeCalculator {
 
         Exon exon = transcript.getExons().get(0);
         int exonSize = exon.getEnd() - exon.getStart() + 1;
-        String transcriptSequence = exon.getSequence();
         boolean variantAhead = true; // we need a first iteration within the while to ensure junction is solved in case needed
         int cdnaExonEnd = (exon.getEnd() - exon.getStart() + 1);  // cdnaExonEnd poinst to the same base than exonStart
         int cdnaVariantPosition = -1;
@@ -109,7 +108,6 @@ public class ConsequenceTypeSNVCalculator extends ConsequenceTypeCalculator {
             int prevSpliceSite = exon.getStart() - 1;
             exon = transcript.getExons().get(exonCounter);          // next exon has been loaded
             exonSize = exon.getEnd() - exon.getStart() + 1;
-            transcriptSequence = exon.getSequence() + transcriptSequence;
             solveJunction(exon.getEnd() + 1, prevSpliceSite, VariantAnnotationUtils.SPLICE_ACCEPTOR_VARIANT,
                     VariantAnnotationUtils.SPLICE_DONOR_VARIANT, junctionSolution);
 
@@ -139,7 +137,6 @@ public class ConsequenceTypeSNVCalculator extends ConsequenceTypeCalculator {
 
         Exon exon = transcript.getExons().get(0);
         int exonSize = exon.getEnd() - exon.getStart() + 1;
-        String transcriptSequence = exon.getSequence();
         boolean variantAhead = true; // we need a first iteration within the while to ensure junction is solved in case needed
         int cdnaExonEnd = (exon.getEnd() - exon.getStart() + 1);  // cdnaExonEnd poinst to the same base than exonStart
         int cdnaVariantPosition = -1;
@@ -167,7 +164,6 @@ public class ConsequenceTypeSNVCalculator extends ConsequenceTypeCalculator {
             int prevSpliceSite = exon.getStart() - 1;
             exon = transcript.getExons().get(exonCounter);          // next exon has been loaded
             exonSize = exon.getEnd() - exon.getStart() + 1;
-            transcriptSequence = exon.getSequence() + transcriptSequence;
             // Set firsCdsPhase only when the first coding exon is reached
             if (firstCdsPhase == -1 && transcript.getGenomicCodingEnd() >= exon.getStart()) {
                 firstCdsPhase = exon.getPhase();
@@ -197,7 +193,7 @@ public class ConsequenceTypeSNVCalculator extends ConsequenceTypeCalculator {
         }
         // Is not intron variant (both ends fall within the same intron)
         if (!junctionSolution[1]) {
-            solveExonVariantInNegativeTranscript(splicing, transcriptSequence, cdnaVariantPosition, firstCdsPhase);
+            solveExonVariantInNegativeTranscript(splicing, getTranscriptSequence(), cdnaVariantPosition, firstCdsPhase);
         }
     }
 
@@ -407,7 +403,6 @@ public class ConsequenceTypeSNVCalculator extends ConsequenceTypeCalculator {
 
         Exon exon = transcript.getExons().get(0);
         int exonSize = exon.getEnd() - exon.getStart() + 1;
-        String transcriptSequence = exon.getSequence();
         boolean variantAhead = true; // we need a first iteration within the while to ensure junction is solved in case needed
         int cdnaExonEnd = (exon.getEnd() - exon.getStart() + 1);
         int cdnaVariantPosition = -1;
@@ -435,7 +430,6 @@ public class ConsequenceTypeSNVCalculator extends ConsequenceTypeCalculator {
             int prevSpliceSite = exon.getEnd() + 1;
             exon = transcript.getExons().get(exonCounter);          // next exon has been loaded
             exonSize = exon.getEnd() - exon.getStart() + 1;
-            transcriptSequence = transcriptSequence + exon.getSequence();
             // Set firsCdsPhase only when the first coding exon is reached
             if (firstCdsPhase == -1 && transcript.getGenomicCodingStart() <= exon.getEnd()) {
                 firstCdsPhase = exon.getPhase();
@@ -465,7 +459,7 @@ public class ConsequenceTypeSNVCalculator extends ConsequenceTypeCalculator {
         }
         // Is not intron variant (both ends fall within the same intron)
         if (!junctionSolution[1]) {
-            solveExonVariantInPositiveTranscript(splicing, transcriptSequence, cdnaVariantPosition, firstCdsPhase);
+            solveExonVariantInPositiveTranscript(splicing, getTranscriptSequence(), cdnaVariantPosition, firstCdsPhase);
         }
     }
 
@@ -0,0 +1,179 @@
+/*
+ * Copyright 2015 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.cellbase.core.variant.annotation;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Read-only conservation scores (phastCons, phylop, gerp) stored in local memory-mapped files, an alternative to the
+ * conservation collection.
+ *
+ * There is one file per source and chromosome, named source.chromosome.bin, holding one unsigned 16-bit value per
+ * genomic position at offset position * 2. Scores are quantized to three decimals, which is the precision of the
+ * source files: value = (stored - 32768) / 1000, covering [-32.767, 32.767]. Positions with no score are stored as 0,
+ * so file holes read as missing values.
+ */
+public class ConservationScoreStore {
+
+    public static final String FILE_SUFFIX = ".bin";
+
+    private static final float RESOLUTION = 1000f;
+    private static final int OFFSET = 32768;
+    private static final int MAX_STORED_VALUE = 65535;
+
+    private static Map<Path, ConservationScoreStore> storeMap = new HashMap<>();
+
+    private final Path directory;
+    // source -> chromosome -> file
+    private final Map<String, Map<String, MappedFile>> sourceFiles;
+    private final List<String> sources;
+
+    private static Logger logger = LoggerFactory.getLogger(ConservationScoreStore.class);
+
+    public ConservationScoreStore(Path directory) throws IOException {
+        this.directory = directory;
+        this.sourceFiles = new TreeMap<>();
+
+        try (DirectoryStream<Path> paths = Files.newDirectoryStream(directory, "*" + FILE_SUFFIX)) {
+            for (Path path : paths) {
+                String fileName = path.getFileName().toString();
+                String[] fields = fileName.substring(0, fileName.length() - FILE_SUFFIX.length()).split("\\.", 2);
+                if (fields.length == 2) {
+                    sourceFiles.computeIfAbsent(fields[0], key -> new HashMap<>()).put(fields[1], MappedFile.map(path));
+                }
+            }
+        }
+        this.sources = Collections.unmodifiableList(new ArrayList<>(sourceFiles.keySet()));
+        logger.info("Conservation score store at {} mapped for sources {}", directory, sources);
+    }
+
+    /**
+     * Returns the store for the given directory, mapping its files the first time.
+     *
+     * @param directory directory with the conservation binary files
+     * @return shared store for this directory
+     * @throws IOException if files cannot be mapped
+     */
+    public static synchronized ConservationScoreStore getInstance(Path directory) throws IOException {
+        Path key = directory.toAbsolutePath().normalize();
+        ConservationScoreStore conservationScoreStore = storeMap.get(key);
+        if (conservationScoreStore == null) {
+            conservationScoreStore = new ConservationScoreStore(key);
+            storeMap.put(key, conservationScoreStore);
+        }
+        return conservationScoreStore;
+    }
+
+    public static String getFileName(String source, String chromosome) {
+        return source + "." + chromosome + FILE_SUFFIX;
+    }
+
+    public static char encode(float score) {
+        int stored = Math.round(score * RESOLUTION) + OFFSET;
+        return (char) Math.max(1, Math.min(MAX_STORED_VALUE, stored));
+    }
+
+    /**
+     * @param chromosome chromosome
+     * @return true if any source has scores for this chromosome
+     */
+    public boolean contains(String chromosome) {
+        for (Map<String, MappedFile> chromosomeFiles : sourceFiles.values()) {
+            if (chromosomeFiles.containsKey(chromosome)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return sources available, sorted by name
+     */
+    public List<String> getSources() {
+        return sources;
+    }
+
+    /**
+     * @param source conservation source
+     * @param chromosome chromosome
+     * @param position position
+     * @return score at this position, NaN if there is none
+     */
+    public float getScore(String source, String chromosome, int position) {
+        MappedFile mappedFile = getMappedFile(source, chromosome);
+        return mappedFile != null ? decode(mappedFile.getChar((long) position << 1)) : Float.NaN;
+    }
+
+    /**
+     * @param source conservation source
+     * @param chromosome chromosome
+     * @param start start, inclusive
+     * @param end end, inclusive
+     * @return one score per position in [start, end], NaN for positions with no score
+     */
+    public float[] getScores(String source, String chromosome, int start, int end) {
+        float[] scores = new float[Math.max(0, end - start + 1)];
+        getScores(source, chromosome, start, scores);
+        return scores;
+    }
+
+    /**
+     * Fills the array with the scores of consecutive positions.
+     *
+     * @param source conservation source
+     * @param chromosome chromosome
+     * @param start position of the first score
+     * @param scores array to fill in, NaN for positions with no score
+     * @return number of positions with a score
+     */
+    public int getScores(String source, String chromosome, int start, float[] scores) {
+        MappedFile mappedFile = getMappedFile(source, chromosome);
+        if (mappedFile == null) {
+            Arrays.fill(scores, Float.NaN);
+            return 0;
+        }
+        int numScores = 0;
+        long offset = (long) start << 1;
+        for (int i = 0; i < scores.length; i++, offset += Character.BYTES) {
+            scores[i] = decode(mappedFile.getChar(offset));
+            if (!Float.isNaN(scores[i])) {
+                numScores++;
+            }
+        }
+        return numScores;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    private MappedFile getMappedFile(String source, String chromosome) {
+        Map<String, MappedFile> chromosomeFiles = sourceFiles.get(source);
+        return chromosomeFiles != null ? chromosomeFiles.get(chromosome) : null;
+    }
+
+    private static float decode(char stored) {
+        return stored == 0 ? Float.NaN : (stored - OFFSET) / RESOLUTION;
+    }
+}
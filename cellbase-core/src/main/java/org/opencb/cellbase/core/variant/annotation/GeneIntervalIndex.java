@@ -0,0 +1,220 @@
+/*
+ * Copyright 2015 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.cellbase.core.variant.annotation;
+
+import org.opencb.biodata.models.core.Gene;
+import org.opencb.biodata.models.core.Region;
+import org.opencb.biodata.models.core.Transcript;
+
+import java.util.*;
+
+/**
+ * Per-chromosome interval tree over the genes fetched for an annotation batch, used to find the genes affected by
+ * each variant in O(log n + k) instead of scanning the whole batch gene list.
+ *
+ * Gene coordinates are extended by the flank once at build time. Each chromosome is an implicit augmented interval
+ * tree laid out over int arrays sorted by start: the node at index i has level equal to the number of trailing 1-bits
+ * of i, and maxEnds holds the maximum end of the subtree rooted at each node.
+ *
+ * The index also keeps the spliced sequence and exon offsets of the batch transcripts, so that they are calculated
+ * once per batch rather than once per variant.
+ */
+public class GeneIntervalIndex {
+
+    private static final int LINEAR_SCAN_LEVEL = 3;
+
+    private final List<Gene> geneList;
+    private final Map<String, Tree> treeMap;
+    private final Map<Transcript, SplicedTranscript> splicedTranscriptMap;
+
+    public GeneIntervalIndex(List<Gene> geneList, int flank) {
+        this.geneList = geneList;
+        this.treeMap = new HashMap<>();
+        this.splicedTranscriptMap = new IdentityHashMap<>();
+
+        Map<String, List<Integer>> chromosomeGeneIndexMap = new HashMap<>();
+        for (int i = 0; i < geneList.size(); i++) {
+            chromosomeGeneIndexMap.computeIfAbsent(geneList.get(i).getChromosome(), key -> new ArrayList<>()).add(i);
+        }
+        for (Map.Entry<String, List<Integer>> entry : chromosomeGeneIndexMap.entrySet()) {
+            treeMap.put(entry.getKey(), new Tree(geneList, entry.getValue(), flank));
+        }
+    }
+
+    /**
+     * Genes overlapping any of the regions. Genes are returned in the order of the batch gene list, a gene overlapping
+     * several regions is returned once per region.
+     *
+     * @param regionList regions occupied by the variant
+     * @return affected genes
+     */
+    public List<Gene> getOverlappingGenes(List<Region> regionList) {
+        IntList geneIndexList = new IntList();
+        for (Region region : regionList) {
+            Tree tree = treeMap.get(region.getChromosome());
+            if (tree != null) {
+                tree.overlap(region.getStart(), region.getEnd(), geneIndexList);
+            }
+        }
+
+        int[] geneIndexes = geneIndexList.toArray();
+        Arrays.sort(geneIndexes);
+        List<Gene> overlappingGeneList = new ArrayList<>(geneIndexes.length);
+        for (int geneIndex : geneIndexes) {
+            overlappingGeneList.add(geneList.get(geneIndex));
+        }
+        return overlappingGeneList;
+    }
+
+    /**
+     * @param transcript transcript of one of the batch genes
+     * @return spliced transcript, built the first time it is requested for this batch
+     */
+    public synchronized SplicedTranscript getSplicedTranscript(Transcript transcript) {
+        return splicedTranscriptMap.computeIfAbsent(transcript, SplicedTranscript::new);
+    }
+
+    public List<Gene> getGeneList() {
+        return geneList;
+    }
+
+    private static final class Tree {
+        private final int[] starts;
+        private final int[] ends;
+        private final int[] maxEnds;
+        private final int[] geneIndexes;
+        private final int maxLevel;
+
+        Tree(List<Gene> geneList, List<Integer> geneIndexList, int flank) {
+            int n = geneIndexList.size();
+            Integer[] order = geneIndexList.toArray(new Integer[n]);
+            Arrays.sort(order, Comparator.comparingInt(i -> geneList.get(i).getStart()));
+
+            starts = new int[n];
+            ends = new int[n];
+            maxEnds = new int[n];
+            geneIndexes = new int[n];
+            for (int i = 0; i < n; i++) {
+                Gene gene = geneList.get(order[i]);
+                starts[i] = gene.getStart() - flank;
+                ends[i] = gene.getEnd() + flank;
+                geneIndexes[i] = order[i];
+            }
+            maxLevel = index();
+        }
+
+        /**
+         * Fills in maxEnds bottom-up.
+         *
+         * @return level of the root node
+         */
+        private int index() {
+            int n = starts.length;
+            if (n == 0) {
+                return -1;
+            }
+            int lastIndex = 0;
+            int last = 0;
+            for (int i = 0; i < n; i += 2) {
+                maxEnds[i] = ends[i];
+                last = maxEnds[i];
+                lastIndex = i;
+            }
+            int k = 1;
+            for (; 1 << k <= n; k++) {
+                int x = 1 << (k - 1);
+                int step = x << 2;
+                for (int i = (x << 1) - 1; i < n; i += step) {
+                    int leftMax = maxEnds[i - x];
+                    int rightMax = i + x < n ? maxEnds[i + x] : last;
+                    maxEnds[i] = Math.max(ends[i], Math.max(leftMax, rightMax));
+                }
+                lastIndex = ((lastIndex >> k) & 1) != 0 ? lastIndex - x : lastIndex + x;
+                if (lastIndex < n && maxEnds[lastIndex] > last) {
+                    last = maxEnds[lastIndex];
+                }
+            }
+            return k - 1;
+        }
+
+        /**
+         * Adds to result the gene indexes of all intervals overlapping [start, end], both inclusive.
+         */
+        void overlap(int start, int end, IntList result) {
+            int n = starts.length;
+            if (n == 0) {
+                return;
+            }
+            // Stack entries: level, node index, visited flag
+            int[] stack = new int[3 * 64];
+            int t = 0;
+            stack[t++] = maxLevel;
+            stack[t++] = (1 << maxLevel) - 1;
+            stack[t++] = 0;
+            while (t > 0) {
+                int w = stack[--t];
+                int x = stack[--t];
+                int k = stack[--t];
+                if (k <= LINEAR_SCAN_LEVEL) {
+                    // Small subtree, scan it linearly
+                    int i0 = x >> k << k;
+                    int i1 = Math.min(i0 + (1 << (k + 1)) - 1, n);
+                    for (int i = i0; i < i1 && starts[i] <= end; i++) {
+                        if (ends[i] >= start) {
+                            result.add(geneIndexes[i]);
+                        }
+                    }
+                } else if (w == 0) {
+                    // First visit: come back to this node later, descend to the left child if it may overlap
+                    int y = x - (1 << (k - 1));
+                    stack[t++] = k;
+                    stack[t++] = x;
+                    stack[t++] = 1;
+                    if (y >= n || maxEnds[y] >= start) {
+                        stack[t++] = k - 1;
+                        stack[t++] = y;
+                        stack[t++] = 0;
+                    }
+                } else if (x < n && starts[x] <= end) {
+                    // Left subtree done: check this node and descend to the right child
+                    if (ends[x] >= start) {
+                        result.add(geneIndexes[x]);
+                    }
+                    stack[t++] = k - 1;
+                    stack[t++] = x + (1 << (k - 1));
+                    stack[t++] = 0;
+                }
+            }
+        }
+    }
+
+    private static final class IntList {
+        private int[] values = new int[16];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
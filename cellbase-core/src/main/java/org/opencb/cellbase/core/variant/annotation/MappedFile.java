@@ -0,0 +1,87 @@
+/*
+ * Copyright 2015 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.cellbase.core.variant.annotation;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Read-only memory-mapped file addressed with long offsets. A single MappedByteBuffer cannot exceed 2GB, so files are
+ * mapped in 1GB segments. Reads beyond the end of the file return 0, as holes in sparse files do.
+ */
+final class MappedFile {
+
+    private static final int SEGMENT_SHIFT = 30;
+    private static final long SEGMENT_MASK = (1L << SEGMENT_SHIFT) - 1;
+
+    private final MappedByteBuffer[] segments;
+    private final long size;
+
+    private MappedFile(MappedByteBuffer[] segments, long size) {
+        this.segments = segments;
+        this.size = size;
+    }
+
+    static MappedFile map(Path path) throws IOException {
+        try (FileChannel fileChannel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = fileChannel.size();
+            int numSegments = (int) ((size + SEGMENT_MASK) >>> SEGMENT_SHIFT);
+            MappedByteBuffer[] segments = new MappedByteBuffer[numSegments];
+            for (int i = 0; i < numSegments; i++) {
+                long start = (long) i << SEGMENT_SHIFT;
+                segments[i] = fileChannel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(SEGMENT_MASK + 1, size - start));
+            }
+            return new MappedFile(segments, size);
+        }
+    }
+
+    /**
+     * @param offset byte offset, a multiple of 8 so that values never span two segments
+     * @return the long at this offset
+     */
+    long getLong(long offset) {
+        if (offset < 0 || offset + Long.BYTES > size) {
+            return 0;
+        }
+        return segments[(int) (offset >>> SEGMENT_SHIFT)].getLong((int) (offset & SEGMENT_MASK));
+    }
+
+    /**
+     * @param offset byte offset, a multiple of 2 so that values never span two segments
+     * @return the unsigned short at this offset
+     */
+    char getChar(long offset) {
+        if (offset < 0 || offset + Character.BYTES > size) {
+            return 0;
+        }
+        return segments[(int) (offset >>> SEGMENT_SHIFT)].getChar((int) (offset & SEGMENT_MASK));
+    }
+
+    byte get(long offset) {
+        if (offset < 0 || offset >= size) {
+            return 0;
+        }
+        return segments[(int) (offset >>> SEGMENT_SHIFT)].get((int) (offset & SEGMENT_MASK));
+    }
+
+    long size() {
+        return size;
+    }
+}
@@ -0,0 +1,195 @@
+/*
+ * Copyright 2015 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.cellbase.core.variant.annotation;
+
+import org.opencb.cellbase.core.api.RegulationDBAdaptor;
+import org.opencb.commons.datastore.core.Query;
+import org.opencb.commons.datastore.core.QueryOptions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * In-memory index of the regulatory_region collection answering the two overlap flags needed by the consequence type
+ * calculation (overlaps any regulatory region, overlaps a TF binding site) without querying the database.
+ *
+ * Only coordinates are kept. For each chromosome regions are sorted by start and stored in two int arrays: starts and
+ * the running maximum of the ends. A region [start, end] overlaps some indexed region if, among the regions starting
+ * at or before 'end', the maximum end is at or after 'start', which is a single binary search.
+ */
+public class RegulatoryRegionIndex {
+
+    private static final String TF_BINDING_SITE = RegulationDBAdaptor.FeatureType.TF_binding_site.name();
+    private static final String TF_BINDING_SITE_MOTIF = RegulationDBAdaptor.FeatureType.TF_binding_site_motif.name();
+
+    private static Map<String, RegulatoryRegionIndex> indexMap = new HashMap<>();
+
+    private final Map<String, Intervals> regionIntervals;
+    private final Map<String, Intervals> tfbsIntervals;
+    private long size;
+
+    private static Logger logger = LoggerFactory.getLogger(RegulatoryRegionIndex.class);
+
+    /**
+     * Builds the index from an iterator of regulatory region documents. Each element is expected to be a Map with
+     * 'chromosome', 'start', 'end' and 'featureType' keys, such as the documents returned by nativeIterator.
+     *
+     * @param iterator regulatory region documents
+     */
+    public RegulatoryRegionIndex(Iterator iterator) {
+        Map<String, LongBuffer> regionBuffers = new HashMap<>();
+        Map<String, LongBuffer> tfbsBuffers = new HashMap<>();
+        while (iterator.hasNext()) {
+            Map document = (Map) iterator.next();
+            String chromosome = (String) document.get("chromosome");
+            Object start = document.get("start");
+            Object end = document.get("end");
+            if (chromosome == null || start == null || end == null) {
+                continue;
+            }
+
+            long interval = pack(((Number) start).intValue(), ((Number) end).intValue());
+            regionBuffers.computeIfAbsent(chromosome, key -> new LongBuffer()).add(interval);
+            Object featureType = document.get("featureType");
+            if (TF_BINDING_SITE.equals(featureType) || TF_BINDING_SITE_MOTIF.equals(featureType)) {
+                tfbsBuffers.computeIfAbsent(chromosome, key -> new LongBuffer()).add(interval);
+            }
+            size++;
+        }
+
+        regionIntervals = toIntervals(regionBuffers);
+        tfbsIntervals = toIntervals(tfbsBuffers);
+    }
+
+    /**
+     * Returns the index for the given species and assembly, loading it from the database the first time.
+     *
+     * @param species species
+     * @param assembly assembly
+     * @param regulationDBAdaptor adaptor used to load the regulatory regions
+     * @return shared index for this species and assembly
+     */
+    public static synchronized RegulatoryRegionIndex getInstance(String species, String assembly,
+                                                                 RegulationDBAdaptor regulationDBAdaptor) {
+        String key = species + "_" + assembly;
+        RegulatoryRegionIndex regulatoryRegionIndex = indexMap.get(key);
+        if (regulatoryRegionIndex == null) {
+            long startTime = System.currentTimeMillis();
+            QueryOptions queryOptions = new QueryOptions(QueryOptions.INCLUDE, "chromosome,start,end,featureType");
+            regulatoryRegionIndex = new RegulatoryRegionIndex(regulationDBAdaptor.nativeIterator(new Query(), queryOptions));
+            indexMap.put(key, regulatoryRegionIndex);
+            logger.info("Regulatory region index for {} loaded: {} regions in {}ms", key, regulatoryRegionIndex.size(),
+                    System.currentTimeMillis() - startTime);
+        }
+        return regulatoryRegionIndex;
+    }
+
+    /**
+     * @param chromosome chromosome
+     * @param start start, inclusive
+     * @param end end, inclusive
+     * @return 0: overlaps any regulatory region type; 1: overlaps a transcription factor binding site
+     */
+    public boolean[] getOverlaps(String chromosome, int start, int end) {
+        boolean[] overlapsRegulatoryRegion = {false, false};
+        if (overlaps(regionIntervals.get(chromosome), start, end)) {
+            overlapsRegulatoryRegion[0] = true;
+            overlapsRegulatoryRegion[1] = overlaps(tfbsIntervals.get(chromosome), start, end);
+        }
+        return overlapsRegulatoryRegion;
+    }
+
+    public long size() {
+        return size;
+    }
+
+    private boolean overlaps(Intervals intervals, int start, int end) {
+        if (intervals == null) {
+            return false;
+        }
+        // Number of regions starting at or before 'end'
+        int count = upperBound(intervals.starts, end);
+        return count > 0 && intervals.maxEnds[count - 1] >= start;
+    }
+
+    private static int upperBound(int[] array, int value) {
+        int low = 0;
+        int high = array.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (array[mid] <= value) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static Map<String, Intervals> toIntervals(Map<String, LongBuffer> bufferMap) {
+        Map<String, Intervals> intervalsMap = new HashMap<>();
+        for (Map.Entry<String, LongBuffer> entry : bufferMap.entrySet()) {
+            long[] packed = entry.getValue().toArray();
+            // Coordinates are positive, sorting the packed values sorts by start
+            Arrays.sort(packed);
+            int[] starts = new int[packed.length];
+            int[] maxEnds = new int[packed.length];
+            int maxEnd = Integer.MIN_VALUE;
+            for (int i = 0; i < packed.length; i++) {
+                starts[i] = (int) (packed[i] >>> 32);
+                maxEnd = Math.max(maxEnd, (int) packed[i]);
+                maxEnds[i] = maxEnd;
+            }
+            intervalsMap.put(entry.getKey(), new Intervals(starts, maxEnds));
+        }
+        return intervalsMap;
+    }
+
+    private static long pack(int start, int end) {
+        return ((long) start << 32) | (end & 0xFFFFFFFFL);
+    }
+
+    private static class Intervals {
+        private final int[] starts;
+        private final int[] maxEnds;
+
+        Intervals(int[] starts, int[] maxEnds) {
+            this.starts = starts;
+            this.maxEnds = maxEnds;
+        }
+    }
+
+    private static class LongBuffer {
+        private long[] values = new long[1024];
+        private int size;
+
+        void add(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        long[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
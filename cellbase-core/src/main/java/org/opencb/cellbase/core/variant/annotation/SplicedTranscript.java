@@ -0,0 +1,167 @@
+/*
+ * Copyright 2015 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.cellbase.core.variant.annotation;
+
+import org.opencb.biodata.models.core.Exon;
+import org.opencb.biodata.models.core.Transcript;
+
+import java.util.List;
+
+/**
+ * Spliced sequence and exon offsets of a transcript, calculated once and shared by all the variants of an annotation
+ * batch instead of concatenating the exon sequences for every variant.
+ *
+ * The spliced sequence is the forward strand sequence of all the exons in genomic order, as used by the consequence
+ * type calculators: positions are counted from its start in positive transcripts and from its end in negative ones.
+ * Exons are expected in transcript order, i.e. by increasing start in positive transcripts and by decreasing start in
+ * negative ones, so that genomic to cDNA coordinates are mapped with a binary search over the exon tables.
+ */
+public class SplicedTranscript {
+
+    private final Transcript transcript;
+    private final boolean positiveStrand;
+    private final int[] exonStarts;
+    private final int[] exonEnds;
+    // cDNA length of the exons before each exon, in transcript order
+    private final int[] cdnaOffsets;
+    private String sequence;
+
+    public SplicedTranscript(Transcript transcript) {
+        this.transcript = transcript;
+        this.positiveStrand = !"-".equals(transcript.getStrand());
+
+        List<Exon> exonList = transcript.getExons();
+        this.exonStarts = new int[exonList.size()];
+        this.exonEnds = new int[exonList.size()];
+        this.cdnaOffsets = new int[exonList.size()];
+        int cdnaOffset = 0;
+        for (int i = 0; i < exonList.size(); i++) {
+            exonStarts[i] = exonList.get(i).getStart();
+            exonEnds[i] = exonList.get(i).getEnd();
+            cdnaOffsets[i] = cdnaOffset;
+            cdnaOffset += exonEnds[i] - exonStarts[i] + 1;
+        }
+    }
+
+    /**
+     * @return forward strand sequence of all the exons in genomic order, built the first time it is requested
+     */
+    public String getSequence() {
+        if (sequence == null) {
+            List<Exon> exonList = transcript.getExons();
+            StringBuilder stringBuilder = new StringBuilder(getCdnaLength());
+            if (positiveStrand) {
+                for (Exon exon : exonList) {
+                    stringBuilder.append(exon.getSequence());
+                }
+            } else {
+                for (int i = exonList.size() - 1; i >= 0; i--) {
+                    stringBuilder.append(exonList.get(i).getSequence());
+                }
+            }
+            sequence = stringBuilder.toString();
+        }
+        return sequence;
+    }
+
+    /**
+     * @return sum of the exon lengths
+     */
+    public int getCdnaLength() {
+        int numExons = exonStarts.length;
+        return numExons > 0 ? cdnaOffsets[numExons - 1] + exonEnds[numExons - 1] - exonStarts[numExons - 1] + 1 : 0;
+    }
+
+    /**
+     * @param genomicPosition genomic position
+     * @return index in the transcript exon list of the exon containing the position, -1 if it is not exonic
+     */
+    public int getExonIndex(int genomicPosition) {
+        int i = getNextExonIndex(genomicPosition);
+        return i < exonStarts.length && genomicPosition >= exonStarts[i] && genomicPosition <= exonEnds[i] ? i : -1;
+    }
+
+    /**
+     * cDNA position of a genomic position. Positions outside the exons are measured from the next exon in transcript
+     * order, the one starting the closest downstream the position.
+     *
+     * @param genomicPosition genomic position
+     * @return 1-based cDNA position
+     * @throws IndexOutOfBoundsException if no exon is found downstream the position
+     */
+    public int getCdnaPosition(int genomicPosition) {
+        int i = getNextExonIndex(genomicPosition);
+        if (i >= exonStarts.length) {
+            throw new IndexOutOfBoundsException("Position " + genomicPosition + " after the last exon of "
+                    + transcript.getId());
+        }
+        if (positiveStrand) {
+            return cdnaOffsets[i] + genomicPosition - exonStarts[i] + 1;
+        } else {
+            return cdnaOffsets[i] + exonEnds[i] - genomicPosition + 1;
+        }
+    }
+
+    /**
+     * Exon with the start or end closest to a genomic position. On ties the first exon in transcript order is
+     * returned.
+     *
+     * @param genomicPosition genomic position
+     * @return nearest exon, null if the transcript has no exons
+     */
+    public Exon getNearestExon(int genomicPosition) {
+        if (exonStarts.length == 0) {
+            return null;
+        }
+        // Nearest exon is either the next one in transcript order or the previous one
+        int next = getNextExonIndex(genomicPosition);
+        int nearest = -1;
+        int minDistance = Integer.MAX_VALUE;
+        for (int i = Math.max(0, next - 1); i <= Math.min(exonStarts.length - 1, next); i++) {
+            int distance = Math.min(Math.abs(genomicPosition - exonStarts[i]), Math.abs(genomicPosition - exonEnds[i]));
+            if (distance < minDistance) {
+                minDistance = distance;
+                nearest = i;
+            }
+        }
+        return transcript.getExons().get(nearest);
+    }
+
+    public Transcript getTranscript() {
+        return transcript;
+    }
+
+    /**
+     * @param genomicPosition genomic position
+     * @return index of the first exon in transcript order that ends at or after the position in positive transcripts,
+     * or starts at or before the position in negative ones; the number of exons if there is none
+     */
+    private int getNextExonIndex(int genomicPosition) {
+        int low = 0;
+        int high = exonStarts.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            boolean before = positiveStrand ? exonEnds[mid] < genomicPosition : exonStarts[mid] > genomicPosition;
+            if (before) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
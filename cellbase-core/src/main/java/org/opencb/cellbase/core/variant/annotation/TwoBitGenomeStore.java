@@ -0,0 +1,343 @@
+/*
+ * Copyright 2015 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.cellbase.core.variant.annotation;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Reference genome sequence stored in local memory-mapped 2-bit files, an alternative to the genome_sequence
+ * collection.
+ *
+ * There is one file per chromosome, named chromosome.2bit. The header holds the sequence type and assembly, the
+ * sequence length, the blocks of bases other than A, C, G and T (mostly runs of N) and the blocks of lowercase
+ * (soft-masked) bases. Then the bases follow packed four per byte, first base in the two high bits, A=0, C=1, G=2 and
+ * T=3. Header blocks are kept in the heap, bases are read from the mapped file.
+ */
+public class TwoBitGenomeStore {
+
+    public static final String FILE_SUFFIX = ".2bit";
+
+    private static final int MAGIC = 0x32424954;
+    private static final byte[] BASES = {'A', 'C', 'G', 'T'};
+
+    private static Map<Path, TwoBitGenomeStore> storeMap = new HashMap<>();
+
+    private final Path directory;
+    private final Map<String, Sequence> sequenceMap;
+
+    private static Logger logger = LoggerFactory.getLogger(TwoBitGenomeStore.class);
+
+    public TwoBitGenomeStore(Path directory) throws IOException {
+        this.directory = directory;
+        this.sequenceMap = new HashMap<>();
+
+        try (DirectoryStream<Path> paths = Files.newDirectoryStream(directory, "*" + FILE_SUFFIX)) {
+            for (Path path : paths) {
+                String fileName = path.getFileName().toString();
+                sequenceMap.put(fileName.substring(0, fileName.length() - FILE_SUFFIX.length()), new Sequence(path));
+            }
+        }
+        logger.info("2-bit genome at {} mapped for chromosomes {}", directory, sequenceMap.keySet());
+    }
+
+    /**
+     * Returns the store for the given directory, mapping its files the first time.
+     *
+     * @param directory directory with the 2-bit files
+     * @return shared store for this directory
+     * @throws IOException if files cannot be read
+     */
+    public static synchronized TwoBitGenomeStore getInstance(Path directory) throws IOException {
+        Path key = directory.toAbsolutePath().normalize();
+        TwoBitGenomeStore twoBitGenomeStore = storeMap.get(key);
+        if (twoBitGenomeStore == null) {
+            twoBitGenomeStore = new TwoBitGenomeStore(key);
+            storeMap.put(key, twoBitGenomeStore);
+        }
+        return twoBitGenomeStore;
+    }
+
+    /**
+     * Writes the 2-bit file of one chromosome.
+     *
+     * @param directory output directory
+     * @param chromosome chromosome name
+     * @param sequenceType sequence type, e.g. chromosome
+     * @param assembly assembly name
+     * @param sequence whole chromosome sequence
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(Path directory, String chromosome, String sequenceType, String assembly, CharSequence sequence)
+            throws IOException {
+        int length = sequence.length();
+        List<int[]> blocks = new ArrayList<>();
+        List<Byte> blockBases = new ArrayList<>();
+        List<int[]> maskBlocks = new ArrayList<>();
+        byte[] packed = new byte[(length + 3) / 4];
+
+        for (int i = 0; i < length; i++) {
+            char base = sequence.charAt(i);
+            char upperCaseBase = Character.toUpperCase(base);
+            int code = getCode(upperCaseBase);
+            if (code < 0) {
+                // Runs of the same non ACGT base, e.g. N, are stored as a single block
+                int[] last = blocks.isEmpty() ? null : blocks.get(blocks.size() - 1);
+                if (last != null && last[0] + last[1] == i && blockBases.get(blockBases.size() - 1) == (byte) upperCaseBase) {
+                    last[1]++;
+                } else {
+                    blocks.add(new int[]{i, 1});
+                    blockBases.add((byte) upperCaseBase);
+                }
+                code = 0;
+            }
+            if (base != upperCaseBase) {
+                int[] last = maskBlocks.isEmpty() ? null : maskBlocks.get(maskBlocks.size() - 1);
+                if (last != null && last[0] + last[1] == i) {
+                    last[1]++;
+                } else {
+                    maskBlocks.add(new int[]{i, 1});
+                }
+            }
+            packed[i >> 2] |= code << (6 - 2 * (i & 3));
+        }
+
+        Files.createDirectories(directory);
+        Path path = directory.resolve(chromosome + FILE_SUFFIX);
+        try (DataOutputStream dataOutputStream =
+                     new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+            dataOutputStream.writeInt(MAGIC);
+            dataOutputStream.writeUTF(sequenceType != null ? sequenceType : "");
+            dataOutputStream.writeUTF(assembly != null ? assembly : "");
+            dataOutputStream.writeInt(length);
+            dataOutputStream.writeInt(blocks.size());
+            for (int i = 0; i < blocks.size(); i++) {
+                dataOutputStream.writeInt(blocks.get(i)[0]);
+                dataOutputStream.writeInt(blocks.get(i)[1]);
+                dataOutputStream.writeByte(blockBases.get(i));
+            }
+            dataOutputStream.writeInt(maskBlocks.size());
+            for (int[] maskBlock : maskBlocks) {
+                dataOutputStream.writeInt(maskBlock[0]);
+                dataOutputStream.writeInt(maskBlock[1]);
+            }
+            dataOutputStream.write(packed);
+        }
+    }
+
+    public boolean contains(String chromosome) {
+        return sequenceMap.containsKey(chromosome);
+    }
+
+    /**
+     * @param chromosome chromosome
+     * @return sequence length, -1 if the chromosome is not in the store
+     */
+    public int getLength(String chromosome) {
+        Sequence sequence = sequenceMap.get(chromosome);
+        return sequence != null ? sequence.length : -1;
+    }
+
+    public String getSequenceType(String chromosome) {
+        Sequence sequence = sequenceMap.get(chromosome);
+        return sequence != null ? sequence.sequenceType : null;
+    }
+
+    public String getAssembly(String chromosome) {
+        Sequence sequence = sequenceMap.get(chromosome);
+        return sequence != null ? sequence.assembly : null;
+    }
+
+    /**
+     * @return assemblies written in the headers of the files, empty values are skipped
+     */
+    public Set<String> getAssemblies() {
+        Set<String> assemblies = new TreeSet<>();
+        for (Sequence sequence : sequenceMap.values()) {
+            if (sequence.assembly != null && !sequence.assembly.isEmpty()) {
+                assemblies.add(sequence.assembly);
+            }
+        }
+        return assemblies;
+    }
+
+    /**
+     * @param chromosome chromosome
+     * @param position 1-based position
+     * @return base at this position, 0 if the chromosome or position are not in the store
+     */
+    public char getBase(String chromosome, int position) {
+        Sequence sequence = sequenceMap.get(chromosome);
+        if (sequence == null || position < 1 || position > sequence.length) {
+            return 0;
+        }
+        int index = position - 1;
+        byte base = sequence.getPackedBase(index);
+        int block = findBlock(sequence.blockStarts, index);
+        if (block >= 0 && index < sequence.blockStarts[block] + sequence.blockLengths[block]) {
+            base = sequence.blockBases[block];
+        }
+        int maskBlock = findBlock(sequence.maskStarts, index);
+        if (maskBlock >= 0 && index < sequence.maskStarts[maskBlock] + sequence.maskLengths[maskBlock]) {
+            base = (byte) Character.toLowerCase(base);
+        }
+        return (char) base;
+    }
+
+    /**
+     * @param chromosome chromosome
+     * @param start 1-based start, inclusive
+     * @param end 1-based end, inclusive, truncated to the chromosome length
+     * @return sequence, null if the chromosome is not in the store
+     */
+    public String getSequence(String chromosome, int start, int end) {
+        Sequence sequence = sequenceMap.get(chromosome);
+        if (sequence == null) {
+            return null;
+        }
+        int from = Math.max(0, start - 1);
+        int to = Math.min(sequence.length, end);
+        if (from >= to) {
+            return "";
+        }
+
+        byte[] bases = new byte[to - from];
+        for (int i = from; i < to; i++) {
+            bases[i - from] = sequence.getPackedBase(i);
+        }
+        for (int block = Math.max(0, findBlock(sequence.blockStarts, from));
+             block < sequence.blockStarts.length && sequence.blockStarts[block] < to; block++) {
+            int blockFrom = Math.max(from, sequence.blockStarts[block]);
+            int blockTo = Math.min(to, sequence.blockStarts[block] + sequence.blockLengths[block]);
+            for (int i = blockFrom; i < blockTo; i++) {
+                bases[i - from] = sequence.blockBases[block];
+            }
+        }
+        for (int block = Math.max(0, findBlock(sequence.maskStarts, from));
+             block < sequence.maskStarts.length && sequence.maskStarts[block] < to; block++) {
+            int blockFrom = Math.max(from, sequence.maskStarts[block]);
+            int blockTo = Math.min(to, sequence.maskStarts[block] + sequence.maskLengths[block]);
+            for (int i = blockFrom; i < blockTo; i++) {
+                bases[i - from] = (byte) Character.toLowerCase(bases[i - from]);
+            }
+        }
+        return new String(bases, StandardCharsets.US_ASCII);
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    private static int getCode(char base) {
+        switch (base) {
+            case 'A':
+                return 0;
+            case 'C':
+                return 1;
+            case 'G':
+                return 2;
+            case 'T':
+                return 3;
+            default:
+                return -1;
+        }
+    }
+
+    /**
+     * @param starts sorted block starts
+     * @param index 0-based position
+     * @return index of the last block starting at or before index, -1 if there is none
+     */
+    private static int findBlock(int[] starts, int index) {
+        int low = 0;
+        int high = starts.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (starts[mid] <= index) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low - 1;
+    }
+
+    private static class Sequence {
+        private final String sequenceType;
+        private final String assembly;
+        private final int length;
+        private final int[] blockStarts;
+        private final int[] blockLengths;
+        private final byte[] blockBases;
+        private final int[] maskStarts;
+        private final int[] maskLengths;
+        private final long dataOffset;
+        private final MappedFile mappedFile;
+
+        Sequence(Path path) throws IOException {
+            try (DataInputStream dataInputStream = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+                if (dataInputStream.readInt() != MAGIC) {
+                    throw new IOException("Not a 2-bit genome file: " + path);
+                }
+                sequenceType = dataInputStream.readUTF();
+                assembly = dataInputStream.readUTF();
+                length = dataInputStream.readInt();
+
+                int numBlocks = dataInputStream.readInt();
+                blockStarts = new int[numBlocks];
+                blockLengths = new int[numBlocks];
+                blockBases = new byte[numBlocks];
+                for (int i = 0; i < numBlocks; i++) {
+                    blockStarts[i] = dataInputStream.readInt();
+                    blockLengths[i] = dataInputStream.readInt();
+                    blockBases[i] = dataInputStream.readByte();
+                }
+
+                int numMaskBlocks = dataInputStream.readInt();
+                maskStarts = new int[numMaskBlocks];
+                maskLengths = new int[numMaskBlocks];
+                for (int i = 0; i < numMaskBlocks; i++) {
+                    maskStarts[i] = dataInputStream.readInt();
+                    maskLengths[i] = dataInputStream.readInt();
+                }
+
+                dataOffset = Integer.BYTES + 2 + sequenceType.getBytes(StandardCharsets.UTF_8).length
+                        + 2 + assembly.getBytes(StandardCharsets.UTF_8).length
+                        + Integer.BYTES + Integer.BYTES + numBlocks * (2L * Integer.BYTES + 1)
+                        + Integer.BYTES + numMaskBlocks * (2L * Integer.BYTES);
+            }
+            mappedFile = MappedFile.map(path);
+        }
+
+        byte getPackedBase(int index) {
+            byte packed = mappedFile.get(dataOffset + (index >> 2));
+            return BASES[(packed >> (6 - 2 * (index & 3))) & 3];
+        }
+    }
+}
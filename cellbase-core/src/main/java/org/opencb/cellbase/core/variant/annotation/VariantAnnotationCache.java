@@ -0,0 +1,692 @@
+/*
+ * Copyright 2015 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.cellbase.core.variant.annotation;
+
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.apache.commons.lang3.StringUtils;
+import org.opencb.biodata.models.variant.avro.VariantAnnotation;
+import org.opencb.cellbase.core.config.AnnotationProperties;
+import org.rocksdb.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * Cache of variant annotations shared by all the VariantAnnotationCalculator instances of a species and assembly.
+ *
+ * Keys are built by the calculator from the normalized variant and a hash of the annotation options. There are two
+ * tiers: an in-process one bounded by the size of the serialized annotations, with LRU eviction, and an optional
+ * persistent RocksDB one. Persistent keys are prefixed with the data release and, when the tier outgrows its maximum
+ * size, the expired entries and then any others are deleted until it is back to 90% of that size. The optional time to
+ * live applies to both tiers, counting from the time the annotation was first put. Annotations are kept serialized so
+ * that every hit returns a new object that callers are free to modify. All entries are dropped when the data release
+ * changes, i.e. when the source versions stored in the metadata collection change.
+ */
+public final class VariantAnnotationCache {
+
+    private static final long RELEASE_CHECK_INTERVAL_MS = TimeUnit.MINUTES.toMillis(1);
+    private static final long CREATION_RETRY_INTERVAL_MS = TimeUnit.MINUTES.toMillis(1);
+    private static final byte[] RELEASE_KEY = "__release__".getBytes(StandardCharsets.UTF_8);
+    private static final double PERSISTENT_LOW_WATERMARK = 0.9;
+
+    private static Map<String, VariantAnnotationCache> cacheMap = new HashMap<>();
+    // Time of the last failed creation of each cache, it is not tried again for CREATION_RETRY_INTERVAL_MS
+    private static Map<String, Long> creationFailureMap = new HashMap<>();
+    private static boolean shutdownHookAdded;
+
+    private final long maxWeight;
+    private final long ttlMillis;
+    private final LinkedHashMap<String, CacheEntry> memoryCache;
+    private long weight;
+
+    private final long maxPersistentWeight;
+    // Approximate, entries overwritten are counted twice until the next sweep of the persistent tier
+    private final AtomicLong persistentWeight;
+    // Persistent tier is read and written under the read lock, it is closed under the write lock
+    private final ReadWriteLock persistentLock;
+    private Options options;
+    private WriteOptions writeOptions;
+    private RocksDB rocksDB;
+
+    private final Supplier<String> releaseSupplier;
+    private volatile String release;
+    private volatile long releaseCheckTime;
+
+    private final ObjectReader annotationReader;
+    private final ObjectWriter annotationWriter;
+    private final CacheStats cacheStats;
+
+    private static Logger logger = LoggerFactory.getLogger(VariantAnnotationCache.class);
+
+    private VariantAnnotationCache(long maxWeight, long ttlMillis, Path rocksDBPath, long maxPersistentWeight,
+                                   Supplier<String> releaseSupplier) throws IOException {
+        this.maxWeight = maxWeight;
+        this.ttlMillis = ttlMillis;
+        this.memoryCache = new LinkedHashMap<>(16, 0.75f, true);
+        this.maxPersistentWeight = maxPersistentWeight;
+        this.persistentWeight = new AtomicLong();
+        this.persistentLock = new ReentrantReadWriteLock();
+        this.releaseSupplier = releaseSupplier;
+        this.cacheStats = new CacheStats();
+
+        ObjectMapper jsonObjectMapper = new ObjectMapper();
+        jsonObjectMapper.configure(MapperFeature.REQUIRE_SETTERS_FOR_GETTERS, true);
+        this.annotationReader = jsonObjectMapper.readerFor(VariantAnnotation.class);
+        this.annotationWriter = jsonObjectMapper.writerFor(VariantAnnotation.class);
+
+        String currentRelease = releaseSupplier.get();
+        if (rocksDBPath != null) {
+            RocksDB.loadLibrary();
+            try {
+                Files.createDirectories(rocksDBPath);
+                this.options = new Options().setCreateIfMissing(true);
+                this.writeOptions = new WriteOptions();
+                this.rocksDB = RocksDB.open(options, rocksDBPath.toString());
+            } catch (RocksDBException e) {
+                close();
+                throw new IOException("Cannot open annotation cache at " + rocksDBPath, e);
+            }
+            // Release cannot be read now, e.g. database is down: entries of the last known release are kept
+            byte[] storedRelease = get(RELEASE_KEY);
+            if (currentRelease == null && storedRelease != null) {
+                currentRelease = new String(storedRelease, StandardCharsets.UTF_8);
+            }
+        }
+        this.release = currentRelease != null ? currentRelease : "";
+        this.releaseCheckTime = System.currentTimeMillis();
+        if (rocksDB != null) {
+            // Drops the entries of other releases and the expired ones, and measures the rest
+            sweepPersistentTier(false);
+        }
+        logger.info("Variant annotation cache of {} MB in memory, ttl {} s, persistent tier {} of {} MB, release {}",
+                maxWeight / (1024 * 1024), TimeUnit.MILLISECONDS.toSeconds(ttlMillis), rocksDBPath,
+                maxPersistentWeight / (1024 * 1024), release);
+    }
+
+    /**
+     * Returns the cache of a species and assembly, creating it the first time.
+     *
+     * @param species species
+     * @param assembly assembly
+     * @param annotationProperties cache settings, null or a cache size of 0 disable the cache
+     * @param releaseSupplier returns the current data release, called again every minute to detect new releases
+     * @return shared cache, null if the cache is disabled or cannot be created, creation is tried again a minute
+     * after a failure
+     */
+    public static synchronized VariantAnnotationCache getInstance(String species, String assembly,
+                                                                  AnnotationProperties annotationProperties,
+                                                                  Supplier<String> releaseSupplier) {
+        if (annotationProperties == null || annotationProperties.getCacheSize() <= 0) {
+            return null;
+        }
+        String key = species + "_" + assembly;
+        VariantAnnotationCache variantAnnotationCache = cacheMap.get(key);
+        Long creationFailureTime = creationFailureMap.get(key);
+        if (variantAnnotationCache == null
+                && (creationFailureTime == null || System.currentTimeMillis() - creationFailureTime >= CREATION_RETRY_INTERVAL_MS)) {
+            try {
+                Path rocksDBPath = StringUtils.isNotEmpty(annotationProperties.getCacheDir())
+                        ? Paths.get(annotationProperties.getCacheDir()).resolve(key)
+                        : null;
+                variantAnnotationCache = new VariantAnnotationCache(annotationProperties.getCacheSize() * 1024L * 1024L,
+                        TimeUnit.SECONDS.toMillis(annotationProperties.getCacheTtl()), rocksDBPath,
+                        annotationProperties.getCacheDirSize() * 1024L * 1024L, releaseSupplier);
+                cacheMap.put(key, variantAnnotationCache);
+                creationFailureMap.remove(key);
+                if (rocksDBPath != null && !shutdownHookAdded) {
+                    // RocksDB must be closed for its native handles to be released and its files unlocked
+                    Runtime.getRuntime().addShutdownHook(new Thread(VariantAnnotationCache::closeAll,
+                            "variant-annotation-cache-close"));
+                    shutdownHookAdded = true;
+                }
+            } catch (IOException | RuntimeException e) {
+                logger.error("Variant annotation cache for {} could not be created, annotations will not be cached", key, e);
+                creationFailureMap.put(key, System.currentTimeMillis());
+            }
+        }
+        return variantAnnotationCache;
+    }
+
+    /**
+     * Closes every cache created so far, the next call to getInstance creates them again.
+     */
+    public static synchronized void closeAll() {
+        for (VariantAnnotationCache variantAnnotationCache : cacheMap.values()) {
+            variantAnnotationCache.close();
+        }
+        cacheMap.clear();
+    }
+
+    /**
+     * @return a snapshot of the counters of every cache created so far, by species and assembly
+     */
+    public static synchronized Map<String, CacheStats> getAllCacheStats() {
+        Map<String, CacheStats> cacheStatsMap = new TreeMap<>();
+        for (Map.Entry<String, VariantAnnotationCache> entry : cacheMap.entrySet()) {
+            if (entry.getValue() != null) {
+                cacheStatsMap.put(entry.getKey(), entry.getValue().getCacheStats());
+            }
+        }
+        return cacheStatsMap;
+    }
+
+    /**
+     * @param keys cache keys
+     * @return cached annotation for each key, null for the keys not found
+     */
+    public List<VariantAnnotation> get(List<String> keys) {
+        checkRelease();
+
+        List<byte[]> values = new ArrayList<>(Collections.nCopies(keys.size(), null));
+        List<Integer> persistentPositions = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        synchronized (memoryCache) {
+            for (int i = 0; i < keys.size(); i++) {
+                CacheEntry cacheEntry = memoryCache.get(keys.get(i));
+                if (cacheEntry != null && isExpired(cacheEntry.time, now)) {
+                    removeEntry(keys.get(i));
+                    cacheStats.numExpirations.increment();
+                    cacheEntry = null;
+                }
+                if (cacheEntry != null) {
+                    values.set(i, cacheEntry.value);
+                    cacheStats.numHits.increment();
+                } else {
+                    persistentPositions.add(i);
+                }
+            }
+        }
+
+        if (!persistentPositions.isEmpty()) {
+            getPersistent(keys, persistentPositions, values, now);
+        }
+
+        List<VariantAnnotation> annotations = new ArrayList<>(keys.size());
+        for (byte[] value : values) {
+            VariantAnnotation variantAnnotation = null;
+            if (value != null) {
+                try {
+                    variantAnnotation = annotationReader.readValue(value);
+                } catch (IOException e) {
+                    logger.warn("Corrupted entry in the variant annotation cache: {}", e.getMessage());
+                }
+            }
+            if (variantAnnotation == null) {
+                cacheStats.numMisses.increment();
+            }
+            annotations.add(variantAnnotation);
+        }
+        return annotations;
+    }
+
+    /**
+     * @param keys cache keys
+     * @param annotations annotation for each key
+     */
+    public void put(List<String> keys, List<VariantAnnotation> annotations) {
+        checkRelease();
+
+        long now = System.currentTimeMillis();
+        List<byte[]> values = new ArrayList<>(keys.size());
+        try {
+            for (int i = 0; i < keys.size(); i++) {
+                byte[] value = annotationWriter.writeValueAsBytes(annotations.get(i));
+                putMemory(keys.get(i), value, now);
+                values.add(value);
+                cacheStats.numPuts.increment();
+            }
+        } catch (IOException e) {
+            logger.warn("Error writing the variant annotation cache: {}", e.getMessage());
+            return;
+        }
+        putPersistent(keys, values, now);
+    }
+
+    /**
+     * Drops all the entries of both tiers.
+     */
+    public void invalidate() {
+        synchronized (memoryCache) {
+            memoryCache.clear();
+            weight = 0;
+        }
+        persistentLock.readLock().lock();
+        try {
+            if (rocksDB != null) {
+                clearPersistentTier();
+            }
+        } finally {
+            persistentLock.readLock().unlock();
+        }
+        cacheStats.numInvalidations.increment();
+    }
+
+    /**
+     * Closes the persistent tier and releases its native handles, the in-memory tier keeps working.
+     */
+    public void close() {
+        persistentLock.writeLock().lock();
+        try {
+            if (rocksDB != null) {
+                rocksDB.close();
+                rocksDB = null;
+            }
+            if (writeOptions != null) {
+                writeOptions.dispose();
+                writeOptions = null;
+            }
+            if (options != null) {
+                options.dispose();
+                options = null;
+            }
+        } finally {
+            persistentLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @param value any string
+     * @return MD5 of the string in hexadecimal
+     */
+    static String hash(String value) {
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5").digest(value.getBytes(StandardCharsets.UTF_8));
+            return String.format("%032x", new BigInteger(1, digest));
+        } catch (NoSuchAlgorithmException e) {
+            // Every JVM must support MD5
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public CacheStats getCacheStats() {
+        synchronized (memoryCache) {
+            cacheStats.size = memoryCache.size();
+            cacheStats.weight = weight;
+        }
+        cacheStats.persistentWeight = persistentWeight.get();
+        return cacheStats;
+    }
+
+    public String getRelease() {
+        return release;
+    }
+
+    private void checkRelease() {
+        long now = System.currentTimeMillis();
+        if (now - releaseCheckTime < RELEASE_CHECK_INTERVAL_MS) {
+            return;
+        }
+        synchronized (this) {
+            if (now - releaseCheckTime < RELEASE_CHECK_INTERVAL_MS) {
+                return;
+            }
+            releaseCheckTime = now;
+            // Release cannot be read now, e.g. database is down: entries are kept
+            String currentRelease = releaseSupplier.get();
+            if (currentRelease == null || currentRelease.equals(release)) {
+                return;
+            }
+            logger.info("Data release changed from {} to {}, variant annotation cache invalidated", release,
+                    currentRelease);
+            release = currentRelease;
+        }
+        // Outside the lock, the persistent tier is always locked before this object
+        invalidate();
+    }
+
+    private boolean isExpired(long time, long now) {
+        return ttlMillis > 0 && now - time > ttlMillis;
+    }
+
+    /**
+     * Looks up in the persistent tier the keys not found in memory. Entries found are copied to memory, expired ones
+     * are deleted.
+     */
+    private void getPersistent(List<String> keys, List<Integer> persistentPositions, List<byte[]> values, long now) {
+        persistentLock.readLock().lock();
+        try {
+            if (rocksDB == null) {
+                return;
+            }
+            String keyPrefix = getPersistentKeyPrefix();
+            List<byte[]> persistentKeys = new ArrayList<>(persistentPositions.size());
+            for (int position : persistentPositions) {
+                persistentKeys.add((keyPrefix + keys.get(position)).getBytes(StandardCharsets.UTF_8));
+            }
+            WriteBatch writeBatch = new WriteBatch();
+            try {
+                // multiGet returns the values keyed by the same byte arrays passed in
+                Map<byte[], byte[]> persistentValues = rocksDB.multiGet(persistentKeys);
+                boolean expired = false;
+                for (int i = 0; i < persistentPositions.size(); i++) {
+                    byte[] persistentValue = persistentValues.get(persistentKeys.get(i));
+                    if (persistentValue == null) {
+                        continue;
+                    }
+                    long time = ByteBuffer.wrap(persistentValue).getLong();
+                    if (isExpired(time, now)) {
+                        writeBatch.remove(persistentKeys.get(i));
+                        persistentWeight.addAndGet(-getWeight(persistentKeys.get(i), persistentValue));
+                        cacheStats.numExpirations.increment();
+                        expired = true;
+                    } else {
+                        int position = persistentPositions.get(i);
+                        byte[] value = Arrays.copyOfRange(persistentValue, Long.BYTES, persistentValue.length);
+                        values.set(position, value);
+                        putMemory(keys.get(position), value, time);
+                        cacheStats.numPersistentHits.increment();
+                    }
+                }
+                if (expired) {
+                    rocksDB.write(writeOptions, writeBatch);
+                }
+            } catch (RocksDBException e) {
+                logger.warn("Error reading the variant annotation cache: {}", e.getMessage());
+            } finally {
+                writeBatch.dispose();
+            }
+        } finally {
+            persistentLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Writes the entries to the persistent tier, each value is preceded by the time it was put.
+     */
+    private void putPersistent(List<String> keys, List<byte[]> values, long now) {
+        boolean full = false;
+        persistentLock.readLock().lock();
+        try {
+            if (rocksDB == null) {
+                return;
+            }
+            String keyPrefix = getPersistentKeyPrefix();
+            WriteBatch writeBatch = new WriteBatch();
+            try {
+                long batchWeight = 0;
+                for (int i = 0; i < keys.size(); i++) {
+                    byte[] persistentKey = (keyPrefix + keys.get(i)).getBytes(StandardCharsets.UTF_8);
+                    byte[] persistentValue = ByteBuffer.allocate(Long.BYTES + values.get(i).length)
+                            .putLong(now).put(values.get(i)).array();
+                    writeBatch.put(persistentKey, persistentValue);
+                    batchWeight += getWeight(persistentKey, persistentValue);
+                }
+                rocksDB.write(writeOptions, writeBatch);
+                long totalWeight = persistentWeight.addAndGet(batchWeight);
+                full = maxPersistentWeight > 0 && totalWeight > maxPersistentWeight;
+            } catch (RocksDBException e) {
+                logger.warn("Error writing the variant annotation cache: {}", e.getMessage());
+            } finally {
+                writeBatch.dispose();
+            }
+            if (full) {
+                sweepPersistentTier(true);
+            }
+        } finally {
+            persistentLock.readLock().unlock();
+        }
+    }
+
+    private String getPersistentKeyPrefix() {
+        return release + ":";
+    }
+
+    private void putMemory(String key, byte[] value, long time) {
+        synchronized (memoryCache) {
+            removeEntry(key);
+            memoryCache.put(key, new CacheEntry(value, time));
+            weight += getWeight(key, value);
+
+            // Least recently used entries first
+            Iterator<Map.Entry<String, CacheEntry>> iterator = memoryCache.entrySet().iterator();
+            while (weight > maxWeight && iterator.hasNext()) {
+                Map.Entry<String, CacheEntry> entry = iterator.next();
+                weight -= getWeight(entry.getKey(), entry.getValue().value);
+                iterator.remove();
+                cacheStats.numEvictions.increment();
+            }
+        }
+    }
+
+    private void removeEntry(String key) {
+        CacheEntry cacheEntry = memoryCache.remove(key);
+        if (cacheEntry != null) {
+            weight -= getWeight(key, cacheEntry.value);
+        }
+    }
+
+    private long getWeight(String key, byte[] value) {
+        return 2L * key.length() + value.length;
+    }
+
+    private long getWeight(byte[] key, byte[] value) {
+        return (long) key.length + value.length;
+    }
+
+    private byte[] get(byte[] key) {
+        try {
+            return rocksDB.get(key);
+        } catch (RocksDBException e) {
+            logger.warn("Error reading the variant annotation cache: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private synchronized void clearPersistentTier() {
+        RocksIterator rocksIterator = rocksDB.newIterator();
+        WriteBatch writeBatch = new WriteBatch();
+        try {
+            for (rocksIterator.seekToFirst(); rocksIterator.isValid(); rocksIterator.next()) {
+                writeBatch.remove(rocksIterator.key());
+            }
+            writeBatch.put(RELEASE_KEY, release.getBytes(StandardCharsets.UTF_8));
+            rocksDB.write(writeOptions, writeBatch);
+            persistentWeight.set(0);
+        } catch (RocksDBException e) {
+            logger.warn("Error clearing the variant annotation cache: {}", e.getMessage());
+        } finally {
+            rocksIterator.dispose();
+            writeBatch.dispose();
+        }
+    }
+
+    /**
+     * Deletes the entries of other releases and the expired ones and measures the size of the persistent tier. If it
+     * is still over its maximum size and evict is set, other entries are deleted, in key order, until it is back to
+     * PERSISTENT_LOW_WATERMARK of that size.
+     *
+     * @param evict whether to delete valid entries when the tier is too big
+     */
+    private synchronized void sweepPersistentTier(boolean evict) {
+        byte[] keyPrefix = getPersistentKeyPrefix().getBytes(StandardCharsets.UTF_8);
+        long now = System.currentTimeMillis();
+        long lowWatermark = (long) (maxPersistentWeight * PERSISTENT_LOW_WATERMARK);
+        RocksIterator rocksIterator = rocksDB.newIterator();
+        WriteBatch writeBatch = new WriteBatch();
+        try {
+            long totalWeight = 0;
+            for (rocksIterator.seekToFirst(); rocksIterator.isValid(); rocksIterator.next()) {
+                byte[] key = rocksIterator.key();
+                if (Arrays.equals(key, RELEASE_KEY)) {
+                    continue;
+                }
+                byte[] value = rocksIterator.value();
+                if (!startsWith(key, keyPrefix) || value.length < Long.BYTES) {
+                    writeBatch.remove(key);
+                } else if (isExpired(ByteBuffer.wrap(value).getLong(), now)) {
+                    writeBatch.remove(key);
+                    cacheStats.numExpirations.increment();
+                } else {
+                    totalWeight += getWeight(key, value);
+                }
+            }
+
+            if (evict && maxPersistentWeight > 0 && totalWeight > maxPersistentWeight) {
+                for (rocksIterator.seekToFirst(); rocksIterator.isValid() && totalWeight > lowWatermark;
+                     rocksIterator.next()) {
+                    byte[] key = rocksIterator.key();
+                    byte[] value = rocksIterator.value();
+                    if (startsWith(key, keyPrefix) && value.length >= Long.BYTES && !isExpired(ByteBuffer.wrap(value).getLong(), now)) {
+                        writeBatch.remove(key);
+                        totalWeight -= getWeight(key, value);
+                        cacheStats.numPersistentEvictions.increment();
+                    }
+                }
+            }
+            writeBatch.put(RELEASE_KEY, release.getBytes(StandardCharsets.UTF_8));
+            rocksDB.write(writeOptions, writeBatch);
+            persistentWeight.set(totalWeight);
+        } catch (RocksDBException e) {
+            logger.warn("Error cleaning the variant annotation cache: {}", e.getMessage());
+        } finally {
+            rocksIterator.dispose();
+            writeBatch.dispose();
+        }
+    }
+
+    private static boolean startsWith(byte[] array, byte[] prefix) {
+        if (array.length < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (array[i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static class CacheEntry {
+        private final byte[] value;
+        private final long time;
+
+        CacheEntry(byte[] value, long time) {
+            this.value = value;
+            this.time = time;
+        }
+    }
+
+    public static class CacheStats {
+
+        private final LongAdder numHits = new LongAdder();
+        private final LongAdder numPersistentHits = new LongAdder();
+        private final LongAdder numMisses = new LongAdder();
+        private final LongAdder numPuts = new LongAdder();
+        private final LongAdder numEvictions = new LongAdder();
+        private final LongAdder numPersistentEvictions = new LongAdder();
+        private final LongAdder numExpirations = new LongAdder();
+        private final LongAdder numInvalidations = new LongAdder();
+        private volatile int size;
+        private volatile long weight;
+        private volatile long persistentWeight;
+
+        @Override
+        public String toString() {
+            final StringBuilder sb = new StringBuilder("CacheStats{");
+            sb.append("numHits=").append(getNumHits());
+            sb.append(", numPersistentHits=").append(getNumPersistentHits());
+            sb.append(", numMisses=").append(getNumMisses());
+            sb.append(", numPuts=").append(getNumPuts());
+            sb.append(", numEvictions=").append(getNumEvictions());
+            sb.append(", numPersistentEvictions=").append(getNumPersistentEvictions());
+            sb.append(", numExpirations=").append(getNumExpirations());
+            sb.append(", numInvalidations=").append(getNumInvalidations());
+            sb.append(", size=").append(size);
+            sb.append(", weight=").append(weight);
+            sb.append(", persistentWeight=").append(persistentWeight);
+            sb.append('}');
+            return sb.toString();
+        }
+
+        /**
+         * @return number of keys found in memory
+         */
+        public long getNumHits() {
+            return numHits.sum();
+        }
+
+        /**
+         * @return number of keys not found in memory but found in the persistent tier
+         */
+        public long getNumPersistentHits() {
+            return numPersistentHits.sum();
+        }
+
+        public long getNumMisses() {
+            return numMisses.sum();
+        }
+
+        public long getNumPuts() {
+            return numPuts.sum();
+        }
+
+        public long getNumEvictions() {
+            return numEvictions.sum();
+        }
+
+        public long getNumPersistentEvictions() {
+            return numPersistentEvictions.sum();
+        }
+
+        public long getNumExpirations() {
+            return numExpirations.sum();
+        }
+
+        public long getNumInvalidations() {
+            return numInvalidations.sum();
+        }
+
+        public double getHitRatio() {
+            long numRequests = getNumHits() + getNumPersistentHits() + getNumMisses();
+            return numRequests > 0 ? (getNumHits() + getNumPersistentHits()) / (double) numRequests : 0;
+        }
+
+        public int getSize() {
+            return size;
+        }
+
+        public long getWeight() {
+            return weight;
+        }
+
+        /**
+         * @return approximate size in bytes of the keys and values in the persistent tier
+         */
+        public long getPersistentWeight() {
+            return persistentWeight;
+        }
+    }
+}
@@ -21,11 +21,11 @@ import org.opencb.biodata.models.core.Gene;
 import org.opencb.biodata.models.core.Region;
 import org.opencb.biodata.models.core.RegulatoryFeature;
 import org.opencb.biodata.models.variant.Variant;
-import org.opencb.biodata.models.variant.annotation.ConsequenceTypeMappings;
 import org.opencb.biodata.models.variant.avro.*;
 import org.opencb.biodata.tools.variant.VariantNormalizer;
 import org.opencb.biodata.tools.variant.exceptions.VariantNormalizerException;
 import org.opencb.cellbase.core.api.*;
+import org.opencb.cellbase.core.config.AnnotationProperties;
 import org.opencb.cellbase.core.variant.annotation.hgvs.HgvsCalculator;
 import org.opencb.commons.datastore.core.Query;
 import org.opencb.commons.datastore.core.QueryOptions;
@@ -35,6 +35,7 @@ import org.slf4j.LoggerFactory;
 
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.function.Supplier;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -71,6 +72,9 @@ public class VariantAnnotationCalculator {
     private String includeGeneFields;
 
     private DBAdaptorFactory dbAdaptorFactory;
+    private AnnotationExecutor annotationExecutor;
+    private RegulatoryRegionIndex regulatoryRegionIndex;
+    private VariantAnnotationCache variantAnnotationCache;
     //    private ObjectMapper geneObjectMapper;
     private final VariantNormalizer normalizer;
     private boolean normalize = false;
@@ -82,12 +86,18 @@ public class VariantAnnotationCalculator {
 
     private static Logger logger = LoggerFactory.getLogger(VariantAnnotationCalculator.class);
     private static HgvsCalculator hgvsCalculator;
+    // Calculators keep the variant being annotated in their fields and are not thread safe. Each thread reuses one
+    // instance of each calculator type for all the requests, see ConsequenceTypeCalculator.acquire/release
+    private static final ThreadLocal<Map<Class<? extends ConsequenceTypeCalculator>, ConsequenceTypeCalculator>>
+            CONSEQUENCE_TYPE_CALCULATORS = ThreadLocal.withInitial(HashMap::new);
 
     private static final String REGULATORY_REGION_FEATURE_TYPE_ATTRIBUTE = "featureType";
     private static final String TF_BINDING_SITE = RegulationDBAdaptor.FeatureType.TF_binding_site.name() + ","
             + RegulationDBAdaptor.FeatureType.TF_binding_site_motif;
     private static final String REGION = "region";
     private static final String MERGE = "merge";
+    // Genes within this distance of a variant are considered affected (upstream/downstream consequence types)
+    private static final int GENE_FLANK = 5000;
 
 //    public VariantAnnotationCalculator(String species, String assembly, MongoDataStore mongoDataStore) {
 ////        super(species, assembly, mongoDataStore);
@@ -116,6 +126,19 @@ public class VariantAnnotationCalculator {
         this.clinicalDBAdaptor = dbAdaptorFactory.getClinicalDBAdaptor(species, assembly);
         this.repeatsDBAdaptor = dbAdaptorFactory.getRepeatsDBAdaptor(species, assembly);
 
+        AnnotationProperties annotationProperties = dbAdaptorFactory.getCellBaseConfiguration() != null
+                ? dbAdaptorFactory.getCellBaseConfiguration().getAnnotation()
+                : null;
+        // Asynchronous annotators run in a pool shared by all calculators rather than in one pool per batch
+        this.annotationExecutor = AnnotationExecutor.getInstance(annotationProperties);
+        // Regulatory overlaps answered from memory, loaded once per species and assembly
+        if (annotationProperties != null && annotationProperties.isRegulatoryRegionIndex()) {
+            this.regulatoryRegionIndex = RegulatoryRegionIndex.getInstance(species, assembly, regulationDBAdaptor);
+        }
+        // Annotations already calculated with the same options are reused until the data release changes
+        this.variantAnnotationCache = VariantAnnotationCache.getInstance(species, assembly, annotationProperties,
+                () -> getDataRelease(dbAdaptorFactory.getMetaDBAdaptor(species, assembly)));
+
          hgvsCalculator = new HgvsCalculator(genomeDBAdaptor);
 
         logger.debug("VariantAnnotationMongoDBAdaptor: in 'constructor'");
@@ -134,10 +157,11 @@ public class VariantAnnotationCalculator {
 
         parseQueryParam(queryOptions);
         List<Gene> batchGeneList = getBatchGeneList(Collections.singletonList(variant));
-        List<Gene> geneList = getAffectedGenes(batchGeneList, variant);
+        GeneIntervalIndex batchGeneIndex = new GeneIntervalIndex(batchGeneList, GENE_FLANK);
+        List<Gene> geneList = getAffectedGenes(batchGeneIndex, variant);
 
         // TODO the last 'true' parameter needs to be changed by annotatorSet.contains("regulatory") once is ready
-        List<ConsequenceType> consequenceTypeList = getConsequenceTypeList(variant, geneList, true,
+        List<ConsequenceType> consequenceTypeList = getConsequenceTypeList(variant, geneList, batchGeneIndex, true,
                 queryOptions);
 
         QueryResult queryResult = new QueryResult();
@@ -175,15 +199,124 @@ public class VariantAnnotationCalculator {
 
         // Object to be returned
         List<QueryResult<VariantAnnotation>> variantAnnotationResultList;
+        if (variantAnnotationCache != null) {
+            variantAnnotationResultList = getAnnotationCacheFirst(normalizedVariantList, queryOptions);
+        } else {
+            variantAnnotationResultList = annotate(normalizedVariantList);
+        }
+
+        return variantAnnotationResultList;
+    }
+
+    private List<QueryResult<VariantAnnotation>> annotate(List<Variant> variantList)
+            throws InterruptedException, ExecutionException {
         if (useCache) {
-            variantAnnotationResultList = getCachedPreferredAnnotation(normalizedVariantList);
+            return getCachedPreferredAnnotation(variantList);
         } else {
-            variantAnnotationResultList = runAnnotationProcess(normalizedVariantList);
+            return runAnnotationProcess(variantList);
+        }
+    }
+
+    private List<QueryResult<VariantAnnotation>> getAnnotationCacheFirst(List<Variant> variantList,
+                                                                         QueryOptions queryOptions)
+            throws InterruptedException, ExecutionException {
+        String annotationOptionsHash = getAnnotationOptionsHash(queryOptions);
+
+        // Variants already carrying an annotation, structural variants and phased variants are always annotated
+        List<Integer> cachedPositions = new ArrayList<>(variantList.size());
+        List<String> cachedKeys = new ArrayList<>(variantList.size());
+        List<Integer> mustRunAnnotationPositions = new ArrayList<>();
+        List<Variant> mustRunAnnotation = new ArrayList<>();
+        List<String> mustRunAnnotationKeys = new ArrayList<>();
+        for (int i = 0; i < variantList.size(); i++) {
+            Variant variant = variantList.get(i);
+            if (variant.getAnnotation() == null && variant.getSv() == null && !(phased && isPhased(variant))) {
+                cachedPositions.add(i);
+                cachedKeys.add(VariantAnnotationUtils.buildVariantId(variant.getChromosome(), variant.getStart(),
+                        variant.getReference(), variant.getAlternate()) + ":" + annotationOptionsHash);
+            } else {
+                mustRunAnnotationPositions.add(i);
+                mustRunAnnotation.add(variant);
+                mustRunAnnotationKeys.add(null);
+            }
+        }
+
+        List<QueryResult<VariantAnnotation>> variantAnnotationResultList =
+                Arrays.asList(new QueryResult[variantList.size()]);
+        List<VariantAnnotation> cachedAnnotations = variantAnnotationCache.get(cachedKeys);
+        for (int i = 0; i < cachedPositions.size(); i++) {
+            Variant variant = variantList.get(cachedPositions.get(i));
+            VariantAnnotation variantAnnotation = cachedAnnotations.get(i);
+            if (variantAnnotation != null) {
+                variant.setAnnotation(variantAnnotation);
+                variantAnnotationResultList.set(cachedPositions.get(i), new QueryResult<>(variant.toString(), 0, 1, 1,
+                        null, null, Collections.singletonList(variantAnnotation)));
+            } else {
+                mustRunAnnotationPositions.add(cachedPositions.get(i));
+                mustRunAnnotation.add(variant);
+                mustRunAnnotationKeys.add(cachedKeys.get(i));
+            }
+        }
+
+        if (mustRunAnnotation.size() > 0) {
+            List<QueryResult<VariantAnnotation>> uncachedAnnotations = annotate(mustRunAnnotation);
+            List<String> newKeys = new ArrayList<>(mustRunAnnotation.size());
+            List<VariantAnnotation> newAnnotations = new ArrayList<>(mustRunAnnotation.size());
+            for (int i = 0; i < mustRunAnnotation.size(); i++) {
+                QueryResult<VariantAnnotation> queryResult = uncachedAnnotations.get(i);
+                variantAnnotationResultList.set(mustRunAnnotationPositions.get(i), queryResult);
+                if (mustRunAnnotationKeys.get(i) != null && queryResult.getNumResults() == 1) {
+                    newKeys.add(mustRunAnnotationKeys.get(i));
+                    newAnnotations.add(queryResult.first());
+                }
+            }
+            variantAnnotationCache.put(newKeys, newAnnotations);
         }
 
+        logger.debug("{}/{} variants annotated from the annotation cache", variantList.size() - mustRunAnnotation.size(),
+                variantList.size());
         return variantAnnotationResultList;
     }
 
+    /**
+     * Everything but the variant itself that changes the annotation is part of the cache key.
+     */
+    private String getAnnotationOptionsHash(QueryOptions queryOptions) {
+        StringBuilder stringBuilder = new StringBuilder();
+        stringBuilder.append(new TreeSet<>(annotatorSet))
+                .append(";include=").append(queryOptions.getString("include"))
+                .append(";exclude=").append(queryOptions.getString("exclude"))
+                .append(";useCache=").append(useCache)
+                .append(";phased=").append(phased)
+                .append(";imprecise=").append(imprecise)
+                .append(";svExtraPadding=").append(svExtraPadding)
+                .append(";cnvExtraPadding=").append(cnvExtraPadding);
+        return VariantAnnotationCache.hash(stringBuilder.toString());
+    }
+
+    /**
+     * Data release is identified by the source versions stored in the metadata collection.
+     */
+    private static String getDataRelease(CellBaseDBAdaptor metaDBAdaptor) {
+        if (metaDBAdaptor == null) {
+            return null;
+        }
+        try {
+            QueryResult queryResult = metaDBAdaptor.nativeGet(new Query(), new QueryOptions());
+            List<String> sources = new ArrayList<>();
+            if (queryResult != null && queryResult.getResult() != null) {
+                for (Object source : queryResult.getResult()) {
+                    sources.add(String.valueOf(source));
+                }
+            }
+            Collections.sort(sources);
+            return VariantAnnotationCache.hash(sources.toString());
+        } catch (RuntimeException e) {
+            logger.warn("Data release could not be read from the metadata collection: {}", e.getMessage());
+            return null;
+        }
+    }
+
     private List<QueryResult<VariantAnnotation>> getCachedPreferredAnnotation(List<Variant> variantList)
             throws InterruptedException, ExecutionException {
 
@@ -223,7 +356,7 @@ public class VariantAnnotationCalculator {
                 Arrays.asList(new QueryResult[variantList.size()]);
 
         // Gene annotation is always generated on-the-fly. Get genes overlapping with the batch of variants
-        List<Gene> batchGeneList = getBatchGeneList(variantList);
+        GeneIntervalIndex batchGeneIndex = new GeneIntervalIndex(getBatchGeneList(variantList), GENE_FLANK);
 
         // mustSearchVariation and variationQueryResultList do have same size, same order
         for (int i = 0; i < mustSearchVariation.size(); i++) {
@@ -267,7 +400,7 @@ public class VariantAnnotationCalculator {
                     variantAnnotation = mustSearchVariation.get(i).getAnnotation();
                     mergeAnnotation(variantAnnotation, cacheVariant.getAnnotation());
                 }
-                setGeneAnnotation(batchGeneList, mustSearchVariation.get(i));
+                setGeneAnnotation(batchGeneIndex, mustSearchVariation.get(i));
                 variantAnnotationResultList.set(mustSearchVariationPositions.get(i),
                         new QueryResult<>(mustSearchVariation.get(i).toString(),
                         variationQueryResultList.get(i).getDbTime(), 1, 1, null, null,
@@ -300,9 +433,9 @@ public class VariantAnnotationCalculator {
         return variantQueryResult.first();
     }
 
-    private List<Gene> setGeneAnnotation(List<Gene> batchGeneList, Variant variant) {
+    private List<Gene> setGeneAnnotation(GeneIntervalIndex batchGeneIndex, Variant variant) {
         // Fetch overlapping genes for this variant
-        List<Gene> geneList = getAffectedGenes(batchGeneList, variant);
+        List<Gene> geneList = getAffectedGenes(batchGeneIndex, variant);
         VariantAnnotation variantAnnotation = variant.getAnnotation();
 
         /*
@@ -390,8 +523,8 @@ public class VariantAnnotationCalculator {
         /*
          * Next three async blocks calculate annotations using Futures, this will be calculated in a different thread.
          * Once the main loop has finished then they will be stored. This provides a ~30% of performance improvement.
+         * Futures are run by the process-wide AnnotationExecutor.
          */
-        ExecutorService fixedThreadPool = Executors.newFixedThreadPool(5);
         FutureVariationAnnotator futureVariationAnnotator = null;
         Future<List<QueryResult<Variant>>> variationFuture = null;
 
@@ -402,42 +535,42 @@ public class VariantAnnotationCalculator {
             futureVariationAnnotator = new FutureVariationAnnotator(normalizedVariantList, new QueryOptions("include",
                     "id,annotation.populationFrequencies,annotation.additionalAttributes.dgvSpecificAttributes")
                     .append("imprecise", imprecise));
-            variationFuture = fixedThreadPool.submit(futureVariationAnnotator);
+            variationFuture = annotationExecutor.submit("variation", futureVariationAnnotator);
         }
 
         FutureConservationAnnotator futureConservationAnnotator = null;
         Future<List<QueryResult>> conservationFuture = null;
         if (annotatorSet.contains("conservation")) {
             futureConservationAnnotator = new FutureConservationAnnotator(normalizedVariantList, QueryOptions.empty());
-            conservationFuture = fixedThreadPool.submit(futureConservationAnnotator);
+            conservationFuture = annotationExecutor.submit("conservation", futureConservationAnnotator);
         }
 
         FutureVariantFunctionalScoreAnnotator futureVariantFunctionalScoreAnnotator = null;
         Future<List<QueryResult<Score>>> variantFunctionalScoreFuture = null;
         if (annotatorSet.contains("functionalScore")) {
             futureVariantFunctionalScoreAnnotator = new FutureVariantFunctionalScoreAnnotator(normalizedVariantList, QueryOptions.empty());
-            variantFunctionalScoreFuture = fixedThreadPool.submit(futureVariantFunctionalScoreAnnotator);
+            variantFunctionalScoreFuture = annotationExecutor.submit("functionalScore", futureVariantFunctionalScoreAnnotator);
         }
 
         FutureClinicalAnnotator futureClinicalAnnotator = null;
         Future<List<QueryResult<Variant>>> clinicalFuture = null;
         if (annotatorSet.contains("clinical")) {
             futureClinicalAnnotator = new FutureClinicalAnnotator(normalizedVariantList, QueryOptions.empty());
-            clinicalFuture = fixedThreadPool.submit(futureClinicalAnnotator);
+            clinicalFuture = annotationExecutor.submit("clinical", futureClinicalAnnotator);
         }
 
         FutureRepeatsAnnotator futureRepeatsAnnotator = null;
         Future<List<QueryResult<Repeat>>> repeatsFuture = null;
         if (annotatorSet.contains("repeats")) {
             futureRepeatsAnnotator = new FutureRepeatsAnnotator(normalizedVariantList, QueryOptions.empty());
-            repeatsFuture = fixedThreadPool.submit(futureRepeatsAnnotator);
+            repeatsFuture = annotationExecutor.submit("repeats", futureRepeatsAnnotator);
         }
 
         FutureCytobandAnnotator futureCytobandAnnotator = null;
         Future<List<QueryResult<Cytoband>>> cytobandFuture = null;
         if (annotatorSet.contains("cytoband")) {
             futureCytobandAnnotator = new FutureCytobandAnnotator(normalizedVariantList, QueryOptions.empty());
-            cytobandFuture = fixedThreadPool.submit(futureCytobandAnnotator);
+            cytobandFuture = annotationExecutor.submit("cytoband", futureCytobandAnnotator);
         }
 
 //        FutureHgvsAnnotator futureHgvsAnnotator = null;
@@ -450,8 +583,18 @@ public class VariantAnnotationCalculator {
         /*
          * We iterate over all variants to get the rest of the annotations and to create the VariantAnnotation objects
          */
+        // Synchronous annotators are timed per variant and registered in AnnotatorMetrics once the batch is over
+        long geneTime = System.nanoTime();
         List<Gene> batchGeneList = getBatchGeneList(normalizedVariantList);
+        GeneIntervalIndex batchGeneIndex = new GeneIntervalIndex(batchGeneList, GENE_FLANK);
+        geneTime = System.nanoTime() - geneTime;
+        long hgvsTime = 0;
+        long consequenceTypeTime = 0;
+        long variantTime;
         Queue<Variant> variantBuffer = new LinkedList<>();
+        // Protein annotation of non-synonymous SNVs is fetched in one go once the main loop is over. Phased
+        // adjustments need it within the loop, in that case it is fetched per variant.
+        List<ConsequenceType> proteinAnnotationPendingList = phased ? null : new ArrayList<>();
         startTime = System.currentTimeMillis();
         for (int i = 0; i < normalizedVariantList.size(); i++) {
             // normalizedVariantList is the passed by reference argument - modifying normalizedVariantList will
@@ -470,7 +613,9 @@ public class VariantAnnotationCalculator {
             variantAnnotation.setReference(normalizedVariantList.get(i).getReference());
             variantAnnotation.setAlternate(normalizedVariantList.get(i).getAlternate());
 
-            List<Gene> variantGeneList = setGeneAnnotation(batchGeneList, normalizedVariantList.get(i));
+            variantTime = System.nanoTime();
+            List<Gene> variantGeneList = setGeneAnnotation(batchGeneIndex, normalizedVariantList.get(i));
+            geneTime += System.nanoTime() - variantTime;
 
             // Better not run hgvs calculation with a Future for the following reasons:
             //   * geneList is needed in order to calculate the hgvs for ALL VARIANTS
@@ -483,6 +628,7 @@ public class VariantAnnotationCalculator {
             // Given that the number of indels is expected to be negligible if compared to the number of SNVs, the
             // decision is to run it synchronously
             if (annotatorSet.contains("hgvs")) {
+                variantTime = System.nanoTime();
                 try {
                     // Decided to always set normalize = false for a number of reasons:
                     //   * was raising problems with the normalizer - it could potentially fail in weird multiallelic
@@ -500,17 +646,20 @@ public class VariantAnnotationCalculator {
                     //     a typical user would expect for the deletion of the T (which is what it is). Thus, we don't
                     //     really care that much at this point if the hgvs is not perfectly normalized. Knowing that
                     //     variants are not normalized the user should always select normalize=true.
-                    variantAnnotation.setHgvs(hgvsCalculator.run(normalizedVariantList.get(i), variantGeneList, false));
+                    variantAnnotation.setHgvs(hgvsCalculator.run(normalizedVariantList.get(i), variantGeneList, false,
+                            batchGeneIndex::getSplicedTranscript));
                 } catch (VariantNormalizerException e) {
                     logger.error("Unable to normalize variant {}. Leaving empty HGVS.",
                             normalizedVariantList.get(i).toString());
                 }
+                hgvsTime += System.nanoTime() - variantTime;
             }
 
             if (annotatorSet.contains("consequenceType")) {
+                variantTime = System.nanoTime();
                 try {
                     List<ConsequenceType> consequenceTypeList = getConsequenceTypeList(normalizedVariantList.get(i),
-                        variantGeneList, true, QueryOptions.empty());
+                        variantGeneList, batchGeneIndex, true, QueryOptions.empty(), proteinAnnotationPendingList);
                     variantAnnotation.setConsequenceTypes(consequenceTypeList);
                     if (phased) {
                         checkAndAdjustPhasedConsequenceTypes(normalizedVariantList.get(i), variantBuffer);
@@ -529,6 +678,7 @@ public class VariantAnnotationCalculator {
                     variantAnnotation.setConsequenceTypes(Collections.emptyList());
 //                    throw e;
                 }
+                consequenceTypeTime += System.nanoTime() - variantTime;
             }
 
             QueryResult queryResult = new QueryResult(normalizedVariantList.get(i).toString());
@@ -547,6 +697,23 @@ public class VariantAnnotationCalculator {
             adjustPhasedConsequenceTypes(variantBuffer.toArray());
         }
 
+        int numProteinDbCalls = 0;
+        if (proteinAnnotationPendingList != null && !proteinAnnotationPendingList.isEmpty()) {
+            variantTime = System.nanoTime();
+            setProteinAnnotation(proteinAnnotationPendingList);
+            consequenceTypeTime += System.nanoTime() - variantTime;
+            numProteinDbCalls = 1;
+        }
+
+        AnnotatorMetrics.get("gene").register(geneTime, normalizedVariantList.size(), 1, batchGeneList.size());
+        if (annotatorSet.contains("hgvs")) {
+            AnnotatorMetrics.get("hgvs").register(hgvsTime, normalizedVariantList.size(), 0, 0);
+        }
+        if (annotatorSet.contains("consequenceType")) {
+            AnnotatorMetrics.get("consequenceType").register(consequenceTypeTime, normalizedVariantList.size(),
+                    numProteinDbCalls, 0);
+        }
+
         logger.debug("Main loop iteration annotation performance is {}ms for {} variants", System.currentTimeMillis()
                 - startTime, normalizedVariantList.size());
 
@@ -575,20 +742,28 @@ public class VariantAnnotationCalculator {
 //        if (futureHgvsAnnotator != null) {
 //            futureHgvsAnnotator.processResults(hgvsFuture, variantAnnotationResultList);
 //        }
-        fixedThreadPool.shutdown();
-
 
         logger.debug("Total batch annotation performance is {}ms for {} variants", System.currentTimeMillis()
                 - globalStartTime, normalizedVariantList.size());
         return variantAnnotationResultList;
     }
 
+    private long countResults(List<? extends QueryResult> queryResultList) {
+        long numResults = 0;
+        if (queryResultList != null) {
+            for (QueryResult queryResult : queryResultList) {
+                numResults += queryResult.getNumResults();
+            }
+        }
+        return numResults;
+    }
+
     private List<Gene> getBatchGeneList(List<Variant> variantList) {
         List<Region> regionList = variantListToRegionList(variantList);
         // Add +-5Kb for gene search
         for (Region region : regionList) {
-            region.setStart(Math.max(1, region.getStart() - 5000));
-            region.setEnd(region.getEnd() + 5000);
+            region.setStart(Math.max(1, region.getStart() - GENE_FLANK));
+            region.setEnd(region.getEnd() + GENE_FLANK);
         }
 
         // Just return required fields
@@ -929,7 +1104,7 @@ public class VariantAnnotationCalculator {
             newSoName = VariantAnnotationUtils.MISSENSE_VARIANT;
         }
         sequenceOntologyTermList
-                .add(new SequenceOntologyTerm(ConsequenceTypeMappings.getSoAccessionString(newSoName), newSoName));
+                .add(VariantAnnotationUtils.getSequenceOntologyTerm(newSoName));
 
         return sequenceOntologyTermList;
     }
@@ -1016,17 +1191,9 @@ public class VariantAnnotationCalculator {
         return includeGeneFields;
     }
 
-    private List<Gene> getAffectedGenes(List<Gene> batchGeneList, Variant variant) {
-        List<Gene> geneList = new ArrayList<>(batchGeneList.size());
-        for (Gene gene : batchGeneList) {
-            for (Region region : variantToRegionList(variant)) {
-                if (region.getChromosome().equals(gene.getChromosome()) && gene.getStart() <= (region.getEnd() + 5000)
-                        && gene.getEnd() >= Math.max(1, region.getStart() - 5000)) {
-                    geneList.add(gene);
-                }
-            }
-        }
-        return geneList;
+    private List<Gene> getAffectedGenes(GeneIntervalIndex batchGeneIndex, Variant variant) {
+        // Genes are indexed with the GENE_FLANK already added to their coordinates
+        return batchGeneIndex.getOverlappingGenes(variantToRegionList(variant));
     }
 
     private List<Gene> getGenesInRange(String chromosome, int start, int end, String includeFields) {
@@ -1064,35 +1231,64 @@ public class VariantAnnotationCalculator {
         return null;
     }
 
+    private void setProteinAnnotation(List<ConsequenceType> consequenceTypeList) {
+        List<QueryResult<ProteinVariantAnnotation>> queryResultList
+                = proteinDBAdaptor.getVariantAnnotation(consequenceTypeList, new QueryOptions());
+        for (int i = 0; i < consequenceTypeList.size(); i++) {
+            QueryResult<ProteinVariantAnnotation> queryResult = queryResultList.get(i);
+            consequenceTypeList.get(i).setProteinVariantAnnotation(queryResult.getNumResults() > 0
+                    ? queryResult.getResult().get(0)
+                    : null);
+        }
+    }
+
     private ConsequenceTypeCalculator getConsequenceTypeCalculator(Variant variant) throws UnsupportedURLVariantFormat {
         switch (VariantAnnotationUtils.getVariantType(variant)) {
             case SNV:
-                return new ConsequenceTypeSNVCalculator();
+                return getConsequenceTypeCalculator(ConsequenceTypeSNVCalculator.class, ConsequenceTypeSNVCalculator::new);
             case INSERTION:
-                return new ConsequenceTypeInsertionCalculator(genomeDBAdaptor);
+                return getConsequenceTypeCalculator(ConsequenceTypeInsertionCalculator.class,
+                        () -> new ConsequenceTypeInsertionCalculator(genomeDBAdaptor));
             case DELETION:
-                return new ConsequenceTypeDeletionCalculator(genomeDBAdaptor);
+                return getConsequenceTypeCalculator(ConsequenceTypeDeletionCalculator.class,
+                        () -> new ConsequenceTypeDeletionCalculator(genomeDBAdaptor));
             case MNV:
-                return new ConsequenceTypeMNVCalculator(genomeDBAdaptor);
+                return getConsequenceTypeCalculator(ConsequenceTypeMNVCalculator.class,
+                        () -> new ConsequenceTypeMNVCalculator(genomeDBAdaptor));
             case CNV:
                 if (variant.getSv().getCopyNumber() == null) {
-                    return new ConsequenceTypeGenericRegionCalculator();
+                    return getConsequenceTypeCalculator(ConsequenceTypeGenericRegionCalculator.class,
+                            ConsequenceTypeGenericRegionCalculator::new);
                 } else if (variant.getSv().getCopyNumber() > 2) {
-                    return new ConsequenceTypeCNVGainCalculator();
+                    return getConsequenceTypeCalculator(ConsequenceTypeCNVGainCalculator.class,
+                            ConsequenceTypeCNVGainCalculator::new);
                 } else {
-                    return new ConsequenceTypeDeletionCalculator(genomeDBAdaptor);
+                    return getConsequenceTypeCalculator(ConsequenceTypeDeletionCalculator.class,
+                            () -> new ConsequenceTypeDeletionCalculator(genomeDBAdaptor));
                 }
             case DUPLICATION:
-                return new ConsequenceTypeCNVGainCalculator();
+                return getConsequenceTypeCalculator(ConsequenceTypeCNVGainCalculator.class,
+                        ConsequenceTypeCNVGainCalculator::new);
             case INVERSION:
-                return new ConsequenceTypeGenericRegionCalculator();
+                return getConsequenceTypeCalculator(ConsequenceTypeGenericRegionCalculator.class,
+                        ConsequenceTypeGenericRegionCalculator::new);
             case BREAKEND:
-                return new ConsequenceTypeBNDCalculator();
+                return getConsequenceTypeCalculator(ConsequenceTypeBNDCalculator.class, ConsequenceTypeBNDCalculator::new);
             default:
                 throw new UnsupportedURLVariantFormat();
         }
     }
 
+    /**
+     * Takes the calculator of the given type from the pool of the current thread and prepares it for this request.
+     * Callers must release it once the variant is annotated.
+     */
+    private ConsequenceTypeCalculator getConsequenceTypeCalculator(Class<? extends ConsequenceTypeCalculator> calculatorClass,
+                                                                   Supplier<ConsequenceTypeCalculator> calculatorSupplier) {
+        return CONSEQUENCE_TYPE_CALCULATORS.get().computeIfAbsent(calculatorClass, key -> calculatorSupplier.get())
+                .acquire(genomeDBAdaptor);
+    }
+
 //    private VariantType getVariantType(Variant variant) throws UnsupportedURLVariantFormat {
 //        if (variant.getType() == null) {
 //            variant.setType(Variant.inferType(variant.getReference(), variant.getAlternate()));
@@ -1168,6 +1364,10 @@ public class VariantAnnotationCalculator {
     }
 
     private boolean[] getRegulatoryRegionOverlaps(String chromosome, Integer position) {
+        if (regulatoryRegionIndex != null) {
+            return regulatoryRegionIndex.getOverlaps(chromosome, position, position);
+        }
+
         QueryOptions queryOptions = new QueryOptions();
         queryOptions.add("include", REGULATORY_REGION_FEATURE_TYPE_ATTRIBUTE);
         // 0: overlaps any regulatory region type
@@ -1194,6 +1394,10 @@ public class VariantAnnotationCalculator {
     }
 
     private boolean[] getRegulatoryRegionOverlaps(String chromosome, Integer start, Integer end) {
+        if (regulatoryRegionIndex != null) {
+            return regulatoryRegionIndex.getOverlaps(chromosome, start, end == null ? start : end);
+        }
+
         QueryOptions queryOptions = new QueryOptions();
         queryOptions.add("exclude", "_id");
         queryOptions.add("include", "chromosome");
@@ -1238,21 +1442,47 @@ public class VariantAnnotationCalculator {
     }
 
     private List<ConsequenceType> getConsequenceTypeList(Variant variant, List<Gene> geneList,
+                                                         GeneIntervalIndex batchGeneIndex,
                                                          boolean regulatoryAnnotation, QueryOptions queryOptions) {
+        return getConsequenceTypeList(variant, geneList, batchGeneIndex, regulatoryAnnotation, queryOptions, null);
+    }
+
+    /**
+     * Calculates the consequence types of a variant. Non-synonymous consequence types whose protein annotation must
+     * be fetched are added to proteinAnnotationPendingList when provided, so that the caller can query them for the
+     * whole batch; otherwise protein annotation is fetched right away for this variant. Spliced transcript sequences
+     * are taken from batchGeneIndex so that they are built once per batch.
+     */
+    private List<ConsequenceType> getConsequenceTypeList(Variant variant, List<Gene> geneList,
+                                                         GeneIntervalIndex batchGeneIndex,
+                                                         boolean regulatoryAnnotation, QueryOptions queryOptions,
+                                                         List<ConsequenceType> proteinAnnotationPendingList) {
         boolean[] overlapsRegulatoryRegion = {false, false};
         if (regulatoryAnnotation) {
             overlapsRegulatoryRegion = getRegulatoryRegionOverlaps(variant);
         }
         ConsequenceTypeCalculator consequenceTypeCalculator = getConsequenceTypeCalculator(variant);
-        List<ConsequenceType> consequenceTypeList = consequenceTypeCalculator.run(variant, geneList,
-                overlapsRegulatoryRegion, queryOptions);
+        List<ConsequenceType> consequenceTypeList;
+        try {
+            consequenceTypeCalculator.setSplicedTranscriptResolver(batchGeneIndex::getSplicedTranscript);
+            consequenceTypeList = consequenceTypeCalculator.run(variant, geneList, overlapsRegulatoryRegion, queryOptions);
+        } finally {
+            consequenceTypeCalculator.release();
+        }
         if (variant.getType() == VariantType.SNV
                 || Variant.inferType(variant.getReference(), variant.getAlternate()) == VariantType.SNV) {
+            List<ConsequenceType> nonSynonymousList = new ArrayList<>();
             for (ConsequenceType consequenceType : consequenceTypeList) {
-                if (nonSynonymous(consequenceType, variant.getChromosome().equals("MT"))) {
-                    consequenceType.setProteinVariantAnnotation(getProteinAnnotation(consequenceType));
+                if (nonSynonymous(consequenceType, variant.getChromosome().equals("MT"))
+                        && consequenceType.getProteinVariantAnnotation() != null) {
+                    nonSynonymousList.add(consequenceType);
                 }
             }
+            if (proteinAnnotationPendingList != null) {
+                proteinAnnotationPendingList.addAll(nonSynonymousList);
+            } else if (!nonSynonymousList.isEmpty()) {
+                setProteinAnnotation(nonSynonymousList);
+            }
         }
         return consequenceTypeList;
     }
@@ -1418,10 +1648,13 @@ public class VariantAnnotationCalculator {
 
         @Override
         public List<QueryResult<Variant>> call() throws Exception {
-            long startTime = System.currentTimeMillis();
+            long startTime = System.nanoTime();
             logger.debug("Query variation");
             List<QueryResult<Variant>> variationQueryResultList = variantDBAdaptor.getByVariant(variantList, queryOptions);
-            logger.debug("Variation query performance is {}ms for {} variants", System.currentTimeMillis() - startTime, variantList.size());
+            long elapsedTime = System.nanoTime() - startTime;
+            AnnotatorMetrics.get("variation").register(elapsedTime, variantList.size(), 1,
+                    countResults(variationQueryResultList));
+            logger.debug("Variation query performance is {}ms for {} variants", elapsedTime / 1000000, variantList.size());
             return variationQueryResultList;
         }
 
@@ -1516,7 +1749,7 @@ public class VariantAnnotationCalculator {
 
         @Override
         public List<QueryResult> call() throws Exception {
-            long startTime = System.currentTimeMillis();
+            long startTime = System.nanoTime();
 //            logger.debug("Query conservation");
 //            List<QueryResult> conservationQueryResultList = conservationDBAdaptor
 //                    .getAllScoresByRegionList(variantListToRegionList(variantList), queryOptions);
@@ -1541,7 +1774,10 @@ public class VariantAnnotationCalculator {
                 queryResultList.add(newQueryResult);
             }
 
-            logger.debug("Conservation query performance is {}ms for {} variants", System.currentTimeMillis() - startTime,
+            long elapsedTime = System.nanoTime() - startTime;
+            AnnotatorMetrics.get("conservation").register(elapsedTime, variantList.size(), variantList.size(),
+                    countResults(queryResultList));
+            logger.debug("Conservation query performance is {}ms for {} variants", elapsedTime / 1000000,
                     variantList.size());
             return queryResultList;
         }
@@ -1581,14 +1817,17 @@ public class VariantAnnotationCalculator {
 
         @Override
         public List<QueryResult<Score>> call() throws Exception {
-            long startTime = System.currentTimeMillis();
+            long startTime = System.nanoTime();
 //            List<QueryResult> variantFunctionalScoreQueryResultList =
 //                    variantFunctionalScoreDBAdaptor.getAllByVariantList(variantList, queryOptions);
             logger.debug("Query variant functional score");
             List<QueryResult<Score>> variantFunctionalScoreQueryResultList =
                     variantDBAdaptor.getFunctionalScoreVariant(variantList, queryOptions);
+            long elapsedTime = System.nanoTime() - startTime;
+            AnnotatorMetrics.get("functionalScore").register(elapsedTime, variantList.size(), 1,
+                    countResults(variantFunctionalScoreQueryResultList));
             logger.debug("VariantFunctionalScore query performance is {}ms for {} variants",
-                    System.currentTimeMillis() - startTime, variantList.size());
+                    elapsedTime / 1000000, variantList.size());
             return variantFunctionalScoreQueryResultList;
         }
 
@@ -1634,10 +1873,13 @@ public class VariantAnnotationCalculator {
 
         @Override
         public List<QueryResult<Variant>> call() throws Exception {
-            long startTime = System.currentTimeMillis();
+            long startTime = System.nanoTime();
 //            List<QueryResult> clinicalQueryResultList = clinicalDBAdaptor.getAllByGenomicVariantList(variantList, queryOptions);
             List<QueryResult<Variant>> clinicalQueryResultList = clinicalDBAdaptor.getByVariant(variantList, queryOptions);
-            logger.debug("Clinical query performance is {}ms for {} variants", System.currentTimeMillis() - startTime, variantList.size());
+            long elapsedTime = System.nanoTime() - startTime;
+            AnnotatorMetrics.get("clinical").register(elapsedTime, variantList.size(), 1,
+                    countResults(clinicalQueryResultList));
+            logger.debug("Clinical query performance is {}ms for {} variants", elapsedTime / 1000000, variantList.size());
             return clinicalQueryResultList;
         }
 
@@ -1770,32 +2012,44 @@ public class VariantAnnotationCalculator {
 //            List<QueryResult<Repeat>> queryResultList
 //                    = repeatsDBAdaptor.getByRegion(variantListToRegionList(variantList), queryOptions);
 
-            long startTime = System.currentTimeMillis();
+            long startTime = System.nanoTime();
             List<QueryResult<Repeat>> queryResultList = new ArrayList<>(variantList.size());
 
             logger.debug("Query repeats");
-            // Want to return only one QueryResult object per Variant
+            // Breakpoints of all variants are searched together
+            List<Region> regionList = new ArrayList<>(variantList.size());
+            List<Integer> numBreakpoints = new ArrayList<>(variantList.size());
             for (Variant variant : variantList) {
-                List<QueryResult<Repeat>> tmpQueryResultList = repeatsDBAdaptor
-                        .getByRegion(breakpointsToRegionList(variant), queryOptions);
+                List<Region> breakpoints = breakpointsToRegionList(variant);
+                regionList.addAll(breakpoints);
+                numBreakpoints.add(breakpoints.size());
+            }
+            List<QueryResult<Repeat>> regionQueryResultList = repeatsDBAdaptor.getByRegion(regionList, queryOptions);
 
+            // Want to return only one QueryResult object per Variant
+            int regionIndex = 0;
+            for (int i = 0; i < variantList.size(); i++) {
                 // There may be more than one QueryResult per variant for non SNV variants since there will be
                 // two breakpoints
                 // Reuse one of the QueryResult objects returned by the adaptor
-                QueryResult newQueryResult = tmpQueryResultList.get(0);
-                if (tmpQueryResultList.size() > 1) {
+                QueryResult newQueryResult = regionQueryResultList.get(regionIndex);
+                if (numBreakpoints.get(i) > 1) {
                     Set<Repeat> repeatSet = new HashSet<>(newQueryResult.getResult());
                     // Reuse one of the QueryResult objects - new result is the set formed by the repeats corresponding
                     // to the two breakpoints
-                    repeatSet.addAll(tmpQueryResultList.get(1).getResult());
+                    repeatSet.addAll(regionQueryResultList.get(regionIndex + 1).getResult());
                     newQueryResult.setNumResults(repeatSet.size());
                     newQueryResult.setNumTotalResults(repeatSet.size());
                     newQueryResult.setResult(new ArrayList(repeatSet));
                 }
+                regionIndex += numBreakpoints.get(i);
                 queryResultList.add(newQueryResult);
             }
 
-            logger.debug("Repeat query performance is {}ms for {} variants", System.currentTimeMillis() - startTime,
+            long elapsedTime = System.nanoTime() - startTime;
+            AnnotatorMetrics.get("repeats").register(elapsedTime, variantList.size(), 1,
+                    countResults(regionQueryResultList));
+            logger.debug("Repeat query performance is {}ms for {} variants", elapsedTime / 1000000,
                     variantList.size());
 
             return queryResultList;
@@ -1838,7 +2092,7 @@ public class VariantAnnotationCalculator {
 
         @Override
         public List<QueryResult<Cytoband>> call() throws Exception {
-            long startTime = System.currentTimeMillis();
+            long startTime = System.nanoTime();
             List<QueryResult<Cytoband>> queryResultList = new ArrayList<>(variantList.size());
 
             logger.debug("Query cytoband");
@@ -1863,7 +2117,10 @@ public class VariantAnnotationCalculator {
                 queryResultList.add(newQueryResult);
             }
 
-            logger.debug("Cytoband query performance is {}ms for {} variants", System.currentTimeMillis() - startTime,
+            long elapsedTime = System.nanoTime() - startTime;
+            AnnotatorMetrics.get("cytoband").register(elapsedTime, variantList.size(), variantList.size(),
+                    countResults(queryResultList));
+            logger.debug("Cytoband query performance is {}ms for {} variants", elapsedTime / 1000000,
                     variantList.size());
             return queryResultList;
         }
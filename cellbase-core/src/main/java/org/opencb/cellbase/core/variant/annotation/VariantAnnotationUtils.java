@@ -466,6 +466,24 @@ public class VariantAnnotationUtils {
         SO_NAMES_CORRECTIONS.put("non_coding_exon_variant", "non_coding_transcript_exon_variant");
     }
 
+    // One term per SO name that can be reported, shared by all the annotations. Avro records have public setters and
+    // cannot be made immutable, so these objects must not be modified: callers changing the consequence of an
+    // annotation, e.g. phased annotation, replace the term in the list of its ConsequenceType instead
+    private static final Map<String, SequenceOntologyTerm> SEQUENCE_ONTOLOGY_TERMS = buildSequenceOntologyTerms();
+
+    private static Map<String, SequenceOntologyTerm> buildSequenceOntologyTerms() {
+        Map<String, SequenceOntologyTerm> sequenceOntologyTerms = new HashMap<>(SO_SEVERITY.size() * 2);
+        for (String name : SO_SEVERITY.keySet()) {
+            try {
+                sequenceOntologyTerms.put(name,
+                        new SequenceOntologyTerm(ConsequenceTypeMappings.getSoAccessionString(name), name));
+            } catch (RuntimeException e) {
+                // No accession available for this name, terms will be created on demand
+            }
+        }
+        return Collections.unmodifiableMap(sequenceOntologyTerms);
+    }
+
     public static Boolean isSynonymousCodon(String codon1, String codon2) {
         return isSynonymousCodon(false, codon1, codon2);
     }
@@ -508,11 +526,23 @@ public class VariantAnnotationUtils {
         List<SequenceOntologyTerm> sequenceOntologyTerms = new ArrayList<>();
         for (String name : soNames) {
             name = fixSONameIfNeeded(name);
-            sequenceOntologyTerms.add(newSequenceOntologyTerm(name));
+            sequenceOntologyTerms.add(getSequenceOntologyTerm(name));
         }
         return sequenceOntologyTerms;
     }
 
+    /**
+     * @param name SO term name
+     * @return shared SO term for the name, callers must not modify it; a new term for names not reported by the
+     * annotator
+     */
+    public static SequenceOntologyTerm getSequenceOntologyTerm(String name) {
+        SequenceOntologyTerm sequenceOntologyTerm = SEQUENCE_ONTOLOGY_TERMS.get(name);
+        return sequenceOntologyTerm != null
+                ? sequenceOntologyTerm
+                : new SequenceOntologyTerm(ConsequenceTypeMappings.getSoAccessionString(name), name);
+    }
+
     private static String fixSONameIfNeeded(String name) {
         String fixedName = SO_NAMES_CORRECTIONS.get(name);
         return fixedName == null ? name : fixedName;
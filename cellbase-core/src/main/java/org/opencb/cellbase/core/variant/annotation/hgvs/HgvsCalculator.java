@@ -7,6 +7,7 @@ import org.opencb.biodata.models.core.Transcript;
 import org.opencb.biodata.models.variant.Variant;
 import org.opencb.biodata.tools.variant.VariantNormalizer;
 import org.opencb.cellbase.core.api.GenomeDBAdaptor;
+import org.opencb.cellbase.core.variant.annotation.SplicedTranscript;
 import org.opencb.cellbase.core.variant.annotation.UnsupportedURLVariantFormat;
 import org.opencb.cellbase.core.variant.annotation.VariantAnnotationUtils;
 import org.slf4j.Logger;
@@ -14,8 +15,8 @@ import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Comparator;
 import java.util.List;
+import java.util.function.Function;
 
 /**
  * Created by fjlopez on 26/01/17.
@@ -25,6 +26,7 @@ public class HgvsCalculator {
     private static Logger logger = LoggerFactory.getLogger(HgvsCalculator.class);
     protected static final int NEIGHBOURING_SEQUENCE_SIZE = 100;
     protected GenomeDBAdaptor genomeDBAdaptor;
+    protected Function<Transcript, SplicedTranscript> splicedTranscriptResolver = SplicedTranscript::new;
 
     public HgvsCalculator(GenomeDBAdaptor genomeDBAdaptor) {
         this.genomeDBAdaptor = genomeDBAdaptor;
@@ -50,6 +52,28 @@ public class HgvsCalculator {
         return hgvsList;
     }
 
+    /**
+     * Same as run(variant, geneList, normalize), taking the exon offsets of the transcripts from
+     * splicedTranscriptResolver, e.g. those already built for the current annotation batch.
+     *
+     * @param variant variant to describe
+     * @param geneList genes overlapping the variant
+     * @param normalize whether the variant must be normalized first
+     * @param splicedTranscriptResolver function returning the spliced transcript of a transcript
+     * @return HGVS identifiers of the variant
+     */
+    public List<String> run(Variant variant, List<Gene> geneList, boolean normalize,
+                            Function<Transcript, SplicedTranscript> splicedTranscriptResolver) {
+        List<String> hgvsList = new ArrayList<>();
+        for (Gene gene : geneList) {
+            for (Transcript transcript : gene.getTranscripts()) {
+                hgvsList.addAll(run(variant, transcript, gene.getId(), normalize, splicedTranscriptResolver));
+            }
+        }
+
+        return hgvsList;
+    }
+
     public List<String> run(Variant variant, Gene gene) {
         return run(variant, gene, true);
     }
@@ -64,6 +88,11 @@ public class HgvsCalculator {
     }
 
     protected List<String> run(Variant variant, Transcript transcript, String geneId, boolean normalize) {
+        return run(variant, transcript, geneId, normalize, splicedTranscriptResolver);
+    }
+
+    private List<String> run(Variant variant, Transcript transcript, String geneId, boolean normalize,
+                             Function<Transcript, SplicedTranscript> splicedTranscriptResolver) {
         // Check variant falls within transcript coords
         if (variant.getStart() <= transcript.getEnd() && variant.getEnd() >= transcript.getStart()) {
             // We cannot know the type of variant before normalization has been carried out
@@ -71,6 +100,7 @@ public class HgvsCalculator {
             HgvsCalculator hgvsCalculator = getHgvsCalculator(normalizedVariant);
             // Can be null if there's no hgvs implementation for the variant type
             if (hgvsCalculator != null) {
+                hgvsCalculator.splicedTranscriptResolver = splicedTranscriptResolver;
                 // Normalization set to false - if needed, it would have been done already two lines above
                 return hgvsCalculator.run(normalizedVariant, transcript, geneId, false);
             }
@@ -221,14 +251,11 @@ public class HgvsCalculator {
 
     private CdnaCoord genomicToCdnaCoordInNonCodingTranscript(Transcript transcript, int genomicPosition) {
         CdnaCoord cdnaCoord = new CdnaCoord();
-        List<Exon> exonList = transcript.getExons();
 
         // Get the closest exon to the position, measured as the exon that presents the closest start OR end coordinate
         // to the position
         // Careful using GENOMIC coordinates
-        Exon nearestExon = exonList.stream().min(Comparator.comparing(exon ->
-                Math.min(Math.abs(genomicPosition - exon.getStart()),
-                        Math.abs(genomicPosition - exon.getEnd())))).get();
+        Exon nearestExon = splicedTranscriptResolver.apply(transcript).getNearestExon(genomicPosition);
 
         if (transcript.getStrand().equals("+")) {
             // Must now check which the closest edge of the exon is to the position: start or end to know which of them
@@ -288,14 +315,11 @@ public class HgvsCalculator {
 
     private CdnaCoord genomicToCdnaCoordInCodingTranscript(Transcript transcript, int genomicPosition) {
         CdnaCoord cdnaCoord = new CdnaCoord();
-        List<Exon> exonList = transcript.getExons();
 
         // Get the closest exon to the position, measured as the exon that presents the closest start OR end coordinate
         // to the position
         // Careful using GENOMIC coordinates
-        Exon nearestExon = exonList.stream().min(Comparator.comparing(exon ->
-                Math.min(Math.abs(genomicPosition - exon.getStart()),
-                        Math.abs(genomicPosition - exon.getEnd())))).get();
+        Exon nearestExon = splicedTranscriptResolver.apply(transcript).getNearestExon(genomicPosition);
 
         if (transcript.getStrand().equals("+")) {
             // Must now check which the closest edge of the exon is to the position: start or end to know which of them
@@ -428,26 +452,7 @@ public class HgvsCalculator {
     }
 
     private int getCdnaPosition(Transcript transcript, int genomicPosition) {
-
-        int i = 0;
-        int cdnaPosition = 0;
-        List<Exon> exonList = transcript.getExons();
-
-        // Sum the part that corresponds to the exon where genomicPosition is located
-        if ("+".equals(transcript.getStrand())) {
-            while (i < exonList.size() && genomicPosition > exonList.get(i).getEnd()) {
-                cdnaPosition += (exonList.get(i).getEnd() - exonList.get(i).getStart() + 1);
-                i++;
-            }
-            return cdnaPosition + genomicPosition - exonList.get(i).getStart() + 1;
-        } else {
-            while (i < exonList.size() && genomicPosition < exonList.get(i).getStart()) {
-                cdnaPosition += (exonList.get(i).getEnd() - exonList.get(i).getStart() + 1);
-                i++;
-            }
-            return cdnaPosition + exonList.get(i).getEnd() - genomicPosition + 1;
-        }
-
+        return splicedTranscriptResolver.apply(transcript).getCdnaPosition(genomicPosition);
     }
 
 }
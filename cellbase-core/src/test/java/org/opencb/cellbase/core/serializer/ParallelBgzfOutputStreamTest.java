@@ -0,0 +1,104 @@
+/*
+ * Copyright 2015 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.cellbase.core.serializer;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.*;
+
+public class ParallelBgzfOutputStreamTest {
+
+    @Test
+    public void readableAsGzip() throws Exception {
+        byte[] data = new byte[1000000];
+        Random random = new Random(7);
+        for (int i = 0; i < data.length; i++) {
+            // Half compressible text, half random bytes
+            data[i] = i < data.length / 2 ? (byte) ('a' + i % 7) : (byte) random.nextInt();
+        }
+
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (ParallelBgzfOutputStream outputStream = new ParallelBgzfOutputStream(compressed)) {
+            outputStream.write(data, 0, 1000);
+            outputStream.write(data[1000]);
+            outputStream.write(data, 1001, data.length - 1001);
+        }
+
+        assertArrayEquals(data, gunzip(compressed.toByteArray()));
+    }
+
+    @Test
+    public void blockLayout() throws Exception {
+        byte[] data = new byte[ParallelBgzfOutputStream.MAX_BLOCK_SIZE + 10];
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (ParallelBgzfOutputStream outputStream = new ParallelBgzfOutputStream(compressed)) {
+            outputStream.write(data);
+        }
+
+        // Two data blocks and the empty EOF block, each one a gzip member with the BC subfield and its own size
+        byte[] bytes = compressed.toByteArray();
+        int offset = 0;
+        int numBlocks = 0;
+        while (offset < bytes.length) {
+            assertEquals(0x1f, bytes[offset] & 0xff);
+            assertEquals(0x8b, bytes[offset + 1] & 0xff);
+            assertEquals('B', bytes[offset + 12]);
+            assertEquals('C', bytes[offset + 13]);
+            offset += ((bytes[offset + 16] & 0xff) | (bytes[offset + 17] & 0xff) << 8) + 1;
+            numBlocks++;
+        }
+        assertEquals(bytes.length, offset);
+        assertEquals(3, numBlocks);
+        assertEquals(28, bytes.length - lastBlockOffset(bytes));
+    }
+
+    @Test
+    public void emptyStream() throws Exception {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        new ParallelBgzfOutputStream(compressed).close();
+        assertEquals(0, gunzip(compressed.toByteArray()).length);
+    }
+
+    private int lastBlockOffset(byte[] bytes) {
+        int offset = 0;
+        int last = 0;
+        while (offset < bytes.length) {
+            last = offset;
+            offset += ((bytes[offset + 16] & 0xff) | (bytes[offset + 17] & 0xff) << 8) + 1;
+        }
+        return last;
+    }
+
+    private byte[] gunzip(byte[] bytes) throws IOException {
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        try (InputStream inputStream = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+            byte[] buffer = new byte[8192];
+            int n;
+            while ((n = inputStream.read(buffer)) > 0) {
+                result.write(buffer, 0, n);
+            }
+        }
+        return result.toByteArray();
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2015 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.cellbase.core.variant.annotation;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+public class AnnotationExecutorTest {
+
+    @Test
+    public void sharedInstance() throws Exception {
+        assertSame(AnnotationExecutor.getInstance(), AnnotationExecutor.getInstance());
+    }
+
+    @Test
+    public void submit() throws Exception {
+        AnnotationExecutor annotationExecutor = AnnotationExecutor.getInstance();
+        List<Future<Integer>> futureList = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            final int value = i;
+            futureList.add(annotationExecutor.submit("test", () -> value * 2));
+        }
+        for (int i = 0; i < futureList.size(); i++) {
+            assertEquals(Integer.valueOf(i * 2), futureList.get(i).get());
+        }
+
+        AnnotationExecutor.AnnotatorStats annotatorStats = annotationExecutor.getAnnotatorStats().get("test");
+        assertEquals(5000, annotatorStats.getNumTasks());
+        assertEquals(0, annotatorStats.getNumFailures());
+    }
+
+    @Test
+    public void failedTask() throws Exception {
+        AnnotationExecutor annotationExecutor = AnnotationExecutor.getInstance();
+        Future<Integer> future = annotationExecutor.submit("failing", () -> {
+            throw new IllegalStateException("test");
+        });
+        try {
+            future.get();
+            fail("ExecutionException expected");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+        assertEquals(1, annotationExecutor.getAnnotatorStats().get("failing").getNumFailures());
+    }
+}
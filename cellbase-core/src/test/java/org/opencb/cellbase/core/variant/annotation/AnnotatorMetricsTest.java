@@ -0,0 +1,75 @@
+/*
+ * Copyright 2015 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.cellbase.core.variant.annotation;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class AnnotatorMetricsTest {
+
+    @Test
+    public void sharedMetrics() throws Exception {
+        assertSame(AnnotatorMetrics.get("sharedMetrics"), AnnotatorMetrics.get("sharedMetrics"));
+        assertTrue(AnnotatorMetrics.getAll().containsKey("sharedMetrics"));
+    }
+
+    @Test
+    public void getAll() throws Exception {
+        AnnotatorMetrics.get("snapshotMetrics").register(TimeUnit.MILLISECONDS.toNanos(3), 100, 1, 10);
+        AnnotatorMetrics snapshot = AnnotatorMetrics.getAll().get("snapshotMetrics");
+        AnnotatorMetrics.get("snapshotMetrics").register(TimeUnit.MILLISECONDS.toNanos(3), 100, 1, 10);
+
+        // Values registered after the snapshot was taken are not seen by it
+        assertEquals(1, snapshot.getNumBatches());
+        assertEquals(100, snapshot.getNumVariants());
+        assertEquals(1, snapshot.getLatencyHistogram()[2]);
+        assertEquals(2, AnnotatorMetrics.getAll().get("snapshotMetrics").getNumBatches());
+    }
+
+    @Test
+    public void getBucket() throws Exception {
+        assertEquals(0, AnnotatorMetrics.getBucket(TimeUnit.MICROSECONDS.toNanos(500)));
+        assertEquals(1, AnnotatorMetrics.getBucket(TimeUnit.MILLISECONDS.toNanos(1)));
+        assertEquals(2, AnnotatorMetrics.getBucket(TimeUnit.MILLISECONDS.toNanos(3)));
+        assertEquals(11, AnnotatorMetrics.getBucket(TimeUnit.MILLISECONDS.toNanos(1500)));
+        assertEquals(AnnotatorMetrics.NUM_BUCKETS - 1, AnnotatorMetrics.getBucket(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void register() throws Exception {
+        AnnotatorMetrics metrics = new AnnotatorMetrics();
+        assertEquals(0, metrics.getPercentileTimeMs(99));
+        for (int i = 0; i < 99; i++) {
+            metrics.register(TimeUnit.MILLISECONDS.toNanos(3), 100, 1, 10);
+        }
+        metrics.register(TimeUnit.MILLISECONDS.toNanos(700), 100, 2, 50);
+
+        assertEquals(100, metrics.getNumBatches());
+        assertEquals(10000, metrics.getNumVariants());
+        assertEquals(101, metrics.getNumDbCalls());
+        assertEquals(1040, metrics.getNumResults());
+        assertEquals(4, metrics.getPercentileTimeMs(50));
+        assertEquals(4, metrics.getPercentileTimeMs(99));
+        assertEquals(1024, metrics.getPercentileTimeMs(100));
+        assertEquals(700, metrics.getMaxTimeMs(), 1e-9);
+        assertEquals(9.97, metrics.getMeanTimeMs(), 1e-9);
+        assertEquals(10000 / 0.997, metrics.getVariantsPerSecond(), 1e-6);
+    }
+}
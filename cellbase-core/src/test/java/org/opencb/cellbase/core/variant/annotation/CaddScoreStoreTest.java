@@ -0,0 +1,75 @@
+/*
+ * Copyright 2015 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.cellbase.core.variant.annotation;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.opencb.biodata.models.core.GenomicScoreRegion;
+import org.opencb.cellbase.core.serializer.CaddScoreFileSerializer;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class CaddScoreStoreTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void getValue() throws Exception {
+        // Same encoding as CaddScoreParser: A, C, G, T slots, raw values shifted by +10
+        long raw = pack(10.33f, 20f, 10.14f, 9.5f);
+        long scaled = pack(6.04f, 0f, 4.07f, 4.70f);
+
+        Path caddDir = temporaryFolder.getRoot().toPath().resolve("cadd");
+        CaddScoreFileSerializer serializer = new CaddScoreFileSerializer(caddDir);
+        serializer.serialize(new GenomicScoreRegion<>("1", 10001, 10002, CaddScoreStore.CADD_RAW, Arrays.asList(raw, raw)));
+        serializer.serialize(new GenomicScoreRegion<>("1", 10001, 10002, CaddScoreStore.CADD_SCALED, Arrays.asList(scaled, scaled)));
+        serializer.close();
+
+        CaddScoreStore caddScoreStore = new CaddScoreStore(caddDir);
+        assertTrue(caddScoreStore.contains("1"));
+        assertFalse(caddScoreStore.contains("2"));
+
+        assertEquals(0.33f, CaddScoreStore.decodeRawScore(caddScoreStore.getRawValue("1", 10001), "A"), 0.001);
+        assertEquals(-0.5f, CaddScoreStore.decodeRawScore(caddScoreStore.getRawValue("1", 10002), "t"), 0.001);
+        assertEquals(4.07f, CaddScoreStore.decodeScaledScore(caddScoreStore.getScaledValue("1", 10002), "G"), 0.001);
+
+        // Only single base alternates are scored
+        assertFalse(CaddScoreStore.isScored("AT"));
+        assertFalse(CaddScoreStore.isScored("N"));
+        assertTrue(Float.isNaN(CaddScoreStore.decodeRawScore(caddScoreStore.getRawValue("1", 10001), "AT")));
+        assertTrue(Float.isNaN(CaddScoreStore.decodeScaledScore(caddScoreStore.getScaledValue("1", 10001), "-")));
+
+        // Positions without CADD data
+        assertEquals(0, caddScoreStore.getRawValue("1", 10000));
+        assertEquals(0, caddScoreStore.getRawValue("1", 10003));
+        assertEquals(0, caddScoreStore.getRawValue("1", 200000000));
+        assertEquals(0, caddScoreStore.getRawValue("2", 10001));
+    }
+
+    private long pack(float... scores) {
+        long value = 0;
+        for (float score : scores) {
+            value = (value << 16) | (short) (score * 100);
+        }
+        return value;
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2015 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.cellbase.core.variant.annotation;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.opencb.biodata.models.core.GenomicScoreRegion;
+import org.opencb.cellbase.core.serializer.ConservationScoreFileSerializer;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class ConservationScoreStoreTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void getScores() throws Exception {
+        Path conservationDir = temporaryFolder.getRoot().toPath().resolve("conservation");
+        ConservationScoreFileSerializer serializer = new ConservationScoreFileSerializer(conservationDir);
+        serializer.serialize(new GenomicScoreRegion<>("1", 100, 102, "phastCons", Arrays.asList(0f, 0.512f, 1f)),
+                "conservation_1");
+        serializer.serialize(new GenomicScoreRegion<>("1", 101, 102, "phylop", Arrays.asList(-2.47f, 0.088f)),
+                "conservation_1");
+        serializer.serialize(new GenomicScoreRegion<>("2", 5, 5, "gerp", Arrays.asList(-12.3f)), "conservation_2");
+        serializer.close();
+
+        ConservationScoreStore conservationScoreStore = new ConservationScoreStore(conservationDir);
+        assertEquals(Arrays.asList("gerp", "phastCons", "phylop"), conservationScoreStore.getSources());
+        assertTrue(conservationScoreStore.contains("2"));
+        assertFalse(conservationScoreStore.contains("3"));
+
+        assertArrayEquals(new float[]{Float.NaN, 0f, 0.512f, 1f, Float.NaN},
+                conservationScoreStore.getScores("phastCons", "1", 99, 103), 0.0001f);
+        assertArrayEquals(new float[]{Float.NaN, -2.47f, 0.088f},
+                conservationScoreStore.getScores("phylop", "1", 100, 102), 0.0001f);
+        assertEquals(-12.3f, conservationScoreStore.getScore("gerp", "2", 5), 0.0001f);
+
+        assertTrue(Float.isNaN(conservationScoreStore.getScore("gerp", "1", 5)));
+        assertTrue(Float.isNaN(conservationScoreStore.getScore("phastCons", "1", 200000000)));
+        assertTrue(Float.isNaN(conservationScoreStore.getScore("unknown", "1", 100)));
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2015 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.cellbase.core.variant.annotation;
+
+import org.junit.Test;
+import org.opencb.biodata.models.core.Gene;
+import org.opencb.biodata.models.core.Region;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class GeneIntervalIndexTest {
+
+    @Test
+    public void getOverlappingGenes() throws Exception {
+        List<Gene> geneList = Arrays.asList(gene("1", 10000, 20000), gene("1", 30000, 31000), gene("2", 10000, 20000));
+        GeneIntervalIndex geneIntervalIndex = new GeneIntervalIndex(geneList, 5000);
+
+        assertEquals(Collections.emptyList(), geneIntervalIndex.getOverlappingGenes(regions("1", 4999, 4999)));
+        assertEquals(geneList.subList(0, 1), geneIntervalIndex.getOverlappingGenes(regions("1", 5000, 5000)));
+        assertEquals(geneList.subList(0, 2), geneIntervalIndex.getOverlappingGenes(regions("1", 25000, 25000)));
+        assertEquals(geneList.subList(1, 2), geneIntervalIndex.getOverlappingGenes(regions("1", 36000, 36000)));
+        assertEquals(Collections.emptyList(), geneIntervalIndex.getOverlappingGenes(regions("1", 36001, 40000)));
+        assertEquals(geneList.subList(2, 3), geneIntervalIndex.getOverlappingGenes(regions("2", 15000, 15000)));
+        assertEquals(Collections.emptyList(), geneIntervalIndex.getOverlappingGenes(regions("3", 15000, 15000)));
+
+        // Breakends: one region per mate, returned in batch gene order
+        assertEquals(Arrays.asList(geneList.get(0), geneList.get(2)),
+                geneIntervalIndex.getOverlappingGenes(regions("2", 15000, 15000, "1", 15000, 15000)));
+    }
+
+    @Test
+    public void getOverlappingGenesMatchesLinearScan() throws Exception {
+        Random random = new Random(42);
+        // Tree shape depends on the number of genes per chromosome
+        for (int numGenes : new int[]{1, 2, 7, 16, 17, 31, 33, 100, 2000}) {
+            List<Gene> geneList = new ArrayList<>();
+            for (int i = 0; i < numGenes; i++) {
+                int start = 1 + random.nextInt(10000000);
+                // Mostly short genes plus a few very long ones
+                int length = random.nextInt(20) == 0 ? random.nextInt(2000000) : random.nextInt(50000);
+                geneList.add(gene(String.valueOf(1 + random.nextInt(3)), start, start + length));
+            }
+            GeneIntervalIndex geneIntervalIndex = new GeneIntervalIndex(geneList, 5000);
+
+            for (int i = 0; i < 2000; i++) {
+                int start = 1 + random.nextInt(12000000);
+                List<Region> regionList = regions(String.valueOf(1 + random.nextInt(3)), start, start + random.nextInt(1000));
+                assertEquals(linearScan(geneList, regionList), geneIntervalIndex.getOverlappingGenes(regionList));
+            }
+        }
+    }
+
+    private List<Gene> linearScan(List<Gene> geneList, List<Region> regionList) {
+        List<Gene> overlappingGeneList = new ArrayList<>();
+        for (Gene gene : geneList) {
+            for (Region region : regionList) {
+                if (region.getChromosome().equals(gene.getChromosome()) && gene.getStart() <= (region.getEnd() + 5000)
+                        && gene.getEnd() >= Math.max(1, region.getStart() - 5000)) {
+                    overlappingGeneList.add(gene);
+                }
+            }
+        }
+        return overlappingGeneList;
+    }
+
+    private List<Region> regions(Object... coordinates) {
+        List<Region> regionList = new ArrayList<>();
+        for (int i = 0; i < coordinates.length; i += 3) {
+            regionList.add(new Region((String) coordinates[i], (int) coordinates[i + 1], (int) coordinates[i + 2]));
+        }
+        return regionList;
+    }
+
+    private Gene gene(String chromosome, int start, int end) {
+        Gene gene = new Gene();
+        gene.setChromosome(chromosome);
+        gene.setStart(start);
+        gene.setEnd(end);
+        return gene;
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2015 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.cellbase.core.variant.annotation;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class RegulatoryRegionIndexTest {
+
+    private RegulatoryRegionIndex regulatoryRegionIndex;
+
+    @Before
+    public void setUp() throws Exception {
+        List<Map<String, Object>> documentList = new ArrayList<>();
+        documentList.add(region("1", 1000, 5000, "open_chromatin_region"));
+        documentList.add(region("1", 2000, 2100, "TF_binding_site"));
+        documentList.add(region("1", 9000, 9010, "TF_binding_site_motif"));
+        documentList.add(region("1", 300, 400, "promoter"));
+        documentList.add(region("2", 100, 200, "enhancer"));
+        regulatoryRegionIndex = new RegulatoryRegionIndex(documentList.iterator());
+    }
+
+    @Test
+    public void getOverlaps() throws Exception {
+        assertEquals(5, regulatoryRegionIndex.size());
+
+        assertArrayEquals(new boolean[]{false, false}, regulatoryRegionIndex.getOverlaps("1", 100, 100));
+        assertArrayEquals(new boolean[]{true, false}, regulatoryRegionIndex.getOverlaps("1", 300, 300));
+        assertArrayEquals(new boolean[]{true, false}, regulatoryRegionIndex.getOverlaps("1", 1500, 1500));
+        assertArrayEquals(new boolean[]{true, true}, regulatoryRegionIndex.getOverlaps("1", 2100, 2100));
+        assertArrayEquals(new boolean[]{true, true}, regulatoryRegionIndex.getOverlaps("1", 1900, 2000));
+        assertArrayEquals(new boolean[]{true, false}, regulatoryRegionIndex.getOverlaps("1", 4999, 5003));
+        assertArrayEquals(new boolean[]{false, false}, regulatoryRegionIndex.getOverlaps("1", 5001, 8999));
+        assertArrayEquals(new boolean[]{true, true}, regulatoryRegionIndex.getOverlaps("1", 8000, 9000));
+        assertArrayEquals(new boolean[]{true, false}, regulatoryRegionIndex.getOverlaps("2", 150, 150));
+        assertArrayEquals(new boolean[]{false, false}, regulatoryRegionIndex.getOverlaps("3", 150, 150));
+    }
+
+    private Map<String, Object> region(String chromosome, int start, int end, String featureType) {
+        Map<String, Object> document = new HashMap<>();
+        document.put("chromosome", chromosome);
+        document.put("start", start);
+        document.put("end", end);
+        document.put("featureType", featureType);
+        return document;
+    }
+}
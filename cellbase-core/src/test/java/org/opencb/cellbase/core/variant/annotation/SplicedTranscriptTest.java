@@ -0,0 +1,109 @@
+/*
+ * Copyright 2015 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.cellbase.core.variant.annotation;
+
+import org.junit.Test;
+import org.opencb.biodata.models.core.Exon;
+import org.opencb.biodata.models.core.Transcript;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class SplicedTranscriptTest {
+
+    @Test
+    public void positiveTranscript() throws Exception {
+        // Exons in transcript order
+        Transcript transcript = transcript("+", exon(100, 104, "ACGTA"), exon(200, 202, "CCC"), exon(300, 303, "GGTT"));
+        SplicedTranscript splicedTranscript = new SplicedTranscript(transcript);
+
+        assertEquals("ACGTACCCGGTT", splicedTranscript.getSequence());
+        assertEquals(12, splicedTranscript.getCdnaLength());
+        assertEquals(1, splicedTranscript.getCdnaPosition(100));
+        assertEquals(6, splicedTranscript.getCdnaPosition(200));
+        assertEquals(12, splicedTranscript.getCdnaPosition(303));
+        assertEquals(1, splicedTranscript.getExonIndex(201));
+        assertEquals(-1, splicedTranscript.getExonIndex(150));
+        assertSame(transcript.getExons().get(1), splicedTranscript.getNearestExon(160));
+        assertSame(transcript.getExons().get(0), splicedTranscript.getNearestExon(130));
+        // Ties go to the first exon in transcript order
+        assertSame(transcript.getExons().get(0), splicedTranscript.getNearestExon(152));
+    }
+
+    @Test
+    public void negativeTranscript() throws Exception {
+        // Exons in transcript order, sequences on the forward strand
+        Transcript transcript = transcript("-", exon(300, 303, "GGTT"), exon(200, 202, "CCC"), exon(100, 104, "ACGTA"));
+        SplicedTranscript splicedTranscript = new SplicedTranscript(transcript);
+
+        assertEquals("ACGTACCCGGTT", splicedTranscript.getSequence());
+        assertEquals(1, splicedTranscript.getCdnaPosition(303));
+        assertEquals(5, splicedTranscript.getCdnaPosition(202));
+        assertEquals(12, splicedTranscript.getCdnaPosition(100));
+        assertEquals(2, splicedTranscript.getExonIndex(104));
+        assertSame(transcript.getExons().get(0), splicedTranscript.getNearestExon(252));
+        assertSame(transcript.getExons().get(2), splicedTranscript.getNearestExon(10));
+    }
+
+    @Test
+    public void matchesLinearScan() throws Exception {
+        Transcript transcript = transcript("-", exon(5000, 5100, null), exon(4000, 4010, null), exon(3000, 3500, null),
+                exon(1000, 1200, null));
+        SplicedTranscript splicedTranscript = new SplicedTranscript(transcript);
+        for (int position = 900; position <= 5200; position++) {
+            int genomicPosition = position;
+            Exon nearestExon = transcript.getExons().stream().min(Comparator.comparing(exon ->
+                    Math.min(Math.abs(genomicPosition - exon.getStart()), Math.abs(genomicPosition - exon.getEnd()))))
+                    .get();
+            assertSame(String.valueOf(position), nearestExon, splicedTranscript.getNearestExon(position));
+            if (position >= 1000) {
+                assertEquals(String.valueOf(position), getCdnaPosition(transcript, position),
+                        splicedTranscript.getCdnaPosition(position));
+            }
+        }
+    }
+
+    private int getCdnaPosition(Transcript transcript, int genomicPosition) {
+        int i = 0;
+        int cdnaPosition = 0;
+        List<Exon> exonList = transcript.getExons();
+        while (i < exonList.size() && genomicPosition < exonList.get(i).getStart()) {
+            cdnaPosition += (exonList.get(i).getEnd() - exonList.get(i).getStart() + 1);
+            i++;
+        }
+        return cdnaPosition + exonList.get(i).getEnd() - genomicPosition + 1;
+    }
+
+    private Transcript transcript(String strand, Exon... exons) {
+        Transcript transcript = new Transcript();
+        transcript.setId("ENST1");
+        transcript.setStrand(strand);
+        transcript.setExons(Arrays.asList(exons));
+        return transcript;
+    }
+
+    private Exon exon(int start, int end, String sequence) {
+        Exon exon = new Exon();
+        exon.setStart(start);
+        exon.setEnd(end);
+        exon.setSequence(sequence);
+        return exon;
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2015 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.cellbase.core.variant.annotation;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Path;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class TwoBitGenomeStoreTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void getSequence() throws Exception {
+        // N runs, an IUPAC code and soft-masked bases
+        String sequence = "NNNNNACGTTGCAacgtnnRACGTTTGCAGGGNNNNNNNNNNACGTA";
+        Path genomeDir = temporaryFolder.getRoot().toPath().resolve("genome");
+        TwoBitGenomeStore.write(genomeDir, "1", "chromosome", "GRCh37", sequence);
+
+        TwoBitGenomeStore twoBitGenomeStore = new TwoBitGenomeStore(genomeDir);
+        assertTrue(twoBitGenomeStore.contains("1"));
+        assertEquals(sequence.length(), twoBitGenomeStore.getLength("1"));
+        assertEquals("chromosome", twoBitGenomeStore.getSequenceType("1"));
+        assertEquals("GRCh37", twoBitGenomeStore.getAssembly("1"));
+        assertEquals(Collections.singleton("GRCh37"), twoBitGenomeStore.getAssemblies());
+
+        assertEquals(sequence, twoBitGenomeStore.getSequence("1", 1, sequence.length()));
+        for (int start = 1; start <= sequence.length(); start++) {
+            assertEquals(sequence.charAt(start - 1), twoBitGenomeStore.getBase("1", start));
+            for (int end = start; end <= sequence.length(); end++) {
+                assertEquals(sequence.substring(start - 1, end), twoBitGenomeStore.getSequence("1", start, end));
+            }
+        }
+
+        // End is truncated to the chromosome length
+        assertEquals("GTA", twoBitGenomeStore.getSequence("1", sequence.length() - 2, sequence.length() + 10));
+        assertEquals("", twoBitGenomeStore.getSequence("1", sequence.length() + 1, sequence.length() + 10));
+        assertEquals(0, twoBitGenomeStore.getBase("1", 0));
+        assertNull(twoBitGenomeStore.getSequence("2", 1, 10));
+    }
+}
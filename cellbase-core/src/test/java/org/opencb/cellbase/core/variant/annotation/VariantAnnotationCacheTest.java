@@ -0,0 +1,168 @@
+/*
+ * Copyright 2015 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.cellbase.core.variant.annotation;
+
+import org.apache.commons.lang3.StringUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.opencb.biodata.models.variant.avro.VariantAnnotation;
+import org.opencb.cellbase.core.config.AnnotationProperties;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class VariantAnnotationCacheTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void disabled() throws Exception {
+        assertNull(VariantAnnotationCache.getInstance("hsapiens", "GRCh37", null, () -> "1"));
+        assertNull(VariantAnnotationCache.getInstance("hsapiens", "GRCh37", new AnnotationProperties(), () -> "1"));
+    }
+
+    @Test
+    public void getAndPut() throws Exception {
+        VariantAnnotationCache variantAnnotationCache = VariantAnnotationCache.getInstance("getAndPut", "GRCh37",
+                new AnnotationProperties().setCacheSize(1), () -> "1");
+        assertSame(variantAnnotationCache, VariantAnnotationCache.getInstance("getAndPut", "GRCh37",
+                new AnnotationProperties().setCacheSize(1), () -> "1"));
+
+        VariantAnnotation variantAnnotation = new VariantAnnotation();
+        variantAnnotation.setId("rs1");
+        variantAnnotationCache.put(Collections.singletonList("1:1:A:C"), Collections.singletonList(variantAnnotation));
+
+        List<VariantAnnotation> annotations = variantAnnotationCache.get(Arrays.asList("1:1:A:C", "1:1:A:G"));
+        assertEquals("rs1", annotations.get(0).getId());
+        assertNull(annotations.get(1));
+        // Every hit is a new object
+        assertNotSame(annotations.get(0), variantAnnotationCache.get(Collections.singletonList("1:1:A:C")).get(0));
+
+        VariantAnnotationCache.CacheStats cacheStats = variantAnnotationCache.getCacheStats();
+        assertEquals(2, cacheStats.getNumHits());
+        assertEquals(1, cacheStats.getNumMisses());
+        assertEquals(1, cacheStats.getNumPuts());
+        assertEquals(1, cacheStats.getSize());
+
+        variantAnnotationCache.invalidate();
+        assertNull(variantAnnotationCache.get(Collections.singletonList("1:1:A:C")).get(0));
+        assertEquals(0, variantAnnotationCache.getCacheStats().getSize());
+        assertEquals(1, variantAnnotationCache.getCacheStats().getNumInvalidations());
+    }
+
+    @Test
+    public void eviction() throws Exception {
+        VariantAnnotationCache variantAnnotationCache = VariantAnnotationCache.getInstance("eviction", "GRCh37",
+                new AnnotationProperties().setCacheSize(1), () -> "1");
+
+        // Ten annotations of ~200 KB, only the last ones fit in 1 MB
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            VariantAnnotation variantAnnotation = new VariantAnnotation();
+            variantAnnotation.setId(StringUtils.repeat('A', 200 * 1024));
+            keys.add("1:" + i + ":A:C");
+            variantAnnotationCache.put(Collections.singletonList(keys.get(i)), Collections.singletonList(variantAnnotation));
+        }
+
+        VariantAnnotationCache.CacheStats cacheStats = variantAnnotationCache.getCacheStats();
+        assertTrue(cacheStats.getWeight() <= 1024 * 1024);
+        assertEquals(10 - cacheStats.getSize(), cacheStats.getNumEvictions());
+        List<VariantAnnotation> annotations = variantAnnotationCache.get(keys);
+        assertNull(annotations.get(0));
+        assertNotNull(annotations.get(9));
+    }
+
+    @Test
+    public void persistentTier() throws Exception {
+        AnnotationProperties annotationProperties = new AnnotationProperties().setCacheSize(1)
+                .setCacheDir(temporaryFolder.getRoot().toString());
+        VariantAnnotationCache variantAnnotationCache = VariantAnnotationCache.getInstance("persistentTier", "GRCh37",
+                annotationProperties, () -> "1");
+        VariantAnnotation variantAnnotation = new VariantAnnotation();
+        variantAnnotation.setId("rs1");
+        variantAnnotationCache.put(Collections.singletonList("1:1:A:C"), Collections.singletonList(variantAnnotation));
+        VariantAnnotationCache.closeAll();
+
+        // Memory is empty after reopening, the annotation is read from disk
+        variantAnnotationCache = VariantAnnotationCache.getInstance("persistentTier", "GRCh37", annotationProperties,
+                () -> "1");
+        assertEquals("rs1", variantAnnotationCache.get(Collections.singletonList("1:1:A:C")).get(0).getId());
+        assertEquals(1, variantAnnotationCache.getCacheStats().getNumPersistentHits());
+        assertTrue(variantAnnotationCache.getCacheStats().getPersistentWeight() > 0);
+        VariantAnnotationCache.closeAll();
+
+        // Release cannot be read, entries of the last known release are kept
+        variantAnnotationCache = VariantAnnotationCache.getInstance("persistentTier", "GRCh37", annotationProperties,
+                () -> null);
+        assertEquals("1", variantAnnotationCache.getRelease());
+        assertEquals("rs1", variantAnnotationCache.get(Collections.singletonList("1:1:A:C")).get(0).getId());
+        VariantAnnotationCache.closeAll();
+
+        // A new release drops the persistent tier
+        variantAnnotationCache = VariantAnnotationCache.getInstance("persistentTier", "GRCh37", annotationProperties,
+                () -> "2");
+        assertNull(variantAnnotationCache.get(Collections.singletonList("1:1:A:C")).get(0));
+        assertEquals(0, variantAnnotationCache.getCacheStats().getPersistentWeight());
+        VariantAnnotationCache.closeAll();
+    }
+
+    @Test
+    public void persistentTierTtl() throws Exception {
+        AnnotationProperties annotationProperties = new AnnotationProperties().setCacheSize(1).setCacheTtl(1)
+                .setCacheDir(temporaryFolder.getRoot().toString());
+        VariantAnnotationCache variantAnnotationCache = VariantAnnotationCache.getInstance("persistentTierTtl", "GRCh37",
+                annotationProperties, () -> "1");
+        VariantAnnotation variantAnnotation = new VariantAnnotation();
+        variantAnnotation.setId("rs1");
+        variantAnnotationCache.put(Collections.singletonList("1:1:A:C"), Collections.singletonList(variantAnnotation));
+
+        Thread.sleep(1100);
+        // Expired in both tiers
+        assertNull(variantAnnotationCache.get(Collections.singletonList("1:1:A:C")).get(0));
+        assertEquals(2, variantAnnotationCache.getCacheStats().getNumExpirations());
+        assertEquals(0, variantAnnotationCache.getCacheStats().getNumPersistentHits());
+        assertEquals(0, variantAnnotationCache.getCacheStats().getPersistentWeight());
+        VariantAnnotationCache.closeAll();
+    }
+
+    @Test
+    public void persistentTierSize() throws Exception {
+        AnnotationProperties annotationProperties = new AnnotationProperties().setCacheSize(1).setCacheDirSize(1)
+                .setCacheDir(temporaryFolder.getRoot().toString());
+        VariantAnnotationCache variantAnnotationCache = VariantAnnotationCache.getInstance("persistentTierSize", "GRCh37",
+                annotationProperties, () -> "1");
+
+        // Ten annotations of ~200 KB, the persistent tier is swept back to 90% of 1 MB when it goes over
+        for (int i = 0; i < 10; i++) {
+            VariantAnnotation variantAnnotation = new VariantAnnotation();
+            variantAnnotation.setId(StringUtils.repeat('A', 200 * 1024));
+            variantAnnotationCache.put(Collections.singletonList("1:" + i + ":A:C"),
+                    Collections.singletonList(variantAnnotation));
+        }
+
+        VariantAnnotationCache.CacheStats cacheStats = variantAnnotationCache.getCacheStats();
+        assertTrue(cacheStats.getNumPersistentEvictions() > 0);
+        assertTrue(cacheStats.getPersistentWeight() <= 1024 * 1024);
+        VariantAnnotationCache.closeAll();
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2015 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.cellbase.lib;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Number of features starting in each bin of a chromosome, at several bin sizes. It is computed once after a
+ * collection is loaded and stored in the 'feature_density' collection, so that histograms of unfiltered region
+ * queries are read from the coarsest level that fits the interval instead of aggregating the raw documents.
+ */
+public class FeatureDensityPyramid {
+
+    public static final String COLLECTION = "feature_density";
+    public static final int[] BIN_SIZES = {1000, 10000, 100000, 1000000};
+
+    // Counts of the finest level, the other levels are added up from them
+    private final Map<String, int[]> countsMap;
+
+    public FeatureDensityPyramid() {
+        countsMap = new LinkedHashMap<>();
+    }
+
+    public void add(String chromosome, int start) {
+        int bin = Math.max(0, start) / BIN_SIZES[0];
+        int[] counts = countsMap.get(chromosome);
+        if (counts == null || bin >= counts.length) {
+            counts = counts == null
+                    ? new int[bin + 1]
+                    : Arrays.copyOf(counts, Math.max(bin + 1, 2 * counts.length));
+            countsMap.put(chromosome, counts);
+        }
+        counts[bin]++;
+    }
+
+    public Set<String> getChromosomes() {
+        return countsMap.keySet();
+    }
+
+    /**
+     * @param chromosome chromosome name
+     * @param binSize one of BIN_SIZES
+     * @return number of features starting in each bin, bin i holds features with start in [i * binSize, (i + 1) * binSize)
+     */
+    public int[] getCounts(String chromosome, int binSize) {
+        int[] counts = countsMap.get(chromosome);
+        if (counts == null) {
+            return new int[0];
+        }
+        int factor = binSize / BIN_SIZES[0];
+        // Trailing bins may be empty after the array grew
+        int numFineBins = counts.length;
+        while (numFineBins > 0 && counts[numFineBins - 1] == 0) {
+            numFineBins--;
+        }
+        int[] binCounts = new int[(numFineBins + factor - 1) / factor];
+        for (int i = 0; i < numFineBins; i++) {
+            binCounts[i / factor] += counts[i];
+        }
+        return binCounts;
+    }
+
+    /**
+     * @param collection collection the features were read from
+     * @param chromosome chromosome name
+     * @param binSize one of BIN_SIZES
+     * @return _id of the document holding the counts in the 'feature_density' collection
+     */
+    public static String getId(String collection, String chromosome, int binSize) {
+        return collection + "_" + chromosome + "_" + binSize;
+    }
+
+    /**
+     * @param intervalSize histogram interval size
+     * @return coarsest bin size the interval is a multiple of, -1 if none is
+     */
+    public static int getBinSize(int intervalSize) {
+        for (int i = BIN_SIZES.length - 1; i >= 0; i--) {
+            if (intervalSize >= BIN_SIZES[i] && intervalSize % BIN_SIZES[i] == 0) {
+                return BIN_SIZES[i];
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Adds up the bins of each interval, interval i covers positions [i * intervalSize, (i + 1) * intervalSize).
+     *
+     * @param binCounts counts of a chromosome at binSize
+     * @param binSize bin size the counts were read at
+     * @param intervalSize histogram interval size, a multiple of binSize
+     * @param firstInterval first interval returned
+     * @param lastInterval last interval returned, included
+     * @return number of features starting in each interval from firstInterval to lastInterval
+     */
+    public static int[] getIntervalCounts(int[] binCounts, int binSize, int intervalSize, int firstInterval, int lastInterval) {
+        int factor = intervalSize / binSize;
+        int[] intervalCounts = new int[Math.max(0, lastInterval - firstInterval + 1)];
+        for (int i = 0; i < intervalCounts.length; i++) {
+            long firstBin = (long) (firstInterval + i) * factor;
+            long lastBin = Math.min(firstBin + factor, binCounts.length);
+            for (long bin = firstBin; bin < lastBin; bin++) {
+                intervalCounts[i] += binCounts[(int) bin];
+            }
+        }
+        return intervalCounts;
+    }
+
+    public static byte[] encode(int[] counts) {
+        ByteBuffer byteBuffer = ByteBuffer.allocate(4 * counts.length).order(ByteOrder.LITTLE_ENDIAN);
+        byteBuffer.asIntBuffer().put(counts);
+        return byteBuffer.array();
+    }
+
+    public static int[] decode(byte[] bytes) {
+        int[] counts = new int[bytes.length / 4];
+        ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer().get(counts);
+        return counts;
+    }
+}
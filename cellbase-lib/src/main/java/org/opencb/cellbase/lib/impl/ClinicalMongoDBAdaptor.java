@@ -5,6 +5,7 @@ import com.mongodb.client.model.Filters;
 import org.apache.commons.lang3.StringUtils;
 import org.bson.Document;
 import org.bson.conversions.Bson;
+import org.opencb.biodata.models.core.Region;
 import org.opencb.biodata.models.variant.Variant;
 import org.opencb.biodata.models.variant.avro.*;
 import org.opencb.cellbase.core.api.ClinicalDBAdaptor;
@@ -99,6 +100,11 @@ public class ClinicalMongoDBAdaptor extends MongoDBAdaptor implements ClinicalDB
         return mongoDBCollection.find(bson, null, Variant.class, parsedOptions);
     }
 
+    @Override
+    public List<QueryResult<Variant>> getByRegion(List<Region> regions, QueryOptions options) {
+        return getByRegionList(regions, options, 0, this::get, Variant::getStart, Variant::getEnd);
+    }
+
     @Override
     public QueryResult nativeGet(Query query, QueryOptions options) {
         Bson bson = parseQuery(query);
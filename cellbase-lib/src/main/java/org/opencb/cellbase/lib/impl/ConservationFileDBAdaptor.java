@@ -0,0 +1,318 @@
+/*
+ * Copyright 2015 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.cellbase.lib.impl;
+
+import org.opencb.biodata.models.core.GenomicScoreRegion;
+import org.opencb.biodata.models.core.Region;
+import org.opencb.biodata.models.variant.avro.Score;
+import org.opencb.cellbase.core.api.ConservationDBAdaptor;
+import org.opencb.cellbase.core.variant.annotation.ConservationScoreStore;
+import org.opencb.commons.datastore.core.Query;
+import org.opencb.commons.datastore.core.QueryOptions;
+import org.opencb.commons.datastore.core.QueryResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * ConservationDBAdaptor serving conservation scores from the local memory-mapped files of a ConservationScoreStore
+ * instead of the conservation collection. Only region queries are supported. Regions of chromosomes missing from the
+ * store are answered by the database adaptor, as done for the local CADD store.
+ */
+@Deprecated
+public class ConservationFileDBAdaptor implements ConservationDBAdaptor {
+
+    // ConservationDBAdaptor.QueryParams does not return its keys
+    private static final String REGION = "region";
+    private static final int MAX_REGION_SIZE = 10000;
+
+    private final ConservationScoreStore conservationScoreStore;
+    private final ConservationDBAdaptor databaseAdaptor;
+
+    private static Logger logger = LoggerFactory.getLogger(ConservationFileDBAdaptor.class);
+
+    public ConservationFileDBAdaptor(ConservationScoreStore conservationScoreStore, ConservationDBAdaptor databaseAdaptor) {
+        this.conservationScoreStore = conservationScoreStore;
+        this.databaseAdaptor = databaseAdaptor;
+
+        logger.debug("ConservationFileDBAdaptor: in 'constructor'");
+    }
+
+    @Override
+    public List<QueryResult> getAllByRegionList(List regionList, QueryOptions options) {
+        List<Region> regions = regionList;
+        return getByRegionList(regions, region -> {
+            long dbTimeStart = System.nanoTime();
+            List<GenomicScoreRegion<Float>> resultList = getScoreRegions(conservationScoreStore, region);
+            return new QueryResult<>(region.toString(), getDbTime(dbTimeStart), resultList.size(), resultList.size(),
+                    null, null, resultList);
+        }, databaseRegions -> databaseAdaptor.getAllByRegionList(databaseRegions, options));
+    }
+
+    /**
+     * Scores are kept in one float array per source, the lists returned only box the values that are read.
+     *
+     * @param conservationScoreStore store with the conservation scores
+     * @param region region, it is clamped to valid positions and to the maximum region size
+     * @return one GenomicScoreRegion per source with scores in the region, positions with no score are null
+     */
+    static List<GenomicScoreRegion<Float>> getScoreRegions(ConservationScoreStore conservationScoreStore, Region region) {
+        checkRegion(region);
+        // Max region size is 10000bp
+        if (region.getEnd() - region.getStart() > MAX_REGION_SIZE) {
+            region.setEnd(region.getStart() + MAX_REGION_SIZE);
+        }
+
+        List<GenomicScoreRegion<Float>> resultList = new ArrayList<>();
+        float[] scores = new float[Math.max(0, region.getEnd() - region.getStart() + 1)];
+        for (String source : conservationScoreStore.getSources()) {
+            if (conservationScoreStore.getScores(source, region.getChromosome(), region.getStart(), scores) > 0) {
+                resultList.add(new GenomicScoreRegion<>(region.getChromosome(), region.getStart(), region.getEnd(),
+                        source, new FloatList(scores)));
+                scores = new float[scores.length];
+            }
+        }
+        return resultList;
+    }
+
+    @Override
+    @Deprecated
+    public List<QueryResult> getAllScoresByRegionList(List regionList, QueryOptions options) {
+        List<Region> regions = regionList;
+        String[] sources = conservationScoreStore.getSources().toArray(new String[0]);
+        return getByRegionList(regions, region -> {
+            long dbTimeStart = System.nanoTime();
+            checkRegion(region);
+
+            float[] scores = new float[Math.max(0, region.getEnd() - region.getStart() + 1)];
+            float[] values = new float[scores.length * sources.length];
+            int[] valueSources = new int[values.length];
+            int numValues = 0;
+            for (int i = 0; i < sources.length; i++) {
+                if (conservationScoreStore.getScores(sources[i], region.getChromosome(), region.getStart(), scores) > 0) {
+                    for (float score : scores) {
+                        if (!Float.isNaN(score)) {
+                            values[numValues] = score;
+                            valueSources[numValues++] = i;
+                        }
+                    }
+                }
+            }
+            // Same as the conservation collection adaptor: no result list when there are no scores
+            return new QueryResult<>(region.toString(), getDbTime(dbTimeStart), numValues, numValues, null, null,
+                    numValues == 0 ? null : new ScoreList(sources, values, valueSources, numValues));
+        }, databaseRegions -> databaseAdaptor.getAllScoresByRegionList(databaseRegions, options));
+    }
+
+    /**
+     * @param regions regions
+     * @param storeFunction result of a region of a chromosome in the store
+     * @param databaseFunction results of the regions of chromosomes missing from the store, in the same order
+     * @return one QueryResult per region, in the same order
+     */
+    private List<QueryResult> getByRegionList(List<Region> regions, Function<Region, QueryResult> storeFunction,
+                                              Function<List<Region>, List<QueryResult>> databaseFunction) {
+        List<QueryResult> queryResults = new ArrayList<>(regions.size());
+        List<Region> databaseRegions = new ArrayList<>();
+        for (Region region : regions) {
+            if (conservationScoreStore.contains(region.getChromosome())) {
+                queryResults.add(storeFunction.apply(region));
+            } else {
+                // Filled in below with the results from the database
+                queryResults.add(null);
+                databaseRegions.add(region);
+            }
+        }
+        if (!databaseRegions.isEmpty()) {
+            Iterator<QueryResult> databaseResults = databaseFunction.apply(databaseRegions).iterator();
+            for (int i = 0; i < queryResults.size(); i++) {
+                if (queryResults.get(i) == null) {
+                    queryResults.set(i, databaseResults.next());
+                }
+            }
+        }
+        return queryResults;
+    }
+
+    @Override
+    public QueryResult get(Query query, QueryOptions options) {
+        List<QueryResult> queryResults = getAllByRegionList(getRegions(query), options);
+        List<Object> resultList = new ArrayList<>();
+        int dbTime = 0;
+        for (QueryResult queryResult : queryResults) {
+            resultList.addAll(queryResult.getResult());
+            dbTime += queryResult.getDbTime();
+        }
+        String id = query != null ? query.getString(REGION) : null;
+        return new QueryResult<>(id, dbTime, resultList.size(), resultList.size(), null, null, resultList);
+    }
+
+    @Override
+    public QueryResult nativeGet(Query query, QueryOptions options) {
+        return get(query, options);
+    }
+
+    @Override
+    public QueryResult<Long> update(List objectList, String field, String[] innerFields) {
+        return null;
+    }
+
+    @Override
+    public QueryResult<Long> count(Query query) {
+        return null;
+    }
+
+    @Override
+    public QueryResult distinct(Query query, String field) {
+        return null;
+    }
+
+    @Override
+    public QueryResult stats(Query query) {
+        return null;
+    }
+
+    @Override
+    public Iterator iterator(Query query, QueryOptions options) {
+        return null;
+    }
+
+    @Override
+    public Iterator nativeIterator(Query query, QueryOptions options) {
+        return null;
+    }
+
+    @Override
+    public QueryResult rank(Query query, String field, int numResults, boolean asc) {
+        return null;
+    }
+
+    @Override
+    public QueryResult groupBy(Query query, String field, QueryOptions options) {
+        return null;
+    }
+
+    @Override
+    public QueryResult groupBy(Query query, List fields, QueryOptions options) {
+        return null;
+    }
+
+    @Override
+    public void forEach(Query query, Consumer action, QueryOptions options) {
+
+    }
+
+    private List<Region> getRegions(Query query) {
+        String regions = query != null ? query.getString(REGION) : null;
+        if (regions == null || regions.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return Region.parseRegions(regions);
+    }
+
+    private static void checkRegion(Region region) {
+        // positions below 1 are not allowed
+        if (region.getStart() < 1) {
+            region.setStart(1);
+        }
+        if (region.getEnd() < 1) {
+            region.setEnd(1);
+        }
+    }
+
+    private int getDbTime(long dbTimeStart) {
+        return (int) TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - dbTimeStart);
+    }
+
+    /**
+     * Read-only view of the scores of consecutive positions, NaN values are returned as null.
+     */
+    private static class FloatList extends AbstractList<Float> {
+
+        private final float[] values;
+
+        FloatList(float[] values) {
+            this.values = values;
+        }
+
+        @Override
+        public Float get(int index) {
+            float value = values[index];
+            return Float.isNaN(value) ? null : value;
+        }
+
+        @Override
+        public int size() {
+            return values.length;
+        }
+    }
+
+    /**
+     * View of the scores of a region, Score objects are only created when read. Callers may append other scores, e.g.
+     * the scores of the other breakpoint of a breakend, those are kept apart.
+     */
+    private static class ScoreList extends AbstractList<Score> {
+
+        private final String[] sources;
+        private final float[] values;
+        private final int[] valueSources;
+        private final int numValues;
+        private List<Score> appended;
+
+        ScoreList(String[] sources, float[] values, int[] valueSources, int numValues) {
+            this.sources = sources;
+            this.values = values;
+            this.valueSources = valueSources;
+            this.numValues = numValues;
+        }
+
+        @Override
+        public Score get(int index) {
+            if (index >= numValues) {
+                if (appended == null) {
+                    throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+                }
+                return appended.get(index - numValues);
+            }
+            return new Score((double) values[index], sources[valueSources[index]], null);
+        }
+
+        @Override
+        public void add(int index, Score score) {
+            if (index != size()) {
+                throw new UnsupportedOperationException("Scores can only be appended");
+            }
+            if (appended == null) {
+                appended = new ArrayList<>();
+            }
+            appended.add(score);
+            modCount++;
+        }
+
+        @Override
+        public int size() {
+            return appended == null ? numValues : numValues + appended.size();
+        }
+    }
+}
@@ -74,6 +74,12 @@ public class GeneMongoDBAdaptor extends MongoDBAdaptor implements GeneDBAdaptor<
     public QueryResult getIntervalFrequencies(Query query, int intervalSize, QueryOptions options) {
         if (query.getString(QueryParams.REGION.key()) != null) {
             Region region = Region.parseRegion(query.getString(QueryParams.REGION.key()));
+            if (isRegionOnlyQuery(query, QueryParams.REGION.key(), QueryParams.values())) {
+                QueryResult queryResult = getFeatureDensityIntervalFrequencies(GENE, region, intervalSize);
+                if (queryResult != null) {
+                    return queryResult;
+                }
+            }
             Bson bsonDocument = parseQuery(query);
             return getIntervalFrequencies(bsonDocument, region, intervalSize, options);
         }
@@ -137,6 +143,12 @@ public class GeneMongoDBAdaptor extends MongoDBAdaptor implements GeneDBAdaptor<
         }
     }
 
+    @Override
+    public List<QueryResult<Gene>> getByRegion(List<Region> regions, QueryOptions options) {
+        return getByRegionList(regions, options, MongoDBCollectionConfiguration.GENE_CHUNK_SIZE, this::get,
+                Gene::getStart, Gene::getEnd);
+    }
+
     @Override
     public QueryResult nativeGet(Query query, QueryOptions options) {
         Bson bson = parseQuery(query);
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2015 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.cellbase.lib.impl;
+
+import org.opencb.biodata.models.core.GenomeSequenceFeature;
+import org.opencb.biodata.models.core.Region;
+import org.opencb.cellbase.core.variant.annotation.ConservationScoreStore;
+import org.opencb.cellbase.core.variant.annotation.TwoBitGenomeStore;
+import org.opencb.commons.datastore.core.QueryOptions;
+import org.opencb.commons.datastore.core.QueryResult;
+import org.opencb.commons.datastore.mongodb.MongoDataStore;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * GenomeDBAdaptor serving the reference sequence from the local memory-mapped 2-bit files of a TwoBitGenomeStore
+ * instead of the genome_sequence collection. Chromosomes missing from the store, genome info and cytobands are still
+ * read from the database.
+ */
+public class GenomeFileDBAdaptor extends GenomeMongoDBAdaptor {
+
+    private final TwoBitGenomeStore twoBitGenomeStore;
+
+    public GenomeFileDBAdaptor(String species, String assembly, MongoDataStore mongoDataStore,
+                               TwoBitGenomeStore twoBitGenomeStore) {
+        this(species, assembly, mongoDataStore, twoBitGenomeStore, null);
+    }
+
+    /**
+     * @param species species
+     * @param assembly assembly
+     * @param mongoDataStore database of the species and assembly
+     * @param twoBitGenomeStore local reference sequence
+     * @param conservationScoreStore local conservation scores used instead of the conservation collection, may be null
+     */
+    public GenomeFileDBAdaptor(String species, String assembly, MongoDataStore mongoDataStore,
+                               TwoBitGenomeStore twoBitGenomeStore, ConservationScoreStore conservationScoreStore) {
+        super(species, assembly, mongoDataStore, conservationScoreStore);
+        this.twoBitGenomeStore = twoBitGenomeStore;
+
+        logger.debug("GenomeFileDBAdaptor: in 'constructor'");
+    }
+
+    @Override
+    public QueryResult<GenomeSequenceFeature> getSequence(Region region, QueryOptions queryOptions) {
+        if (!twoBitGenomeStore.contains(region.getChromosome())) {
+            return super.getSequence(region, queryOptions);
+        }
+
+        long dbTimeStart = System.nanoTime();
+        QueryResult<GenomeSequenceFeature> result = new QueryResult<>(region.toString());
+        String sequence = twoBitGenomeStore.getSequence(region.getChromosome(), region.getStart(), region.getEnd());
+        if (sequence != null && !sequence.isEmpty()) {
+            result.setResult(Collections.singletonList(new GenomeSequenceFeature(region.getChromosome(), region.getStart(),
+                    region.getEnd(), 1, twoBitGenomeStore.getSequenceType(region.getChromosome()),
+                    twoBitGenomeStore.getAssembly(region.getChromosome()), sequence)));
+        }
+        result.setDbTime((int) TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - dbTimeStart));
+        return result;
+    }
+}
@@ -24,6 +24,7 @@ import org.opencb.biodata.models.core.Region;
 import org.opencb.biodata.models.variant.avro.Cytoband;
 import org.opencb.cellbase.core.api.GenomeDBAdaptor;
 import org.opencb.cellbase.core.common.DNASequenceUtils;
+import org.opencb.cellbase.core.variant.annotation.ConservationScoreStore;
 import org.opencb.biodata.models.core.GenomeSequenceFeature;
 import org.opencb.biodata.models.core.GenomicScoreRegion;
 import org.opencb.cellbase.lib.MongoDBCollectionConfiguration;
@@ -34,6 +35,7 @@ import org.opencb.commons.datastore.mongodb.MongoDBCollection;
 import org.opencb.commons.datastore.mongodb.MongoDataStore;
 
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 
 /**
@@ -43,6 +45,7 @@ public class GenomeMongoDBAdaptor extends MongoDBAdaptor implements GenomeDBAdap
 
     private MongoDBCollection genomeInfoMongoDBCollection;
     private MongoDBCollection conservationMongoDBCollection;
+    private ConservationScoreStore conservationScoreStore;
     private static final Object CYTOBANDS = "cytobands";
     private static final Object START = "start";
     private static final String END = "end";
@@ -52,7 +55,20 @@ public class GenomeMongoDBAdaptor extends MongoDBAdaptor implements GenomeDBAdap
     private Document genomeInfo = null;
 
     public GenomeMongoDBAdaptor(String species, String assembly, MongoDataStore mongoDataStore) {
+        this(species, assembly, mongoDataStore, null);
+    }
+
+    /**
+     * @param species species
+     * @param assembly assembly
+     * @param mongoDataStore database of the species and assembly
+     * @param conservationScoreStore local conservation scores used instead of the conservation collection for the
+     *                               chromosomes it contains, may be null
+     */
+    public GenomeMongoDBAdaptor(String species, String assembly, MongoDataStore mongoDataStore,
+                                ConservationScoreStore conservationScoreStore) {
         super(species, assembly, mongoDataStore);
+        this.conservationScoreStore = conservationScoreStore;
 
         genomeInfoMongoDBCollection = mongoDataStore.getCollection("genome_info");
         mongoDBCollection = mongoDataStore.getCollection("genome_sequence");
@@ -215,6 +231,40 @@ public class GenomeMongoDBAdaptor extends MongoDBAdaptor implements GenomeDBAdap
     @Override
 //    public List<QueryResult<ConservationScoreRegion>> getConservation(List<Region> regionList, QueryOptions options) {
     public List<QueryResult<GenomicScoreRegion<Float>>> getConservation(List<Region> regionList, QueryOptions options) {
+        if (conservationScoreStore == null) {
+            return getConservationFromDatabase(regionList, options);
+        }
+
+        List<QueryResult<GenomicScoreRegion<Float>>> conservationQueryResults = new ArrayList<>(regionList.size());
+        List<Region> databaseRegions = new ArrayList<>();
+        for (Region region : regionList) {
+            if (conservationScoreStore.contains(region.getChromosome())) {
+                long dbTimeStart = System.nanoTime();
+                List<GenomicScoreRegion<Float>> resultList = ConservationFileDBAdaptor.getScoreRegions(conservationScoreStore,
+                        region);
+                conservationQueryResults.add(new QueryResult<>(region.toString(),
+                        (int) TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - dbTimeStart), resultList.size(),
+                        resultList.size(), null, null, resultList));
+            } else {
+                // Filled in below with the results from the database
+                conservationQueryResults.add(null);
+                databaseRegions.add(region);
+            }
+        }
+        if (!databaseRegions.isEmpty()) {
+            Iterator<QueryResult<GenomicScoreRegion<Float>>> databaseResults =
+                    getConservationFromDatabase(databaseRegions, options).iterator();
+            for (int i = 0; i < conservationQueryResults.size(); i++) {
+                if (conservationQueryResults.get(i) == null) {
+                    conservationQueryResults.set(i, databaseResults.next());
+                }
+            }
+        }
+        return conservationQueryResults;
+    }
+
+    private List<QueryResult<GenomicScoreRegion<Float>>> getConservationFromDatabase(List<Region> regionList,
+                                                                                     QueryOptions options) {
         //TODO not finished yet
         List<Document> queries = new ArrayList<>();
         List<String> ids = new ArrayList<>(regionList.size());
@@ -22,10 +22,14 @@ import com.mongodb.client.MongoCursor;
 import com.mongodb.client.model.*;
 import org.bson.*;
 import org.bson.conversions.Bson;
+import org.bson.types.Binary;
 import org.opencb.biodata.models.core.Region;
+import org.opencb.cellbase.core.api.FeatureDBAdaptor;
 import org.opencb.cellbase.core.common.IntervalFeatureFrequency;
+import org.opencb.cellbase.lib.FeatureDensityPyramid;
 import org.opencb.commons.datastore.core.Query;
 import org.opencb.commons.datastore.core.QueryOptions;
+import org.opencb.commons.datastore.core.QueryParam;
 import org.opencb.commons.datastore.core.QueryResult;
 import org.opencb.commons.datastore.mongodb.MongoDBCollection;
 import org.opencb.commons.datastore.mongodb.MongoDataStore;
@@ -34,6 +38,9 @@ import org.slf4j.LoggerFactory;
 
 import java.math.BigInteger;
 import java.util.*;
+import java.util.function.BiFunction;
+import java.util.function.ToIntFunction;
+import java.util.stream.Collectors;
 
 public class MongoDBAdaptor {
 
@@ -194,6 +201,138 @@ public class MongoDBAdaptor {
         }
     }
 
+    /**
+     * Gets the features overlapping each region with one query per chromosome chunk instead of one query per region.
+     * Regions are grouped by chromosome and by the chunk their start falls in, overlapping and adjacent regions of a
+     * group are merged for the query and hits are then split back into one QueryResult per region, sorted by start.
+     * A limit holds for each region: it is not pushed down to the merged queries and each region keeps its first
+     * features by start, numTotalResults still counting all of them. A skip cannot be applied after the split, so
+     * when it is set there is still one query per region.
+     *
+     * @param regions regions
+     * @param options query options, with merge=true one QueryResult is returned for all the regions
+     * @param chunkSize chunk size of the collection, 0 to group the regions by chromosome only
+     * @param getFunction get method of the adaptor, taking the regions in the "region" query param
+     * @param startFunction feature start
+     * @param endFunction feature end
+     * @param <T> feature type
+     * @return one QueryResult per region, in the same order
+     */
+    protected static <T> List<QueryResult<T>> getByRegionList(List<Region> regions, QueryOptions options, int chunkSize,
+                                                              BiFunction<Query, QueryOptions, QueryResult<T>> getFunction,
+                                                              ToIntFunction<T> startFunction, ToIntFunction<T> endFunction) {
+        QueryOptions batchOptions = options != null ? new QueryOptions(options) : new QueryOptions();
+        if (batchOptions.getBoolean(FeatureDBAdaptor.MERGE, false)) {
+            Query query = new Query(FeatureDBAdaptor.REGION, regions.stream().map(Region::toString)
+                    .collect(Collectors.joining(",")));
+            return Collections.singletonList(getFunction.apply(query, batchOptions));
+        }
+
+        if (batchOptions.getInt(QueryOptions.SKIP, 0) > 0) {
+            List<QueryResult<T>> queryResults = new ArrayList<>(regions.size());
+            for (Region region : regions) {
+                queryResults.add(getFunction.apply(new Query(FeatureDBAdaptor.REGION, region.toString()), batchOptions));
+            }
+            return queryResults;
+        }
+        int limit = batchOptions.getInt(QueryOptions.LIMIT, -1);
+        batchOptions.remove(QueryOptions.LIMIT);
+
+        // Features needed to split the hits are always returned
+        if (batchOptions.get(QueryOptions.INCLUDE) != null) {
+            List<String> include = new ArrayList<>(batchOptions.getAsStringList(QueryOptions.INCLUDE));
+            if (!include.isEmpty()) {
+                include.addAll(Arrays.asList("chromosome", "start", "end"));
+                batchOptions.put(QueryOptions.INCLUDE, include);
+            }
+        }
+
+        Map<String, List<Integer>> regionGroups = new LinkedHashMap<>();
+        for (int i = 0; i < regions.size(); i++) {
+            Region region = regions.get(i);
+            String groupKey = chunkSize > 0
+                    ? region.getChromosome() + "_" + region.getStart() / chunkSize
+                    : region.getChromosome();
+            regionGroups.computeIfAbsent(groupKey, key -> new ArrayList<>()).add(i);
+        }
+
+        List<QueryResult<T>> queryResults = new ArrayList<>(Collections.nCopies(regions.size(), null));
+        for (List<Integer> positions : regionGroups.values()) {
+            positions.sort(Comparator.comparingInt(position -> regions.get(position).getStart()));
+
+            String chromosome = regions.get(positions.get(0)).getChromosome();
+            StringBuilder mergedRegions = new StringBuilder();
+            int mergedStart = -1;
+            int mergedEnd = -1;
+            for (int position : positions) {
+                Region region = regions.get(position);
+                if (mergedStart >= 0 && region.getStart() <= mergedEnd + 1) {
+                    mergedEnd = Math.max(mergedEnd, region.getEnd());
+                } else {
+                    if (mergedStart >= 0) {
+                        appendRegion(mergedRegions, chromosome, mergedStart, mergedEnd);
+                    }
+                    mergedStart = region.getStart();
+                    mergedEnd = region.getEnd();
+                }
+            }
+            appendRegion(mergedRegions, chromosome, mergedStart, mergedEnd);
+
+            QueryResult<T> queryResult = getFunction.apply(new Query(FeatureDBAdaptor.REGION, mergedRegions.toString()),
+                    batchOptions);
+            List<T> features = queryResult.getResult() != null ? new ArrayList<>(queryResult.getResult()) : new ArrayList<>();
+            features.sort(Comparator.comparingInt(startFunction));
+
+            // Max end of the features up to each one, so that the first feature that may overlap a region can be found
+            // with a binary search
+            int[] starts = new int[features.size()];
+            int[] maxEnds = new int[features.size()];
+            for (int i = 0; i < features.size(); i++) {
+                starts[i] = startFunction.applyAsInt(features.get(i));
+                maxEnds[i] = Math.max(i > 0 ? maxEnds[i - 1] : Integer.MIN_VALUE, endFunction.applyAsInt(features.get(i)));
+            }
+
+            for (int position : positions) {
+                Region region = regions.get(position);
+                List<T> result = new ArrayList<>();
+                int to = firstGreaterThan(starts, region.getEnd());
+                for (int i = firstGreaterThan(maxEnds, region.getStart() - 1); i < to; i++) {
+                    if (endFunction.applyAsInt(features.get(i)) >= region.getStart()) {
+                        result.add(features.get(i));
+                    }
+                }
+                int numTotalResults = result.size();
+                if (limit > 0 && result.size() > limit) {
+                    result = new ArrayList<>(result.subList(0, limit));
+                }
+                queryResults.set(position, new QueryResult<>(region.toString(), queryResult.getDbTime(), result.size(),
+                        numTotalResults, queryResult.getWarningMsg(), queryResult.getErrorMsg(), result));
+            }
+        }
+        return queryResults;
+    }
+
+    private static void appendRegion(StringBuilder regions, String chromosome, int start, int end) {
+        if (regions.length() > 0) {
+            regions.append(",");
+        }
+        regions.append(chromosome).append(":").append(start).append("-").append(end);
+    }
+
+    private static int firstGreaterThan(int[] sortedValues, int value) {
+        int low = 0;
+        int high = sortedValues.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sortedValues[mid] <= value) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
     protected <T> void createOrQuery(List<T> queryValues, String mongoDbField, List<Bson> andBsonList) {
         if (queryValues.size() == 1) {
             andBsonList.add(Filters.eq(mongoDbField, queryValues.get(0)));
@@ -393,6 +532,101 @@ public class MongoDBAdaptor {
         return queryResult;
     }
 
+    /**
+     * Reads interval frequencies from the feature density pyramid computed when the collection was loaded. The pyramid
+     * counts every feature starting in an interval, while the aggregation only counts those overlapping the region:
+     * the first and last intervals are counted from the collection unless the region covers them entirely, so that
+     * the result is the same as the aggregation.
+     *
+     * @param collection collection whose features are counted
+     * @param region region of the histogram
+     * @param intervalSize histogram interval size
+     * @return frequencies in the same format as the aggregation, null if the pyramid has no level the interval is a
+     * multiple of or was not computed for this collection and chromosome
+     */
+    protected QueryResult getFeatureDensityIntervalFrequencies(String collection, Region region, int intervalSize) {
+        int interval = 50000;
+        if (intervalSize > 0) {
+            interval = intervalSize;
+        }
+        int binSize = FeatureDensityPyramid.getBinSize(interval);
+        if (binSize < 0) {
+            return null;
+        }
+
+        MongoDBCollection featureDensityCollection = mongoDataStore.getCollection(FeatureDensityPyramid.COLLECTION);
+        QueryResult<Document> featureDensityResult = featureDensityCollection.find(
+                Filters.eq("_id", FeatureDensityPyramid.getId(collection, region.getChromosome(), binSize)), new QueryOptions());
+        if (featureDensityResult.getNumResults() == 0) {
+            return null;
+        }
+        Object counts = featureDensityResult.first().get("counts");
+        int[] binCounts = FeatureDensityPyramid.decode(counts instanceof Binary ? ((Binary) counts).getData() : (byte[]) counts);
+
+        int firstChunkId = getChunkId(region.getStart(), interval);
+        int lastChunkId = getChunkId(region.getEnd(), interval);
+        int[] intervalCounts = FeatureDensityPyramid.getIntervalCounts(binCounts, binSize, interval, firstChunkId, lastChunkId);
+        if (intervalCounts.length > 0 && (region.getStart() > getChunkStart(firstChunkId, interval)
+                || (firstChunkId == lastChunkId && region.getEnd() < getChunkEnd(firstChunkId, interval)))) {
+            intervalCounts[0] = countOverlappingFeatures(region, firstChunkId * interval, getChunkEnd(firstChunkId, interval));
+        }
+        if (lastChunkId > firstChunkId && region.getEnd() < getChunkEnd(lastChunkId, interval)) {
+            intervalCounts[intervalCounts.length - 1] = countOverlappingFeatures(region, lastChunkId * interval,
+                    getChunkEnd(lastChunkId, interval));
+        }
+        List<Document> resultList = new ArrayList<>(intervalCounts.length);
+        for (int i = 0; i < intervalCounts.length; i++) {
+            int chunkId = firstChunkId + i;
+            Document intervalObj = new Document();
+            intervalObj.put("_id", chunkId);
+            intervalObj.put("chromosome", region.getChromosome());
+            intervalObj.put("start", getChunkStart(chunkId, interval));
+            intervalObj.put("end", getChunkEnd(chunkId, interval));
+            if (intervalCounts[i] == 0) {
+                intervalObj.put("features_count", 0);
+            } else {
+                intervalObj.put("features_count", Math.log(intervalCounts[i]));
+            }
+            resultList.add(intervalObj);
+        }
+
+        QueryResult queryResult = new QueryResult();
+        queryResult.setDbTime(featureDensityResult.getDbTime());
+        queryResult.setResult(resultList);
+        queryResult.setId(region.toString());
+        queryResult.setResultType("frequencies");
+
+        return queryResult;
+    }
+
+    /**
+     * @param region region of the histogram
+     * @param intervalStart first position of the interval
+     * @param intervalEnd last position of the interval
+     * @return number of features starting in the interval that overlap the region, as counted by the aggregation
+     */
+    private int countOverlappingFeatures(Region region, int intervalStart, int intervalEnd) {
+        Bson query = Filters.and(Filters.eq("chromosome", region.getChromosome()), Filters.gte("start", intervalStart),
+                Filters.lte("start", Math.min(intervalEnd, region.getEnd())), Filters.gte("end", region.getStart()));
+        return mongoDBCollection.count(query).first().intValue();
+    }
+
+    /**
+     * @param query query of an interval frequencies request
+     * @param regionKey key of the region filter
+     * @param queryParams filters supported by the adaptor
+     * @return true if no filter other than the region is set, so the feature density pyramid can be used
+     */
+    protected boolean isRegionOnlyQuery(Query query, String regionKey, QueryParam[] queryParams) {
+        for (QueryParam queryParam : queryParams) {
+            String value = query.getString(queryParam.key());
+            if (!queryParam.key().equals(regionKey) && value != null && !value.isEmpty()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
 
 
 
@@ -22,10 +22,14 @@ import org.apache.commons.lang3.time.StopWatch;
 import org.bson.Document;
 import org.opencb.biodata.models.core.Gene;
 import org.opencb.cellbase.core.api.*;
+import org.opencb.cellbase.core.config.AnnotationProperties;
 import org.opencb.cellbase.core.config.CellBaseConfiguration;
 import org.opencb.cellbase.core.config.DatabaseCredentials;
 import org.opencb.cellbase.core.config.Species;
 import org.opencb.cellbase.core.monitor.HealthStatus;
+import org.opencb.cellbase.core.variant.annotation.CaddScoreStore;
+import org.opencb.cellbase.core.variant.annotation.ConservationScoreStore;
+import org.opencb.cellbase.core.variant.annotation.TwoBitGenomeStore;
 import org.opencb.commons.datastore.core.DataStoreServerAddress;
 import org.opencb.commons.datastore.core.QueryResult;
 import org.opencb.commons.datastore.mongodb.MongoDBConfiguration;
@@ -35,6 +39,9 @@ import org.opencb.commons.datastore.mongodb.MongoDataStoreManager;
 import java.io.IOException;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.security.InvalidParameterException;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -303,7 +310,41 @@ public class MongoDBAdaptorFactory extends DBAdaptorFactory {
     @Override
     public GenomeDBAdaptor getGenomeDBAdaptor(String species, String assembly) {
         MongoDataStore mongoDatastore = createMongoDBDatastore(species, assembly);
-        return new GenomeMongoDBAdaptor(species, assembly, mongoDatastore);
+        ConservationScoreStore conservationScoreStore = getConservationScoreStore(species, assembly);
+        TwoBitGenomeStore twoBitGenomeStore = getTwoBitGenomeStore(species, assembly);
+        if (twoBitGenomeStore != null) {
+            return new GenomeFileDBAdaptor(species, assembly, mongoDatastore, twoBitGenomeStore, conservationScoreStore);
+        }
+        return new GenomeMongoDBAdaptor(species, assembly, mongoDatastore, conservationScoreStore);
+    }
+
+    private TwoBitGenomeStore getTwoBitGenomeStore(String species, String assembly) {
+        AnnotationProperties annotationProperties = cellBaseConfiguration.getAnnotation();
+        if (annotationProperties == null) {
+            return null;
+        }
+        Path genomeDir = getBinaryDirectory(annotationProperties.getGenomeDir(), species, assembly);
+        if (genomeDir == null) {
+            return null;
+        }
+        TwoBitGenomeStore twoBitGenomeStore;
+        try {
+            twoBitGenomeStore = TwoBitGenomeStore.getInstance(genomeDir);
+        } catch (IOException e) {
+            logger.error("2-bit genome files at '{}' could not be mapped, using the database instead: {}", genomeDir,
+                    e.getMessage());
+            return null;
+        }
+        // The headers tell the assembly the files were built from, a misplaced genome must never be used
+        String cellbaseAssembly = getAssembly(getSpecies(species), assembly);
+        for (String fileAssembly : twoBitGenomeStore.getAssemblies()) {
+            if (!fileAssembly.equalsIgnoreCase(cellbaseAssembly)) {
+                logger.error("2-bit genome files at '{}' are from assembly '{}' instead of '{}', using the database instead",
+                        genomeDir, fileAssembly, cellbaseAssembly);
+                return null;
+            }
+        }
+        return twoBitGenomeStore;
     }
 
     @Override
@@ -351,7 +392,30 @@ public class MongoDBAdaptorFactory extends DBAdaptorFactory {
     @Override
     public ConservationDBAdaptor getConservationDBAdaptor(String species, String assembly) {
         MongoDataStore mongoDatastore = createMongoDBDatastore(species, assembly);
-        return new ConservationMongoDBAdaptor(species, assembly, mongoDatastore);
+        ConservationMongoDBAdaptor conservationMongoDBAdaptor = new ConservationMongoDBAdaptor(species, assembly, mongoDatastore);
+        ConservationScoreStore conservationScoreStore = getConservationScoreStore(species, assembly);
+        if (conservationScoreStore != null) {
+            return new ConservationFileDBAdaptor(conservationScoreStore, conservationMongoDBAdaptor);
+        }
+        return conservationMongoDBAdaptor;
+    }
+
+    private ConservationScoreStore getConservationScoreStore(String species, String assembly) {
+        AnnotationProperties annotationProperties = cellBaseConfiguration.getAnnotation();
+        if (annotationProperties == null) {
+            return null;
+        }
+        Path conservationDir = getBinaryDirectory(annotationProperties.getConservationDir(), species, assembly);
+        if (conservationDir == null) {
+            return null;
+        }
+        try {
+            return ConservationScoreStore.getInstance(conservationDir);
+        } catch (IOException e) {
+            logger.error("Conservation binary files at '{}' could not be mapped, using the database instead: {}",
+                    conservationDir, e.getMessage());
+            return null;
+        }
     }
 
 
@@ -375,7 +439,55 @@ public class MongoDBAdaptorFactory extends DBAdaptorFactory {
     @Override
     public VariantDBAdaptor getVariationDBAdaptor(String species, String assembly) {
         MongoDataStore mongoDatastore = createMongoDBDatastore(species, assembly);
-        return new VariantMongoDBAdaptor(species, assembly, mongoDatastore);
+        return new VariantMongoDBAdaptor(species, assembly, mongoDatastore, getCaddScoreStore(species, assembly));
+    }
+
+    private CaddScoreStore getCaddScoreStore(String species, String assembly) {
+        AnnotationProperties annotationProperties = cellBaseConfiguration.getAnnotation();
+        if (annotationProperties == null) {
+            return null;
+        }
+        Path caddDir = getBinaryDirectory(annotationProperties.getCaddDir(), species, assembly);
+        if (caddDir == null) {
+            return null;
+        }
+        try {
+            return CaddScoreStore.getInstance(caddDir);
+        } catch (IOException e) {
+            logger.error("CADD binary files at '{}' could not be mapped, using the database instead: {}", caddDir,
+                    e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Binary files are kept apart for each species and assembly, under dir/species/assembly, e.g. cadd/hsapiens/grch37,
+     * so that one species or assembly never gets the data of another.
+     *
+     * @param dir base directory of the binary files, may be empty
+     * @param species species id or scientific name
+     * @param assembly assembly name, null for the default assembly of the species
+     * @return directory with the binary files of this species and assembly, null if there is none and the database
+     * must be used instead
+     */
+    private Path getBinaryDirectory(String dir, String species, String assembly) {
+        if (StringUtils.isEmpty(dir)) {
+            return null;
+        }
+        Species speciesObject = getSpecies(species);
+        if (speciesObject == null) {
+            return null;
+        }
+        String cellbaseAssembly = getAssembly(speciesObject, assembly);
+        if (StringUtils.isEmpty(cellbaseAssembly)) {
+            return null;
+        }
+        Path directory = Paths.get(dir, speciesObject.getId(), cellbaseAssembly.toLowerCase());
+        if (!Files.isDirectory(directory)) {
+            logger.debug("No binary files at '{}', using the database instead", directory);
+            return null;
+        }
+        return directory;
     }
 
 //    @Override
@@ -22,6 +22,7 @@ import com.mongodb.client.model.Projections;
 import org.bson.Document;
 import org.bson.conversions.Bson;
 import org.opencb.biodata.formats.protein.uniprot.v201504jaxb.Entry;
+import org.opencb.biodata.models.variant.avro.ConsequenceType;
 import org.opencb.biodata.models.variant.avro.ProteinFeature;
 import org.opencb.biodata.models.variant.avro.ProteinVariantAnnotation;
 import org.opencb.biodata.models.variant.avro.Score;
@@ -282,6 +283,173 @@ public class ProteinMongoDBAdaptor extends MongoDBAdaptor implements ProteinDBAd
         return queryResult;
     }
 
+    @Override
+    public List<QueryResult<ProteinVariantAnnotation>> getVariantAnnotation(List<ConsequenceType> consequenceTypeList,
+                                                                            QueryOptions options) {
+        long dbTimeStart = System.currentTimeMillis();
+
+        // Collect all transcripts and the substitution scores to be projected for the whole batch
+        Set<String> transcriptIdSet = new HashSet<>();
+        Set<String> substitutionProjectionSet = new HashSet<>();
+        boolean queryFeatures = false;
+        for (ConsequenceType consequenceType : consequenceTypeList) {
+            ProteinVariantAnnotation proteinVariantAnnotation = consequenceType.getProteinVariantAnnotation();
+            transcriptIdSet.add(consequenceType.getEnsemblTranscriptId());
+            // Stop_gain/lost variants do not have SIFT/POLYPHEN scores
+            if (!proteinVariantAnnotation.getAlternate().equals("STOP") && !proteinVariantAnnotation.getReference().equals("STOP")) {
+                String aaShortName = aaShortNameMap.get(proteinVariantAnnotation.getAlternate().toUpperCase());
+                if (aaShortName != null) {
+                    substitutionProjectionSet.add("aaPositions." + proteinVariantAnnotation.getPosition() + "." + aaShortName);
+                }
+            }
+            queryFeatures |= aaShortNameMap.containsKey(proteinVariantAnnotation.getAlternate());
+        }
+
+        // One query to the substitution collection for all transcripts, projecting only the required positions
+        Map<String, Document> aaPositionsMap = new HashMap<>();
+        if (!substitutionProjectionSet.isEmpty()) {
+            List<String> projectionList = new ArrayList<>(substitutionProjectionSet);
+            projectionList.add("transcriptId");
+            QueryResult<Document> substitutionQueryResult = proteinSubstitutionMongoDBCollection
+                    .find(Filters.in("transcriptId", transcriptIdSet), Projections.include(projectionList), new QueryOptions());
+            for (Document document : substitutionQueryResult.getResult()) {
+                if (document.get("aaPositions") != null) {
+                    aaPositionsMap.putIfAbsent(document.getString("transcriptId"), (Document) document.get("aaPositions"));
+                }
+            }
+        }
+
+        // One query to the protein collection for all transcripts, features are filtered in memory
+        Map<String, List<Document>> proteinDocumentMap = new HashMap<>();
+        if (queryFeatures) {
+            QueryResult<Document> proteinQueryResult = mongoDBCollection.find(Filters.in("dbReference.id", transcriptIdSet),
+                    Projections.include("accession", "keyword", "feature", "dbReference.id"), new QueryOptions());
+            for (Document document : proteinQueryResult.getResult()) {
+                List dbReferenceList = document.get("dbReference", List.class);
+                if (dbReferenceList != null) {
+                    for (Object dbReference : dbReferenceList) {
+                        String id = ((Document) dbReference).getString("id");
+                        if (transcriptIdSet.contains(id)) {
+                            proteinDocumentMap.computeIfAbsent(id, key -> new ArrayList<>()).add(document);
+                        }
+                    }
+                }
+            }
+        }
+
+        int dbTime = Long.valueOf(System.currentTimeMillis() - dbTimeStart).intValue();
+        List<QueryResult<ProteinVariantAnnotation>> queryResultList = new ArrayList<>(consequenceTypeList.size());
+        for (ConsequenceType consequenceType : consequenceTypeList) {
+            String ensemblTranscriptId = consequenceType.getEnsemblTranscriptId();
+            int position = consequenceType.getProteinVariantAnnotation().getPosition();
+            String aaReference = consequenceType.getProteinVariantAnnotation().getReference();
+            String aaAlternate = consequenceType.getProteinVariantAnnotation().getAlternate();
+
+            ProteinVariantAnnotation proteinVariantAnnotation = new ProteinVariantAnnotation();
+            proteinVariantAnnotation.setPosition(position);
+            proteinVariantAnnotation.setReference(aaReference);
+            proteinVariantAnnotation.setAlternate(aaAlternate);
+            if (!aaAlternate.equals("STOP") && !aaReference.equals("STOP")) {
+                proteinVariantAnnotation.setSubstitutionScores(getSubstitutionScores(aaPositionsMap.get(ensemblTranscriptId),
+                        position, aaShortNameMap.get(aaAlternate.toUpperCase())));
+            }
+
+            String shortAlternativeAa = aaShortNameMap.get(aaAlternate);
+            if (shortAlternativeAa != null && proteinDocumentMap.containsKey(ensemblTranscriptId)) {
+                Document proteinVariantData = getProteinVariantData(proteinDocumentMap.get(ensemblTranscriptId), position,
+                        shortAlternativeAa);
+                if (proteinVariantData != null) {
+                    proteinVariantAnnotation = processProteinVariantData(proteinVariantAnnotation, shortAlternativeAa,
+                            proteinVariantData);
+                }
+            }
+
+            queryResultList.add(new QueryResult<>(ensemblTranscriptId + "/" + position + "/" + aaAlternate, dbTime, 1, 1,
+                    null, null, Collections.singletonList(proteinVariantAnnotation)));
+        }
+
+        return queryResultList;
+    }
+
+    private List<Score> getSubstitutionScores(Document aaPositionsDocument, int position, String aaShortName) {
+        List<Score> scoreList = new ArrayList<>(NUM_PROTEIN_SUBSTITUTION_SCORE_METHODS);
+        if (aaPositionsDocument != null && aaShortName != null) {
+            Document positionDocument = (Document) aaPositionsDocument.get(Integer.toString(position));
+            Document aaDocument = positionDocument != null ? (Document) positionDocument.get(aaShortName) : null;
+            if (aaDocument != null) {
+                if (aaDocument.get("ss") != null) {
+                    scoreList.add(new Score(Double.parseDouble("" + aaDocument.get("ss")),
+                            "sift", VariantAnnotationUtils.SIFT_DESCRIPTIONS.get(aaDocument.get("se"))));
+                }
+                if (aaDocument.get("ps") != null) {
+                    scoreList.add(new Score(Double.parseDouble("" + aaDocument.get("ps")),
+                            "polyphen", VariantAnnotationUtils.POLYPHEN_DESCRIPTIONS.get(aaDocument.get("pe"))));
+                }
+            }
+        }
+        return scoreList;
+    }
+
+    /**
+     * In-memory equivalent of the $unwind/$match/$group pipeline run by the single-variant getVariantAnnotation: keeps
+     * the features of the first protein that either are the variant itself or span the given position.
+     */
+    private Document getProteinVariantData(List<Document> proteinDocumentList, int position, String shortAlternativeAa) {
+        for (Document proteinDocument : proteinDocumentList) {
+            List featureList = proteinDocument.get("feature", List.class);
+            if (featureList == null) {
+                continue;
+            }
+
+            List<Document> matchingFeatureList = new ArrayList<>();
+            for (Object featureObject : featureList) {
+                Document featureDocument = (Document) featureObject;
+                if (overlapsFeature(featureDocument, position, shortAlternativeAa)
+                        && !matchingFeatureList.contains(featureDocument)) {
+                    matchingFeatureList.add(featureDocument);
+                }
+            }
+
+            if (!matchingFeatureList.isEmpty()) {
+                List keywordList = proteinDocument.get("keyword", List.class);
+                Document proteinVariantData = new Document();
+                proteinVariantData.put("_id", proteinDocument.get("accession", ArrayList.class));
+                proteinVariantData.put("keyword", new ArrayList<>(Collections.singletonList(keywordList != null
+                        ? keywordList
+                        : new ArrayList<>())));
+                proteinVariantData.put("feature", new ArrayList<>(matchingFeatureList));
+                return proteinVariantData;
+            }
+        }
+        return null;
+    }
+
+    private boolean overlapsFeature(Document featureDocument, int position, String shortAlternativeAa) {
+        Document location = (Document) featureDocument.get("location");
+        if (location == null) {
+            return false;
+        }
+
+        Integer featurePosition = getLocationPosition(location, "position");
+        List variationList = featureDocument.get("variation", List.class);
+        if (featurePosition != null && featurePosition == position && variationList != null
+                && variationList.contains(shortAlternativeAa)) {
+            return true;
+        }
+
+        Integer begin = getLocationPosition(location, "begin");
+        Integer end = getLocationPosition(location, "end");
+        return begin != null && end != null && begin <= position && end >= position;
+    }
+
+    private Integer getLocationPosition(Document location, String field) {
+        Document fieldDocument = (Document) location.get(field);
+        if (fieldDocument != null && fieldDocument.get("position") != null) {
+            return ((Number) fieldDocument.get("position")).intValue();
+        }
+        return null;
+    }
+
     @Override
     public QueryResult rank(Query query, String field, int numResults, boolean asc) {
         return null;
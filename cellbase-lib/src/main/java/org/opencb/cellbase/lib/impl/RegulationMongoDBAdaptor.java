@@ -114,6 +114,12 @@ public class RegulationMongoDBAdaptor extends MongoDBAdaptor implements Regulati
         return mongoDBCollection.find(bson, null, RegulatoryFeature.class, options);
     }
 
+    @Override
+    public List<QueryResult<RegulatoryFeature>> getByRegion(List<Region> regions, QueryOptions options) {
+        return getByRegionList(regions, options, MongoDBCollectionConfiguration.REGULATORY_REGION_CHUNK_SIZE, this::get,
+                RegulatoryFeature::getStart, RegulatoryFeature::getEnd);
+    }
+
     @Override
     public QueryResult nativeGet(Query query, QueryOptions options) {
         Bson bson = parseQuery(query);
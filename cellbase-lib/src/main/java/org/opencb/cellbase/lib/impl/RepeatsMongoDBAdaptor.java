@@ -4,6 +4,7 @@ import com.mongodb.MongoClient;
 import com.mongodb.client.model.Filters;
 import org.bson.Document;
 import org.bson.conversions.Bson;
+import org.opencb.biodata.models.core.Region;
 import org.opencb.biodata.models.variant.avro.Repeat;
 import org.opencb.cellbase.core.api.RepeatsDBAdaptor;
 import org.opencb.cellbase.lib.MongoDBCollectionConfiguration;
@@ -20,7 +21,7 @@ import java.util.function.Consumer;
 /**
  * Created by fjlopez on 10/05/17.
  */
-public class RepeatsMongoDBAdaptor extends MongoDBAdaptor implements RepeatsDBAdaptor {
+public class RepeatsMongoDBAdaptor extends MongoDBAdaptor implements RepeatsDBAdaptor<Repeat> {
     private static final String REPEAT_COLLECTION = "repeats";
 
     public RepeatsMongoDBAdaptor(String species, String assembly, MongoDataStore mongoDatastore) {
@@ -52,7 +53,7 @@ public class RepeatsMongoDBAdaptor extends MongoDBAdaptor implements RepeatsDBAd
     }
 
     @Override
-    public QueryResult get(Query query, QueryOptions inputOptions) {
+    public QueryResult<Repeat> get(Query query, QueryOptions inputOptions) {
         Bson bson = parseQuery(query);
         QueryOptions options = addPrivateExcludeOptions(new QueryOptions(inputOptions));
 
@@ -60,6 +61,12 @@ public class RepeatsMongoDBAdaptor extends MongoDBAdaptor implements RepeatsDBAd
         return mongoDBCollection.find(bson, null, Repeat.class, options);
     }
 
+    @Override
+    public List<QueryResult<Repeat>> getByRegion(List<Region> regions, QueryOptions options) {
+        return getByRegionList(regions, options, MongoDBCollectionConfiguration.REPEATS_CHUNK_SIZE, this::get,
+                Repeat::getStart, Repeat::getEnd);
+    }
+
     @Override
     public QueryResult nativeGet(Query query, QueryOptions inputOptions) {
         Bson bson = parseQuery(query);
@@ -160,6 +160,12 @@ public class TranscriptMongoDBAdaptor extends MongoDBAdaptor implements Transcri
     public QueryResult getIntervalFrequencies(Query query, int intervalSize, QueryOptions options) {
         if (query.getString("region") != null) {
             Region region = Region.parseRegion(query.getString("region"));
+            if (isRegionOnlyQuery(query, QueryParams.REGION.key(), QueryParams.values())) {
+                QueryResult queryResult = getFeatureDensityIntervalFrequencies("gene", region, intervalSize);
+                if (queryResult != null) {
+                    return queryResult;
+                }
+            }
             Bson bsonDocument = parseQuery(query);
             return getIntervalFrequencies(bsonDocument, region, intervalSize, options);
         }
@@ -31,6 +31,7 @@ import org.opencb.biodata.models.variant.avro.Score;
 import org.opencb.biodata.models.variant.avro.StructuralVariantType;
 import org.opencb.biodata.models.variant.avro.VariantType;
 import org.opencb.cellbase.core.api.VariantDBAdaptor;
+import org.opencb.cellbase.core.variant.annotation.CaddScoreStore;
 import org.opencb.cellbase.core.variant.annotation.VariantAnnotationUtils;
 import org.opencb.cellbase.lib.MongoDBCollectionConfiguration;
 import org.opencb.cellbase.lib.VariantMongoIterator;
@@ -41,6 +42,7 @@ import org.opencb.commons.datastore.mongodb.MongoDBCollection;
 import org.opencb.commons.datastore.mongodb.MongoDataStore;
 
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -57,11 +59,24 @@ public class VariantMongoDBAdaptor extends MongoDBAdaptor implements VariantDBAd
     private static final String ENSEMBL_TRANSCRIPT_ID_PATTERN = "ENST00";
 
     private MongoDBCollection caddDBCollection;
+    private CaddScoreStore caddScoreStore;
 
     public VariantMongoDBAdaptor(String species, String assembly, MongoDataStore mongoDataStore) {
+        this(species, assembly, mongoDataStore, null);
+    }
+
+    /**
+     * @param species species
+     * @param assembly assembly
+     * @param mongoDataStore database
+     * @param caddScoreStore local CADD scores used instead of the variation_functional_score collection for the
+     *                       chromosomes it contains, null to always query the database
+     */
+    public VariantMongoDBAdaptor(String species, String assembly, MongoDataStore mongoDataStore, CaddScoreStore caddScoreStore) {
         super(species, assembly, mongoDataStore);
         mongoDBCollection = mongoDataStore.getCollection("variation");
         caddDBCollection = mongoDataStore.getCollection("variation_functional_score");
+        this.caddScoreStore = caddScoreStore;
 
         logger.debug("VariationMongoDBAdaptor: in 'constructor'");
     }
@@ -99,6 +114,12 @@ public class VariantMongoDBAdaptor extends MongoDBAdaptor implements VariantDBAd
     public QueryResult getIntervalFrequencies(Query query, int intervalSize, QueryOptions options) {
         if (query.getString(QueryParams.REGION.key()) != null) {
             Region region = Region.parseRegion(query.getString(QueryParams.REGION.key()));
+            if (isRegionOnlyQuery(query, QueryParams.REGION.key(), QueryParams.values())) {
+                QueryResult queryResult = getFeatureDensityIntervalFrequencies("variation", region, intervalSize);
+                if (queryResult != null) {
+                    return queryResult;
+                }
+            }
             Bson bsonDocument = parseQuery(query);
             return getIntervalFrequencies(bsonDocument, region, intervalSize, options);
         }
@@ -154,6 +175,80 @@ public class VariantMongoDBAdaptor extends MongoDBAdaptor implements VariantDBAd
         return mongoDBCollection.find(bson, null, Variant.class, options);
     }
 
+    @Override
+    public List<QueryResult<Variant>> getByRegion(List<Region> regions, QueryOptions options) {
+        return getByRegionList(regions, options, MongoDBCollectionConfiguration.VARIATION_CHUNK_SIZE, this::get,
+                Variant::getStart, Variant::getEnd);
+    }
+
+    @Override
+    public List<QueryResult<Variant>> getByVariant(List<Variant> variants, QueryOptions options) {
+        List<QueryResult<Variant>> results = new ArrayList<>(Collections.nCopies(variants.size(), null));
+
+        // Short variants are all searched with a single query by chunk and start, results are then matched to each
+        // variant in memory. Structural variants with CIPOS/CIEND need imprecise queries and are searched one by one
+        Map<String, List<Integer>> variantPositions = new HashMap<>();
+        Set<String> chunkIds = new HashSet<>();
+        Set<Integer> starts = new HashSet<>();
+        for (int i = 0; i < variants.size(); i++) {
+            Variant variant = variants.get(i);
+            if (isImpreciseStructuralVariant(variant)) {
+                results.set(i, getByVariant(variant, options));
+            } else {
+                variantPositions.computeIfAbsent(getVariantKey(variant.getChromosome(), variant.getStart(),
+                        variant.getReference(), variant.getAlternate()), key -> new ArrayList<>(1)).add(i);
+                chunkIds.add(getChunkIdPrefix(variant.getChromosome(), variant.getStart(),
+                        MongoDBCollectionConfiguration.VARIATION_CHUNK_SIZE));
+                starts.add(variant.getStart());
+            }
+        }
+        if (variantPositions.isEmpty()) {
+            return results;
+        }
+
+        // Fields needed to match results to variants are always returned, limit and skip make no sense for a batch
+        QueryOptions batchOptions = options != null ? new QueryOptions(options) : new QueryOptions();
+        batchOptions.remove(QueryOptions.LIMIT);
+        batchOptions.remove(QueryOptions.SKIP);
+        if (batchOptions.getString(QueryOptions.INCLUDE) != null && !batchOptions.getString(QueryOptions.INCLUDE).isEmpty()) {
+            batchOptions.put(QueryOptions.INCLUDE, batchOptions.getString(QueryOptions.INCLUDE)
+                    + ",chromosome,start,reference,alternate");
+        }
+        batchOptions = addVariantPrivateExcludeOptions(batchOptions);
+
+        Bson bson = Filters.and(Filters.in("_chunkIds", chunkIds), Filters.in("start", starts));
+        QueryResult<Variant> queryResult = mongoDBCollection.find(bson, null, Variant.class, batchOptions);
+
+        Map<String, List<Variant>> variantMatches = new HashMap<>();
+        for (Variant variant : queryResult.getResult()) {
+            String key = getVariantKey(variant.getChromosome(), variant.getStart(), variant.getReference(),
+                    variant.getAlternate());
+            if (variantPositions.containsKey(key)) {
+                variantMatches.computeIfAbsent(key, k -> new ArrayList<>(1)).add(variant);
+            }
+        }
+        for (Map.Entry<String, List<Variant>> entry : variantPositions.entrySet()) {
+            List<Variant> matches = variantMatches.getOrDefault(entry.getKey(), Collections.emptyList());
+            for (int position : entry.getValue()) {
+                results.set(position, new QueryResult<>(variants.get(position).toString(), queryResult.getDbTime(),
+                        matches.size(), matches.size(), null, null, new ArrayList<>(matches)));
+            }
+        }
+        return results;
+    }
+
+    private boolean isImpreciseStructuralVariant(Variant variant) {
+        return variant.getSv() != null
+                && variant.getSv().getCiStartLeft() != null
+                && variant.getSv().getCiStartRight() != null
+                && variant.getSv().getCiEndLeft() != null
+                && variant.getSv().getCiEndRight() != null;
+    }
+
+    private String getVariantKey(String chromosome, int start, String reference, String alternate) {
+        return chromosome + ":" + start + ":" + reference + ":" + alternate;
+    }
+
     // FIXME: patch to exclude annotation.additionalAttributes from the results - to remove as soon as the variation
     // FIXME: collection is updated with the new form of the additionalAttributes field
     protected QueryOptions addVariantPrivateExcludeOptions(QueryOptions options) {
@@ -467,6 +562,10 @@ public class VariantMongoDBAdaptor extends MongoDBAdaptor implements VariantDBAd
         String reference = variant.getReference();
         String alternate = variant.getAlternate();
 
+        if (caddScoreStore != null && caddScoreStore.contains(chromosome)) {
+            return getLocalFunctionalScoreVariant(chromosome, position, reference, alternate);
+        }
+
         String chunkId = getChunkIdPrefix(chromosome, position, MongoDBCollectionConfiguration.VARIATION_FUNCTIONAL_SCORE_CHUNK_SIZE);
         QueryBuilder builder = QueryBuilder.start("_chunkIds").is(chunkId);
 //                .and("chromosome").is(chromosome)
@@ -479,82 +578,158 @@ public class VariantMongoDBAdaptor extends MongoDBAdaptor implements VariantDBAd
 
         List<Score> scores = new ArrayList<>();
         for (Object object : result.getResult()) {
-//            System.out.println("object = " + object);
-            Document dbObject = (Document) object;
-            int chunkStart = dbObject.getInteger("start");
-            int chunkEnd = dbObject.getInteger("end");
-            // CADD positions are not continuous through the whole chromosome. Several documents may be associated with
-            // the same chunk id: we have to be sure that current document contains queried position. Only two documents
-            // will contain queried position - one for raw and one for scaled values
-            if (position >= chunkStart && position <= chunkEnd) {
-                int offset = (position - chunkStart);
-                ArrayList basicDBList = dbObject.get("values", ArrayList.class);
-
-//                long l1 = 0L; // TODO: delete
-//                try { // TODO: delete
-                long l1 = Long.parseLong(basicDBList.get(offset).toString());
-//                                 l1 = (Long) basicDBList.get(offset);
-//                } catch (Exception e) {  // TODO: delete
-//                    logger.error("problematic variant: {}", variant.toString());
-//                    throw e;
-//                }
-
-                if (dbObject.getString("source").equalsIgnoreCase("cadd_raw")) {
-                    float value = 0f;
-                    switch (alternate.toLowerCase()) {
-                        case "a":
-//                            value = ((short) (l1 >> 48) - 10000) / DECIMAL_RESOLUTION;
-                            value = (((short) (l1 >> 48)) / DECIMAL_RESOLUTION) - 10;
-                            break;
-                        case "c":
-                            value = (((short) (l1 >> 32)) / DECIMAL_RESOLUTION) - 10;
-                            break;
-                        case "g":
-                            value = (((short) (l1 >> 16)) / DECIMAL_RESOLUTION) - 10;
-                            break;
-                        case "t":
-                            value = (((short) (l1 >> 0)) / DECIMAL_RESOLUTION) - 10;
-                            break;
-                        default:
-                            break;
-                    }
-                    scores.add(Score.newBuilder()
-                            .setScore(value)
-                            .setSource(dbObject.getString("source"))
-                            .setDescription(null)
-                            //                        .setDescription("")
-                            .build());
+            Score score = decodeFunctionalScore((Document) object, position, alternate);
+            if (score != null) {
+                scores.add(score);
+            }
+        }
+
+        result.setResult(scores);
+        return result;
+    }
+
+    @Override
+    public List<QueryResult<Score>> getFunctionalScoreVariant(List<Variant> variants, QueryOptions queryOptions) {
+        List<QueryResult<Score>> results = new ArrayList<>(Collections.nCopies(variants.size(), null));
+
+        // Variants in a batch share chunks heavily: each chunk is fetched once for the whole batch with a single query
+        // and the scores of every variant are then decoded from the chunk documents
+        Set<String> chunkIds = new HashSet<>();
+        for (int i = 0; i < variants.size(); i++) {
+            Variant variant = variants.get(i);
+            // CADD only scores SNVs, as the default list implementation there are no scores for any other variant
+            if (variant.getType() != VariantType.SNV) {
+                results.set(i, new QueryResult<>(variant.toString(), 0, 0, 0, null, null, Collections.emptyList()));
+            } else if (caddScoreStore != null && caddScoreStore.contains(variant.getChromosome())) {
+                results.set(i, getLocalFunctionalScoreVariant(variant.getChromosome(), variant.getStart(),
+                        variant.getReference(), variant.getAlternate()));
+            } else {
+                chunkIds.add(getChunkIdPrefix(variant.getChromosome(), variant.getStart(),
+                        MongoDBCollectionConfiguration.VARIATION_FUNCTIONAL_SCORE_CHUNK_SIZE));
+            }
+        }
+        if (chunkIds.isEmpty()) {
+            return results;
+        }
+
+        QueryOptions batchOptions = queryOptions != null ? new QueryOptions(queryOptions) : new QueryOptions();
+        batchOptions.remove(QueryOptions.LIMIT);
+        batchOptions.remove(QueryOptions.SKIP);
+        QueryResult<Document> queryResult = caddDBCollection.find(Filters.in("_chunkIds", chunkIds), batchOptions);
+
+        // CADD positions are not continuous, a document may cover only part of a chunk and a chunk may be covered by
+        // several documents
+        Map<String, List<Document>> chunkDocuments = new HashMap<>();
+        int chunkSize = MongoDBCollectionConfiguration.VARIATION_FUNCTIONAL_SCORE_CHUNK_SIZE;
+        for (Document document : queryResult.getResult()) {
+            String chromosome = document.getString("chromosome");
+            int chunkStart = getChunkId(document.getInteger("start"), chunkSize);
+            int chunkEnd = getChunkId(document.getInteger("end"), chunkSize);
+            for (int chunk = chunkStart; chunk <= chunkEnd; chunk++) {
+                String chunkId = getChunkIdPrefix(chromosome, chunk * chunkSize, chunkSize);
+                if (chunkIds.contains(chunkId)) {
+                    chunkDocuments.computeIfAbsent(chunkId, key -> new ArrayList<>(2)).add(document);
                 }
+            }
+        }
 
-                if (dbObject.getString("source").equalsIgnoreCase("cadd_scaled")) {
-                    float value = 0f;
-                    switch (alternate.toLowerCase()) {
-                        case "a":
-                            value = ((short) (l1 >> 48)) / DECIMAL_RESOLUTION;
-                            break;
-                        case "c":
-                            value = ((short) (l1 >> 32)) / DECIMAL_RESOLUTION;
-                            break;
-                        case "g":
-                            value = ((short) (l1 >> 16)) / DECIMAL_RESOLUTION;
-                            break;
-                        case "t":
-                            value = ((short) (l1 >> 0)) / DECIMAL_RESOLUTION;
-                            break;
-                        default:
-                            break;
-                    }
-                    scores.add(Score.newBuilder()
-                            .setScore(value)
-                            .setSource(dbObject.getString("source"))
-                            .setDescription(null)
-                            //                        .setDescription("")
-                            .build());
+        for (int i = 0; i < variants.size(); i++) {
+            if (results.get(i) != null) {
+                continue;
+            }
+            Variant variant = variants.get(i);
+            List<Score> scores = new ArrayList<>(2);
+            for (Document document : chunkDocuments.getOrDefault(getChunkIdPrefix(variant.getChromosome(),
+                    variant.getStart(), chunkSize), Collections.emptyList())) {
+                Score score = decodeFunctionalScore(document, variant.getStart(), variant.getAlternate());
+                if (score != null) {
+                    scores.add(score);
                 }
             }
+            results.set(i, new QueryResult<>(variant.getChromosome() + "_" + variant.getStart() + "_"
+                    + variant.getReference() + "_" + variant.getAlternate(), queryResult.getDbTime(), scores.size(),
+                    scores.size(), null, null, scores));
         }
+        return results;
+    }
 
-        result.setResult(scores);
-        return result;
+    /**
+     * Decodes the score of one alternate from a CADD document holding packed scores of A, C, G and T per position.
+     *
+     * @param dbObject variation_functional_score document
+     * @param position variant position
+     * @param alternate alternate allele
+     * @return score, null if the document does not contain the position, is not a CADD document or the alternate
+     * is not one of A, C, G, T
+     */
+    private Score decodeFunctionalScore(Document dbObject, int position, String alternate) {
+        int chunkStart = dbObject.getInteger("start");
+        int chunkEnd = dbObject.getInteger("end");
+        // CADD positions are not continuous through the whole chromosome. Several documents may be associated with
+        // the same chunk id: we have to be sure that current document contains queried position. Only two documents
+        // will contain queried position - one for raw and one for scaled values
+        if (position < chunkStart || position > chunkEnd) {
+            return null;
+        }
+        int offset = (position - chunkStart);
+        ArrayList basicDBList = dbObject.get("values", ArrayList.class);
+        long l1 = Long.parseLong(basicDBList.get(offset).toString());
+
+        // Raw scores are stored shifted by 10 so that they are positive
+        float shift;
+        if (dbObject.getString("source").equalsIgnoreCase("cadd_raw")) {
+            shift = 10;
+        } else if (dbObject.getString("source").equalsIgnoreCase("cadd_scaled")) {
+            shift = 0;
+        } else {
+            return null;
+        }
+
+        float value = 0f;
+        switch (alternate.toLowerCase()) {
+            case "a":
+                value = (((short) (l1 >> 48)) / DECIMAL_RESOLUTION) - shift;
+                break;
+            case "c":
+                value = (((short) (l1 >> 32)) / DECIMAL_RESOLUTION) - shift;
+                break;
+            case "g":
+                value = (((short) (l1 >> 16)) / DECIMAL_RESOLUTION) - shift;
+                break;
+            case "t":
+                value = (((short) (l1 >> 0)) / DECIMAL_RESOLUTION) - shift;
+                break;
+            default:
+                // Same as the local CaddScoreStore: there are no scores for indels and other non A, C, G, T alternates
+                return null;
+        }
+        return Score.newBuilder()
+                .setScore(value)
+                .setSource(dbObject.getString("source"))
+                .setDescription(null)
+                .build();
+    }
+
+    private QueryResult<Score> getLocalFunctionalScoreVariant(String chromosome, int position, String reference,
+                                                              String alternate) {
+        long dbTimeStart = System.nanoTime();
+        List<Score> scores = new ArrayList<>(2);
+        long rawValue = caddScoreStore.getRawValue(chromosome, position);
+        // Same as a position with no CADD data: there are no scores for indels and other non A, C, G, T alternates
+        if (rawValue != 0 && CaddScoreStore.isScored(alternate)) {
+            scores.add(Score.newBuilder()
+                    .setScore(CaddScoreStore.decodeRawScore(rawValue, alternate))
+                    .setSource(CaddScoreStore.CADD_RAW)
+                    .setDescription(null)
+                    .build());
+            scores.add(Score.newBuilder()
+                    .setScore(CaddScoreStore.decodeScaledScore(caddScoreStore.getScaledValue(chromosome, position), alternate))
+                    .setSource(CaddScoreStore.CADD_SCALED)
+                    .setDescription(null)
+                    .build());
+        }
+        int dbTime = (int) TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - dbTimeStart);
+        return new QueryResult<>(chromosome + "_" + position + "_" + reference + "_" + alternate, dbTime, scores.size(),
+                scores.size(), null, null, scores);
     }
 }
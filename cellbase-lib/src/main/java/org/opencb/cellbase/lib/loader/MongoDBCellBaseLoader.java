@@ -23,11 +23,14 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.ObjectWriter;
 import com.mongodb.ErrorCategory;
 import com.mongodb.MongoBulkWriteException;
+import com.mongodb.MongoException;
 import com.mongodb.bulk.BulkWriteError;
 import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.MongoCursor;
 import org.apache.commons.lang3.StringUtils;
 import org.bson.BsonSerializationException;
 import org.bson.Document;
+import org.bson.conversions.Bson;
 import org.opencb.biodata.formats.io.FileFormatException;
 import org.opencb.cellbase.core.api.CellBaseDBAdaptor;
 import org.opencb.cellbase.core.api.DBAdaptorFactory;
@@ -36,6 +39,7 @@ import org.opencb.cellbase.core.config.DatabaseCredentials;
 import org.opencb.cellbase.core.loader.CellBaseLoader;
 import org.opencb.cellbase.core.loader.LoadRunner;
 import org.opencb.cellbase.core.loader.LoaderException;
+import org.opencb.cellbase.lib.FeatureDensityPyramid;
 import org.opencb.cellbase.lib.MongoDBCollectionConfiguration;
 import org.opencb.cellbase.lib.impl.MongoDBAdaptorFactory;
 import org.opencb.commons.datastore.core.DataStoreServerAddress;
@@ -734,6 +738,45 @@ public class MongoDBCellBaseLoader extends CellBaseLoader {
         }
     }
 
+    @Override
+    public void createFeatureDensities(String data) throws LoaderException {
+        logger.info("Computing feature densities of '{}'...", collectionName);
+        FeatureDensityPyramid featureDensityPyramid = new FeatureDensityPyramid();
+        QueryOptions queryOptions = new QueryOptions(QueryOptions.INCLUDE, "chromosome,start");
+        int numFeatures = 0;
+        try (MongoCursor<Document> cursor = mongoDBCollection.nativeQuery().find(new Document(), queryOptions).iterator()) {
+            while (cursor.hasNext()) {
+                Document document = cursor.next();
+                if (document.get("chromosome") != null && document.get("start") instanceof Number) {
+                    featureDensityPyramid.add(document.getString("chromosome"), ((Number) document.get("start")).intValue());
+                    numFeatures++;
+                }
+            }
+        } catch (MongoException e) {
+            throw new LoaderException(e);
+        }
+
+        // One document per chromosome and bin size, counts are packed as little-endian 32-bit integers
+        List<Bson> queries = new ArrayList<>();
+        List<Bson> updates = new ArrayList<>();
+        for (String chromosome : featureDensityPyramid.getChromosomes()) {
+            for (int binSize : FeatureDensityPyramid.BIN_SIZES) {
+                queries.add(new Document("_id", FeatureDensityPyramid.getId(collectionName, chromosome, binSize)));
+                updates.add(new Document("$set", new Document("collection", collectionName)
+                        .append("chromosome", chromosome)
+                        .append("binSize", binSize)
+                        .append("counts", FeatureDensityPyramid.encode(featureDensityPyramid.getCounts(chromosome, binSize)))));
+            }
+        }
+        if (!queries.isEmpty()) {
+            QueryOptions updateOptions = new QueryOptions("upsert", true);
+            updateOptions.put("multi", false);
+            mongoDataStore.getCollection(FeatureDensityPyramid.COLLECTION).update(queries, updates, updateOptions);
+        }
+        logger.info("{} features of '{}' counted in {} chromosomes", numFeatures, collectionName,
+                featureDensityPyramid.getChromosomes().size());
+    }
+
 
     public int load(List<Document> batch) {
         // End recursive calls
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2015 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.cellbase.lib;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class FeatureDensityPyramidTest {
+
+    @Test
+    public void getCounts() {
+        FeatureDensityPyramid featureDensityPyramid = new FeatureDensityPyramid();
+        featureDensityPyramid.add("1", 1);
+        featureDensityPyramid.add("1", 999);
+        featureDensityPyramid.add("1", 1000);
+        featureDensityPyramid.add("1", 25000);
+        featureDensityPyramid.add("2", 1500000);
+
+        assertArrayEquals(new int[]{2, 1, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 1},
+                featureDensityPyramid.getCounts("1", 1000));
+        assertArrayEquals(new int[]{3, 0, 1}, featureDensityPyramid.getCounts("1", 10000));
+        assertArrayEquals(new int[]{4}, featureDensityPyramid.getCounts("1", 1000000));
+        assertArrayEquals(new int[]{0, 1}, featureDensityPyramid.getCounts("2", 1000000));
+        assertArrayEquals(new int[0], featureDensityPyramid.getCounts("3", 1000));
+    }
+
+    @Test
+    public void getIntervalCounts() {
+        assertEquals(100000, FeatureDensityPyramid.getBinSize(200000));
+        assertEquals(10000, FeatureDensityPyramid.getBinSize(50000));
+        assertEquals(1000000, FeatureDensityPyramid.getBinSize(3000000));
+        assertEquals(-1, FeatureDensityPyramid.getBinSize(2500));
+        assertEquals(-1, FeatureDensityPyramid.getBinSize(500));
+
+        int[] binCounts = {1, 2, 3, 4, 5, 6, 7};
+        // Intervals of 2 bins: [1+2, 3+4, 5+6, 7, 0]
+        assertArrayEquals(new int[]{7, 11, 7, 0}, FeatureDensityPyramid.getIntervalCounts(binCounts, 1000, 2000, 1, 4));
+        assertArrayEquals(new int[]{3}, FeatureDensityPyramid.getIntervalCounts(binCounts, 1000, 2000, 0, 0));
+    }
+
+    @Test
+    public void encode() {
+        int[] counts = {0, 1, 255, 256, 65536, Integer.MAX_VALUE};
+        assertArrayEquals(counts, FeatureDensityPyramid.decode(FeatureDensityPyramid.encode(counts)));
+        assertEquals(4 * counts.length, FeatureDensityPyramid.encode(counts).length);
+    }
+}
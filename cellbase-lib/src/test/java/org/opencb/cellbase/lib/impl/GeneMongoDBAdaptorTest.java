@@ -1,8 +1,12 @@
 package org.opencb.cellbase.lib.impl;
 
+import com.mongodb.client.model.Filters;
+import org.bson.Document;
+import org.bson.conversions.Bson;
 import org.hamcrest.CoreMatchers;
 import org.junit.Test;
 import org.opencb.biodata.models.core.Gene;
+import org.opencb.biodata.models.core.Region;
 import org.opencb.biodata.models.variant.avro.Expression;
 import org.opencb.biodata.models.variant.avro.ExpressionCall;
 import org.opencb.cellbase.core.api.GeneDBAdaptor;
@@ -14,6 +18,7 @@ import org.opencb.commons.datastore.core.QueryResult;
 import java.util.stream.Collectors;
 
 import static org.junit.Assert.*;
+import static org.junit.Assume.assumeNotNull;
 
 /**
  * Created by fjlopez on 08/10/15.
@@ -94,4 +99,27 @@ public class GeneMongoDBAdaptorTest extends GenericMongoDBAdaptorTest {
         }
         assertEquals(true, found);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void getIntervalFrequencies() throws Exception {
+        GeneMongoDBAdaptor geneDBAdaptor = (GeneMongoDBAdaptor) dbAdaptorFactory.getGeneDBAdaptor("hsapiens", "GRCh37");
+        // Neither end of the region is aligned to the 100k intervals
+        Region region = new Region("13", 32850123, 33150456);
+        QueryResult pyramidResult = geneDBAdaptor.getFeatureDensityIntervalFrequencies("gene", region, 100000);
+        // Feature density is only available if it was computed when the test database was loaded
+        assumeNotNull(pyramidResult);
+
+        Bson regionQuery = Filters.and(Filters.eq("chromosome", region.getChromosome()),
+                Filters.lte("start", region.getEnd()), Filters.gte("end", region.getStart()));
+        QueryResult aggregationResult = geneDBAdaptor.getIntervalFrequencies(regionQuery, region, 100000, new QueryOptions());
+        assertEquals(aggregationResult.getResult().size(), pyramidResult.getResult().size());
+        for (int i = 0; i < aggregationResult.getResult().size(); i++) {
+            Document aggregationInterval = (Document) aggregationResult.getResult().get(i);
+            Document pyramidInterval = (Document) pyramidResult.getResult().get(i);
+            assertEquals(aggregationInterval.get("start"), pyramidInterval.get("start"));
+            assertEquals(aggregationInterval.get("end"), pyramidInterval.get("end"));
+            assertEquals(((Number) aggregationInterval.get("features_count")).doubleValue(),
+                    ((Number) pyramidInterval.get("features_count")).doubleValue(), 0.000001);
+        }
+    }
+}
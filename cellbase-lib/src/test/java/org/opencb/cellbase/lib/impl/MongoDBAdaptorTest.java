@@ -0,0 +1,135 @@
+package org.opencb.cellbase.lib.impl;
+
+import org.junit.Test;
+import org.opencb.biodata.models.core.Region;
+import org.opencb.cellbase.core.api.FeatureDBAdaptor;
+import org.opencb.commons.datastore.core.Query;
+import org.opencb.commons.datastore.core.QueryOptions;
+import org.opencb.commons.datastore.core.QueryResult;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.BiFunction;
+
+import static org.junit.Assert.*;
+
+public class MongoDBAdaptorTest {
+
+    // Regions play the role of the features stored in the collection
+    private static final List<Region> FEATURES = Arrays.asList(new Region("1", 1000, 1100), new Region("1", 100, 200),
+            new Region("1", 150, 160), new Region("2", 100, 200), new Region("1", 4500, 4600));
+
+    @Test
+    public void getByRegionList() throws Exception {
+        List<String> queries = new ArrayList<>();
+        List<Region> regions = Region.parseRegions("1:150-155,2:150-150,1:1050-1050,1:199-1000,1:300-400");
+        List<QueryResult<Region>> queryResults = MongoDBAdaptor.getByRegionList(regions, new QueryOptions(), 2000,
+                getFunction(queries), Region::getStart, Region::getEnd);
+
+        // One query per chromosome chunk, overlapping and adjacent regions are merged
+        assertEquals(Arrays.asList("1:150-155,1:199-1000,1:1050-1050", "2:150-150"), queries);
+
+        assertEquals(regions.size(), queryResults.size());
+        assertEquals("1:150-155", queryResults.get(0).getId());
+        assertEquals(Arrays.asList("1:100-200", "1:150-160"), toStrings(queryResults.get(0).getResult()));
+        assertEquals(Arrays.asList("2:100-200"), toStrings(queryResults.get(1).getResult()));
+        assertEquals(Arrays.asList("1:1000-1100"), toStrings(queryResults.get(2).getResult()));
+        assertEquals(Arrays.asList("1:100-200", "1:1000-1100"), toStrings(queryResults.get(3).getResult()));
+        assertEquals(0, queryResults.get(4).getNumResults());
+        assertEquals(0, queryResults.get(4).getNumTotalResults());
+    }
+
+    @Test
+    public void getByRegionListChunks() throws Exception {
+        List<String> queries = new ArrayList<>();
+        List<Region> regions = Region.parseRegions("1:4550-4550,1:150-150");
+        List<QueryResult<Region>> queryResults = MongoDBAdaptor.getByRegionList(regions, new QueryOptions(), 2000,
+                getFunction(queries), Region::getStart, Region::getEnd);
+        assertEquals(Arrays.asList("1:4550-4550", "1:150-150"), queries);
+        assertEquals(Arrays.asList("1:4500-4600"), toStrings(queryResults.get(0).getResult()));
+        assertEquals(Arrays.asList("1:100-200", "1:150-160"), toStrings(queryResults.get(1).getResult()));
+
+        // Collections with no chunks are grouped by chromosome only
+        queries.clear();
+        MongoDBAdaptor.getByRegionList(regions, new QueryOptions(), 0, getFunction(queries), Region::getStart,
+                Region::getEnd);
+        assertEquals(Arrays.asList("1:150-150,1:4550-4550"), queries);
+    }
+
+    @Test
+    public void getByRegionListLimit() throws Exception {
+        List<String> queries = new ArrayList<>();
+        List<Region> regions = Region.parseRegions("1:150-155,1:1050-1050");
+        List<QueryResult<Region>> queryResults = MongoDBAdaptor.getByRegionList(regions,
+                new QueryOptions(QueryOptions.LIMIT, 1), 2000, getFunction(queries), Region::getStart, Region::getEnd);
+
+        // A limit holds for each region: it is applied after the split, each region keeps its first features by start
+        assertEquals(Arrays.asList("1:150-155,1:1050-1050"), queries);
+        assertEquals(1, queryResults.get(0).getNumResults());
+        assertEquals(2, queryResults.get(0).getNumTotalResults());
+        assertEquals(Arrays.asList("1:100-200"), toStrings(queryResults.get(0).getResult()));
+        assertEquals(Arrays.asList("1:1000-1100"), toStrings(queryResults.get(1).getResult()));
+    }
+
+    @Test
+    public void getByRegionListSkip() throws Exception {
+        List<String> queries = new ArrayList<>();
+        List<Region> regions = Region.parseRegions("1:150-155,1:1050-1050");
+        List<QueryResult<Region>> queryResults = MongoDBAdaptor.getByRegionList(regions,
+                new QueryOptions(QueryOptions.SKIP, 1), 2000, getFunction(queries), Region::getStart, Region::getEnd);
+
+        // A skip cannot be applied after the split, regions are not merged
+        assertEquals(Arrays.asList("1:150-155", "1:1050-1050"), queries);
+        assertEquals(Arrays.asList("1:150-160"), toStrings(queryResults.get(0).getResult()));
+        assertEquals(0, queryResults.get(1).getNumResults());
+    }
+
+    @Test
+    public void getByRegionListMerge() throws Exception {
+        List<String> queries = new ArrayList<>();
+        List<Region> regions = Region.parseRegions("1:150-155,2:150-150");
+        List<QueryResult<Region>> queryResults = MongoDBAdaptor.getByRegionList(regions,
+                new QueryOptions(FeatureDBAdaptor.MERGE, true), 2000, getFunction(queries), Region::getStart,
+                Region::getEnd);
+        assertEquals(Arrays.asList("1:150-155,2:150-150"), queries);
+        assertEquals(1, queryResults.size());
+        assertEquals(3, queryResults.get(0).getNumResults());
+    }
+
+    /**
+     * @param queries list where the region param of each query is added
+     * @return get method returning the features overlapping the regions of the query, applying the skip and limit
+     */
+    private BiFunction<Query, QueryOptions, QueryResult<Region>> getFunction(List<String> queries) {
+        return (query, options) -> {
+            String regions = query.getString(FeatureDBAdaptor.REGION);
+            queries.add(regions);
+            List<Region> features = new ArrayList<>();
+            for (Region feature : FEATURES) {
+                for (Region region : Region.parseRegions(regions)) {
+                    if (feature.getChromosome().equals(region.getChromosome()) && feature.getStart() <= region.getEnd()
+                            && feature.getEnd() >= region.getStart()) {
+                        features.add(feature);
+                        break;
+                    }
+                }
+            }
+            int numTotalResults = features.size();
+            features = features.subList(Math.min(options.getInt(QueryOptions.SKIP, 0), features.size()), features.size());
+            int limit = options.getInt(QueryOptions.LIMIT, -1);
+            if (limit > 0 && limit < features.size()) {
+                features = features.subList(0, limit);
+            }
+            return new QueryResult<>(regions, 0, features.size(), numTotalResults, null, null, features);
+        };
+    }
+
+    private List<String> toStrings(List<Region> regions) {
+        List<String> strings = new ArrayList<>(regions.size());
+        for (Region region : regions) {
+            strings.add(region.toString());
+        }
+        return strings;
+    }
+}
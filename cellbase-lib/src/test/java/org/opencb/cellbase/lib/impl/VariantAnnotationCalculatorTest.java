@@ -28,6 +28,7 @@ import org.junit.Test;
 import org.opencb.biodata.formats.variant.vcf4.VcfRecord;
 import org.opencb.biodata.formats.variant.vcf4.io.VcfRawReader;
 import org.opencb.biodata.models.variant.Variant;
+import org.opencb.biodata.models.variant.annotation.ConsequenceTypeMappings;
 import org.opencb.biodata.models.variant.avro.*;
 import org.opencb.biodata.models.variant.avro.ConsequenceType;
 import org.opencb.biodata.models.variant.avro.Repeat;
@@ -35,6 +36,7 @@ import org.opencb.biodata.models.variant.avro.SequenceOntologyTerm;
 import org.opencb.biodata.models.variant.avro.VariantAnnotation;
 import org.opencb.cellbase.core.config.CellBaseConfiguration;
 import org.opencb.cellbase.core.variant.annotation.VariantAnnotationCalculator;
+import org.opencb.cellbase.core.variant.annotation.VariantAnnotationUtils;
 import org.opencb.cellbase.lib.impl.MongoDBAdaptorFactory;
 import org.opencb.commons.datastore.core.QueryOptions;
 import org.opencb.commons.datastore.core.QueryResult;
@@ -742,6 +744,35 @@ public class VariantAnnotationCalculatorTest {
                 "ENST00000425718(ENSG00000130203):c.388T>C")), new HashSet<String>(queryResult.getResult().get(0).getHgvs()));
     }
 
+    @Test
+    public void testRepeatedConsequenceTypeAnnotation() throws Exception {
+        QueryOptions queryOptions = new QueryOptions("useCache", false);
+        queryOptions.put("include", "consequenceType");
+        List<Variant> variantList = Arrays.asList(new Variant("19:45411941:T:C"), new Variant("22:18512237:-:AGTT"),
+                new Variant("13:32316470:GT:-"), new Variant("19:45411941:T:A"));
+
+        // Annotating other variants in between on the same thread must not change the result
+        List<QueryResult<VariantAnnotation>> queryResultList1 =
+                variantAnnotationCalculator.getAnnotationByVariantList(variantList, queryOptions);
+        variantAnnotationCalculator.getAnnotationByVariantList(Arrays.asList(new Variant("22:18673994:-:AGTT"),
+                new Variant("2:114340663:GCTGGGCATCC:ACTGGGCATCC")), queryOptions);
+        List<QueryResult<VariantAnnotation>> queryResultList2 =
+                variantAnnotationCalculator.getAnnotationByVariantList(variantList, queryOptions);
+
+        assertEquals(queryResultList1.size(), queryResultList2.size());
+        for (int i = 0; i < queryResultList1.size(); i++) {
+            assertEquals(jsonObjectMapper.writeValueAsString(queryResultList1.get(i).getResult()),
+                    jsonObjectMapper.writeValueAsString(queryResultList2.get(i).getResult()));
+        }
+
+        // SO terms are shared by all the annotations, annotating must leave them untouched
+        for (String soName : VariantAnnotationUtils.SO_SEVERITY.keySet()) {
+            SequenceOntologyTerm sequenceOntologyTerm = VariantAnnotationUtils.getSequenceOntologyTerm(soName);
+            assertEquals(soName, sequenceOntologyTerm.getName());
+            assertEquals(ConsequenceTypeMappings.getSoAccessionString(soName), sequenceOntologyTerm.getAccession());
+        }
+    }
+
     @Test
     public void testCytobandAnnotation() throws Exception {
 
@@ -22,6 +22,7 @@ import org.junit.BeforeClass;
 import org.junit.Ignore;
 import org.junit.Test;
 import org.opencb.biodata.models.variant.Variant;
+import org.opencb.biodata.models.variant.avro.Score;
 import org.opencb.biodata.models.variant.avro.VariantType;
 import org.opencb.cellbase.core.api.VariantDBAdaptor;
 import org.opencb.cellbase.lib.GenericMongoDBAdaptorTest;
@@ -29,6 +30,8 @@ import org.opencb.commons.datastore.core.Query;
 import org.opencb.commons.datastore.core.QueryOptions;
 import org.opencb.commons.datastore.core.QueryResult;
 
+import java.util.Arrays;
+import java.util.List;
 import java.util.stream.Collectors;
 
 import static org.junit.Assert.*;
@@ -66,6 +69,23 @@ public class VariantMongoDBAdaptorTest extends GenericMongoDBAdaptorTest {
                 new QueryOptions());
     }
 
+    @Test
+    public void testGetFunctionalScoreVariantNonSNV() throws Exception {
+        VariantDBAdaptor variationDBAdaptor = dbAdaptorFactory.getVariationDBAdaptor("hsapiens", "GRCh37");
+        List<Variant> variants = Arrays.asList(Variant.parseVariant("10:130862563:A:G"),
+                Variant.parseVariant("10:130862563:-:T"), Variant.parseVariant("10:130862563:A:-"),
+                Variant.parseVariant("10:130862563:AC:GT"));
+        List<QueryResult<Score>> queryResults = variationDBAdaptor.getFunctionalScoreVariant(variants, new QueryOptions());
+        assertEquals(variants.size(), queryResults.size());
+        assertNotNull(queryResults.get(0));
+        // CADD only scores SNVs: insertions, deletions and MNVs in the same batch get no scores
+        for (int i = 1; i < variants.size(); i++) {
+            assertNotEquals(VariantType.SNV, variants.get(i).getType());
+            assertEquals(0, queryResults.get(i).getNumResults());
+            assertTrue(queryResults.get(i).getResult().isEmpty());
+        }
+    }
+
     @Test
     public void testGet() {
         VariantDBAdaptor variationDBAdaptor = dbAdaptorFactory.getVariationDBAdaptor("hsapiens", "GRCh37");
@@ -1,5 +1,7 @@
 package org.opencb.cellbase.server.grpc;
 
+import io.grpc.Status;
+import io.grpc.stub.ServerCallStreamObserver;
 import io.grpc.stub.StreamObserver;
 import org.opencb.biodata.models.variant.Variant;
 import org.opencb.biodata.models.variant.avro.Score;
@@ -13,17 +15,26 @@ import org.opencb.cellbase.core.grpc.service.VariantAnnotationServiceGrpc;
 import org.opencb.commons.datastore.core.Query;
 import org.opencb.commons.datastore.core.QueryOptions;
 import org.opencb.commons.datastore.core.QueryResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Created by swaathi on 17/08/16.
  */
 public class VariantAnnotationGrpcService extends VariantAnnotationServiceGrpc.VariantAnnotationServiceImplBase implements IGrpcService {
 
+    private static final int BATCH_SIZE = 200;
+    private static final int BATCH_SIZE_MAX = 5000;
+
     private DBAdaptorFactory dbAdaptorFactory;
 
+    private static Logger logger = LoggerFactory.getLogger(VariantAnnotationGrpcService.class);
+
     public VariantAnnotationGrpcService(DBAdaptorFactory dbAdaptorFactory) {
         this.dbAdaptorFactory = dbAdaptorFactory;
     }
@@ -69,4 +80,100 @@ public class VariantAnnotationGrpcService extends VariantAnnotationServiceGrpc.V
         }
         responseObserver.onCompleted();
     }
+
+    @Override
+    public StreamObserver<GenericServiceModel.Request> annotate(
+            StreamObserver<VariantAnnotationProto.VariantAnnotation> responseObserver) {
+        ServerCallStreamObserver<VariantAnnotationProto.VariantAnnotation> serverCallStreamObserver =
+                (ServerCallStreamObserver<VariantAnnotationProto.VariantAnnotation>) responseObserver;
+        // Requests are pulled one at a time, only when the client is ready to take more annotations
+        serverCallStreamObserver.disableAutoInboundFlowControl();
+
+        AtomicBoolean wasReady = new AtomicBoolean(false);
+        serverCallStreamObserver.setOnReadyHandler(() -> {
+            if (serverCallStreamObserver.isReady() && wasReady.compareAndSet(false, true)) {
+                serverCallStreamObserver.request(1);
+            }
+        });
+
+        return new StreamObserver<GenericServiceModel.Request>() {
+            private VariantAnnotationCalculator variantAnnotationCalculator;
+            private QueryOptions queryOptions;
+            private int batchSize;
+            private List<Variant> batch = new ArrayList<>();
+            private boolean failed;
+
+            @Override
+            public void onNext(GenericServiceModel.Request request) {
+                if (failed) {
+                    return;
+                }
+                try {
+                    if (variantAnnotationCalculator == null) {
+                        variantAnnotationCalculator = new VariantAnnotationCalculator(request.getSpecies(),
+                                request.getAssembly(), dbAdaptorFactory);
+                        queryOptions = createQueryOptions(request);
+                        // Same bounds as the REST streaming endpoint
+                        batchSize = Math.max(1, Math.min(queryOptions.getInt("batchSize", BATCH_SIZE), BATCH_SIZE_MAX));
+                    }
+                    String ids = request.getQueryMap().get("id");
+                    if (ids != null && !ids.isEmpty()) {
+                        batch.addAll(Variant.parseVariants(ids));
+                    }
+                    if (batch.size() >= batchSize) {
+                        annotate();
+                    }
+                } catch (Exception e) {
+                    fail(e);
+                    return;
+                }
+
+                if (serverCallStreamObserver.isReady()) {
+                    serverCallStreamObserver.request(1);
+                } else {
+                    // Next request will be pulled by the onReady handler
+                    wasReady.set(false);
+                }
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                logger.warn("Variant annotation stream cancelled by the client: {}", throwable.getMessage());
+            }
+
+            @Override
+            public void onCompleted() {
+                if (failed) {
+                    return;
+                }
+                try {
+                    annotate();
+                } catch (Exception e) {
+                    fail(e);
+                    return;
+                }
+                responseObserver.onCompleted();
+            }
+
+            private void annotate() throws InterruptedException, ExecutionException {
+                if (batch.isEmpty()) {
+                    return;
+                }
+                List<QueryResult<VariantAnnotation>> queryResultList =
+                        variantAnnotationCalculator.getAnnotationByVariantList(batch, queryOptions);
+                for (QueryResult<VariantAnnotation> queryResult : queryResultList) {
+                    for (VariantAnnotation variantAnnotation : queryResult.getResult()) {
+                        responseObserver.onNext(ProtoConverterUtils.createVariantAnnotation(variantAnnotation));
+                    }
+                }
+                batch = new ArrayList<>(batchSize);
+            }
+
+            private void fail(Exception e) {
+                logger.error("Error annotating variant stream", e);
+                failed = true;
+                responseObserver.onError(Status.INTERNAL.withDescription(e.toString()).withCause(e).asRuntimeException());
+            }
+        };
+    }
 }
@@ -24,6 +24,9 @@ import org.opencb.cellbase.core.common.GitRepositoryState;
 import org.opencb.cellbase.core.config.DownloadProperties;
 import org.opencb.cellbase.core.config.SpeciesProperties;
 import org.opencb.cellbase.core.monitor.HealthStatus;
+import org.opencb.cellbase.core.variant.annotation.AnnotationExecutor;
+import org.opencb.cellbase.core.variant.annotation.AnnotatorMetrics;
+import org.opencb.cellbase.core.variant.annotation.VariantAnnotationCache;
 import org.opencb.cellbase.server.exception.SpeciesException;
 import org.opencb.cellbase.server.exception.VersionException;
 import org.opencb.commons.datastore.core.Query;
@@ -42,6 +45,7 @@ import java.io.IOException;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 /**
@@ -55,6 +59,7 @@ public class MetaWSServer extends GenericRestWSServer {
     private static final String PONG = "pong";
     private static final String STATUS = "status";
     private static final String HEALTH = "health";
+    private static final String METRICS = "metrics";
     private static final String LOCALHOST_REST_API = "http://localhost:8080/cellbase";
 
     public MetaWSServer(@PathParam("version")
@@ -170,6 +175,29 @@ public class MetaWSServer extends GenericRestWSServer {
         return createOkResponse(queryResult);
     }
 
+    @GET
+    @Path("/metrics")
+    @ApiOperation(httpMethod = "GET", value = "Returns variant annotation metrics collected since the server started: "
+            + "latency histogram, throughput, database calls and documents returned by each annotator, annotation "
+            + "thread pool usage and annotation cache counters.",
+            response = Map.class, responseContainer = "QueryResponse")
+    public Response getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("annotators", AnnotatorMetrics.getAll());
+        // The executor is created with the configured settings by the first annotation, it must not be created here
+        AnnotationExecutor annotationExecutor = AnnotationExecutor.getInstanceIfCreated();
+        metrics.put("executor", annotationExecutor != null ? annotationExecutor.getAnnotatorStats() : Collections.emptyMap());
+        metrics.put("caches", VariantAnnotationCache.getAllCacheStats());
+        QueryResult<Map<String, Object>> queryResult = new QueryResult<>();
+        queryResult.setId(METRICS);
+        queryResult.setDbTime(0);
+        queryResult.setNumTotalResults(1);
+        queryResult.setNumResults(1);
+        queryResult.setResult(Collections.singletonList(metrics));
+
+        return createOkResponse(queryResult);
+    }
+
     @GET
     @Path("/{species}/status")
     @ApiOperation(httpMethod = "GET", value = "Reports on the overall system status based on the status of such things "
@@ -0,0 +1,167 @@
+/*
+ * Copyright 2015 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.cellbase.server.ws.genomic;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.opencb.biodata.models.variant.Variant;
+import org.opencb.biodata.models.variant.avro.VariantAnnotation;
+import org.opencb.biodata.models.variant.avro.VariantAvro;
+import org.opencb.cellbase.core.variant.annotation.VariantAnnotationCalculator;
+import org.opencb.commons.datastore.core.QueryOptions;
+import org.opencb.commons.datastore.core.QueryResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.ws.rs.core.StreamingOutput;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Annotates a stream of variants in micro-batches and writes one QueryResult per line (NDJSON) as soon as each batch
+ * is annotated, so that memory usage is bounded by the batch size rather than by the request size.
+ *
+ * Input is read line by line in one of these formats: "variant", comma separated variant ids such as 19:45411941:T:C;
+ * "json", one Variant per line; "vcf", VCF data lines, header lines are skipped.
+ */
+public class VariantAnnotationStreamingOutput implements StreamingOutput {
+
+    public static final String VARIANT_FORMAT = "variant";
+    public static final String JSON_FORMAT = "json";
+    public static final String VCF_FORMAT = "vcf";
+
+    private final InputStream inputStream;
+    private final String inputFormat;
+    private final int batchSize;
+    private final VariantAnnotationCalculator variantAnnotationCalculator;
+    private final QueryOptions queryOptions;
+    private final ObjectMapper jsonObjectMapper;
+    private final ObjectWriter jsonObjectWriter;
+
+    private long numVariants;
+
+    private static Logger logger = LoggerFactory.getLogger(VariantAnnotationStreamingOutput.class);
+
+    public VariantAnnotationStreamingOutput(InputStream inputStream, String inputFormat, int batchSize,
+                                            VariantAnnotationCalculator variantAnnotationCalculator,
+                                            QueryOptions queryOptions, ObjectMapper jsonObjectMapper) {
+        this.inputStream = inputStream;
+        this.inputFormat = inputFormat;
+        this.batchSize = batchSize;
+        this.variantAnnotationCalculator = variantAnnotationCalculator;
+        this.queryOptions = queryOptions;
+        this.jsonObjectMapper = jsonObjectMapper;
+        this.jsonObjectWriter = jsonObjectMapper.writer();
+    }
+
+    @Override
+    public void write(OutputStream outputStream) throws IOException {
+        BufferedReader bufferedReader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+        Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+
+        int lineNumber = 0;
+        List<Variant> batch = new ArrayList<>(batchSize);
+        try {
+            String line;
+            while ((line = bufferedReader.readLine()) != null) {
+                lineNumber++;
+                if (line.startsWith("#") || line.trim().isEmpty()) {
+                    continue;
+                }
+                parseVariants(line, batch, writer);
+            }
+            annotate(batch, writer);
+        } catch (Exception e) {
+            // Response status has already been sent, errors can only be reported in the stream
+            logger.error("Error annotating variant stream at line {}", lineNumber, e);
+            writeLine(new QueryResult<>("line " + lineNumber, 0, 0, 0, null, e.toString(), Collections.emptyList()), writer);
+        } finally {
+            writer.flush();
+        }
+        logger.debug("{} variants annotated from the '{}' stream", numVariants, inputFormat);
+    }
+
+    private void annotate(List<Variant> batch, Writer writer) throws Exception {
+        if (batch.isEmpty()) {
+            return;
+        }
+        List<QueryResult<VariantAnnotation>> queryResultList =
+                variantAnnotationCalculator.getAnnotationByVariantList(batch, queryOptions);
+        for (QueryResult<VariantAnnotation> queryResult : queryResultList) {
+            writeLine(queryResult, writer);
+        }
+        // Send each batch to the client as soon as it is annotated
+        writer.flush();
+
+        numVariants += batch.size();
+        batch.clear();
+    }
+
+    /**
+     * Batches are annotated as soon as they are full, also in the middle of a line, so a line with many variants
+     * does not make the batch grow beyond batchSize.
+     */
+    private void add(Variant variant, List<Variant> batch, Writer writer) throws Exception {
+        batch.add(variant);
+        if (batch.size() >= batchSize) {
+            annotate(batch, writer);
+        }
+    }
+
+    private void writeLine(Object object, Writer writer) throws IOException {
+        writer.write(jsonObjectWriter.writeValueAsString(object));
+        writer.write('\n');
+    }
+
+    private void parseVariants(String line, List<Variant> batch, Writer writer) throws Exception {
+        switch (inputFormat) {
+            case JSON_FORMAT:
+                Variant variant = new Variant(jsonObjectMapper.convertValue(jsonObjectMapper.readTree(line), VariantAvro.class));
+                // Variants may not have the type set and this might cause NPE
+                if (variant.getType() == null) {
+                    variant.setType(variant.inferType(variant.getReference(), variant.getAlternate()));
+                    variant.resetLength();
+                }
+                add(variant, batch, writer);
+                break;
+            case VCF_FORMAT:
+                // CHROM POS ID REF ALT, one variant per alternate allele
+                String[] fields = line.split("\t", 6);
+                if (fields.length < 5) {
+                    throw new IllegalArgumentException("Not a VCF data line: " + line);
+                }
+                int position = Integer.parseInt(fields[1]);
+                for (String alternate : fields[4].split(",")) {
+                    if (!alternate.equals(".")) {
+                        add(new Variant(fields[0], position, fields[3], alternate), batch, writer);
+                    }
+                }
+                break;
+            case VARIANT_FORMAT:
+                for (String id : line.trim().split(",")) {
+                    add(new Variant(id), batch, writer);
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown input format '" + inputFormat + "', valid values are: "
+                        + VARIANT_FORMAT + ", " + JSON_FORMAT + ", " + VCF_FORMAT);
+        }
+    }
+}
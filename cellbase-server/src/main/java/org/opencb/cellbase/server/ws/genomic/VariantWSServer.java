@@ -28,6 +28,7 @@ import org.opencb.cellbase.core.variant.annotation.VariantAnnotationCalculator;
 import org.opencb.cellbase.server.exception.SpeciesException;
 import org.opencb.cellbase.server.exception.VersionException;
 import org.opencb.cellbase.server.ws.GenericRestWSServer;
+import org.opencb.commons.datastore.core.QueryOptions;
 import org.opencb.commons.datastore.core.QueryResponse;
 import org.opencb.commons.datastore.core.QueryResult;
 
@@ -38,6 +39,7 @@ import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.UriInfo;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -49,6 +51,9 @@ public class VariantWSServer extends GenericRestWSServer {
 
     protected static final HashMap<String, List<Transcript>> CACHE_TRANSCRIPT = new HashMap<>();
 
+    private static final int STREAM_BATCH_SIZE = 200;
+    private static final int STREAM_BATCH_SIZE_MAX = 5000;
+
     public VariantWSServer(@PathParam("version")
                            @ApiParam(name = "version", value = "Possible values: v3, v4",
                                    defaultValue = "v4") String version,
@@ -239,6 +244,103 @@ public class VariantWSServer extends GenericRestWSServer {
         }
     }
 
+    @POST
+    @Consumes({"text/plain", "application/x-ndjson", "text/x-vcf"})
+    @Produces("application/x-ndjson")
+    @Path("/annotation/stream")
+    @ApiOperation(httpMethod = "POST",
+            value = "Streams variant annotation for a variant stream of any size, one QueryResult per line (NDJSON).",
+            notes = "Variants are annotated in batches and each batch is written as soon as it is annotated. Errors found"
+            + " after the first batch is sent are reported as a last QueryResult with the error message. Include and"
+            + " exclude lists take values from the following set: {variation, clinical, conservation, functionalScore,"
+            + " consequenceType, expression, geneDisease, drugInteraction, populationFrequencies, repeats}.",
+            response = VariantAnnotation.class, responseContainer = "QueryResult")
+    public Response getAnnotationByVariantStreamPOST(@ApiParam(name = "variants", value = "Variant stream, one or more comma"
+                                                             + " separated variants per line, one JSON Variant per line or"
+                                                             + " VCF lines depending on inputFormat",
+                                                             required = true) InputStream variants,
+                                                     @QueryParam("inputFormat")
+                                                     @ApiParam(name = "inputFormat",
+                                                             value = "Format of the variant stream",
+                                                             allowableValues = "variant,json,vcf", defaultValue = "variant",
+                                                             required = false) String inputFormat,
+                                                     @QueryParam("batchSize")
+                                                     @ApiParam(name = "batchSize",
+                                                             value = "Number of variants annotated and written at a time,"
+                                                                     + " max. 5000",
+                                                             defaultValue = "200", required = false) Integer batchSize,
+                                                     @QueryParam("normalize")
+                                                     @ApiParam(name = "normalize",
+                                                             value = "Boolean to indicate whether input variants shall be "
+                                                                     + "normalized or not. Normalization process includes "
+                                                                     + "decomposing MNVs. Defaults to true for VCF input",
+                                                             allowableValues = "false,true",
+                                                             required = false) Boolean normalize,
+                                                     @QueryParam("phased")
+                                                     @ApiParam(name = "phased",
+                                                             value = "Boolean to indicate whether phase should be considered "
+                                                                     + "during the annotation process",
+                                                             allowableValues = "false,true", defaultValue = "false",
+                                                             required = false) Boolean phased,
+                                                     @QueryParam("imprecise")
+                                                     @ApiParam(name = "imprecise",
+                                                             value = "Boolean to indicate whether imprecise search must be"
+                                                                     + " used or not", allowableValues = "false,true",
+                                                             defaultValue = "true", required = false) Boolean imprecise,
+                                                     @QueryParam("svExtraPadding")
+                                                     @ApiParam(name = "svExtraPadding",
+                                                             value = "Integer to optionally provide the size of the extra"
+                                                                     + " padding to be used when annotating imprecise (or not)"
+                                                                     + " structural variants",
+                                                             defaultValue = "0", required = false) Integer svExtraPadding,
+                                                     @QueryParam("cnvExtraPadding")
+                                                     @ApiParam(name = "cnvExtraPadding",
+                                                             value = "Integer to optionally provide the size of the extra"
+                                                                     + " padding to be used when annotating imprecise (or not)"
+                                                                     + " CNVs",
+                                                             defaultValue = "0", required = false) Integer cnvExtraPadding) {
+        try {
+            parseQueryParams();
+            if (inputFormat == null) {
+                inputFormat = VariantAnnotationStreamingOutput.VARIANT_FORMAT;
+            }
+            if (!inputFormat.equals(VariantAnnotationStreamingOutput.VARIANT_FORMAT)
+                    && !inputFormat.equals(VariantAnnotationStreamingOutput.JSON_FORMAT)
+                    && !inputFormat.equals(VariantAnnotationStreamingOutput.VCF_FORMAT)) {
+                return createErrorResponse(new IllegalArgumentException("Unknown inputFormat '" + inputFormat + "'"));
+            }
+            batchSize = (batchSize != null && batchSize > 0) ? Math.min(batchSize, STREAM_BATCH_SIZE_MAX) : STREAM_BATCH_SIZE;
+            // VCF alleles include the padding base and must be normalized
+            if (normalize != null) {
+                queryOptions.put("normalize", normalize);
+            } else if (inputFormat.equals(VariantAnnotationStreamingOutput.VCF_FORMAT)) {
+                queryOptions.put("normalize", true);
+            }
+            if (phased != null) {
+                queryOptions.put("phased", phased);
+            }
+            if (imprecise != null) {
+                queryOptions.put("imprecise", imprecise);
+            }
+            if (svExtraPadding != null) {
+                queryOptions.put("svExtraPadding", svExtraPadding);
+            }
+            if (cnvExtraPadding != null) {
+                queryOptions.put("cnvExtraPadding", cnvExtraPadding);
+            }
+            logger.debug("queryOptions: " + queryOptions);
+            VariantAnnotationCalculator variantAnnotationCalculator =
+                    new VariantAnnotationCalculator(this.species, this.assembly, dbAdaptorFactory);
+            logQuery("ok");
+
+            return createOkResponse(new VariantAnnotationStreamingOutput(variants, inputFormat, batchSize,
+                    variantAnnotationCalculator, new QueryOptions(queryOptions), jsonObjectMapper),
+                    MediaType.valueOf("application/x-ndjson"));
+        } catch (Exception e) {
+            return createErrorResponse(e);
+        }
+    }
+
     @GET
     @Path("/{variants}/annotation")
     @ApiOperation(httpMethod = "GET",